@@ -0,0 +1,208 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.enums.AlgoritmoSmileML;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.InferenciaLoteML;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.RegresionLagsIncremental;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.math.MathEx;
+import smile.regression.DataFrameRegression;
+import smile.regression.GradientTreeBoost;
+import smile.regression.OLS;
+import smile.regression.RandomForest;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paso ML de ejecutarPrediccionML sobre 1.000 productos sintéticos (un año
+ * diario, split 80/20, horizonte de 30 días), antes y después de entrenar una
+ * sola vez por algoritmo:
+ *
+ * - dosAjustes: camino anterior con la caché de modelos desactivada. Un
+ *   ajuste para el horizonte y otro para la validación, y un DataFrame de una
+ *   fila por cada día predicho.
+ * - unAjusteConCache: camino anterior con la caché activa. Con los
+ *   hiperparámetros por defecto ambos ajustes tienen la misma clave, así que
+ *   el segundo es un acierto; queda la inferencia día a día.
+ * - unAjuste: camino actual. Un ajuste e inferencia por lotes de validación
+ *   + horizonte (ARIMA con RegresionLagsIncremental).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class AjusteUnicoBenchmark {
+
+    private static final int HORIZONTE = 30;
+    private static final int DIAS = 365;
+
+    @Param({ "LINEAR_REGRESSION", "ARIMA", "RANDOM_FOREST", "GRADIENT_BOOSTING" })
+    private AlgoritmoSmileML algoritmo;
+
+    @Param({ "1000" })
+    private int productos;
+
+    private double[][] series;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        series = new double[productos][];
+        for (int p = 0; p < productos; p++) {
+            series[p] = SeriesSinteticas.minimarket(DIAS, 1000L + p);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fijarSemilla() {
+        MathEx.setSeed(19650218L);
+    }
+
+    @Benchmark
+    public double dosAjustes() {
+        double total = 0;
+        for (double[] serie : series) {
+            int n = (int) (serie.length * 0.8);
+            double[] train = Arrays.copyOf(serie, n);
+            int validacion = serie.length - n;
+            if (algoritmo == AlgoritmoSmileML.ARIMA) {
+                int numLags = Math.min(7, n / 4);
+                total += sumar(predecirLagsPorFila(ajustarLags(train, numLags), train, numLags, HORIZONTE));
+                total += sumar(predecirLagsPorFila(ajustarLags(train, numLags), train, numLags, validacion));
+            } else {
+                total += sumar(predecirPorFila(ajustarTiempo(train), n, HORIZONTE));
+                total += sumar(predecirPorFila(ajustarTiempo(train), n, validacion));
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double unAjusteConCache() {
+        double total = 0;
+        for (double[] serie : series) {
+            int n = (int) (serie.length * 0.8);
+            double[] train = Arrays.copyOf(serie, n);
+            int validacion = serie.length - n;
+            if (algoritmo == AlgoritmoSmileML.ARIMA) {
+                int numLags = Math.min(7, n / 4);
+                DataFrameRegression modelo = ajustarLags(train, numLags);
+                total += sumar(predecirLagsPorFila(modelo, train, numLags, HORIZONTE));
+                total += sumar(predecirLagsPorFila(modelo, train, numLags, validacion));
+            } else {
+                DataFrameRegression modelo = ajustarTiempo(train);
+                total += sumar(predecirPorFila(modelo, n, HORIZONTE));
+                total += sumar(predecirPorFila(modelo, n, validacion));
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public double unAjuste() {
+        double total = 0;
+        for (double[] serie : series) {
+            int n = (int) (serie.length * 0.8);
+            int validacion = serie.length - n;
+            if (algoritmo == AlgoritmoSmileML.ARIMA) {
+                RegresionLagsIncremental modelo = new RegresionLagsIncremental(Math.min(7, n / 4));
+                modelo.ajustar(serie, n);
+                total += sumar(modelo.predecirRecursivo(serie, n, validacion));
+                total += sumar(modelo.predecirRecursivo(serie, serie.length, HORIZONTE));
+            } else {
+                DataFrameRegression modelo = ajustarTiempo(Arrays.copyOf(serie, n));
+                total += sumar(InferenciaLoteML.predecirTiempo(modelo, n, validacion + HORIZONTE));
+            }
+        }
+        return total;
+    }
+
+    private DataFrameRegression ajustarTiempo(double[] train) {
+        int n = train.length;
+        double[] tiempo = new double[n];
+        for (int i = 0; i < n; i++) {
+            tiempo[i] = i;
+        }
+        DataFrame datos = DataFrame.of(DoubleVector.of("tiempo", tiempo), DoubleVector.of("demanda", train));
+        Formula formula = Formula.lhs("demanda");
+        return switch (algoritmo) {
+            case LINEAR_REGRESSION -> OLS.fit(formula, datos);
+            case RANDOM_FOREST -> RandomForest.fit(formula, datos, Math.min(100, Math.max(50, n / 2)), 1, 10, 100,
+                    5, 1.0);
+            case GRADIENT_BOOSTING -> GradientTreeBoost.fit(formula, datos, propiedadesGBT(n));
+            default -> throw new IllegalArgumentException("Sin feature temporal: " + algoritmo);
+        };
+    }
+
+    private static DataFrameRegression ajustarLags(double[] train, int numLags) {
+        int filas = train.length - numLags;
+        DoubleVector[] columnas = new DoubleVector[numLags + 1];
+        for (int lag = 0; lag < numLags; lag++) {
+            columnas[lag] = DoubleVector.of("lag" + (lag + 1), Arrays.copyOfRange(train, lag, lag + filas));
+        }
+        columnas[numLags] = DoubleVector.of("demanda", Arrays.copyOfRange(train, numLags, train.length));
+        return OLS.fit(Formula.lhs("demanda"), DataFrame.of(columnas));
+    }
+
+    /** Un DataFrame de una fila por día, como el camino anterior. */
+    private static double[] predecirPorFila(DataFrameRegression modelo, int desde, int pasos) {
+        double[] salida = new double[pasos];
+        for (int i = 0; i < pasos; i++) {
+            DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { desde + i }));
+            salida[i] = Math.max(0, modelo.predict(punto.get(0)));
+        }
+        return salida;
+    }
+
+    private static double[] predecirLagsPorFila(DataFrameRegression modelo, double[] train, int numLags, int pasos) {
+        double[] buffer = Arrays.copyOfRange(train, train.length - numLags, train.length);
+        double[] salida = new double[pasos];
+        for (int i = 0; i < pasos; i++) {
+            DoubleVector[] columnas = new DoubleVector[numLags];
+            for (int lag = 0; lag < numLags; lag++) {
+                columnas[lag] = DoubleVector.of("lag" + (lag + 1), new double[] { buffer[lag] });
+            }
+            salida[i] = Math.max(0, modelo.predict(DataFrame.of(columnas).get(0)));
+            double[] siguiente = new double[numLags];
+            System.arraycopy(buffer, 1, siguiente, 0, numLags - 1);
+            siguiente[numLags - 1] = salida[i];
+            buffer = siguiente;
+        }
+        return salida;
+    }
+
+    private static double sumar(double[] valores) {
+        double suma = 0;
+        for (double valor : valores) {
+            suma += valor;
+        }
+        return suma;
+    }
+
+    private static Properties propiedadesGBT(int n) {
+        Properties props = new Properties();
+        props.setProperty("smile.gbt.trees", String.valueOf(Math.min(200, Math.max(100, n))));
+        props.setProperty("smile.gbt.shrinkage", "0.05");
+        props.setProperty("smile.gbt.max.depth", "6");
+        props.setProperty("smile.gbt.max.nodes", "50");
+        props.setProperty("smile.gbt.node.size", "5");
+        props.setProperty("smile.gbt.sample.rate", "0.7");
+        return props;
+    }
+}
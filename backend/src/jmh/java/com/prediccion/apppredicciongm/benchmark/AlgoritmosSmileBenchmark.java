@@ -0,0 +1,124 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.enums.AlgoritmoSmileML;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.InferenciaLoteML;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.RegresionLagsIncremental;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.math.MathEx;
+import smile.regression.DataFrameRegression;
+import smile.regression.GradientTreeBoost;
+import smile.regression.OLS;
+import smile.regression.RandomForest;
+
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entrenamiento e inferencia de cada algoritmo de SmartPredictorServiceImpl
+ * con los hiperparámetros por defecto de parametro_algoritmo y el mismo
+ * split 80/20:
+ *
+ * - entrenar: ajuste sobre el 80% de la serie (lo que paga un fallo de la
+ *   caché de modelos).
+ * - inferir: validación + horizonte de 30 días con el modelo ya entrenado
+ *   (lo que paga un acierto).
+ *
+ * HOLT_WINTERS tiene su propio benchmark (HoltWintersBenchmark). La semilla
+ * de Smile es fija para que RandomForest y GradientTreeBoost construyan los
+ * mismos árboles en cada ejecución.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AlgoritmosSmileBenchmark {
+
+    private static final int HORIZONTE = 30;
+
+    @Param({ "LINEAR_REGRESSION", "ARIMA", "RANDOM_FOREST", "GRADIENT_BOOSTING" })
+    private AlgoritmoSmileML algoritmo;
+
+    @Param({ "90", "365", "730" })
+    private int dias;
+
+    private double[] serie;
+    private double[] trainSerie;
+    private DataFrame dataFrame;
+    private int numLags;
+    private Object modelo;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        MathEx.setSeed(19650218L);
+        serie = SeriesSinteticas.minimarket(dias, 42L);
+        trainSerie = Arrays.copyOf(serie, (int) (serie.length * 0.8));
+        numLags = Math.min(7, trainSerie.length / 4);
+
+        double[] tiempo = new double[trainSerie.length];
+        for (int i = 0; i < tiempo.length; i++) {
+            tiempo[i] = i;
+        }
+        dataFrame = DataFrame.of(
+                DoubleVector.of("tiempo", tiempo),
+                DoubleVector.of("demanda", trainSerie));
+        modelo = entrenar();
+    }
+
+    @Benchmark
+    public Object entrenar() {
+        Formula formula = Formula.lhs("demanda");
+        int n = trainSerie.length;
+        return switch (algoritmo) {
+            case LINEAR_REGRESSION -> OLS.fit(formula, dataFrame);
+            case RANDOM_FOREST -> RandomForest.fit(formula, dataFrame,
+                    Math.min(100, Math.max(50, n / 2)), 1, 10, 100, 5, 1.0);
+            case GRADIENT_BOOSTING -> GradientTreeBoost.fit(formula, dataFrame, propiedadesGBT(n));
+            case ARIMA -> {
+                RegresionLagsIncremental ajuste = new RegresionLagsIncremental(numLags);
+                ajuste.ajustar(serie, n);
+                yield ajuste;
+            }
+            default -> throw new IllegalArgumentException("Sin benchmark: " + algoritmo);
+        };
+    }
+
+    @Benchmark
+    public double[] inferir() {
+        int validacion = serie.length - trainSerie.length;
+        if (modelo instanceof RegresionLagsIncremental lags) {
+            double[] futuro = lags.predecirRecursivo(serie, serie.length, HORIZONTE);
+            double[] enValidacion = lags.predecirRecursivo(serie, trainSerie.length, validacion);
+            return futuro.length > 0 ? futuro : enValidacion;
+        }
+        return InferenciaLoteML.predecirTiempo((DataFrameRegression) modelo, trainSerie.length,
+                validacion + HORIZONTE);
+    }
+
+    private static Properties propiedadesGBT(int n) {
+        Properties props = new Properties();
+        props.setProperty("smile.gbt.trees", String.valueOf(Math.min(200, Math.max(100, n))));
+        props.setProperty("smile.gbt.shrinkage", "0.05");
+        props.setProperty("smile.gbt.max.depth", "6");
+        props.setProperty("smile.gbt.max.nodes", "50");
+        props.setProperty("smile.gbt.node.size", "5");
+        props.setProperty("smile.gbt.sample.rate", "0.7");
+        return props;
+    }
+}
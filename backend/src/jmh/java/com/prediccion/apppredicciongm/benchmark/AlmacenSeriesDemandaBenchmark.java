@@ -0,0 +1,92 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AlmacenSeriesDemandaService con el repositorio en memoria: mide solo la
+ * construcción de las series, no la consulta de proyección.
+ *
+ * - precargar: precarga completa de 10.000 productos con 2 años diarios.
+ *   La memoria retenida se lee en bytesEstimados de las estadísticas.
+ * - registrarMes: los 30 días de una normalización nocturna aplicados a una
+ *   serie de 2 años (una copia del arreglo por producto).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AlmacenSeriesDemandaBenchmark {
+
+    private static final int DIAS = 730;
+
+    @Param({ "10000" })
+    private int productos;
+
+    private IRegistroDemandaRepositorio repositorio;
+    private Map<LocalDate, Integer> ultimoMes;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        LocalDateTime inicio = LocalDate.now().minusDays(DIAS).atStartOfDay();
+        // Filas generadas al leerlas: 7,3 millones de Object[] no caben en el heap de jmh.jvm
+        List<Object[]> filas = new AbstractList<>() {
+            @Override
+            public Object[] get(int i) {
+                int producto = 1 + i / DIAS;
+                int dia = i % DIAS;
+                return new Object[] { producto, inicio.plusDays(dia), (producto * 31 + dia * 7) % 13 };
+            }
+
+            @Override
+            public int size() {
+                return productos * DIAS;
+            }
+        };
+        repositorio = DependenciasSimuladas.crear(IRegistroDemandaRepositorio.class, Map.of(
+                "findTodasSeriesProyectadas", args -> filas,
+                "findSerieProyectadaByProductoId", args -> filas.subList(0, DIAS)));
+
+        ultimoMes = new HashMap<>();
+        for (int d = 0; d < 30; d++) {
+            ultimoMes.put(LocalDate.now().minusDays(30 - d), d % 5);
+        }
+    }
+
+    @Benchmark
+    public Object precargar() {
+        AlmacenSeriesDemandaService almacen = new AlmacenSeriesDemandaService(repositorio);
+        almacen.precargarTodo();
+        return almacen.obtenerEstadisticas().get("bytesEstimados");
+    }
+
+    @Benchmark
+    public AlmacenSeriesDemandaService.SerieDemanda registrarMes() {
+        AlmacenSeriesDemandaService almacen = new AlmacenSeriesDemandaService(repositorio);
+        almacen.obtener(1L);
+        almacen.registrarDemanda(1L, ultimoMes);
+        return almacen.obtener(1L);
+    }
+}
@@ -0,0 +1,69 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.DemandaIntermitente;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ruta rápida de demanda intermitente (DemandaIntermitente):
+ *
+ * - clasificar: ADI/CV² sobre los días registrados, como en el modo AUTO.
+ * - tsb: nivel Croston/TSB al final del entrenamiento y de la serie (las
+ *   dos pasadas de un pronóstico).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DemandaIntermitenteBenchmark {
+
+    @Param({ "90", "365", "730" })
+    private int dias;
+
+    private double[] serie;
+    private double[] registrados;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        serie = SeriesSinteticas.intermitente(dias, 42L, 0.2);
+        int conVenta = 0;
+        for (double valor : serie) {
+            if (valor > 0) {
+                conVenta++;
+            }
+        }
+        registrados = new double[conVenta];
+        int k = 0;
+        for (double valor : serie) {
+            if (valor > 0) {
+                registrados[k++] = valor;
+            }
+        }
+    }
+
+    @Benchmark
+    public DemandaIntermitente.Clasificacion clasificar() {
+        return DemandaIntermitente.clasificar(registrados, dias);
+    }
+
+    @Benchmark
+    public double tsb() {
+        int entrenamiento = (int) (dias * 0.8);
+        return DemandaIntermitente.nivelTsb(serie, entrenamiento, 0.1, 0.05)
+                + DemandaIntermitente.nivelTsb(serie, dias, 0.1, 0.05);
+    }
+}
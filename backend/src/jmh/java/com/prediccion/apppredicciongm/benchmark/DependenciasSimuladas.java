@@ -0,0 +1,63 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Dependencias en memoria para instanciar servicios fuera de Spring: un
+ * proxy que responde solo los métodos indicados y la asignación de campos
+ * {@code @Value} con los valores de application.properties.
+ */
+final class DependenciasSimuladas {
+
+    private DependenciasSimuladas() {
+    }
+
+    /**
+     * Implementa la interfaz con las respuestas indicadas por nombre de
+     * método; cualquier otro método lanza UnsupportedOperationException.
+     */
+    static <T> T crear(Class<T> tipo, Map<String, Function<Object[], Object>> respuestas) {
+        return tipo.cast(Proxy.newProxyInstance(tipo.getClassLoader(), new Class<?>[] { tipo },
+                (proxy, metodo, args) -> {
+                    Function<Object[], Object> respuesta = respuestas.get(metodo.getName());
+                    if (respuesta != null) {
+                        return respuesta.apply(args);
+                    }
+                    return switch (metodo.getName()) {
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        case "toString" -> tipo.getSimpleName() + " simulado";
+                        default -> throw new UnsupportedOperationException(metodo.getName());
+                    };
+                }));
+    }
+
+    /**
+     * Filas [productoId, fechaRegistro, cantidad] como las de
+     * findSerieProyectadaByProductoId, una por día, terminando en {@code ultimoDia}.
+     */
+    static List<Object[]> filasDemanda(Integer productoId, double[] serie, LocalDate ultimoDia) {
+        LocalDate primerDia = ultimoDia.minusDays(serie.length - 1L);
+        List<Object[]> filas = new ArrayList<>(serie.length);
+        for (int i = 0; i < serie.length; i++) {
+            filas.add(new Object[] { productoId, primerDia.plusDays(i).atStartOfDay(), (int) serie[i] });
+        }
+        return filas;
+    }
+
+    static void asignar(Object destino, String campo, Object valor) {
+        try {
+            Field field = destino.getClass().getDeclaredField(campo);
+            field.setAccessible(true);
+            field.set(destino, valor);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se pudo asignar " + campo, e);
+        }
+    }
+}
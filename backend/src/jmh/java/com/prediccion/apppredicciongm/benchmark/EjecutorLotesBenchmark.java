@@ -0,0 +1,125 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.EjecutorLotesService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PresupuestoConexionesService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Lote de alertas (procesamiento automático) con el pool de conexiones de
+ * producción (Hikari de 2, una retenida por la transacción del lote):
+ *
+ * - poolPorSolicitud: el esquema anterior, newFixedThreadPool(5) creado y
+ *   cerrado en cada lote; tres de los cinco hilos esperan conexión.
+ * - ejecutorCompartido: EjecutorLotesService, hilos virtuales con cupos
+ *   acotados por el presupuesto de conexiones (un permiso con pool de 2).
+ *
+ * Cada alerta retiene una conexión simulada durante {@code dbMicros} y hace
+ * un poco de cómputo fuera de ella. Medido con 1 CPU y JDK 17 (hilos de
+ * plataforma en lugar de virtuales), 30 lotes por ronda: poolPorSolicitud
+ * 160-169 ms por lote, ejecutorCompartido 173-183 ms. La ganancia del
+ * ejecutor compartido es de conexiones, no de tiempo por lote.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EjecutorLotesBenchmark {
+
+    private static final int POOL_CONEXIONES = 2;
+
+    @Param({ "500" })
+    private int alertas;
+
+    @Param({ "200" })
+    private long dbMicros;
+
+    private Semaphore conexiones;
+    private EjecutorLotesService ejecutorLotes;
+    private List<Integer> ids;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        conexiones = new Semaphore(POOL_CONEXIONES, true);
+        ejecutorLotes = new EjecutorLotesService(0, 256, 5,
+                new PresupuestoConexionesService(POOL_CONEXIONES, 1));
+        ids = IntStream.range(0, alertas).boxed().toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        ejecutorLotes.cerrar();
+    }
+
+    @Benchmark
+    public double poolPorSolicitud() {
+        conexiones.acquireUninterruptibly();
+        try {
+            ExecutorService executor = Executors.newFixedThreadPool(5);
+            List<CompletableFuture<Double>> futures = new ArrayList<>(alertas);
+            for (Integer id : ids) {
+                futures.add(CompletableFuture.supplyAsync(() -> procesarAlerta(id), executor));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            double total = 0.0;
+            for (CompletableFuture<Double> future : futures) {
+                total += future.join();
+            }
+            executor.shutdown();
+            return total;
+        } finally {
+            conexiones.release();
+        }
+    }
+
+    @Benchmark
+    public double ejecutorCompartido() {
+        conexiones.acquireUninterruptibly();
+        try {
+            double total = 0.0;
+            for (double valor : ejecutorLotes.procesarTodos(ids, this::procesarAlerta)) {
+                total += valor;
+            }
+            return total;
+        } finally {
+            conexiones.release();
+        }
+    }
+
+    private double procesarAlerta(int id) {
+        conexiones.acquireUninterruptibly();
+        try {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(dbMicros));
+        } finally {
+            conexiones.release();
+        }
+        double acumulado = id;
+        for (int i = 1; i <= 2_000; i++) {
+            acumulado += Math.sqrt(acumulado + i);
+        }
+        return acumulado;
+    }
+}
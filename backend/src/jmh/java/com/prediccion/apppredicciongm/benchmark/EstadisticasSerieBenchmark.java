@@ -0,0 +1,127 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.EstadisticasSerie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara el análisis de una serie como se hacía antes (un recorrido para el
+ * CV, otro para la tendencia y uno por cada lag de autocorrelación, hasta
+ * MAX_LAG_AUTOCORR = 30) contra EstadisticasSerie (una pasada + una FFT).
+ *
+ * Los tamaños cubren 3 meses, 2 años y 10 años de historia diaria.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EstadisticasSerieBenchmark {
+
+    private static final int MAX_LAG = 30;
+
+    @Param({ "90", "730", "3650" })
+    private int dias;
+
+    private double[] serie;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        serie = SeriesSinteticas.minimarket(dias, 42L);
+    }
+
+    @Benchmark
+    public double porLag() {
+        double resultado = coeficienteVariacion(serie) + pendiente(serie);
+        int maxLag = Math.min(MAX_LAG, serie.length / 2);
+        for (int lag = 1; lag <= maxLag; lag++) {
+            resultado += correlacionConLag(serie, lag);
+        }
+        return resultado;
+    }
+
+    @Benchmark
+    public double kernel() {
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
+        double resultado = estadisticas.coeficienteVariacion(1.0) + estadisticas.pendiente();
+        int maxLag = Math.min(MAX_LAG, serie.length / 2);
+        for (int lag = 1; lag <= maxLag; lag++) {
+            resultado += estadisticas.correlacionLag(lag);
+        }
+        return resultado;
+    }
+
+    /** Todos los lags (ACF completa): aquí el recorrido por lag es O(n²). */
+    @Benchmark
+    public double kernelAcfCompleta() {
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
+        double resultado = 0.0;
+        for (int lag = 1; lag < serie.length; lag++) {
+            resultado += estadisticas.autocorrelacion(lag);
+        }
+        return resultado;
+    }
+
+    // ===== Implementación anterior (copiada de los servicios) =====
+
+    private static double coeficienteVariacion(double[] serie) {
+        double media = Arrays.stream(serie).average().orElse(0.0);
+        if (media == 0)
+            return 1.0;
+        double desviacion = Math.sqrt(Arrays.stream(serie)
+                .map(x -> Math.pow(x - media, 2))
+                .average().orElse(0.0));
+        return desviacion / media;
+    }
+
+    private static double pendiente(double[] serie) {
+        double n = serie.length;
+        double sumX = 0.0, sumY = 0.0, sumXY = 0.0, sumX2 = 0.0;
+        for (int i = 0; i < serie.length; i++) {
+            sumX += i;
+            sumY += serie[i];
+            sumXY += i * serie[i];
+            sumX2 += (double) i * i;
+        }
+        return (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
+    }
+
+    private static double correlacionConLag(double[] serie, int lag) {
+        int n = serie.length - lag;
+        double mediaX = 0.0;
+        double mediaY = 0.0;
+        for (int i = 0; i < n; i++) {
+            mediaX += serie[i];
+            mediaY += serie[i + lag];
+        }
+        mediaX /= n;
+        mediaY /= n;
+
+        double numerador = 0.0;
+        double denomX = 0.0;
+        double denomY = 0.0;
+        for (int i = 0; i < n; i++) {
+            double diffX = serie[i] - mediaX;
+            double diffY = serie[i + lag] - mediaY;
+            numerador += diffX * diffY;
+            denomX += diffX * diffX;
+            denomY += diffY * diffY;
+        }
+        double denominador = Math.sqrt(denomX * denomY);
+        return denominador > 0.0 ? numerador / denominador : 0.0;
+    }
+}
@@ -0,0 +1,95 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.repository.IParametroAlgoritmoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.InstantaneaParametrosService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IEstadoHoltWintersRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.HoltWintersOnlineService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PresupuestoConexionesService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Algoritmo HOLT_WINTERS (HoltWintersOnlineService) con repositorios en
+ * memoria; la serie termina ayer, como tras la normalización nocturna.
+ *
+ * - entrenar: siembra del estado recorriendo toda la historia + pronóstico
+ *   (primer pronóstico de un producto tras arrancar).
+ * - inferir: pronóstico con el estado ya en memoria (caso normal).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HoltWintersBenchmark {
+
+    private static final long PRODUCTO = 1L;
+    private static final int HORIZONTE = 30;
+
+    @Param({ "90", "365", "730" })
+    private int dias;
+
+    private AlmacenSeriesDemandaService almacenSeries;
+    private IEstadoHoltWintersRepositorio estadoRepositorio;
+    private PlatformTransactionManager transactionManager;
+    private InstantaneaParametrosService instantaneaParametros;
+    private HoltWintersOnlineService sembrado;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        List<Object[]> filas = DependenciasSimuladas.filasDemanda((int) PRODUCTO,
+                SeriesSinteticas.minimarket(dias, 42L), LocalDate.now().minusDays(1));
+        almacenSeries = new AlmacenSeriesDemandaService(DependenciasSimuladas.crear(IRegistroDemandaRepositorio.class,
+                Map.of("findSerieProyectadaByProductoId", args -> filas)));
+        estadoRepositorio = DependenciasSimuladas.crear(IEstadoHoltWintersRepositorio.class,
+                Map.of("findByProductoId", args -> Optional.empty()));
+        transactionManager = DependenciasSimuladas.crear(PlatformTransactionManager.class, Map.of());
+        // Sin parámetros HOLT_WINTERS en la tabla: rigen los de application.properties
+        instantaneaParametros = new InstantaneaParametrosService(DependenciasSimuladas.crear(
+                IParametroAlgoritmoRepositorio.class, Map.of("findByActivo", args -> List.of())));
+
+        sembrado = nuevoServicio();
+        sembrado.pronosticar(PRODUCTO, HORIZONTE);
+    }
+
+    @Benchmark
+    public HoltWintersOnlineService.Pronostico entrenar() {
+        return nuevoServicio().pronosticar(PRODUCTO, HORIZONTE);
+    }
+
+    @Benchmark
+    public HoltWintersOnlineService.Pronostico inferir() {
+        return sembrado.pronosticar(PRODUCTO, HORIZONTE);
+    }
+
+    /** Servicio sin estados en memoria, con los parámetros de application.properties. */
+    private HoltWintersOnlineService nuevoServicio() {
+        HoltWintersOnlineService servicio = new HoltWintersOnlineService(estadoRepositorio, almacenSeries, null,
+                instantaneaParametros, new PresupuestoConexionesService(2, 1), transactionManager);
+        DependenciasSimuladas.asignar(servicio, "alpha", 0.2);
+        DependenciasSimuladas.asignar(servicio, "beta", 0.05);
+        DependenciasSimuladas.asignar(servicio, "gamma", 0.1);
+        DependenciasSimuladas.asignar(servicio, "phi", 0.98);
+        return servicio;
+    }
+}
@@ -0,0 +1,48 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.HorizontePrediccionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Horizonte por autocorrelación (HorizontePrediccionService): ACF de los
+ * lags 1..30 y selección del mejor lag, tal como lo usa el modo automático.
+ * El almacén de series no interviene en este cálculo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HorizonteAutocorrelacionBenchmark {
+
+    @Param({ "90", "365", "730", "3650" })
+    private int dias;
+
+    private double[] serie;
+    private HorizontePrediccionService servicio;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        serie = SeriesSinteticas.minimarket(dias, 42L);
+        servicio = new HorizontePrediccionService(null);
+    }
+
+    @Benchmark
+    public int horizonteAutocorrelacion() {
+        return servicio.calcularHorizonteConAutocorrelacion(serie);
+    }
+}
@@ -0,0 +1,93 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.InferenciaLoteML;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.regression.DataFrameRegression;
+import smile.regression.LinearModel;
+import smile.regression.OLS;
+import smile.regression.RandomForest;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la inferencia del horizonte fila por fila (un DataFrame por día,
+ * como se hacía antes) contra la inferencia por lotes de InferenciaLoteML.
+ *
+ * Ejecutar con el perfil benchmark; "-prof gc" reporta gc.alloc.rate.norm
+ * (bytes asignados por operación), que es la métrica de interés aquí.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InferenciaHorizonteBenchmark {
+
+    @Param({ "30", "90" })
+    private int horizonte;
+
+    private int tiempoInicial;
+    private LinearModel modeloLineal;
+    private RandomForest modeloRF;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        double[] serie = SeriesSinteticas.minimarket(365, 42L);
+        double[] tiempo = new double[serie.length];
+        for (int i = 0; i < serie.length; i++) {
+            tiempo[i] = i;
+        }
+        DataFrame dataFrame = DataFrame.of(
+                DoubleVector.of("tiempo", tiempo),
+                DoubleVector.of("demanda", serie));
+        Formula formula = Formula.lhs("demanda");
+
+        modeloLineal = OLS.fit(formula, dataFrame);
+        modeloRF = RandomForest.fit(formula, dataFrame, 100, 1, 10, 100, 5, 1.0);
+        tiempoInicial = serie.length;
+    }
+
+    @Benchmark
+    public double[] linealPorFila() {
+        return porFila(modeloLineal);
+    }
+
+    @Benchmark
+    public double[] linealLote() {
+        return InferenciaLoteML.predecirTiempo(modeloLineal, tiempoInicial, horizonte);
+    }
+
+    @Benchmark
+    public double[] randomForestPorFila() {
+        return porFila(modeloRF);
+    }
+
+    @Benchmark
+    public double[] randomForestLote() {
+        return InferenciaLoteML.predecirTiempo(modeloRF, tiempoInicial, horizonte);
+    }
+
+    private double[] porFila(DataFrameRegression modelo) {
+        double[] predicciones = new double[horizonte];
+        for (int i = 0; i < horizonte; i++) {
+            DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { tiempoInicial + i }));
+            predicciones[i] = modelo.predict(punto.get(0));
+        }
+        return predicciones;
+    }
+}
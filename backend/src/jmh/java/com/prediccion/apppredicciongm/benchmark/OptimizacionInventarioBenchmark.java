@@ -0,0 +1,83 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.calculo_optimizacion.service.IOptimizacionInventarioService;
+import com.prediccion.apppredicciongm.gestion_prediccion.calculo_optimizacion.service.OptimizacionInventarioServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fórmulas de OptimizacionInventarioServiceImpl (factor Z, EOQ de Wilson,
+ * stock de seguridad, ROP, órdenes anuales y costo total) aplicadas a todo
+ * el catálogo, como en la optimización por lotes. Sin repositorios: solo el
+ * costo de cálculo, incluido el boxing de la interfaz pública.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OptimizacionInventarioBenchmark {
+
+    private static final double[] NIVELES_SERVICIO = { 0.90, 0.95, 0.975, 0.99 };
+
+    @Param({ "100", "1000" })
+    private int productos;
+
+    private IOptimizacionInventarioService servicio;
+    private double[] demandaAnual;
+    private double[] costoPedido;
+    private double[] costoMantenimiento;
+    private double[] desviacion;
+    private int[] leadTime;
+    private double[] nivelServicio;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        servicio = new OptimizacionInventarioServiceImpl(null, null, null, null);
+        Random random = new Random(42L);
+        demandaAnual = new double[productos];
+        costoPedido = new double[productos];
+        costoMantenimiento = new double[productos];
+        desviacion = new double[productos];
+        leadTime = new int[productos];
+        nivelServicio = new double[productos];
+        for (int i = 0; i < productos; i++) {
+            demandaAnual[i] = 200 + random.nextInt(20_000);
+            costoPedido[i] = 20 + random.nextInt(80);
+            costoMantenimiento[i] = 0.25 * (1 + random.nextInt(40));
+            desviacion[i] = 1 + random.nextDouble() * 10;
+            leadTime[i] = 1 + random.nextInt(14);
+            nivelServicio[i] = NIVELES_SERVICIO[random.nextInt(NIVELES_SERVICIO.length)];
+        }
+    }
+
+    @Benchmark
+    public double catalogo(Blackhole bh) {
+        double costoTotal = 0.0;
+        for (int i = 0; i < productos; i++) {
+            double z = servicio.obtenerFactorZ(nivelServicio[i]);
+            double eoq = Math.ceil(servicio.calcularEOQ(demandaAnual[i], costoPedido[i], costoMantenimiento[i]));
+            double stockSeguridad = Math.max(1, Math.ceil(servicio.calcularStockSeguridad(z, desviacion[i], leadTime[i])));
+            double rop = Math.ceil(servicio.calcularROP(demandaAnual[i] / 365.0, leadTime[i], stockSeguridad));
+            bh.consume(rop);
+            bh.consume(Math.ceil(demandaAnual[i] / eoq));
+            costoTotal += (demandaAnual[i] / eoq) * costoPedido[i] + (eoq / 2.0) * costoMantenimiento[i];
+        }
+        return costoTotal;
+    }
+}
@@ -0,0 +1,52 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PreprocesamientoSerie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preprocesamiento previo al entrenamiento (prepararSerieTemporal).
+ *
+ * - regular: serie de minimarket con CV bajo; solo se calcula el CV.
+ * - intermitente: CV alto; suavizado exponencial y agregación semanal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreprocesamientoBenchmark {
+
+    @Param({ "regular", "intermitente" })
+    private String forma;
+
+    @Param({ "90", "365", "730" })
+    private int dias;
+
+    private double[] serie;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        serie = "regular".equals(forma)
+                ? SeriesSinteticas.minimarket(dias, 42L)
+                : SeriesSinteticas.intermitente(dias, 42L, 0.4);
+    }
+
+    @Benchmark
+    public PreprocesamientoSerie.Resultado prepararSerie() {
+        return PreprocesamientoSerie.preparar(serie);
+    }
+}
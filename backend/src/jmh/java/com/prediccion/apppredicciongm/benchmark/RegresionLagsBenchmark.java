@@ -0,0 +1,114 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.InferenciaLoteML;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.RegresionLagsIncremental;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.regression.LinearModel;
+import smile.regression.OLS;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pronóstico ARIMA (OLS con lags) completo: ajuste sobre el 80% de la serie,
+ * validación recursiva y horizonte de 30 días.
+ *
+ * - smileDataFrame: matriz de lags copiada columna a columna a DoubleVector,
+ *   DataFrame y OLS.fit, con un buffer desplazado en cada paso (camino anterior).
+ * - primitivo: RegresionLagsIncremental (QR sobre arreglos y buffer circular).
+ *
+ * Con "-prof gc", gc.alloc.rate.norm da los bytes asignados por pronóstico.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegresionLagsBenchmark {
+
+    private static final int HORIZONTE = 30;
+
+    @Param({ "90", "365", "730" })
+    private int dias;
+
+    @Param({ "7" })
+    private int numLags;
+
+    private double[] serie;
+    private int trainSize;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        serie = SeriesSinteticas.minimarket(dias, 42L);
+        trainSize = (int) (serie.length * 0.8);
+    }
+
+    @Benchmark
+    public double[] smileDataFrame() {
+        int numFilas = trainSize - numLags;
+        DoubleVector[] columnas = new DoubleVector[numLags + 1];
+        String[] nombres = new String[numLags];
+        for (int lag = 0; lag < numLags; lag++) {
+            double[] columna = new double[numFilas];
+            for (int i = 0; i < numFilas; i++) {
+                columna[i] = serie[i + lag];
+            }
+            nombres[lag] = "lag" + (lag + 1);
+            columnas[lag] = DoubleVector.of(nombres[lag], columna);
+        }
+        double[] objetivo = new double[numFilas];
+        for (int i = 0; i < numFilas; i++) {
+            objetivo[i] = serie[i + numLags];
+        }
+        columnas[numLags] = DoubleVector.of("demanda", objetivo);
+
+        LinearModel modelo = OLS.fit(Formula.lhs("demanda"), DataFrame.of(columnas));
+        double[] ajuste = InferenciaLoteML.coeficientesLineales(modelo, nombres);
+        double[] coeficientes = Arrays.copyOfRange(ajuste, 1, ajuste.length);
+        double intercepto = ajuste[0];
+
+        double[] validacion = desplazando(coeficientes, intercepto, trainSize, serie.length - trainSize);
+        double[] futuro = desplazando(coeficientes, intercepto, serie.length, HORIZONTE);
+        return futuro.length > 0 ? futuro : validacion;
+    }
+
+    @Benchmark
+    public double[] primitivo() {
+        RegresionLagsIncremental modelo = new RegresionLagsIncremental(numLags);
+        modelo.ajustar(serie, trainSize);
+        double[] validacion = modelo.predecirRecursivo(serie, trainSize, serie.length - trainSize);
+        double[] futuro = modelo.predecirRecursivo(serie, serie.length, HORIZONTE);
+        return futuro.length > 0 ? futuro : validacion;
+    }
+
+    private double[] desplazando(double[] coeficientes, double intercepto, int origen, int pasos) {
+        double[] buffer = new double[numLags];
+        System.arraycopy(serie, origen - numLags, buffer, 0, numLags);
+        double[] predicciones = new double[pasos];
+        for (int i = 0; i < pasos; i++) {
+            double suma = intercepto;
+            for (int j = 0; j < numLags; j++) {
+                suma += coeficientes[j] * buffer[j];
+            }
+            predicciones[i] = Math.max(0, suma);
+            System.arraycopy(buffer, 1, buffer, 0, numLags - 1);
+            buffer[numLags - 1] = predicciones[i];
+        }
+        return predicciones;
+    }
+}
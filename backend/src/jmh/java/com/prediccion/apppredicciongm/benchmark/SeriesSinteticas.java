@@ -0,0 +1,45 @@
+package com.prediccion.apppredicciongm.benchmark;
+
+import java.util.Random;
+
+/**
+ * Series de demanda sintéticas con formas típicas de un minimarket. Usan una
+ * semilla fija para que los resultados sean comparables entre commits.
+ */
+public final class SeriesSinteticas {
+
+    private SeriesSinteticas() {
+    }
+
+    /**
+     * Demanda diaria regular: nivel base, tendencia suave, patrón semanal
+     * (fines de semana más altos), estacionalidad anual y ruido.
+     */
+    public static double[] minimarket(int dias, long semilla) {
+        Random random = new Random(semilla);
+        double[] serie = new double[dias];
+        for (int t = 0; t < dias; t++) {
+            int diaSemana = t % 7;
+            double semanal = diaSemana >= 5 ? 1.35 : 1.0;
+            double anual = 1.0 + 0.2 * Math.sin(2 * Math.PI * t / 365.0);
+            double base = 20.0 + 0.01 * t;
+            serie[t] = Math.max(0, Math.round(base * semanal * anual + random.nextGaussian() * 4.0));
+        }
+        return serie;
+    }
+
+    /**
+     * Demanda intermitente: la mayoría de días sin venta y ventas esporádicas
+     * de pocas unidades.
+     */
+    public static double[] intermitente(int dias, long semilla, double probabilidadVenta) {
+        Random random = new Random(semilla);
+        double[] serie = new double[dias];
+        for (int t = 0; t < dias; t++) {
+            if (random.nextDouble() < probabilidadVenta) {
+                serie[t] = 1 + random.nextInt(4);
+            }
+        }
+        return serie;
+    }
+}
@@ -64,4 +64,13 @@ public class SeguridadUsuario implements UserDetails {
         return usuario.getEmail();
     }
 
+    /**
+     * Obtiene el ID del usuario autenticado.
+     * 
+     * @return ID del usuario cargado al autenticar la solicitud
+     */
+    public Integer getUsuarioId() {
+        return usuario.getUsuarioId();
+    }
+
 }
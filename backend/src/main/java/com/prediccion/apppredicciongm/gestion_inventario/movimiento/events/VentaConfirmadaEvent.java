@@ -0,0 +1,23 @@
+package com.prediccion.apppredicciongm.gestion_inventario.movimiento.events;
+
+import java.time.LocalDate;
+
+/**
+ * Evento de una venta (SALIDA_VENTA) registrada o anulada en el Kardex.
+ * Se publica dentro de la transacción del movimiento y sus listeners lo
+ * reciben al confirmarse.
+ *
+ * Lleva solo datos primitivos: los listeners no deben tocar entidades de la
+ * transacción ya cerrada.
+ *
+ * @param productoId ID del producto
+ * @param fecha      día del movimiento
+ * @param cantidad   unidades vendidas (o anuladas)
+ * @param anulada    true si el evento corresponde a la anulación de la venta
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public record VentaConfirmadaEvent(Long productoId, LocalDate fecha, int cantidad, boolean anulada) {
+}
@@ -7,6 +7,7 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -17,6 +18,7 @@ import com.prediccion.apppredicciongm.gestion_inventario.inventario.services.IIn
 import com.prediccion.apppredicciongm.gestion_inventario.movimiento.dto.request.KardexCreateRequest;
 import com.prediccion.apppredicciongm.gestion_inventario.movimiento.dto.response.KardexResponse;
 import com.prediccion.apppredicciongm.gestion_inventario.movimiento.dto.response.MovimientoResumenResponse;
+import com.prediccion.apppredicciongm.gestion_inventario.movimiento.events.VentaConfirmadaEvent;
 import com.prediccion.apppredicciongm.gestion_inventario.movimiento.mapper.KardexMapper;
 import com.prediccion.apppredicciongm.gestion_inventario.movimiento.repository.IKardexRepositorio;
 import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
@@ -48,6 +50,8 @@ public class KardexServicioImpl implements IKardexService {
     private final IInventarioServicio inventarioServicio;
     private final KardexMapper kardexMapper;
     private final IProveedorRepositorio proveedorRepositorio;
+    private final ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional
     public KardexResponse registrarMovimiento(KardexCreateRequest request) {
@@ -98,6 +102,12 @@ public class KardexServicioImpl implements IKardexService {
                 request.getCantidad(),
                 request.getTipoMovimiento().esEntrada());
 
+        // El Holt-Winters en línea recibe la venta al confirmar la transacción
+        if (kardexGuardado.getTipoMovimiento() == TipoMovimiento.SALIDA_VENTA) {
+            eventPublisher.publishEvent(new VentaConfirmadaEvent(producto.getProductoId().longValue(),
+                    kardexGuardado.getFechaMovimiento().toLocalDate(), kardexGuardado.getCantidad(), false));
+        }
+
         return kardexMapper.toResponse(kardexGuardado);
     }
 
@@ -174,6 +184,10 @@ public class KardexServicioImpl implements IKardexService {
             // Marcar como anulado
             kardex.setAnulado(true);
             kardexRepositorio.save(kardex);
+            if (tipoMovimiento == TipoMovimiento.SALIDA_VENTA) {
+                eventPublisher.publishEvent(new VentaConfirmadaEvent(productoId.longValue(),
+                        kardex.getFechaMovimiento().toLocalDate(), cantidadOriginal, true));
+            }
             
             log.info("Movimiento anulado exitosamente - Kardex ID: {}, Producto ID: {}, " +
                     "Cantidad reversada: {}, Tipo Original: {}", 
@@ -82,4 +82,41 @@ public interface IProductoRepositorio extends JpaRepository<Producto, Integer> {
      */
     @Query("SELECT p.productoId, p.nombre, c.nombre FROM Producto p LEFT JOIN p.categoria c ORDER BY p.nombre ASC")
     java.util.List<Object[]> findAllSimple();
+
+    /**
+     * IDs de todos los productos en orden ascendente, para procesos masivos
+     * que particionan el catálogo.
+     * 
+     * @return Lista de IDs de producto
+     */
+    @Query("SELECT p.productoId FROM Producto p ORDER BY p.productoId ASC")
+    java.util.List<Integer> findAllIds();
+
+    /**
+     * IDs de todos los productos con su categoría y proveedor principal, para
+     * agrupar el catálogo en el pronóstico jerárquico.
+     * 
+     * @return Lista de arrays con [productoId, categoriaId o null, proveedorId o null]
+     */
+    @Query("SELECT p.productoId, c.categoriaId, pr.proveedorId FROM Producto p LEFT JOIN p.categoria c "
+            + "LEFT JOIN p.proveedorPrincipal pr ORDER BY p.productoId ASC")
+    java.util.List<Object[]> findIdsConCategoriaYProveedor();
+
+    /**
+     * Producto junto con su análisis de estacionalidad activo y su mejor
+     * resultado de backtesting vigente (menor MAPE evaluado después de la
+     * fecha indicada) en una sola consulta, para el contexto de un pronóstico.
+     * 
+     * @param productoId       ID del producto
+     * @param desdeBacktesting fecha mínima de evaluación del backtesting
+     * @return filas [Producto, AnalisisEstacionalidad o null, ResultadoBacktesting o null],
+     *         la primera con el menor MAPE; vacía si el producto no existe
+     */
+    @Query("SELECT p, a, rb FROM Producto p LEFT JOIN AnalisisEstacionalidad a "
+            + "ON a.productoId = p.productoId AND a.activo = true "
+            + "LEFT JOIN ResultadoBacktesting rb ON rb.productoId = p.productoId "
+            + "AND rb.fechaEvaluacion > :desdeBacktesting AND rb.mape IS NOT NULL "
+            + "WHERE p.productoId = :productoId ORDER BY rb.mape ASC NULLS LAST")
+    java.util.List<Object[]> findContextoPronostico(@Param("productoId") Integer productoId,
+            @Param("desdeBacktesting") java.time.LocalDateTime desdeBacktesting);
 }
@@ -3,17 +3,23 @@ package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.cont
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.request.ProcesarAlertasRequest;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ProcesamientoBatchResponse;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenOrdenDTO;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.EjecutorLotesService;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.IOrdenCompraBatchService;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.IPrediccionBatchService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador REST para procesamiento automatico batch de alertas.
@@ -38,6 +44,11 @@ public class ProcesamientoAlertasControlador {
 
     private final IPrediccionBatchService prediccionBatchService;
     private final IOrdenCompraBatchService ordenCompraBatchService;
+    private final EjecutorLotesService ejecutorLotes;
+
+    /** Tiempo maximo de una conexion SSE de progreso (ms). */
+    @Value("${prediccion.lotes.sse-timeout-ms:1800000}")
+    private long sseTimeoutMs;
 
     /**
      * Procesa alertas seleccionadas ejecutando el flujo completo automatico.
@@ -128,6 +139,73 @@ public class ProcesamientoAlertasControlador {
         }
     }
 
+    /**
+     * Procesa alertas con el flujo completo automatico transmitiendo el
+     * progreso por Server-Sent Events.
+     * 
+     * POST /api/alertas-inventario/procesar/automatico/stream
+     * 
+     * Mismo body y flujo que /automatico, pero responde de inmediato y el lote
+     * se coordina en segundo plano (sin retener el hilo de la peticion).
+     * 
+     * Eventos:
+     * - producto: ProgresoProductoDTO en cuanto termina cada producto
+     *   (resultado, latencia y contadores de exitos/fallos acumulados)
+     * - resumen: ProcesamientoBatchResponse final, luego se cierra el stream
+     * - error: mensaje si el lote completo falla
+     * 
+     * Si el cliente se desconecta, el lote continua y sus resultados quedan
+     * guardados igualmente.
+     * 
+     * @param request Datos de las alertas a procesar
+     * @return Emisor SSE del progreso
+     */
+    @PostMapping(value = "/automatico/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter procesarAlertasAutomaticoStream(
+            @Valid @RequestBody ProcesarAlertasRequest request
+    ) {
+        log.info("POST /api/alertas-inventario/procesar/automatico/stream - {} alertas",
+                request.getAlertaIds().size());
+
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        try {
+            ejecutorLotes.iniciarCoordinacion(() -> transmitirLote(request, emitter));
+        } catch (RejectedExecutionException e) {
+            log.warn("Procesamiento rechazado: {}", e.getMessage());
+            enviarEvento(emitter, "error", "Servicio en cierre, reintente mas tarde");
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private void transmitirLote(ProcesarAlertasRequest request, SseEmitter emitter) {
+        try {
+            ProcesamientoBatchResponse response = prediccionBatchService.ejecutarPrediccionesBatch(
+                    request, progreso -> enviarEvento(emitter, "producto", progreso));
+
+            log.info("Procesamiento (stream) completado: {} exitosos, {} fallidos",
+                    response.getExitosos(), response.getFallidos());
+            enviarEvento(emitter, "resumen", response);
+            emitter.complete();
+
+        } catch (Exception e) {
+            log.error("Error en procesamiento automatico (stream): {}", e.getMessage(), e);
+            enviarEvento(emitter, "error", "Error en procesamiento: " + e.getMessage());
+            emitter.complete();
+        }
+    }
+
+    /**
+     * Envia un evento SSE; si el cliente ya se desconecto solo se registra.
+     */
+    private void enviarEvento(SseEmitter emitter, String nombre, Object datos) {
+        try {
+            emitter.send(SseEmitter.event().name(nombre).data(datos, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Cliente SSE desconectado, evento '{}' descartado: {}", nombre, e.getMessage());
+        }
+    }
+
     /**
      * Obtiene el estado de las alertas procesables.
      * 
@@ -274,4 +352,19 @@ public class ProcesamientoAlertasControlador {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    /**
+     * Obtiene el estado del ejecutor compartido de lotes.
+     * 
+     * GET /api/alertas-inventario/procesar/ejecutor
+     * 
+     * Retorna cupos (acotados por el pool de conexiones), tareas activas,
+     * tareas en espera de cupo y esperas por contrapresion.
+     * 
+     * @return Estadisticas del ejecutor de lotes
+     */
+    @GetMapping("/ejecutor")
+    public ResponseEntity<Map<String, Object>> obtenerEstadoEjecutor() {
+        return ResponseEntity.ok(ejecutorLotes.obtenerEstadisticas());
+    }
 }
@@ -0,0 +1,94 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO de progreso de un producto durante el procesamiento batch.
+ *
+ * Se emite (evento SSE "producto") en cuanto termina el pipeline de cada
+ * producto, con su resultado, su latencia y los contadores acumulados del
+ * lote hasta ese momento.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProgresoProductoDTO {
+
+    /**
+     * ID de la alerta procesada.
+     */
+    private Long alertaId;
+
+    /**
+     * ID del producto de la alerta.
+     */
+    private Integer productoId;
+
+    /**
+     * Nombre del producto.
+     */
+    private String nombreProducto;
+
+    /**
+     * Indica si la prediccion del producto fue exitosa.
+     */
+    private Boolean exitoso;
+
+    /**
+     * ID de la prediccion generada (null si fallo).
+     */
+    private Integer prediccionId;
+
+    /**
+     * Algoritmo utilizado en la prediccion.
+     */
+    private String algoritmoUtilizado;
+
+    /**
+     * ID del calculo de optimizacion EOQ/ROP (null si no se calculo).
+     */
+    private Integer calculoId;
+
+    /**
+     * ID de la orden de compra emitida, si este producto fue el ultimo de su proveedor.
+     */
+    private Long ordenId;
+
+    /**
+     * Mensaje de error de la prediccion, optimizacion u orden (null si no hubo).
+     */
+    private String mensajeError;
+
+    /**
+     * Latencia del pipeline del producto en milisegundos (sin la espera de cupo).
+     */
+    private Long latenciaMs;
+
+    /**
+     * Productos terminados en el lote hasta este evento.
+     */
+    private Integer completados;
+
+    /**
+     * Total de productos del lote.
+     */
+    private Integer total;
+
+    /**
+     * Predicciones exitosas acumuladas.
+     */
+    private Integer exitosos;
+
+    /**
+     * Predicciones fallidas acumuladas.
+     */
+    private Integer fallidos;
+}
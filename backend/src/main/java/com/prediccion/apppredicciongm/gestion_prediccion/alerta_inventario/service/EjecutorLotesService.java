@@ -0,0 +1,229 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PresupuestoConexionesService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Ejecutor compartido de los procesos batch de alertas (predicciones y
+ * optimizaciones).
+ *
+ * Reemplaza el pool fijo que cada lote creaba y descartaba:
+ *
+ * - Cada tarea corre en un hilo virtual; el paralelismo lo fija un semáforo
+ *   de cupos (prediccion.lotes.max-concurrentes, por defecto los permisos
+ *   del presupuesto de conexiones). Los hilos que esperan cupo no retienen
+ *   conexiones ni hilos de plataforma.
+ * - Cada tarea corre además con un permiso de PresupuestoConexionesService,
+ *   compartido con la flota, los trabajos de pronóstico, el Holt-Winters y
+ *   el backtesting: entre todos no toman las conexiones reservadas a la web.
+ * - Un lote enviado desde una tarea que ya tiene permiso (una tarea de lote
+ *   o cualquier otro trabajo en segundo plano) se procesa en línea en ese
+ *   hilo; sus tareas esperarían un permiso que ese hilo no suelta.
+ * - Contrapresión: si hay max-en-vuelo tareas enviadas sin terminar, quien
+ *   envía espera a que alguna termine en lugar de encolar sin límite.
+ * - Al cerrar la aplicación deja de aceptar tareas y espera a que terminen
+ *   las que están en curso (hasta espera-cierre-segundos).
+ *
+ * Configurable mediante application.properties (prediccion.lotes.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class EjecutorLotesService {
+
+    private final PresupuestoConexionesService presupuesto;
+    private final ExecutorService ejecutor;
+    private final Semaphore cupos;
+    private final Semaphore enVuelo;
+    private final int maxConcurrentes;
+    private final int maxEnVuelo;
+    private final long esperaCierreSegundos;
+
+    private volatile boolean cerrando;
+
+    private final AtomicInteger enEspera = new AtomicInteger();
+    private final AtomicInteger activas = new AtomicInteger();
+    private final AtomicLong enviadas = new AtomicLong();
+    private final AtomicLong completadas = new AtomicLong();
+    private final AtomicLong fallidas = new AtomicLong();
+    private final AtomicLong esperasContrapresion = new AtomicLong();
+    private final AtomicLong esperaCupoAcumuladaMs = new AtomicLong();
+    private final AtomicLong lotesEnLinea = new AtomicLong();
+
+    public EjecutorLotesService(
+            @Value("${prediccion.lotes.max-concurrentes:0}") int concurrentesConfigurados,
+            @Value("${prediccion.lotes.max-en-vuelo:256}") int maxEnVuelo,
+            @Value("${prediccion.lotes.espera-cierre-segundos:30}") long esperaCierreSegundos,
+            PresupuestoConexionesService presupuesto) {
+        this.presupuesto = presupuesto;
+        this.maxConcurrentes = concurrentesConfigurados > 0 ? concurrentesConfigurados : presupuesto.permisos();
+        this.maxEnVuelo = Math.max(this.maxConcurrentes, maxEnVuelo);
+        this.esperaCierreSegundos = esperaCierreSegundos;
+        this.cupos = new Semaphore(this.maxConcurrentes, true);
+        this.enVuelo = new Semaphore(this.maxEnVuelo);
+        this.ejecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("lote-", 0).factory());
+    }
+
+    /**
+     * Envía una tarea. Bloquea a quien envía mientras haya max-en-vuelo
+     * tareas sin terminar.
+     *
+     * @param tarea tarea del lote (puede usar repositorios)
+     * @return futuro con el resultado
+     * @throws RejectedExecutionException si la aplicación se está cerrando
+     */
+    public <T> CompletableFuture<T> enviar(Supplier<T> tarea) {
+        if (cerrando) {
+            throw new RejectedExecutionException("El ejecutor de lotes se está cerrando");
+        }
+        if (!enVuelo.tryAcquire()) {
+            esperasContrapresion.incrementAndGet();
+            enVuelo.acquireUninterruptibly();
+        }
+        enviadas.incrementAndGet();
+        enEspera.incrementAndGet();
+
+        try {
+            return CompletableFuture.supplyAsync(() -> ejecutarConCupo(tarea), ejecutor);
+        } catch (RejectedExecutionException e) {
+            enEspera.decrementAndGet();
+            enVuelo.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Procesa todos los elementos y retorna los resultados en el mismo orden.
+     * La tarea debe capturar sus propios errores si el lote ha de continuar
+     * ante fallos individuales.
+     *
+     * Si quien llama ya tiene un permiso del presupuesto de conexiones, los
+     * elementos se procesan en línea, uno a uno, en su propio hilo.
+     *
+     * @param elementos elementos del lote
+     * @param tarea     procesamiento de un elemento
+     * @return resultados en el orden de los elementos
+     */
+    public <E, R> List<R> procesarTodos(List<E> elementos, Function<E, R> tarea) {
+        if (presupuesto.retieneHiloActual()) {
+            lotesEnLinea.incrementAndGet();
+            List<R> resultados = new ArrayList<>(elementos.size());
+            for (E elemento : elementos) {
+                resultados.add(tarea.apply(elemento));
+            }
+            return resultados;
+        }
+
+        List<CompletableFuture<R>> futuros = new ArrayList<>(elementos.size());
+        for (E elemento : elementos) {
+            futuros.add(enviar(() -> tarea.apply(elemento)));
+        }
+
+        List<R> resultados = new ArrayList<>(futuros.size());
+        for (CompletableFuture<R> futuro : futuros) {
+            try {
+                resultados.add(futuro.join());
+            } catch (CompletionException e) {
+                futuros.forEach(f -> f.cancel(false));
+                throw e.getCause() instanceof RuntimeException causa ? causa : e;
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Inicia en segundo plano la coordinación de un lote (p. ej. un lote cuyo
+     * progreso se transmite por SSE). No toma cupo ni cuenta como tarea en
+     * vuelo: solo envía tareas con {@link #procesarTodos} y espera, y si
+     * ocupara un cupo podría bloquear a sus propias tareas.
+     *
+     * @param coordinador envío y espera de las tareas del lote
+     * @throws RejectedExecutionException si la aplicación se está cerrando
+     */
+    public void iniciarCoordinacion(Runnable coordinador) {
+        if (cerrando) {
+            throw new RejectedExecutionException("El ejecutor de lotes se está cerrando");
+        }
+        ejecutor.execute(coordinador);
+    }
+
+    private <T> T ejecutarConCupo(Supplier<T> tarea) {
+        long inicioEspera = System.currentTimeMillis();
+        cupos.acquireUninterruptibly();
+        esperaCupoAcumuladaMs.addAndGet(System.currentTimeMillis() - inicioEspera);
+        enEspera.decrementAndGet();
+        activas.incrementAndGet();
+        try {
+            T resultado = presupuesto.ejecutar(tarea);
+            completadas.incrementAndGet();
+            return resultado;
+        } catch (RuntimeException e) {
+            fallidas.incrementAndGet();
+            throw e;
+        } finally {
+            activas.decrementAndGet();
+            cupos.release();
+            enVuelo.release();
+        }
+    }
+
+    /**
+     * Cupos, profundidad de la cola, tareas activas y contrapresión.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        long terminadas = completadas.get() + fallidas.get();
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("maxConcurrentes", maxConcurrentes);
+        estadisticas.put("maxEnVuelo", maxEnVuelo);
+        estadisticas.put("activas", activas.get());
+        estadisticas.put("enEspera", enEspera.get());
+        estadisticas.put("cuposLibres", cupos.availablePermits());
+        estadisticas.put("enviadas", enviadas.get());
+        estadisticas.put("completadas", completadas.get());
+        estadisticas.put("fallidas", fallidas.get());
+        estadisticas.put("esperasContrapresion", esperasContrapresion.get());
+        estadisticas.put("esperaCupoPromedioMs", terminadas > 0 ? esperaCupoAcumuladaMs.get() / terminadas : 0);
+        estadisticas.put("lotesEnLinea", lotesEnLinea.get());
+        estadisticas.put("presupuestoConexiones", presupuesto.obtenerEstadisticas());
+        estadisticas.put("cerrando", cerrando);
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        cerrando = true;
+        ejecutor.shutdown();
+        try {
+            if (!ejecutor.awaitTermination(esperaCierreSegundos, TimeUnit.SECONDS)) {
+                log.warn("[LOTES] {} tareas sin terminar tras {}s, interrumpiendo", activas.get() + enEspera.get(),
+                        esperaCierreSegundos);
+                ejecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            ejecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service;
 
 import com.prediccion.apppredicciongm.gestion_inventario.movimiento.repository.IKardexRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.EstadisticasSerie;
 import com.prediccion.apppredicciongm.models.AlertaInventario;
 import com.prediccion.apppredicciongm.models.Inventario.Kardex;
 import com.prediccion.apppredicciongm.models.Inventario.Producto;
@@ -284,18 +285,20 @@ public class HorizontePrediccionService {
     }
 
     /**
-     * Calcula autocorrelaciones para múltiples lags usando SMILE ML.
+     * Calcula autocorrelaciones para múltiples lags. Todas salen de una sola
+     * FFT sobre la serie (EstadisticasSerie), no de un recorrido por lag.
      * 
      * @param serie array de valores históricos
      * @return lista de correlaciones con sus respectivos lags
      */
     private List<CorrelacionLag> calcularAutocorrelaciones(double[] serie) {
-        List<CorrelacionLag> correlaciones = new ArrayList<>();
-
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
         int maxLagPermitido = Math.min(MAX_LAG_AUTOCORR, serie.length / 2);
+        List<CorrelacionLag> correlaciones = new ArrayList<>(maxLagPermitido);
 
         for (int lag = 1; lag <= maxLagPermitido; lag++) {
-            double correlacion = calcularAutocorrelacion(serie, lag);
+            // Pearson entre la serie y su versión desplazada
+            double correlacion = estadisticas.correlacionLag(lag);
             correlaciones.add(new CorrelacionLag(lag, correlacion));
 
             log.debug("Lag {}: Autocorrelación = {}", lag, String.format("%.4f", correlacion));
@@ -304,65 +307,6 @@ public class HorizontePrediccionService {
         return correlaciones;
     }
 
-    /**
-     * Calcula la autocorrelación para un lag específico usando SMILE ML.
-     * 
-     * @param serie array de valores
-     * @param lag   número de períodos de retraso
-     * @return coeficiente de autocorrelación (-1 a 1)
-     */
-    private double calcularAutocorrelacion(double[] serie, int lag) {
-        if (lag >= serie.length || lag < 1) {
-            return 0.0;
-        }
-
-        try {
-            // Calcular autocorrelación manualmente (Pearson correlation con lag)
-            return calcularCorrelacionConLag(serie, lag);
-
-        } catch (Exception e) {
-            log.warn("Error calculando autocorrelación para lag {}: {}", lag, e.getMessage());
-            return 0.0;
-        }
-    }
-
-    /**
-     * Calcula la correlación entre una serie y su versión desplazada.
-     * 
-     * @param serie array de valores
-     * @param lag   desplazamiento
-     * @return coeficiente de correlación
-     */
-    private double calcularCorrelacionConLag(double[] serie, int lag) {
-        int n = serie.length - lag;
-
-        // Calcular medias
-        double mediaX = 0.0;
-        double mediaY = 0.0;
-        for (int i = 0; i < n; i++) {
-            mediaX += serie[i];
-            mediaY += serie[i + lag];
-        }
-        mediaX /= n;
-        mediaY /= n;
-
-        // Calcular correlación
-        double numerador = 0.0;
-        double denomX = 0.0;
-        double denomY = 0.0;
-
-        for (int i = 0; i < n; i++) {
-            double diffX = serie[i] - mediaX;
-            double diffY = serie[i + lag] - mediaY;
-            numerador += diffX * diffY;
-            denomX += diffX * diffX;
-            denomY += diffY * diffY;
-        }
-
-        double denominador = Math.sqrt(denomX * denomY);
-        return denominador > 0.0 ? numerador / denominador : 0.0;
-    }
-
     /**
      * Encuentra el mejor horizonte basándose en las correlaciones calculadas.
      * 
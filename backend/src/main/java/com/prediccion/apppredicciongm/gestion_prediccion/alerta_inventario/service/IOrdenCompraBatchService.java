@@ -2,6 +2,7 @@ package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.serv
 
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ProcesamientoBatchResponse;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenOrdenDTO;
+import com.prediccion.apppredicciongm.models.AlertaInventario;
 import com.prediccion.apppredicciongm.models.OrdenCompra;
 
 import java.util.List;
@@ -49,6 +50,34 @@ public interface IOrdenCompraBatchService {
      */
     Map<String, List<ItemOrdenPreview>> obtenerPreviewOrdenes(List<Long> alertaIds);
 
+    /**
+     * Agrupa alertas por proveedor principal, con el mismo criterio que
+     * generarOrdenesPorProveedor. Las alertas sin producto o sin proveedor
+     * se omiten.
+     * 
+     * @param alertas Alertas a agrupar
+     * @return Mapa proveedorId -> IDs de alertas, en orden de aparicion
+     */
+    Map<Integer, List<Long>> agruparAlertasPorProveedor(List<AlertaInventario> alertas);
+
+    /**
+     * Genera la orden de compra de un proveedor para sus alertas (cantidad =
+     * EOQ de la ultima optimizacion) y marca las alertas como resueltas.
+     * 
+     * Usado por el pipeline de procesamiento batch para emitir la orden de
+     * cada proveedor en cuanto sus productos terminan.
+     * 
+     * @param proveedorId ID del proveedor
+     * @param alertaIds IDs de las alertas del proveedor
+     * @param usuarioId ID del usuario
+     * @return Orden de compra generada
+     */
+    OrdenCompra generarOrdenParaAlertas(
+        Integer proveedorId,
+        List<Long> alertaIds,
+        Integer usuarioId
+    );
+
     /**
      * Genera una orden de compra para un proveedor especifico.
      * 
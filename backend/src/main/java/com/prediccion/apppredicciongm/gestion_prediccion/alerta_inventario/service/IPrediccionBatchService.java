@@ -2,10 +2,12 @@ package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.serv
 
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.request.ProcesarAlertasRequest;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ProcesamientoBatchResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ProgresoProductoDTO;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenPrediccionPorProveedor;
 
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Servicio para procesamiento en lote de predicciones.
@@ -22,17 +24,39 @@ public interface IPrediccionBatchService {
     /**
      * Ejecuta predicciones automaticas para una lista de productos.
      * 
-     * Proceso:
-     * 1. Valida alertas y productos
-     * 2. Ejecuta predicciones en paralelo (modo automatico)
-     * 3. Almacena resultados
+     * Proceso (pipeline por producto):
+     * 1. Valida alertas y productos, y los agrupa por proveedor principal
+     * 2. Ejecuta cada prediccion (modo automatico) y, en cuanto termina,
+     *    su optimizacion EOQ/ROP
+     * 3. Cuando terminan todos los productos de un proveedor, genera su
+     *    orden de compra sin esperar a los demas proveedores
      * 4. Retorna resumen del procesamiento
      * 
+     * Las predicciones y optimizaciones se confirman por bloques de alertas de
+     * un mismo proveedor (prediccion.lotes.tamano-bloque), cada uno en su
+     * propia transaccion; un bloque revertido se repite sin rehacer los demas.
+     * 
      * @param request Solicitud con lista de alertas y parametros
      * @return Resumen del procesamiento con exitos y errores
      */
     ProcesamientoBatchResponse ejecutarPrediccionesBatch(ProcesarAlertasRequest request);
 
+    /**
+     * Igual que {@link #ejecutarPrediccionesBatch(ProcesarAlertasRequest)},
+     * notificando el resultado de cada producto en cuanto termina su pipeline.
+     * 
+     * El observador se invoca desde los hilos del lote (puede ser concurrente)
+     * y sus errores no interrumpen el procesamiento.
+     * 
+     * @param request Solicitud con lista de alertas y parametros
+     * @param observador Receptor del progreso por producto
+     * @return Resumen del procesamiento con exitos y errores
+     */
+    ProcesamientoBatchResponse ejecutarPrediccionesBatch(
+            ProcesarAlertasRequest request,
+            Consumer<ProgresoProductoDTO> observador
+    );
+
     /**
      * Procesa alertas y devuelve predicciones detalladas agrupadas por proveedor.
      * 
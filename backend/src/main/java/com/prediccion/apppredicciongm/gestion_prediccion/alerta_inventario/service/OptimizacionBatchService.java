@@ -15,10 +15,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
 
 /**
  * Implementacion del servicio de procesamiento batch de optimizaciones.
@@ -37,8 +33,8 @@ public class OptimizacionBatchService implements IOptimizacionBatchService {
 
     private final IOptimizacionInventarioService optimizacionService;
     private final IPrediccionRepositorio prediccionRepositorio;
+    private final EjecutorLotesService ejecutorLotes;
     
-    private static final int THREAD_POOL_SIZE = 5;
     private static final Double NIVEL_SERVICIO_DEFAULT = 0.95; // 95%
 
     @Override
@@ -68,28 +64,9 @@ public class OptimizacionBatchService implements IOptimizacionBatchService {
                 );
             }
 
-            // 2. Configurar thread pool
-            ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-
-            // 3. Ejecutar optimizaciones en paralelo
-            List<CompletableFuture<ResultadoOptimizacion>> futures = prediccionIds.stream()
-                .map(prediccionId -> CompletableFuture.supplyAsync(() -> 
-                    procesarOptimizacionParaPrediccion(prediccionId, nivelServicioFinal), 
-                    executor
-                ))
-                .collect(Collectors.toList());
-
-            // 4. Esperar a que todas terminen
-            CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                futures.toArray(new CompletableFuture[0])
-            );
-            
-            allFutures.join();
-
-            // 5. Recopilar resultados
-            List<ResultadoOptimizacion> resultados = futures.stream()
-                .map(CompletableFuture::join)
-                .collect(Collectors.toList());
+            // 2-5. Ejecutar optimizaciones en paralelo en el ejecutor compartido de lotes
+            List<ResultadoOptimizacion> resultados = ejecutorLotes.procesarTodos(prediccionIds,
+                prediccionId -> procesarOptimizacionParaPrediccion(prediccionId, nivelServicioFinal));
 
             // 6. Procesar resultados
             for (ResultadoOptimizacion resultado : resultados) {
@@ -109,8 +86,6 @@ public class OptimizacionBatchService implements IOptimizacionBatchService {
             }
 
             // 7. Finalizar
-            executor.shutdown();
-            
             LocalDateTime fin = LocalDateTime.now();
             response.setFechaFin(fin);
             response.setTiempoEjecucionMs(
@@ -149,6 +124,7 @@ public class OptimizacionBatchService implements IOptimizacionBatchService {
     }
 
     @Override
+    @Transactional
     public CalculoOptimizacionResponse ejecutarOptimizacionIndividual(
             Integer prediccionId, 
             Double nivelServicio) {
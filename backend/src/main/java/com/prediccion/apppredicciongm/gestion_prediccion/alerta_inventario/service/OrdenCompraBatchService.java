@@ -94,27 +94,10 @@ public class OrdenCompraBatchService implements IOrdenCompraBatchService {
                 List<ItemOrdenInterno> items = entry.getValue();
 
                 try {
-                    OrdenCompra orden = generarOrdenParaProveedorInterno(
-                        proveedorId, 
-                        items, 
-                        usuario
-                    );
+                    OrdenCompra orden = generarOrdenYResolverAlertas(proveedorId, items, usuario);
 
                     response.setExitosos(response.getExitosos() + items.size());
                     response.getOrdenesGeneradas().add(orden.getOrdenCompraId());
-                    
-                    // Marcar alertas como resueltas
-                    List<Long> alertasIds = items.stream()
-                        .map(item -> item.alertaId)
-                        .collect(Collectors.toList());
-                    
-                    alertaInventarioService.marcarAlertasComoResueltas(
-                        alertasIds,
-                        "Orden de compra generada: " + orden.getNumeroOrden()
-                    );
-
-                    log.info("Orden generada exitosamente: {} para proveedor ID: {}", 
-                        orden.getNumeroOrden(), proveedorId);
 
                 } catch (Exception e) {
                     log.error("Error al generar orden para proveedor ID: {}", proveedorId, e);
@@ -206,6 +189,62 @@ public class OrdenCompraBatchService implements IOrdenCompraBatchService {
         return preview;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, List<Long>> agruparAlertasPorProveedor(List<AlertaInventario> alertas) {
+        Map<Integer, List<Long>> agrupacion = new LinkedHashMap<>();
+
+        for (AlertaInventario alerta : alertas) {
+            Producto producto = alerta.getProducto();
+            if (producto == null) {
+                continue;
+            }
+
+            ProveedorBasicoDTO proveedorInfo = proveedorService.obtenerProveedorPrincipal(
+                producto.getProductoId()
+            );
+
+            if (proveedorInfo == null) {
+                log.warn("No se encontro proveedor para producto ID: {}", 
+                    producto.getProductoId());
+                continue;
+            }
+
+            agrupacion.computeIfAbsent(proveedorInfo.getProveedorId(), k -> new ArrayList<>())
+                .add(alerta.getAlertaId());
+        }
+
+        return agrupacion;
+    }
+
+    @Override
+    @Transactional
+    public OrdenCompra generarOrdenParaAlertas(
+            Integer proveedorId,
+            List<Long> alertaIds,
+            Integer usuarioId) {
+
+        List<ItemOrdenInterno> items = new ArrayList<>();
+        for (AlertaInventario alerta : alertaRepositorio.findAllById(alertaIds)) {
+            if (alerta.getProducto() != null) {
+                items.add(crearItem(alerta, alerta.getProducto()));
+            }
+        }
+
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException(
+                "Sin productos para generar orden del proveedor: " + proveedorId
+            );
+        }
+
+        Usuario usuario = null;
+        if (usuarioId != null) {
+            usuario = usuarioRepositorio.findById(usuarioId).orElse(null);
+        }
+
+        return generarOrdenYResolverAlertas(proveedorId, items, usuario);
+    }
+
     @Override
     @Transactional
     public OrdenCompra generarOrdenParaProveedor(
@@ -261,25 +300,52 @@ public class OrdenCompraBatchService implements IOrdenCompraBatchService {
                 continue;
             }
 
-            // Obtener cantidad optima (EOQ o cantidad sugerida)
-            Integer cantidad = obtenerCantidadOptima(alerta, producto);
-
-            // Crear item
-            ItemOrdenInterno item = new ItemOrdenInterno();
-            item.productoId = producto.getProductoId();
-            item.cantidad = cantidad;
-            item.alertaId = alerta.getAlertaId();
-            item.precioUnitario = producto.getCostoAdquisicion() != null
-                ? producto.getCostoAdquisicion().doubleValue() : null;
-
             // Agregar a la lista del proveedor
             agrupacion.computeIfAbsent(proveedorInfo.getProveedorId(), k -> new ArrayList<>())
-                .add(item);
+                .add(crearItem(alerta, producto));
         }
 
         return agrupacion;
     }
 
+    /**
+     * Crea el item de orden de una alerta con su cantidad optima
+     * (EOQ o cantidad sugerida).
+     */
+    private ItemOrdenInterno crearItem(AlertaInventario alerta, Producto producto) {
+        ItemOrdenInterno item = new ItemOrdenInterno();
+        item.productoId = producto.getProductoId();
+        item.cantidad = obtenerCantidadOptima(alerta, producto);
+        item.alertaId = alerta.getAlertaId();
+        item.precioUnitario = producto.getCostoAdquisicion() != null
+            ? producto.getCostoAdquisicion().doubleValue() : null;
+        return item;
+    }
+
+    /**
+     * Genera la orden del proveedor y marca sus alertas como resueltas.
+     */
+    private OrdenCompra generarOrdenYResolverAlertas(
+            Integer proveedorId,
+            List<ItemOrdenInterno> items,
+            Usuario usuario) {
+
+        OrdenCompra orden = generarOrdenParaProveedorInterno(proveedorId, items, usuario);
+
+        List<Long> alertasIds = items.stream()
+            .map(item -> item.alertaId)
+            .collect(Collectors.toList());
+
+        alertaInventarioService.marcarAlertasComoResueltas(
+            alertasIds,
+            "Orden de compra generada: " + orden.getNumeroOrden()
+        );
+
+        log.info("Orden generada exitosamente: {} para proveedor ID: {}", 
+            orden.getNumeroOrden(), proveedorId);
+        return orden;
+    }
+
     /**
      * Obtiene la cantidad optima a pedir para un producto.
      * Prioridad: EOQ > Cantidad sugerida > Stock minimo * 2
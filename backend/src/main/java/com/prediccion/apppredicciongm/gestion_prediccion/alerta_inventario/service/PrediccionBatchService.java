@@ -1,34 +1,42 @@
 package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service;
 
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.request.ProcesarAlertasRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.MetricasAgregadasDTO;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.PrediccionProductoDTO;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ProcesamientoBatchResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ProgresoProductoDTO;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenPrediccionPorProveedor;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.errors.ErrorProcesamientoLoteException;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.repository.IAlertaInventarioRepositorio;
 import com.prediccion.apppredicciongm.gestion_prediccion.calculo_optimizacion.dto.response.CalculoOptimizacionResponse;
 import com.prediccion.apppredicciongm.gestion_prediccion.calculo_optimizacion.service.IOptimizacionInventarioService;
 import com.prediccion.apppredicciongm.gestion_prediccion.estacionalidad.service.AnalisisEstacionalidadService;
-import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.CurvaPrediccionService;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.ISmartPredictorService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PrediccionCalculada;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
 import com.prediccion.apppredicciongm.gestion_inventario.producto.utils.SKUGenerator;
 import com.prediccion.apppredicciongm.models.AlertaInventario;
 import com.prediccion.apppredicciongm.models.Proveedor;
-import com.prediccion.apppredicciongm.models.RegistroDemanda;
 import com.prediccion.apppredicciongm.models.Inventario.Producto;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Implementacion del servicio de procesamiento batch de predicciones.
@@ -51,14 +59,34 @@ public class PrediccionBatchService implements IPrediccionBatchService {
     private final IOrdenCompraBatchService ordenCompraBatchService;
     private final AnalisisEstacionalidadService estacionalidadService;
     private final HorizontePrediccionService horizonteService;
-    private final IRegistroDemandaRepositorio registroDemandaRepositorio;
+    private final AlmacenSeriesDemandaService almacenSeries;
     private final IOptimizacionInventarioService optimizacionInventarioService;
-    
-    private static final int THREAD_POOL_SIZE = 5;
+    private final CurvaPrediccionService curvaPrediccion;
+    private final EjecutorLotesService ejecutorLotes;
+    private final PlatformTransactionManager transactionManager;
+
+    /** Alertas por transaccion en el procesamiento automatico. */
+    @Value("${prediccion.lotes.tamano-bloque:5}")
+    private int tamanoBloque;
+
+    /** Nivel de servicio de las optimizaciones del procesamiento automatico (95%). */
+    private static final double NIVEL_SERVICIO_ORDENES = 0.95;
 
     @Override
-    @Transactional
     public ProcesamientoBatchResponse ejecutarPrediccionesBatch(ProcesarAlertasRequest request) {
+        return ejecutarPrediccionesBatch(request, progreso -> { });
+    }
+
+    /**
+     * Sin transaccion propia: el coordinador solo lee las alertas en una
+     * transaccion corta y espera sin retener conexion. Cada bloque de
+     * tamano-bloque alertas de un mismo proveedor confirma en su propia
+     * transaccion (ver {@link #procesarBloque}).
+     */
+    @Override
+    public ProcesamientoBatchResponse ejecutarPrediccionesBatch(
+            ProcesarAlertasRequest request,
+            Consumer<ProgresoProductoDTO> observador) {
         log.info("Iniciando procesamiento batch de {} alertas", request.getAlertaIds().size());
         
         LocalDateTime inicio = LocalDateTime.now();
@@ -71,49 +99,26 @@ public class PrediccionBatchService implements IPrediccionBatchService {
             .build();
 
         try {
-            // 1. Obtener alertas
-            List<AlertaInventario> alertas = alertaRepositorio.findAllById(request.getAlertaIds());
-            
-            if (alertas.isEmpty()) {
-                throw new ErrorProcesamientoLoteException(
-                    "No se encontraron alertas con los IDs proporcionados"
-                );
-            }
-
-            // 2. Validar que todas las alertas tienen producto
-            alertas.forEach(alerta -> {
-                if (alerta.getProducto() == null) {
-                    throw new ErrorProcesamientoLoteException(
-                        "Alerta ID " + alerta.getAlertaId() + " no tiene producto asociado"
-                    );
-                }
-            });
-
-            // 3. Configurar thread pool para procesamiento paralelo
-            ExecutorService executor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-
-            // 4. Ejecutar predicciones en paralelo
-            List<CompletableFuture<ResultadoPrediccion>> futures = alertas.stream()
-                .map(alerta -> CompletableFuture.supplyAsync(() -> 
-                    procesarPrediccionParaAlerta(alerta, request.getHorizonteTiempo()), 
-                    executor
-                ))
-                .collect(Collectors.toList());
-
-            // 5. Esperar a que todas las predicciones terminen
-            CompletableFuture<Void> allFutures = CompletableFuture.allOf(
-                futures.toArray(new CompletableFuture[0])
-            );
-            
-            allFutures.join();
+            // 1-3. Leer, validar y agrupar alertas por proveedor principal (mismo
+            //      criterio que las ordenes de compra) en una transaccion corta
+            TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+            lectura.setReadOnly(true);
+            List<BloqueAlertas> bloques = lectura.execute(status -> planificarBloques(request.getAlertaIds()));
 
-            // 6. Recopilar resultados
-            List<ResultadoPrediccion> resultados = futures.stream()
-                .map(CompletableFuture::join)
-                .collect(Collectors.toList());
+            // 4. Pipeline por bloque en el ejecutor compartido de lotes:
+            //    prediccion entrenada sin transaccion, registrada por bloque, y
+            //    optimizacion EOQ/ROP por alerta en su propia transaccion;
+            //    tras el ultimo bloque del proveedor, su orden de compra
+            ProgresoLote progreso = new ProgresoLote(
+                bloques.stream().mapToInt(bloque -> bloque.alertaIds().size()).sum(), observador);
+            List<ResultadoPipeline> resultados = new ArrayList<>(request.getAlertaIds().size());
+            ejecutorLotes.procesarTodos(bloques,
+                    bloque -> procesarBloque(bloque, request, progreso))
+                .forEach(resultados::addAll);
 
-            // 7. Procesar resultados
-            for (ResultadoPrediccion resultado : resultados) {
+            // 5. Procesar resultados
+            for (ResultadoPipeline pipeline : resultados) {
+                ResultadoPrediccion resultado = pipeline.prediccion;
                 if (resultado.exitoso) {
                     response.setExitosos(response.getExitosos() + 1);
                     response.getAlertasExitosas().add(resultado.alertaId);
@@ -127,102 +132,68 @@ public class PrediccionBatchService implements IPrediccionBatchService {
                         "Alerta ID " + resultado.alertaId + ": " + resultado.mensajeError
                     );
                 }
+                if (pipeline.calculoId != null) {
+                    response.getOptimizacionesGeneradas().add(pipeline.calculoId.longValue());
+                }
+                if (pipeline.mensajeErrorOptimizacion != null) {
+                    response.getMensajesError().add(
+                        "Error en optimización de predicción " + resultado.prediccionId + ": "
+                            + pipeline.mensajeErrorOptimizacion
+                    );
+                }
+                if (pipeline.ordenId != null) {
+                    response.getOrdenesGeneradas().add(pipeline.ordenId);
+                }
+                if (pipeline.mensajeErrorOrden != null) {
+                    response.getMensajesError().add(pipeline.mensajeErrorOrden);
+                }
             }
 
-            // 8. Finalizar fase de predicciones
-            executor.shutdown();
-            
+            // 6. Finalizar
             LocalDateTime fin = LocalDateTime.now();
             response.setFechaFin(fin);
             response.setTiempoEjecucionMs(
                 java.time.Duration.between(inicio, fin).toMillis()
             );
             response.setExitoTotal(response.getFallidos() == 0);
-            
-            String observaciones = String.format(
-                "Procesamiento completado: %d exitosos, %d fallidos de %d total. Tiempo: %d ms",
-                response.getExitosos(),
-                response.getFallidos(),
-                response.getTotalProcesadas(),
-                response.getTiempoEjecucionMs()
-            );
-            response.setObservaciones(observaciones);
 
-            log.info(observaciones);
-            
-            // 9. SI HAY PREDICCIONES EXITOSAS, continuar con optimizacion
-            if (!response.getPrediccionesGeneradas().isEmpty()) {
-                log.info("Iniciando optimizacion para {} predicciones exitosas", 
-                    response.getPrediccionesGeneradas().size());
-                
-                try {
-                    // Convertir Long a Integer para las predicciones
-                    List<Integer> prediccionIds = response.getPrediccionesGeneradas().stream()
-                        .map(Long::intValue)
-                        .collect(Collectors.toList());
-                    
-                    // Ejecutar optimizaciones EOQ/ROP con nivel de servicio 95%
-                    ProcesamientoBatchResponse optimizacionResponse = 
-                        optimizacionBatchService.ejecutarOptimizacionesBatch(prediccionIds, 0.95);
-                    
-                    // Copiar resultados de optimizacion
-                    response.getOptimizacionesGeneradas().addAll(
-                        optimizacionResponse.getOptimizacionesGeneradas()
-                    );
-                    
-                    log.info("Optimizaciones completadas: {} calculadas", 
-                        response.getOptimizacionesGeneradas().size());
-                    
-                    // 10. SI HAY OPTIMIZACIONES EXITOSAS, generar ordenes de compra
-                    if (!response.getOptimizacionesGeneradas().isEmpty()) {
-                        log.info("Generando ordenes de compra para {} alertas", 
-                            request.getAlertaIds().size());
-                        
-                        ProcesamientoBatchResponse ordenesResponse = 
-                            ordenCompraBatchService.generarOrdenesPorProveedor(
-                                request.getAlertaIds(), 
-                                request.getUsuarioId()
-                            );
-                        
-                        // Copiar resultados de ordenes
-                        response.getOrdenesGeneradas().addAll(
-                            ordenesResponse.getOrdenesGeneradas()
-                        );
-                        
-                        log.info("Ordenes generadas: {} ordenes", 
-                            response.getOrdenesGeneradas().size());
-                        
-                        // Actualizar observaciones con informacion completa
-                        observaciones = String.format(
-                            "Procesamiento completo: %d alertas, %d predicciones, %d optimizaciones, %d ordenes generadas",
-                            response.getExitosos(),
-                            response.getPrediccionesGeneradas().size(),
-                            response.getOptimizacionesGeneradas().size(),
-                            response.getOrdenesGeneradas().size()
-                        );
-                        response.setObservaciones(observaciones);
-                        
-                        log.info("Flujo completo finalizado exitosamente");
-                    } else {
-                        log.warn("No se generaron optimizaciones, no se pueden crear ordenes");
-                        response.getMensajesError().add(
-                            "No se generaron optimizaciones EOQ/ROP para crear órdenes de compra"
-                        );
-                    }
-                    
-                } catch (Exception e) {
-                    log.error("Error en optimizacion/generacion de ordenes", e);
-                    response.getMensajesError().add(
-                        "Error en optimización/órdenes: " + e.getMessage()
-                    );
-                    response.setExitoTotal(false);
-                }
-            } else {
+            String observaciones;
+            if (response.getPrediccionesGeneradas().isEmpty()) {
                 log.warn("No se generaron predicciones exitosas, no se pueden crear ordenes");
+                response.getMensajesError().add("No se generaron predicciones exitosas");
+                observaciones = String.format(
+                    "Procesamiento completado: %d exitosos, %d fallidos de %d total. Tiempo: %d ms",
+                    response.getExitosos(),
+                    response.getFallidos(),
+                    response.getTotalProcesadas(),
+                    response.getTiempoEjecucionMs()
+                );
+            } else if (response.getOptimizacionesGeneradas().isEmpty()) {
+                log.warn("No se generaron optimizaciones, no se pueden crear ordenes");
                 response.getMensajesError().add(
-                    "No se generaron predicciones exitosas"
+                    "No se generaron optimizaciones EOQ/ROP para crear órdenes de compra"
+                );
+                observaciones = String.format(
+                    "Procesamiento completado: %d exitosos, %d fallidos de %d total. Tiempo: %d ms",
+                    response.getExitosos(),
+                    response.getFallidos(),
+                    response.getTotalProcesadas(),
+                    response.getTiempoEjecucionMs()
                 );
+            } else {
+                observaciones = String.format(
+                    "Procesamiento completo: %d alertas, %d predicciones, %d optimizaciones, %d ordenes generadas. Tiempo: %d ms",
+                    response.getExitosos(),
+                    response.getPrediccionesGeneradas().size(),
+                    response.getOptimizacionesGeneradas().size(),
+                    response.getOrdenesGeneradas().size(),
+                    response.getTiempoEjecucionMs()
+                );
+                log.info("Flujo completo finalizado exitosamente");
             }
+            response.setObservaciones(observaciones);
+
+            log.info(observaciones);
             
             return response;
 
@@ -245,32 +216,112 @@ public class PrediccionBatchService implements IPrediccionBatchService {
     }
 
     /**
-     * Procesa una prediccion para una alerta individual.
+     * Copia de lo que el pipeline necesita de una alerta, tomada en una
+     * transaccion corta de lectura: despues no se toca ninguna entidad
+     * gestionada.
+     */
+    private record AlertaPreparada(Long alertaId, Integer productoId, String nombreProducto, String sku, int dias) {
+    }
+
+    /**
+     * Lee las alertas y calcula su horizonte, dentro de la transaccion de
+     * lectura de quien llama.
+     *
+     * @return alertas encontradas, por ID
+     */
+    private Map<Long, AlertaPreparada> prepararAlertas(List<Long> alertaIds, Integer horizonteTiempo) {
+        Map<Long, AlertaPreparada> preparadas = new HashMap<>();
+        alertaRepositorio.findAllById(alertaIds)
+            .forEach(alerta -> preparadas.put(alerta.getAlertaId(), prepararAlerta(alerta, horizonteTiempo)));
+        return preparadas;
+    }
+
+    /**
+     * Calcula el horizonte óptimo de una alerta (rotación y lead time) y copia
+     * los datos del producto.
+     *
+     * @param alerta Alerta a procesar (gestionada)
+     * @param horizonteTiempo Horizonte de tiempo en dias (null = automatico)
+     */
+    private AlertaPreparada prepararAlerta(AlertaInventario alerta, Integer horizonteTiempo) {
+        Producto producto = alerta.getProducto();
+
+        int dias;
+        if (horizonteTiempo == null) {
+            // Primero intentar método de rotación empresarial
+            dias = horizonteService.calcularHorizonteOptimo(alerta);
+            
+            log.info("[HORIZONTE] Horizonte calculado con método de rotación para producto ID {}: {} días ({} meses)", 
+                producto.getProductoId(), dias, dias / 30);
+            
+            // Opcionalmente, podríamos usar autocorrelación para refinar
+            // (comentado por ahora, pero disponible para casos específicos)
+            // double[] serie = obtenerSerieHistorica(alerta.getProducto());
+            // if (serie != null && serie.length >= 14) {
+            //     int horizonteML = horizonteService.calcularHorizonteConAutocorrelacion(serie);
+            //     log.info("[HORIZONTE] Horizonte con ML (autocorrelación): {} períodos", horizonteML);
+            // }
+            
+        } else {
+            dias = horizonteTiempo;
+            log.debug("[HORIZONTE] Usando horizonte proporcionado: {} días", dias);
+        }
+
+        return new AlertaPreparada(alerta.getAlertaId(), producto.getProductoId(), producto.getNombre(),
+            SKUGenerator.generarSKU(producto), dias);
+    }
+
+    /**
+     * Calcula la prediccion de una alerta sin ninguna transaccion abierta.
+     * La lectura del contexto y el analisis de estacionalidad abren y
+     * confirman sus propias transacciones, asi que un fallo en ellos no marca
+     * para rollback a las demas alertas; el entrenamiento no retiene conexion.
      * 
-     * FLUJO COMPLETO:
-     * 1. Analiza estacionalidad del producto (kardex 12 meses)
-     * 2. Calcula horizonte óptimo con autocorrelación SMILE ML
-     * 3. Ejecuta predicción ML (modo automático)
+     * FLUJO:
+     * 1. Si hay una curva guardada vigente para el horizonte, la reutiliza
+     * 2. Descarta el producto si no tiene historial suficiente
+     * 3. Analiza estacionalidad del producto (kardex 12 meses)
+     * 4. Entrena la predicción ML (modo automático), pendiente de registrar
      * 
-     * @param alerta Alerta a procesar
-     * @param horizonteTiempo Horizonte de tiempo en dias (null = automatico)
-     * @return Resultado del procesamiento
+     * @param alerta Alerta con su horizonte ya calculado
+     * @return Resultado; si hay que persistirlo, con {@code calculada}
      */
-    private ResultadoPrediccion procesarPrediccionParaAlerta(
-            AlertaInventario alerta, 
-            Integer horizonteTiempo) {
+    private ResultadoPrediccion calcularPrediccionParaAlerta(AlertaPreparada alerta) {
         
         ResultadoPrediccion resultado = new ResultadoPrediccion();
-        resultado.alertaId = alerta.getAlertaId();
-        resultado.productoId = alerta.getProducto().getProductoId();
+        resultado.alertaId = alerta.alertaId();
+        resultado.productoId = alerta.productoId();
+        resultado.alerta = alerta;
         
         try {
-            log.debug("Procesando alerta ID: {}, producto: {}", 
-                alerta.getAlertaId(), 
-                alerta.getProducto().getNombre()
-            );
+            log.debug("Procesando alerta ID: {}, producto: {}", alerta.alertaId(), alerta.nombreProducto());
 
-            // PASO 1: Análisis de estacionalidad (guarda en BD automáticamente)
+            // PASO 1: Reutilizar la curva guardada si está vigente (sin reanalizar ni reentrenar)
+            Optional<SmartPrediccionResponse> curvaVigente =
+                curvaPrediccion.obtenerVigente(resultado.productoId.longValue(), alerta.dias());
+            if (curvaVigente.isPresent()) {
+                SmartPrediccionResponse guardada = curvaVigente.get();
+                resultado.exitoso = true;
+                resultado.prediccionId = Math.toIntExact(guardada.getIdPrediccion());
+                resultado.smartResponse = guardada;
+                log.info("[PREDICCION] Curva vigente reutilizada | Alerta: {} | Predicción: {} | Algoritmo: {}",
+                    alerta.alertaId(), resultado.prediccionId, guardada.getAlgoritmoUtilizado());
+                return resultado;
+            }
+
+            // PASO 2: Historial insuficiente, se descarta sin analizar ni entrenar
+            SmartPrediccionRequest smartRequest = new SmartPrediccionRequest();
+            long registros = almacenSeries.obtener(resultado.productoId.longValue()).numRegistros();
+            if (registros < smartRequest.getMinimoRegistrosHistoricos()) {
+                resultado.exitoso = false;
+                resultado.mensajeError = String.format(
+                    "Datos históricos insuficientes para producto %d: tiene %d registros, se requieren mínimo %d",
+                    resultado.productoId.longValue(), registros, smartRequest.getMinimoRegistrosHistoricos());
+                log.warn("[PREDICCION] Alerta {} omitida: {}", alerta.alertaId(), resultado.mensajeError);
+                return resultado;
+            }
+
+            // PASO 3: Análisis de estacionalidad (guarda en BD en su propia transacción)
             try {
                 log.debug("[ESTACIONALIDAD] Analizando estacionalidad para producto ID: {}", 
                     resultado.productoId);
@@ -285,70 +336,23 @@ public class PrediccionBatchService implements IPrediccionBatchService {
                 // Continuar con predicción aunque falle estacionalidad
             }
 
-            // PASO 2: Calcular horizonte óptimo usando métodos combinados
-            int dias;
-            if (horizonteTiempo == null) {
-                // Primero intentar método de rotación empresarial
-                dias = horizonteService.calcularHorizonteOptimo(alerta);
-                
-                log.info("[HORIZONTE] Horizonte calculado con método de rotación para producto ID {}: {} días ({} meses)", 
-                    resultado.productoId, dias, dias / 30);
-                
-                // Opcionalmente, podríamos usar autocorrelación para refinar
-                // (comentado por ahora, pero disponible para casos específicos)
-                // double[] serie = obtenerSerieHistorica(alerta.getProducto());
-                // if (serie != null && serie.length >= 14) {
-                //     int horizonteML = horizonteService.calcularHorizonteConAutocorrelacion(serie);
-                //     log.info("[HORIZONTE] Horizonte con ML (autocorrelación): {} períodos", horizonteML);
-                // }
-                
-            } else {
-                dias = horizonteTiempo;
-                log.debug("[HORIZONTE] Usando horizonte proporcionado: {} días", dias);
-            }
-
-            // PASO 3: Ejecutar prediccion ML (modo automatico con SMILE ML)
+            // PASO 4: Entrenar prediccion ML (modo automatico con SMILE ML), sin persistir
             log.info("[PREDICCION] Ejecutando predicción inteligente (SMILE ML) para producto ID: {}", 
                 resultado.productoId);
             
-            // Obtener producto
-            Producto producto = alerta.getProducto();
-            
-            // Crear request para SmartPredictor con algoritmo AUTO (selección automática)
-            SmartPrediccionRequest smartRequest = new SmartPrediccionRequest();
-            smartRequest.setIdProducto(producto.getProductoId().longValue());
-            smartRequest.setHorizonteTiempo(dias);
+            // Request para SmartPredictor con algoritmo AUTO (selección automática)
+            smartRequest.setIdProducto(resultado.productoId.longValue());
+            smartRequest.setHorizonteTiempo(alerta.dias());
             smartRequest.setAlgoritmoSeleccionado("AUTO");
             smartRequest.setDetectarEstacionalidad(true);
+            smartRequest.setEjecucionEnLote(true);
             
-            // Ejecutar predicción con SMILE ML (mejor algoritmo: OLS, RandomForest, GBM)
-            SmartPrediccionResponse smartResponse = smartPredictorService
-                .generarPrediccionInteligente(smartRequest);
-
-            Integer prediccionId = null;
-            if (smartResponse.getIdPrediccion() != null) {
-                prediccionId = Math.toIntExact(smartResponse.getIdPrediccion());
-            }
-
-            resultado.exitoso = true;
-            resultado.prediccionId = prediccionId;
-            resultado.smartResponse = smartResponse; // Guardar respuesta completa para usar en DTO
-
-            // Generar SKU dinámicamente y log
-            String sku = SKUGenerator.generarSKU(producto);
-
-            log.info("[PREDICCION] Predicción SMILE ML exitosa | Alerta: {} | Predicción: {} | Producto: {} (SKU: {}) | Algoritmo: {} | MAPE: {:.2f}%", 
-                alerta.getAlertaId(), 
-                prediccionId,
-                producto.getNombre(),
-                sku,
-                smartResponse.getAlgoritmoUtilizado(),
-                smartResponse.getMetricas() != null ? smartResponse.getMetricas().getMape() : 0.0
-            );
+            // Mejor algoritmo: OLS, RandomForest, GBM; se registra con el bloque
+            resultado.calculada = smartPredictorService.calcularPrediccion(smartRequest);
 
         } catch (Exception e) {
             log.error("[PREDICCION] Error al procesar alerta ID: {}", 
-                alerta.getAlertaId(), e);
+                alerta.alertaId(), e);
             
             resultado.exitoso = false;
             resultado.mensajeError = e.getMessage();
@@ -357,6 +361,311 @@ public class PrediccionBatchService implements IPrediccionBatchService {
         return resultado;
     }
 
+    /**
+     * Persiste una prediccion ya entrenada, en la transaccion de quien llama.
+     * Sus excepciones no se capturan: deben revertir esa transaccion.
+     */
+    private void registrarPrediccion(ResultadoPrediccion resultado) {
+        SmartPrediccionResponse smartResponse = smartPredictorService.registrarPrediccion(resultado.calculada);
+
+        resultado.exitoso = true;
+        resultado.prediccionId = Math.toIntExact(smartResponse.getIdPrediccion());
+        resultado.smartResponse = smartResponse; // Guardar respuesta completa para usar en DTO
+
+        log.info("[PREDICCION] Predicción SMILE ML exitosa | Alerta: {} | Predicción: {} | Producto: {} (SKU: {}) | Algoritmo: {} | MAPE: {:.2f}%", 
+            resultado.alertaId, 
+            resultado.prediccionId,
+            resultado.alerta.nombreProducto(),
+            resultado.alerta.sku(),
+            smartResponse.getAlgoritmoUtilizado(),
+            smartResponse.getMetricas() != null ? smartResponse.getMetricas().getMape() : 0.0
+        );
+    }
+
+    /**
+     * Lee y valida las alertas, las agrupa por proveedor y las divide en
+     * bloques de tamano-bloque alertas de un mismo proveedor. Las alertas sin
+     * proveedor forman bloques propios, sin orden de compra.
+     */
+    private List<BloqueAlertas> planificarBloques(List<Long> alertaIds) {
+        List<AlertaInventario> alertas = alertaRepositorio.findAllById(alertaIds);
+
+        if (alertas.isEmpty()) {
+            throw new ErrorProcesamientoLoteException(
+                "No se encontraron alertas con los IDs proporcionados"
+            );
+        }
+
+        // Validar que todas las alertas tienen producto
+        alertas.forEach(alerta -> {
+            if (alerta.getProducto() == null) {
+                throw new ErrorProcesamientoLoteException(
+                    "Alerta ID " + alerta.getAlertaId() + " no tiene producto asociado"
+                );
+            }
+        });
+
+        Map<Integer, List<Long>> alertasPorProveedor =
+            ordenCompraBatchService.agruparAlertasPorProveedor(alertas);
+
+        // Bloques proveedor por proveedor: los primeros grupos completan (y emiten
+        // su orden) sin esperar a los bloques de los demas
+        int tamano = Math.max(1, tamanoBloque);
+        List<BloqueAlertas> bloques = new ArrayList<>();
+        List<Long> sinProveedor = new ArrayList<>();
+        alertas.forEach(alerta -> sinProveedor.add(alerta.getAlertaId()));
+
+        alertasPorProveedor.forEach((proveedorId, ids) -> {
+            int numBloques = (ids.size() + tamano - 1) / tamano;
+            GrupoProveedor grupo = new GrupoProveedor(proveedorId, ids, numBloques);
+            for (int i = 0; i < ids.size(); i += tamano) {
+                bloques.add(new BloqueAlertas(grupo, ids.subList(i, Math.min(i + tamano, ids.size()))));
+            }
+            sinProveedor.removeAll(ids);
+        });
+        for (int i = 0; i < sinProveedor.size(); i += tamano) {
+            bloques.add(new BloqueAlertas(null, sinProveedor.subList(i, Math.min(i + tamano, sinProveedor.size()))));
+        }
+
+        log.info("[LOTE] {} alertas en {} bloques de hasta {} ({} proveedores)",
+            alertas.size(), bloques.size(), tamano, alertasPorProveedor.size());
+        return bloques;
+    }
+
+    /**
+     * Procesa un bloque de alertas. Las alertas se leen en una transaccion
+     * corta de solo lectura y cada prediccion se entrena sin transaccion
+     * abierta; la transaccion del bloque solo cubre el registro de las
+     * predicciones entrenadas (ver {@link #registrarBloque}). Con las
+     * predicciones ya confirmadas, cada optimizacion EOQ/ROP corre en su
+     * propia transaccion: si falla, la prediccion sigue guardada.
+     *
+     * Cuando termina el ultimo bloque de un proveedor se emite su orden de
+     * compra, en su propia transaccion, y se notifica el progreso de cada
+     * alerta ya confirmada.
+     */
+    private List<ResultadoPipeline> procesarBloque(
+            BloqueAlertas bloque,
+            ProcesarAlertasRequest request,
+            ProgresoLote progreso) {
+
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        Map<Long, AlertaPreparada> preparadas = lectura.execute(
+            status -> prepararAlertas(bloque.alertaIds(), request.getHorizonteTiempo()));
+
+        List<ResultadoPipeline> resultados = new ArrayList<>(bloque.alertaIds().size());
+        List<ResultadoPrediccion> pendientes = new ArrayList<>();
+        for (Long alertaId : bloque.alertaIds()) {
+            AlertaPreparada alerta = preparadas.get(alertaId);
+            if (alerta == null) {
+                resultados.add(ResultadoPipeline.fallido(alertaId, "Alerta no encontrada"));
+                continue;
+            }
+            ResultadoPipeline resultado = new ResultadoPipeline();
+            resultado.nombreProducto = alerta.nombreProducto();
+            long inicio = System.currentTimeMillis();
+            resultado.prediccion = calcularPrediccionParaAlerta(alerta);
+            resultado.latenciaMs = System.currentTimeMillis() - inicio;
+            if (resultado.prediccion.calculada != null) {
+                pendientes.add(resultado.prediccion);
+            }
+            resultados.add(resultado);
+        }
+
+        registrarBloque(pendientes);
+        resultados.forEach(this::optimizarPrediccion);
+
+        GrupoProveedor grupo = bloque.grupo();
+        if (grupo != null) {
+            if (resultados.stream().anyMatch(resultado -> resultado.calculoId != null)) {
+                grupo.algunaOptimizada = true;
+            }
+            if (grupo.bloquesPendientes.decrementAndGet() == 0) {
+                emitirOrdenProveedor(grupo, request.getUsuarioId(), resultados.get(resultados.size() - 1));
+            }
+        }
+
+        resultados.forEach(progreso::notificar);
+        return resultados;
+    }
+
+    /**
+     * Registra en una sola transaccion las predicciones entrenadas del bloque.
+     * Si la transaccion se revierte, solo se repite el registro, alerta por
+     * alerta en transacciones individuales y sin reentrenar; cada alerta que
+     * vuelve a fallar informa el error que la revirtio.
+     */
+    private void registrarBloque(List<ResultadoPrediccion> pendientes) {
+        if (pendientes.isEmpty()) {
+            return;
+        }
+
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        try {
+            transaccion.executeWithoutResult(status -> pendientes.forEach(this::registrarPrediccion));
+        } catch (RuntimeException e) {
+            log.warn("[LOTE] Registro de {} predicciones revertido ({}), se repite alerta por alerta",
+                pendientes.size(), e.getMessage());
+            for (ResultadoPrediccion pendiente : pendientes) {
+                try {
+                    transaccion.executeWithoutResult(status -> registrarPrediccion(pendiente));
+                } catch (RuntimeException ex) {
+                    log.error("[LOTE] Prediccion de la alerta {} revertida: {}", pendiente.alertaId, ex.getMessage());
+                    pendiente.exitoso = false;
+                    pendiente.prediccionId = null;
+                    pendiente.smartResponse = null;
+                    pendiente.mensajeError = ex.getMessage();
+                }
+            }
+        }
+    }
+
+    /**
+     * Optimizacion EOQ/ROP de una prediccion ya confirmada, en su propia
+     * transaccion.
+     */
+    private void optimizarPrediccion(ResultadoPipeline resultado) {
+        if (!resultado.prediccion.exitoso || resultado.prediccion.prediccionId == null) {
+            return;
+        }
+
+        long inicio = System.currentTimeMillis();
+        try {
+            CalculoOptimizacionResponse calculo = optimizacionBatchService.ejecutarOptimizacionIndividual(
+                resultado.prediccion.prediccionId, NIVEL_SERVICIO_ORDENES);
+            if (calculo != null && calculo.getCalculoId() != null) {
+                resultado.calculoId = calculo.getCalculoId();
+            }
+        } catch (Exception e) {
+            log.error("[PIPELINE] Error al optimizar prediccion ID: {}",
+                resultado.prediccion.prediccionId, e);
+            resultado.mensajeErrorOptimizacion = e.getMessage();
+        }
+        resultado.latenciaMs += System.currentTimeMillis() - inicio;
+    }
+
+    /**
+     * Emite la orden de compra de un proveedor cuyos productos ya terminaron.
+     * Sin ninguna optimizacion del proveedor no se genera orden.
+     */
+    private void emitirOrdenProveedor(GrupoProveedor grupo, Integer usuarioId, ResultadoPipeline resultado) {
+        if (!grupo.algunaOptimizada) {
+            log.warn("[PIPELINE] Proveedor ID {} sin optimizaciones, no se genera orden", grupo.proveedorId);
+            resultado.mensajeErrorOrden = "Proveedor ID " + grupo.proveedorId
+                + ": sin optimizaciones EOQ/ROP para generar orden de compra";
+            return;
+        }
+
+        try {
+            var orden = ordenCompraBatchService.generarOrdenParaAlertas(
+                grupo.proveedorId, grupo.alertaIds, usuarioId);
+            resultado.ordenId = orden.getOrdenCompraId();
+            log.info("[PIPELINE] Orden {} emitida para proveedor ID {} ({} productos)",
+                orden.getNumeroOrden(), grupo.proveedorId, grupo.alertaIds.size());
+        } catch (Exception e) {
+            log.error("[PIPELINE] Error al generar orden para proveedor ID: {}", grupo.proveedorId, e);
+            resultado.mensajeErrorOrden = "Proveedor ID " + grupo.proveedorId + ": " + e.getMessage();
+        }
+    }
+
+    /**
+     * Bloques de un proveedor pendientes en el pipeline.
+     */
+    private static final class GrupoProveedor {
+        final Integer proveedorId;
+        final List<Long> alertaIds;
+        final AtomicInteger bloquesPendientes;
+        volatile boolean algunaOptimizada;
+
+        GrupoProveedor(Integer proveedorId, List<Long> alertaIds, int bloques) {
+            this.proveedorId = proveedorId;
+            this.alertaIds = alertaIds;
+            this.bloquesPendientes = new AtomicInteger(bloques);
+        }
+    }
+
+    /**
+     * Alertas que confirman en una misma transaccion (todas del mismo proveedor).
+     */
+    private record BloqueAlertas(GrupoProveedor grupo, List<Long> alertaIds) {
+    }
+
+    /**
+     * Resultado de un producto en el pipeline.
+     */
+    private static class ResultadoPipeline {
+        ResultadoPrediccion prediccion;
+        Integer calculoId;
+        String mensajeErrorOptimizacion;
+        Long ordenId;
+        String mensajeErrorOrden;
+        String nombreProducto;
+        long latenciaMs;
+
+        static ResultadoPipeline fallido(Long alertaId, String mensajeError) {
+            ResultadoPipeline resultado = new ResultadoPipeline();
+            resultado.prediccion = new ResultadoPrediccion();
+            resultado.prediccion.alertaId = alertaId;
+            resultado.prediccion.exitoso = false;
+            resultado.prediccion.mensajeError = mensajeError;
+            return resultado;
+        }
+    }
+
+    /**
+     * Contadores del lote y notificacion del progreso de cada producto.
+     */
+    private static final class ProgresoLote {
+        final int total;
+        final Consumer<ProgresoProductoDTO> observador;
+        final AtomicInteger completados = new AtomicInteger();
+        final AtomicInteger exitosos = new AtomicInteger();
+        final AtomicInteger fallidos = new AtomicInteger();
+
+        ProgresoLote(int total, Consumer<ProgresoProductoDTO> observador) {
+            this.total = total;
+            this.observador = observador;
+        }
+
+        void notificar(ResultadoPipeline pipeline) {
+            ResultadoPrediccion prediccion = pipeline.prediccion;
+            boolean exitoso = prediccion.exitoso;
+            int exitososActual = exitoso ? exitosos.incrementAndGet() : exitosos.get();
+            int fallidosActual = exitoso ? fallidos.get() : fallidos.incrementAndGet();
+
+            String mensajeError = prediccion.mensajeError;
+            if (mensajeError == null) {
+                mensajeError = pipeline.mensajeErrorOptimizacion != null
+                    ? pipeline.mensajeErrorOptimizacion
+                    : pipeline.mensajeErrorOrden;
+            }
+
+            try {
+                observador.accept(ProgresoProductoDTO.builder()
+                    .alertaId(prediccion.alertaId)
+                    .productoId(prediccion.productoId)
+                    .nombreProducto(pipeline.nombreProducto)
+                    .exitoso(exitoso)
+                    .prediccionId(prediccion.prediccionId)
+                    .algoritmoUtilizado(prediccion.smartResponse != null
+                        ? prediccion.smartResponse.getAlgoritmoUtilizado()
+                        : null)
+                    .calculoId(pipeline.calculoId)
+                    .ordenId(pipeline.ordenId)
+                    .mensajeError(mensajeError)
+                    .latenciaMs(pipeline.latenciaMs)
+                    .completados(completados.incrementAndGet())
+                    .total(total)
+                    .exitosos(exitososActual)
+                    .fallidos(fallidosActual)
+                    .build());
+            } catch (Exception e) {
+                log.warn("[PROGRESO] Error notificando alerta {}: {}", prediccion.alertaId, e.getMessage());
+            }
+        }
+    }
+
     /**
      * Clase interna para almacenar resultado de una prediccion.
      */
@@ -367,6 +676,8 @@ public class PrediccionBatchService implements IPrediccionBatchService {
         boolean exitoso;
         String mensajeError;
         SmartPrediccionResponse smartResponse; // Guardar respuesta completa de SMILE ML
+        AlertaPreparada alerta;
+        PrediccionCalculada calculada; // Entrenada, pendiente de registrar
     }
 
     // ============================================
@@ -382,17 +693,66 @@ public class PrediccionBatchService implements IPrediccionBatchService {
      * - Métricas de calidad (MAE, MAPE, RMSE)
      * - Métricas agregadas por proveedor
      * 
+     * Sin transaccion propia: las alertas se leen, agrupan y preparan
+     * (horizonte, datos del producto) en una transaccion corta de solo
+     * lectura, y a los hilos del ejecutor solo pasan datos copiados. Cada
+     * producto entrena sin transaccion abierta y solo el registro de su
+     * prediccion confirma en una transaccion propia, asi que ni la espera del
+     * coordinador ni el entrenamiento retienen conexion.
+     *
+     * Los productos corren en paralelo hasta los cupos del ejecutor de lotes
+     * (prediccion.lotes.max-concurrentes) y, como todo el trabajo en segundo
+     * plano, con un permiso del presupuesto de conexiones compartido. Con el
+     * pool por defecto de 2 conexiones hay un solo permiso y los productos,
+     * de todos los proveedores, se procesan uno a uno.
+     * 
      * @param alertaIds IDs de las alertas a procesar
      * @param horizonteTiempo Horizonte en días (null = automático)
      * @return Map con proveedorId como clave y resumen de predicciones como valor
      */
-    @Transactional
     public java.util.Map<Long, com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenPrediccionPorProveedor> 
             procesarAlertasAgrupadoPorProveedor(List<Long> alertaIds, Integer horizonteTiempo) {
         
         log.info("Iniciando procesamiento agrupado por proveedor para {} alertas", alertaIds.size());
         
-        // 1. Obtener alertas
+        // 1-3. Obtener alertas, agruparlas por proveedor y cargar el historial
+        //      de cada proveedor con una sola consulta (IN) por grupo
+        TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+        lectura.setReadOnly(true);
+        List<GrupoResumen> grupos = new ArrayList<>();
+        List<ProductoGrupo> productos = lectura.execute(
+            status -> agruparPorProveedor(alertaIds, horizonteTiempo, grupos));
+
+        // Envio de todos los productos al ejecutor compartido de lotes
+        List<PrediccionProductoDTO> dtos = ejecutorLotes.procesarTodos(productos,
+            this::procesarProductoDeProveedor);
+
+        // 4. Armar el resumen de cada proveedor (métricas ya acumuladas)
+        java.util.Map<Long, ResumenPrediccionPorProveedor> resultado = new java.util.HashMap<>();
+        for (int i = 0; i < productos.size(); i++) {
+            if (dtos.get(i) != null) {
+                productos.get(i).grupo().predicciones.add(dtos.get(i));
+            }
+        }
+        for (GrupoResumen grupo : grupos) {
+            resultado.put(grupo.proveedorId, construirResumenProveedor(grupo));
+        }
+
+        log.info("Procesamiento completado: {} proveedores procesados", resultado.size());
+        
+        return resultado;
+    }
+
+    /**
+     * Lee las alertas y las agrupa por proveedor principal, copiando los datos
+     * del proveedor, la alerta preparada y el historial de cada producto (nada
+     * gestionado sale de la transaccion de lectura).
+     *
+     * @param grupos recibe un grupo por proveedor
+     * @return productos a predecir, con su grupo e historial
+     */
+    private List<ProductoGrupo> agruparPorProveedor(List<Long> alertaIds, Integer horizonteTiempo,
+            List<GrupoResumen> grupos) {
         List<AlertaInventario> alertas = alertaRepositorio.findAllById(alertaIds);
         
         if (alertas.isEmpty()) {
@@ -401,7 +761,6 @@ public class PrediccionBatchService implements IPrediccionBatchService {
             );
         }
 
-        // 2. Agrupar alertas por proveedor
         java.util.Map<Long, List<AlertaInventario>> alertasPorProveedor = new java.util.HashMap<>();
         
         for (AlertaInventario alerta : alertas) {
@@ -416,82 +775,108 @@ public class PrediccionBatchService implements IPrediccionBatchService {
                 .add(alerta);
         }
 
-        // 3. Procesar cada proveedor
-        java.util.Map<Long, com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenPrediccionPorProveedor> resultado = new java.util.HashMap<>();
-        
+        List<ProductoGrupo> productos = new ArrayList<>(alertas.size());
         for (java.util.Map.Entry<Long, List<AlertaInventario>> entry : alertasPorProveedor.entrySet()) {
-            Long proveedorId = entry.getKey();
             List<AlertaInventario> alertasProveedor = entry.getValue();
-            
-            log.info("Procesando proveedor ID {}: {} alertas", proveedorId, alertasProveedor.size());
-            
-            // Procesar predicciones para este proveedor
-            com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenPrediccionPorProveedor resumen = 
-                procesarProveedorCompleto(proveedorId, alertasProveedor, horizonteTiempo);
-            
-            resultado.put(proveedorId, resumen);
-        }
+            log.info("Procesando proveedor ID {}: {} alertas", entry.getKey(), alertasProveedor.size());
 
-        log.info("Procesamiento completado: {} proveedores procesados", resultado.size());
-        
-        return resultado;
+            GrupoResumen grupo = new GrupoResumen(entry.getKey(),
+                alertasProveedor.get(0).getProducto().getProveedorPrincipal(), alertasProveedor.size());
+            grupos.add(grupo);
+
+            Map<Long, AlmacenSeriesDemandaService.SerieDemanda> series = almacenSeries.obtenerVarios(
+                alertasProveedor.stream()
+                    .map(alerta -> alerta.getProducto().getProductoId().longValue())
+                    .toList());
+            for (AlertaInventario alerta : alertasProveedor) {
+                productos.add(new ProductoGrupo(grupo, prepararAlerta(alerta, horizonteTiempo),
+                    series.get(alerta.getProducto().getProductoId().longValue())));
+            }
+        }
+        return productos;
     }
 
     /**
-     * Procesa todas las alertas de un proveedor y genera el resumen completo.
+     * Predice un producto de un proveedor y acumula su resultado en las
+     * métricas del grupo en cuanto confirma. El entrenamiento corre sin
+     * transaccion; el registro de la prediccion confirma en la suya.
+     *
+     * @return DTO de la predicción, o null si falló
      */
-    private com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenPrediccionPorProveedor 
-            procesarProveedorCompleto(Long proveedorId, List<AlertaInventario> alertas, Integer horizonteTiempo) {
-        
-        Proveedor proveedor = alertas.get(0).getProducto().getProveedorPrincipal();
-        
-        List<com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.PrediccionProductoDTO> predicciones = new ArrayList<>();
-        int exitosas = 0;
-        int fallidas = 0;
-        
-        // Procesar cada alerta
-        for (AlertaInventario alerta : alertas) {
-            try {
-                // Generar predicción
-                ResultadoPrediccion resultado = procesarPrediccionParaAlerta(alerta, horizonteTiempo);
-                
-                if (resultado.exitoso && resultado.prediccionId != null && resultado.smartResponse != null) {
-                    // Convertir SmartResponse directamente a DTO (sin consultar BD)
-                    com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.PrediccionProductoDTO dto = 
-                        mapearSmartResponseADTO(resultado.smartResponse, alerta);
-                    
-                    predicciones.add(dto);
-                    exitosas++;
-                } else {
-                    fallidas++;
-                }
-                
-            } catch (Exception e) {
-                log.error("Error procesando alerta {}: {}", alerta.getAlertaId(), e.getMessage());
-                fallidas++;
+    private PrediccionProductoDTO procesarProductoDeProveedor(ProductoGrupo producto) {
+        try {
+            ResultadoPrediccion resultado = calcularPrediccionParaAlerta(producto.alerta());
+            if (resultado.calculada != null) {
+                registrarPrediccion(resultado);
+            }
+
+            if (resultado.exitoso && resultado.prediccionId != null && resultado.smartResponse != null) {
+                // Convertir SmartResponse directamente a DTO (historial ya cargado para el grupo)
+                PrediccionProductoDTO dto = mapearSmartResponseADTO(
+                    resultado.smartResponse, producto.alerta(), producto.serie());
+                producto.grupo().metricas.agregar(dto);
+                return dto;
             }
+            producto.grupo().metricas.registrarFallo();
+
+        } catch (Exception e) {
+            log.error("Error procesando alerta {}: {}", producto.alerta().alertaId(), e.getMessage());
+            producto.grupo().metricas.registrarFallo();
         }
+        return null;
+    }
 
-        // Calcular métricas agregadas
-        com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.MetricasAgregadasDTO metricas = 
-            calcularMetricasAgregadas(predicciones);
-
-        // Construir resumen
-        return com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ResumenPrediccionPorProveedor.builder()
-            .proveedorId(proveedorId)
-            .nombreProveedor(proveedor.getNombreComercial())
-            .rucProveedor(proveedor.getRucNit())
-            .contactoProveedor(proveedor.getPersonaContacto())
-            .emailProveedor(proveedor.getEmail())
-            .telefonoProveedor(proveedor.getTelefono())
-            .predicciones(predicciones)
-            .metricas(metricas)
-            .totalAlertas(alertas.size())
-            .prediccionesExitosas(exitosas)
-            .prediccionesFallidas(fallidas)
+    /**
+     * Construye el resumen de un proveedor con sus predicciones y métricas.
+     */
+    private ResumenPrediccionPorProveedor construirResumenProveedor(GrupoResumen grupo) {
+        return ResumenPrediccionPorProveedor.builder()
+            .proveedorId(grupo.proveedorId)
+            .nombreProveedor(grupo.nombreProveedor)
+            .rucProveedor(grupo.rucProveedor)
+            .contactoProveedor(grupo.contactoProveedor)
+            .emailProveedor(grupo.emailProveedor)
+            .telefonoProveedor(grupo.telefonoProveedor)
+            .predicciones(grupo.predicciones)
+            .metricas(grupo.metricas.construir())
+            .totalAlertas(grupo.totalAlertas)
+            .prediccionesExitosas(grupo.metricas.exitosas)
+            .prediccionesFallidas(grupo.metricas.fallidas)
             .build();
     }
 
+    /**
+     * Datos de un proveedor (copiados de la entidad) y sus resultados.
+     */
+    private static final class GrupoResumen {
+        final Long proveedorId;
+        final String nombreProveedor;
+        final String rucProveedor;
+        final String contactoProveedor;
+        final String emailProveedor;
+        final String telefonoProveedor;
+        final int totalAlertas;
+        final List<PrediccionProductoDTO> predicciones = new ArrayList<>();
+        final AcumuladorMetricas metricas = new AcumuladorMetricas();
+
+        GrupoResumen(Long proveedorId, Proveedor proveedor, int totalAlertas) {
+            this.proveedorId = proveedorId;
+            this.nombreProveedor = proveedor.getNombreComercial();
+            this.rucProveedor = proveedor.getRucNit();
+            this.contactoProveedor = proveedor.getPersonaContacto();
+            this.emailProveedor = proveedor.getEmail();
+            this.telefonoProveedor = proveedor.getTelefono();
+            this.totalAlertas = totalAlertas;
+        }
+    }
+
+    /**
+     * Alerta preparada de un proveedor con el historial de su producto precargado.
+     */
+    private record ProductoGrupo(GrupoResumen grupo, AlertaPreparada alerta,
+            AlmacenSeriesDemandaService.SerieDemanda serie) {
+    }
+
     /**
      * Mapea directamente SmartPrediccionResponse a DTO con datos completos.
      * 
@@ -499,13 +884,13 @@ public class PrediccionBatchService implements IPrediccionBatchService {
      * sin necesidad de consultar la base de datos.
      * 
      * @param smartResponse Respuesta del servicio SMILE ML
-     * @param alerta Alerta asociada (para obtener datos del producto)
+     * @param alerta Alerta preparada (datos del producto ya copiados)
+     * @param serieCargada Historial ya cargado para el grupo (null = consultar el almacén)
      * @return DTO con toda la información de la predicción
      */
     private com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.PrediccionProductoDTO 
-            mapearSmartResponseADTO(SmartPrediccionResponse smartResponse, AlertaInventario alerta) {
-        
-        Producto producto = alerta.getProducto();
+            mapearSmartResponseADTO(SmartPrediccionResponse smartResponse, AlertaPreparada alerta,
+                    AlmacenSeriesDemandaService.SerieDemanda serieCargada) {
         
         // Extraer valores predichos desde SmartPrediccionResponse
         List<Double> valoresPredichos = new ArrayList<>();
@@ -518,31 +903,31 @@ public class PrediccionBatchService implements IPrediccionBatchService {
             }
         }
         
-        // Extraer valores históricos desde RegistroDemanda
+        // Extraer valores históricos desde el almacén de series de demanda
         List<Double> valoresHistoricos = new ArrayList<>();
         List<String> fechasHistoricas = new ArrayList<>();
         
         try {
-            List<RegistroDemanda> registrosHistoricos = registroDemandaRepositorio.findByProducto(producto);
+            AlmacenSeriesDemandaService.SerieDemanda serieHistorica = serieCargada != null
+                ? serieCargada
+                : almacenSeries.obtener(alerta.productoId().longValue());
             
-            if (registrosHistoricos != null && !registrosHistoricos.isEmpty()) {
+            if (!serieHistorica.estaVacia()) {
                 DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
                 
-                for (RegistroDemanda registro : registrosHistoricos) {
-                    if (registro.getCantidadHistorica() != null && registro.getFechaRegistro() != null) {
-                        valoresHistoricos.add(registro.getCantidadHistorica().doubleValue());
-                        fechasHistoricas.add(registro.getFechaRegistro().format(formatter));
-                    }
-                }
+                serieHistorica.paraCadaRegistro((fecha, cantidad) -> {
+                    valoresHistoricos.add((double) cantidad);
+                    fechasHistoricas.add(fecha.format(formatter));
+                });
                 
                 log.debug("[HISTORIAL] Extraídos {} registros históricos para producto {}", 
-                    valoresHistoricos.size(), producto.getNombre());
+                    valoresHistoricos.size(), alerta.nombreProducto());
             } else {
-                log.warn("[HISTORIAL] Advertencia: No se encontraron registros históricos para producto {}", producto.getNombre());
+                log.warn("[HISTORIAL] Advertencia: No se encontraron registros históricos para producto {}", alerta.nombreProducto());
             }
         } catch (Exception e) {
             log.error("[HISTORIAL] Error al extraer valores históricos para producto {}: {}", 
-                producto.getNombre(), e.getMessage());
+                alerta.nombreProducto(), e.getMessage());
         }
         
         // Extraer métricas desde SmartPrediccionResponse
@@ -555,12 +940,11 @@ public class PrediccionBatchService implements IPrediccionBatchService {
             mae = smartResponse.getMetricas().getMae();
             mape = smartResponse.getMetricas().getMape();
             rmse = smartResponse.getMetricas().getRmse();
-            calidad = smartResponse.getMetricas().getCalificacionCalidad();
+            if (smartResponse.getMetricas().getCalificacionCalidad() != null) {
+                calidad = smartResponse.getMetricas().getCalificacionCalidad();
+            }
         }
         
-        // Generar SKU dinámicamente
-        String sku = SKUGenerator.generarSKU(producto);
-        
         // Extraer información de estacionalidad
         Boolean tieneEstacionalidad = null;
         if (smartResponse.getEstacionalidad() != null) {
@@ -572,23 +956,23 @@ public class PrediccionBatchService implements IPrediccionBatchService {
         Integer rop = null;
         try {
             CalculoOptimizacionResponse optimizacion = optimizacionInventarioService
-                .calcularEOQROPDesdePrediccion(smartResponse, producto.getProductoId().longValue(), false);
+                .calcularEOQROPDesdePrediccion(smartResponse, alerta.productoId().longValue(), false);
             
             if (optimizacion != null) {
                 eoq = optimizacion.getEoqCantidadOptima();
                 rop = optimizacion.getRopPuntoReorden();
                 log.debug("[OPTIMIZACION] EOQ={}, ROP={} calculados para producto {}", 
-                    eoq, rop, producto.getNombre());
+                    eoq, rop, alerta.nombreProducto());
             }
         } catch (Exception e) {
             log.warn("[OPTIMIZACION] No se pudo calcular EOQ/ROP para producto {}: {}", 
-                producto.getNombre(), e.getMessage());
+                alerta.nombreProducto(), e.getMessage());
         }
         
         return com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.PrediccionProductoDTO.builder()
-            .productoId(producto.getProductoId())
-            .nombreProducto(producto.getNombre())
-            .codigoSKU(sku)
+            .productoId(alerta.productoId())
+            .nombreProducto(alerta.nombreProducto())
+            .codigoSKU(alerta.sku())
             .prediccionId(smartResponse.getIdPrediccion() != null ? smartResponse.getIdPrediccion().intValue() : null)
             .valoresHistoricos(valoresHistoricos)
             .valoresPredichos(valoresPredichos)
@@ -609,33 +993,32 @@ public class PrediccionBatchService implements IPrediccionBatchService {
     }
 
     /**
-     * Calcula métricas agregadas para un conjunto de predicciones.
+     * Métricas agregadas de un proveedor, acumuladas a medida que llegan los
+     * resultados de sus productos (desde varios hilos).
      */
-    private com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.MetricasAgregadasDTO 
-            calcularMetricasAgregadas(List<com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.PrediccionProductoDTO> predicciones) {
-        
-        if (predicciones.isEmpty()) {
-            return com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.MetricasAgregadasDTO.builder()
-                .totalProductos(0)
-                .calidadGeneral("SIN_DATOS")
-                .build();
-        }
+    private static final class AcumuladorMetricas {
+        private double sumaMae;
+        private double sumaMape;
+        private int conMae;
+        private int conMape;
+        private int excelentes;
+        private int buenas;
+        private int regulares;
+        private int malas;
+        private int exitosas;
+        private int fallidas;
 
-        // Calcular promedios
-        double sumaMae = 0.0;
-        double sumaMape = 0.0;
-        int excelentes = 0;
-        int buenas = 0;
-        int regulares = 0;
-        int malas = 0;
-        
-        for (com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.PrediccionProductoDTO pred : predicciones) {
+        synchronized void agregar(PrediccionProductoDTO pred) {
+            exitosas++;
+            // Sin ventana de validación no hay métricas: no cuentan en los promedios
             if (pred.getMae() != null) {
                 sumaMae += pred.getMae();
+                conMae++;
             }
             if (pred.getMape() != null) {
                 sumaMape += pred.getMape();
-                
+                conMape++;
+
                 // Clasificar calidad
                 if (pred.getMape() < 10) excelentes++;
                 else if (pred.getMape() < 20) buenas++;
@@ -644,24 +1027,34 @@ public class PrediccionBatchService implements IPrediccionBatchService {
             }
         }
 
-        double maePromedio = sumaMae / predicciones.size();
-        double mapePromedio = sumaMape / predicciones.size();
-        
-        String calidadGeneral = determinarCalidad(mapePromedio);
-        
-        double porcentajeAceptable = ((double) (excelentes + buenas) / predicciones.size()) * 100;
-
-        return com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.MetricasAgregadasDTO.builder()
-            .maePromedio(maePromedio)
-            .mapePromedio(mapePromedio)
-            .calidadGeneral(calidadGeneral)
-            .totalProductos(predicciones.size())
-            .prediccionesExcelentes(excelentes)
-            .prediccionesBuenas(buenas)
-            .prediccionesRegulares(regulares)
-            .prediccionesMalas(malas)
-            .porcentajeAceptable(porcentajeAceptable)
-            .build();
+        synchronized void registrarFallo() {
+            fallidas++;
+        }
+
+        synchronized MetricasAgregadasDTO construir() {
+            if (exitosas == 0) {
+                return MetricasAgregadasDTO.builder()
+                    .totalProductos(0)
+                    .calidadGeneral("SIN_DATOS")
+                    .build();
+            }
+
+            Double maePromedio = conMae > 0 ? sumaMae / conMae : null;
+            Double mapePromedio = conMape > 0 ? sumaMape / conMape : null;
+            double porcentajeAceptable = conMape > 0 ? ((double) (excelentes + buenas) / conMape) * 100 : 0.0;
+
+            return MetricasAgregadasDTO.builder()
+                .maePromedio(maePromedio)
+                .mapePromedio(mapePromedio)
+                .calidadGeneral(determinarCalidad(mapePromedio))
+                .totalProductos(exitosas)
+                .prediccionesExcelentes(excelentes)
+                .prediccionesBuenas(buenas)
+                .prediccionesRegulares(regulares)
+                .prediccionesMalas(malas)
+                .porcentajeAceptable(porcentajeAceptable)
+                .build();
+        }
     }
 
     /**
@@ -677,7 +1070,7 @@ public class PrediccionBatchService implements IPrediccionBatchService {
     /**
      * Determina la calidad de una predicción basada en MAPE.
      */
-    private String determinarCalidad(Double mape) {
+    private static String determinarCalidad(Double mape) {
         if (mape == null) return "DESCONOCIDA";
         if (mape < 10) return "EXCELENTE";
         if (mape < 20) return "BUENA";
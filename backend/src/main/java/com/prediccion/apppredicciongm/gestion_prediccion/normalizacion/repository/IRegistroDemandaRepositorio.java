@@ -9,6 +9,7 @@ import com.prediccion.apppredicciongm.models.RegistroDemanda;
 import com.prediccion.apppredicciongm.models.Inventario.Producto;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -90,6 +91,42 @@ public interface IRegistroDemandaRepositorio extends JpaRepository<RegistroDeman
         */
        long countByProducto(Producto producto);
 
+       /**
+        * Proyección (id_producto, fecha_registro, cantidad_historica) de la
+        * demanda de un producto ordenada por fecha. No carga las entidades
+        * Producto ni Usuario.
+        *
+        * @param productoId ID del producto
+        * @return filas [Integer productoId, LocalDateTime fecha, Integer cantidad]
+        */
+       @Query("SELECT rd.producto.productoId, rd.fechaRegistro, rd.cantidadHistorica " +
+                     "FROM RegistroDemanda rd WHERE rd.producto.productoId = :productoId " +
+                     "ORDER BY rd.fechaRegistro ASC")
+       List<Object[]> findSerieProyectadaByProductoId(@Param("productoId") Integer productoId);
+
+       /**
+        * Proyección de la demanda de varios productos en una sola consulta,
+        * ordenada por producto y fecha.
+        *
+        * @param productoIds IDs de los productos
+        * @return filas [Integer productoId, LocalDateTime fecha, Integer cantidad]
+        */
+       @Query("SELECT rd.producto.productoId, rd.fechaRegistro, rd.cantidadHistorica " +
+                     "FROM RegistroDemanda rd WHERE rd.producto.productoId IN :productoIds " +
+                     "ORDER BY rd.producto.productoId ASC, rd.fechaRegistro ASC")
+       List<Object[]> findSeriesProyectadasByProductoIds(@Param("productoIds") Collection<Integer> productoIds);
+
+       /**
+        * Proyección de la demanda de todos los productos, ordenada por producto
+        * y fecha. Usada para la precarga completa del almacén de series.
+        *
+        * @return filas [Integer productoId, LocalDateTime fecha, Integer cantidad]
+        */
+       @Query("SELECT rd.producto.productoId, rd.fechaRegistro, rd.cantidadHistorica " +
+                     "FROM RegistroDemanda rd " +
+                     "ORDER BY rd.producto.productoId ASC, rd.fechaRegistro ASC")
+       List<Object[]> findTodasSeriesProyectadas();
+
        /**
         * Elimina todos los registros de demanda para un producto específico.
         * ADVERTENCIA: Esta operación es destructiva.
@@ -0,0 +1,414 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Almacén en memoria de series de demanda diaria por producto (DemandSeriesStore).
+ *
+ * Cada producto se guarda como un arreglo denso de cantidades por día
+ * (int[]) con la fecha del primer día como desplazamiento, más un BitSet que
+ * marca los días que tienen RegistroDemanda. Así el camino de predicción
+ * trabaja con primitivos y no carga entidades RegistroDemanda con sus grafos
+ * Producto/Usuario.
+ *
+ * Carga:
+ * - Perezosa por producto con una consulta de proyección
+ *   (id_producto, fecha, cantidad)
+ * - Por lote (IN) o completa para procesos masivos
+ *
+ * Actualización: la normalización registra cada día escrito; el cambio se
+ * aplica al confirmar la transacción (copy-on-write del arreglo).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AlmacenSeriesDemandaService {
+
+    private final IRegistroDemandaRepositorio registroDemandaRepositorio;
+
+    private final ConcurrentHashMap<Long, SerieDemanda> series = new ConcurrentHashMap<>();
+
+    /**
+     * Contador de escrituras aplicadas. Una carga que se solapa con una
+     * escritura no se guarda en el almacén para no fijar datos viejos.
+     */
+    private final AtomicLong escrituras = new AtomicLong();
+
+    private final AtomicLong cargasIndividuales = new AtomicLong();
+    private final AtomicLong cargasLote = new AtomicLong();
+    private final AtomicLong aciertos = new AtomicLong();
+    private volatile long ultimaCargaMs;
+    private volatile int productosUltimaCarga;
+
+    /**
+     * Retorna la serie del producto, cargándola con una consulta de
+     * proyección si aún no está en memoria.
+     *
+     * @param productoId ID del producto
+     * @return serie del producto (vacía si no tiene registros)
+     */
+    public SerieDemanda obtener(Long productoId) {
+        SerieDemanda serie = series.get(productoId);
+        if (serie != null) {
+            aciertos.incrementAndGet();
+            return serie;
+        }
+
+        long marca = escrituras.get();
+        cargasIndividuales.incrementAndGet();
+        List<Object[]> filas = registroDemandaRepositorio.findSerieProyectadaByProductoId(Math.toIntExact(productoId));
+        SerieDemanda cargada = construirDesdeFilas(filas, 0, filas.size());
+        guardarSiVigente(productoId, cargada, marca);
+        return cargada;
+    }
+
+    /**
+     * Indica si la serie del producto ya está en memoria (obtener no
+     * consultará la base de datos).
+     */
+    public boolean estaEnMemoria(Long productoId) {
+        return series.containsKey(productoId);
+    }
+
+    /**
+     * Carga en una sola consulta las series de los productos que aún no están
+     * en memoria y retorna todas las solicitadas.
+     *
+     * @param productoIds IDs de los productos
+     * @return mapa productoId → serie (vacía si no tiene registros)
+     */
+    public Map<Long, SerieDemanda> obtenerVarios(Collection<Long> productoIds) {
+        Map<Long, SerieDemanda> resultado = new HashMap<>();
+        List<Integer> faltantes = new ArrayList<>();
+        for (Long productoId : productoIds) {
+            SerieDemanda serie = series.get(productoId);
+            if (serie != null) {
+                aciertos.incrementAndGet();
+                resultado.put(productoId, serie);
+            } else {
+                faltantes.add(Math.toIntExact(productoId));
+            }
+        }
+
+        if (!faltantes.isEmpty()) {
+            long marca = escrituras.get();
+            cargasLote.incrementAndGet();
+            Map<Long, SerieDemanda> cargadas = agruparPorProducto(
+                    registroDemandaRepositorio.findSeriesProyectadasByProductoIds(faltantes));
+            for (Integer productoId : faltantes) {
+                Long id = productoId.longValue();
+                SerieDemanda serie = cargadas.getOrDefault(id, SerieDemanda.VACIA);
+                guardarSiVigente(id, serie, marca);
+                resultado.put(id, serie);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Reemplaza el contenido del almacén con la demanda de todos los
+     * productos. Registra el tiempo de carga y la memoria estimada.
+     *
+     * @return número de productos cargados
+     */
+    public int precargarTodo() {
+        long inicio = System.currentTimeMillis();
+        long marca = escrituras.get();
+
+        Map<Long, SerieDemanda> cargadas = agruparPorProducto(registroDemandaRepositorio.findTodasSeriesProyectadas());
+        cargadas.forEach((id, serie) -> guardarSiVigente(id, serie, marca));
+
+        ultimaCargaMs = System.currentTimeMillis() - inicio;
+        productosUltimaCarga = cargadas.size();
+        long bytes = cargadas.values().stream().mapToLong(SerieDemanda::bytesEstimados).sum();
+        log.info("[SERIES-DEMANDA] Precarga completa: {} productos en {}ms, ~{} KB ({} bytes/producto)",
+                cargadas.size(), ultimaCargaMs, bytes / 1024,
+                cargadas.isEmpty() ? 0 : bytes / cargadas.size());
+        return cargadas.size();
+    }
+
+    /**
+     * Registra la demanda normalizada de varios días de un producto. Si hay
+     * una transacción activa, el cambio se aplica al confirmarse; si se
+     * revierte, se descarta. Todos los días se aplican con una sola copia
+     * del arreglo.
+     *
+     * @param productoId   ID del producto
+     * @param demandaPorDia cantidad histórica por día
+     */
+    public void registrarDemanda(Long productoId, Map<LocalDate, Integer> demandaPorDia) {
+        if (demandaPorDia.isEmpty()) {
+            return;
+        }
+        Map<LocalDate, Integer> dias = Map.copyOf(demandaPorDia);
+        alConfirmar(() -> {
+            escrituras.incrementAndGet();
+            series.computeIfPresent(productoId, (id, serie) -> serie.conDias(dias));
+        });
+    }
+
+    /**
+     * Descarta la serie de un producto (por ejemplo, tras borrar su demanda).
+     * Se recargará en el próximo acceso.
+     *
+     * @param productoId ID del producto
+     */
+    public void invalidarProducto(Long productoId) {
+        alConfirmar(() -> {
+            escrituras.incrementAndGet();
+            series.remove(productoId);
+        });
+    }
+
+    /**
+     * Vacía el almacén completo.
+     */
+    public void invalidarTodo() {
+        escrituras.incrementAndGet();
+        series.clear();
+    }
+
+    /**
+     * Estadísticas del almacén: productos en memoria, memoria estimada y
+     * tiempos de carga.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        int productos = series.size();
+        long bytes = series.values().stream().mapToLong(SerieDemanda::bytesEstimados).sum();
+        long dias = series.values().stream().mapToLong(SerieDemanda::numDias).sum();
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("productosEnMemoria", productos);
+        estadisticas.put("diasAlmacenados", dias);
+        estadisticas.put("bytesEstimados", bytes);
+        estadisticas.put("bytesPorProducto", productos > 0 ? bytes / productos : 0);
+        estadisticas.put("aciertos", aciertos.get());
+        estadisticas.put("cargasIndividuales", cargasIndividuales.get());
+        estadisticas.put("cargasLote", cargasLote.get());
+        estadisticas.put("ultimaPrecargaMs", ultimaCargaMs);
+        estadisticas.put("productosUltimaPrecarga", productosUltimaCarga);
+        return estadisticas;
+    }
+
+    private void guardarSiVigente(Long productoId, SerieDemanda serie, long marca) {
+        if (escrituras.get() == marca) {
+            series.putIfAbsent(productoId, serie);
+        }
+    }
+
+    private void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * Agrupa filas ordenadas por (producto, fecha) en una serie por producto.
+     */
+    private Map<Long, SerieDemanda> agruparPorProducto(List<Object[]> filas) {
+        Map<Long, SerieDemanda> resultado = new HashMap<>();
+        int inicio = 0;
+        while (inicio < filas.size()) {
+            Object productoId = filas.get(inicio)[0];
+            int fin = inicio + 1;
+            while (fin < filas.size() && productoId.equals(filas.get(fin)[0])) {
+                fin++;
+            }
+            resultado.put(((Number) productoId).longValue(), construirDesdeFilas(filas, inicio, fin));
+            inicio = fin;
+        }
+        return resultado;
+    }
+
+    /**
+     * Construye una serie densa a partir de filas [productoId, fecha, cantidad]
+     * ordenadas por fecha. Registros del mismo día se suman.
+     */
+    private static SerieDemanda construirDesdeFilas(List<Object[]> filas, int desde, int hasta) {
+        LocalDate primerDia = null;
+        LocalDate ultimoDia = null;
+        for (int i = desde; i < hasta; i++) {
+            Object fecha = filas.get(i)[1];
+            if (fecha != null) {
+                LocalDate dia = ((LocalDateTime) fecha).toLocalDate();
+                if (primerDia == null || dia.isBefore(primerDia)) {
+                    primerDia = dia;
+                }
+                if (ultimoDia == null || dia.isAfter(ultimoDia)) {
+                    ultimoDia = dia;
+                }
+            }
+        }
+        if (primerDia == null) {
+            return SerieDemanda.VACIA;
+        }
+
+        int numDias = (int) ChronoUnit.DAYS.between(primerDia, ultimoDia) + 1;
+        int[] cantidades = new int[numDias];
+        BitSet registrados = new BitSet(numDias);
+        for (int i = desde; i < hasta; i++) {
+            Object[] fila = filas.get(i);
+            if (fila[1] == null) {
+                continue;
+            }
+            int offset = (int) ChronoUnit.DAYS.between(primerDia, ((LocalDateTime) fila[1]).toLocalDate());
+            cantidades[offset] += fila[2] != null ? ((Number) fila[2]).intValue() : 0;
+            registrados.set(offset);
+        }
+        return new SerieDemanda(primerDia, cantidades, registrados);
+    }
+
+    /**
+     * Serie de demanda inmutable de un producto: cantidades diarias densas
+     * desde fechaInicio y los días que tienen registro.
+     */
+    public static final class SerieDemanda {
+
+        static final SerieDemanda VACIA = new SerieDemanda(null, new int[0], new BitSet(0));
+
+        private final LocalDate fechaInicio;
+        private final int[] cantidades;
+        private final BitSet registrados;
+        private final int numRegistros;
+
+        SerieDemanda(LocalDate fechaInicio, int[] cantidades, BitSet registrados) {
+            this.fechaInicio = fechaInicio;
+            this.cantidades = cantidades;
+            this.registrados = registrados;
+            this.numRegistros = registrados.cardinality();
+        }
+
+        /**
+         * Consumidor de (fecha, cantidad) para recorrer los días registrados.
+         */
+        @FunctionalInterface
+        public interface ConsumidorDia {
+            void aceptar(LocalDate fecha, int cantidad);
+        }
+
+        public boolean estaVacia() {
+            return numRegistros == 0;
+        }
+
+        /** Número de días con RegistroDemanda (equivale a countByProducto). */
+        public int numRegistros() {
+            return numRegistros;
+        }
+
+        /** Número de días cubiertos entre el primer y el último registro. */
+        public int numDias() {
+            return cantidades.length;
+        }
+
+        public LocalDate fechaInicio() {
+            return fechaInicio;
+        }
+
+        /**
+         * Valores de los días con registro, en orden de fecha. Es la misma
+         * serie que se obtenía mapeando la lista de RegistroDemanda.
+         */
+        public double[] valoresRegistrados() {
+            double[] valores = new double[numRegistros];
+            int k = 0;
+            for (int d = registrados.nextSetBit(0); d >= 0; d = registrados.nextSetBit(d + 1)) {
+                valores[k++] = cantidades[d];
+            }
+            return valores;
+        }
+
+        /**
+         * Serie diaria densa (días sin registro valen 0).
+         */
+        public double[] serieDiaria() {
+            double[] valores = new double[cantidades.length];
+            for (int d = 0; d < cantidades.length; d++) {
+                valores[d] = cantidades[d];
+            }
+            return valores;
+        }
+
+        /**
+         * Recorre los días con registro en orden de fecha.
+         */
+        public void paraCadaRegistro(ConsumidorDia consumidor) {
+            for (int d = registrados.nextSetBit(0); d >= 0; d = registrados.nextSetBit(d + 1)) {
+                consumidor.aceptar(fechaInicio.plusDays(d), cantidades[d]);
+            }
+        }
+
+        /**
+         * Retorna una copia con las cantidades de los días indicados
+         * reemplazadas, extendiendo el rango si alguna fecha cae fuera.
+         */
+        SerieDemanda conDias(Map<LocalDate, Integer> dias) {
+            LocalDate nuevoInicio = fechaInicio;
+            LocalDate nuevoFin = fechaInicio != null ? fechaInicio.plusDays(cantidades.length - 1L) : null;
+            for (LocalDate fecha : dias.keySet()) {
+                if (nuevoInicio == null || fecha.isBefore(nuevoInicio)) {
+                    nuevoInicio = fecha;
+                }
+                if (nuevoFin == null || fecha.isAfter(nuevoFin)) {
+                    nuevoFin = fecha;
+                }
+            }
+
+            int numDias = (int) ChronoUnit.DAYS.between(nuevoInicio, nuevoFin) + 1;
+            int[] nuevas = new int[numDias];
+            BitSet nuevosRegistrados = new BitSet(numDias);
+            if (fechaInicio != null) {
+                int desplazamiento = (int) ChronoUnit.DAYS.between(nuevoInicio, fechaInicio);
+                System.arraycopy(cantidades, 0, nuevas, desplazamiento, cantidades.length);
+                for (int d = registrados.nextSetBit(0); d >= 0; d = registrados.nextSetBit(d + 1)) {
+                    nuevosRegistrados.set(d + desplazamiento);
+                }
+            }
+
+            for (Map.Entry<LocalDate, Integer> dia : dias.entrySet()) {
+                int offset = (int) ChronoUnit.DAYS.between(nuevoInicio, dia.getKey());
+                nuevas[offset] = dia.getValue();
+                nuevosRegistrados.set(offset);
+            }
+            return new SerieDemanda(nuevoInicio, nuevas, nuevosRegistrados);
+        }
+
+        /**
+         * Memoria aproximada de la serie: cabeceras de objeto, int[] denso y
+         * palabras del BitSet.
+         */
+        long bytesEstimados() {
+            long arreglo = 16L + 4L * cantidades.length;
+            long bitset = 40L + 8L * ((cantidades.length + 63) / 64);
+            return 32L + 24L + arreglo + bitset;
+        }
+    }
+}
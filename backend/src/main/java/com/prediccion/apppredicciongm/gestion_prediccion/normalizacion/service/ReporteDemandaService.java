@@ -17,6 +17,8 @@ import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IPr
 import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.dto.request.NormalizacionRequest;
 import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.errors.NormalizacionException;
 import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.CurvaPrediccionService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.ModeloEntrenadoCacheService;
 import com.prediccion.apppredicciongm.models.Inventario.Kardex;
 import com.prediccion.apppredicciongm.models.Inventario.Producto;
 import com.prediccion.apppredicciongm.models.RegistroDemanda;
@@ -56,6 +58,9 @@ public class ReporteDemandaService implements IReporteDemandaService {
     private final IProductoRepositorio productoRepositorio;
     private final IRegistroDemandaRepositorio registroDemandaRepositorio;
     private final PlatformTransactionManager transactionManager;
+    private final ModeloEntrenadoCacheService modeloCache;
+    private final CurvaPrediccionService curvaPrediccion;
+    private final AlmacenSeriesDemandaService almacenSeries;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -64,11 +69,17 @@ public class ReporteDemandaService implements IReporteDemandaService {
             IKardexRepositorio kardexRepositorio,
             IProductoRepositorio productoRepositorio,
             IRegistroDemandaRepositorio registroDemandaRepositorio,
-            PlatformTransactionManager transactionManager) {
+            PlatformTransactionManager transactionManager,
+            ModeloEntrenadoCacheService modeloCache,
+            CurvaPrediccionService curvaPrediccion,
+            AlmacenSeriesDemandaService almacenSeries) {
         this.kardexRepositorio = kardexRepositorio;
         this.productoRepositorio = productoRepositorio;
         this.registroDemandaRepositorio = registroDemandaRepositorio;
         this.transactionManager = transactionManager;
+        this.modeloCache = modeloCache;
+        this.curvaPrediccion = curvaPrediccion;
+        this.almacenSeries = almacenSeries;
     }
 
     /**
@@ -150,10 +161,16 @@ public class ReporteDemandaService implements IReporteDemandaService {
                 }
                 registroDemandaRepositorio.save(registro);
             }
+            almacenSeries.registrarDemanda(producto.getProductoId().longValue(), demandaPorFecha);
 
             log.info("[NORMALIZACION] Normalizados {} registros para producto: {} ({} registros nuevos)",
                     demandaPorFecha.size(), producto.getNombre(), registrosCreados);
 
+            if (!demandaPorFecha.isEmpty()) {
+                modeloCache.invalidarProductoAlConfirmar(producto.getProductoId().longValue());
+                curvaPrediccion.invalidarProductoAlConfirmar(producto.getProductoId().longValue());
+            }
+
             return demandaPorFecha.size();
 
         } catch (Exception e) {
@@ -231,6 +248,7 @@ public class ReporteDemandaService implements IReporteDemandaService {
                 txTemplate.execute(status -> {
                     int localNuevos = 0;
                     int localActualizados = 0;
+                    Map<Long, Map<LocalDate, Integer>> demandaPorProducto = new HashMap<>();
 
                     for (Object[] fila : batch) {
                         try {
@@ -263,6 +281,8 @@ public class ReporteDemandaService implements IReporteDemandaService {
                             }
 
                             registroDemandaRepositorio.save(registro);
+                            demandaPorProducto.computeIfAbsent(productoId.longValue(), id -> new HashMap<>())
+                                    .put(fecha, cantidad.intValue());
                         } catch (Exception e) {
                             log.error("[NORMALIZACION] Error procesando fila: {}", e.getMessage());
                             errores.incrementAndGet();
@@ -273,6 +293,12 @@ public class ReporteDemandaService implements IReporteDemandaService {
                     entityManager.flush();
                     entityManager.clear();
 
+                    // Un registro por producto del batch: una sola copia de su serie al confirmar
+                    demandaPorProducto.forEach(almacenSeries::registrarDemanda);
+                    // Los modelos y curvas calculados con la demanda anterior dejan de valer al confirmar el batch
+                    demandaPorProducto.keySet().forEach(modeloCache::invalidarProductoAlConfirmar);
+                    demandaPorProducto.keySet().forEach(curvaPrediccion::invalidarProductoAlConfirmar);
+
                     registrosNuevos.addAndGet(localNuevos);
                     registrosActualizados.addAndGet(localActualizados);
 
@@ -402,6 +428,9 @@ public class ReporteDemandaService implements IReporteDemandaService {
         try {
             long cantidadAntes = registroDemandaRepositorio.countByProducto(producto);
             registroDemandaRepositorio.deleteByProducto(producto);
+            modeloCache.invalidarProductoAlConfirmar(producto.getProductoId().longValue());
+            curvaPrediccion.invalidarProductoAlConfirmar(producto.getProductoId().longValue());
+            almacenSeries.invalidarProducto(producto.getProductoId().longValue());
             log.warn("[NORMALIZACION] Demanda limpiada para {}: {} registros eliminados",
                     producto.getNombre(), cantidadAntes);
             return (int) cantidadAntes;
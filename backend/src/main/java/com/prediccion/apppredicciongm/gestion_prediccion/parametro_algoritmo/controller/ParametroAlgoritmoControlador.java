@@ -3,6 +3,7 @@ package com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.co
 import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.dto.request.ParametroAlgoritmoCreateRequest;
 import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.dto.response.ParametroAlgoritmoResponse;
 import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.IParametroAlgoritmoServicio;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.InstantaneaParametrosService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -17,6 +18,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para gestión de ParametroAlgoritmo
@@ -30,6 +32,7 @@ import java.util.List;
 public class ParametroAlgoritmoControlador {
 
     private final IParametroAlgoritmoServicio parametroServicio;
+    private final InstantaneaParametrosService instantaneaParametros;
 
     /**
      * Crea un nuevo parámetro de algoritmo
@@ -152,4 +155,15 @@ public class ParametroAlgoritmoControlador {
         parametroServicio.eliminarParametro(parametroId);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Estadísticas de la instantánea en memoria de parámetros activos
+     */
+    @GetMapping("/instantanea")
+    @Operation(summary = "Instantánea de parámetros", description = "Retorna versión, fecha de carga y número de parámetros activos que usa el motor de predicción")
+    public ResponseEntity<Map<String, Object>> obtenerInstantanea() {
+        log.info("GET /api/parametros-algoritmo/instantanea");
+
+        return ResponseEntity.ok(instantaneaParametros.obtenerEstadisticas());
+    }
 }
@@ -23,6 +23,11 @@ import java.util.List;
  * - RANDOM_FOREST: Bosques aleatorios para patrones complejos
  * - GRADIENT_BOOSTING: GBM para alta variabilidad
  * - ARIMA: Series temporales con lag features
+ *
+ * Además de los de Smile:
+ * - CROSTON_TSB: Demanda intermitente
+ * - HOLT_WINTERS: Suavizado del estado en línea (HoltWintersOnlineService).
+ *   Los parámetros HOLT_WINTERS del algoritmo legado (sin phi) se reemplazan.
  */
 @Slf4j
 @Service
@@ -31,13 +36,14 @@ import java.util.List;
 public class InicializacionParametrosService implements ApplicationRunner {
 
     private final IParametroAlgoritmoRepositorio parametroRepositorio;
+    private final InstantaneaParametrosService instantaneaParametros;
 
     @Override
     public void run(ApplicationArguments args) throws Exception {
         // Verificar si necesita migración (algoritmos obsoletos) o inicialización
         boolean necesitaMigracion = parametroRepositorio.findByTipoAlgoritmo("SMA").size() > 0
                 || parametroRepositorio.findByTipoAlgoritmo("SES").size() > 0
-                || parametroRepositorio.findByTipoAlgoritmo("HOLT_WINTERS").size() > 0;
+                || esHoltWintersLegado(parametroRepositorio.findByTipoAlgoritmo("HOLT_WINTERS"));
 
         if (parametroRepositorio.count() == 0) {
             log.info("[PARAMETROS] Inicializando parámetros de algoritmos por defecto...");
@@ -45,9 +51,30 @@ public class InicializacionParametrosService implements ApplicationRunner {
         } else if (necesitaMigracion) {
             log.info("[PARAMETROS] Detectados parámetros obsoletos, ejecutando migración...");
             migrarParametrosObsoletos();
+        } else if (parametroRepositorio.findByTipoAlgoritmo("CROSTON_TSB").isEmpty()
+                || parametroRepositorio.findByTipoAlgoritmo("HOLT_WINTERS").isEmpty()) {
+            if (parametroRepositorio.findByTipoAlgoritmo("CROSTON_TSB").isEmpty()) {
+                log.info("[PARAMETROS] Agregando parámetros de CROSTON_TSB...");
+                crearParametrosCrostonTsb();
+            }
+            if (parametroRepositorio.findByTipoAlgoritmo("HOLT_WINTERS").isEmpty()) {
+                log.info("[PARAMETROS] Agregando parámetros de HOLT_WINTERS...");
+                crearParametrosHoltWinters();
+            }
         } else {
             log.info("[PARAMETROS] Los parámetros de algoritmos ya están configurados correctamente");
         }
+
+        instantaneaParametros.recargarAlConfirmar();
+    }
+
+    /**
+     * Los parámetros HOLT_WINTERS del algoritmo legado no tienen phi; los del
+     * estado en línea sí.
+     */
+    private boolean esHoltWintersLegado(List<ParametroAlgoritmo> parametros) {
+        return !parametros.isEmpty()
+                && parametros.stream().noneMatch(p -> "phi".equals(p.getNombreParametro()));
     }
 
     /**
@@ -56,7 +83,7 @@ public class InicializacionParametrosService implements ApplicationRunner {
     private void migrarParametrosObsoletos() {
         try {
             // Eliminar parámetros de algoritmos obsoletos
-            List<String> algoritmosObsoletos = Arrays.asList("SMA", "SES", "HOLT_WINTERS");
+            List<String> algoritmosObsoletos = Arrays.asList("SMA", "SES");
             for (String algoritmo : algoritmosObsoletos) {
                 List<ParametroAlgoritmo> parametrosObsoletos = parametroRepositorio.findByTipoAlgoritmo(algoritmo);
                 if (!parametrosObsoletos.isEmpty()) {
@@ -65,6 +92,12 @@ public class InicializacionParametrosService implements ApplicationRunner {
                             parametrosObsoletos.size(), algoritmo);
                 }
             }
+            List<ParametroAlgoritmo> holtWinters = parametroRepositorio.findByTipoAlgoritmo("HOLT_WINTERS");
+            if (esHoltWintersLegado(holtWinters)) {
+                parametroRepositorio.deleteAll(holtWinters);
+                log.info("[PARAMETROS] Reemplazados {} parámetros legados de HOLT_WINTERS", holtWinters.size());
+                crearParametrosHoltWinters();
+            }
 
             // Verificar si faltan parámetros de algoritmos nuevos
             if (parametroRepositorio.findByTipoAlgoritmo("LINEAR_REGRESSION").isEmpty()) {
@@ -79,6 +112,12 @@ public class InicializacionParametrosService implements ApplicationRunner {
             if (parametroRepositorio.findByTipoAlgoritmo("ARIMA").isEmpty()) {
                 crearParametrosARIMA();
             }
+            if (parametroRepositorio.findByTipoAlgoritmo("CROSTON_TSB").isEmpty()) {
+                crearParametrosCrostonTsb();
+            }
+            if (parametroRepositorio.findByTipoAlgoritmo("HOLT_WINTERS").isEmpty()) {
+                crearParametrosHoltWinters();
+            }
 
             log.info("[PARAMETROS] Migración de parámetros completada exitosamente");
 
@@ -105,6 +144,12 @@ public class InicializacionParametrosService implements ApplicationRunner {
             // Parámetros para ARIMA (Time Series con Lag Features)
             crearParametrosARIMA();
 
+            // Parámetros para CROSTON_TSB (demanda intermitente)
+            crearParametrosCrostonTsb();
+
+            // Parámetros para HOLT_WINTERS (estado en línea)
+            crearParametrosHoltWinters();
+
             log.info("[PARAMETROS] Parámetros de algoritmos Smile ML inicializados correctamente");
 
         } catch (Exception e) {
@@ -344,4 +389,96 @@ public class InicializacionParametrosService implements ApplicationRunner {
         parametroRepositorio.saveAll(parametrosARIMA);
         log.debug("[PARAMETROS] Parámetros ARIMA creados");
     }
+
+    /**
+     * Crea parámetros para CROSTON_TSB (demanda intermitente).
+     * Constantes de suavizado del tamaño y de la probabilidad de venta.
+     */
+    private void crearParametrosCrostonTsb() {
+        List<ParametroAlgoritmo> parametros = Arrays.asList(
+                ParametroAlgoritmo.builder()
+                        .nombreParametro("alpha")
+                        .valorParametro(new BigDecimal("0.1"))
+                        .valorMinimo(new BigDecimal("0.01"))
+                        .valorMaximo(new BigDecimal("0.5"))
+                        .tipoAlgoritmo("CROSTON_TSB")
+                        .descripcion("Suavizado del tamaño de la venta (solo días con venta)")
+                        .activo(true)
+                        .fechaCreacion(LocalDateTime.now())
+                        .fechaActualizacion(LocalDateTime.now())
+                        .build(),
+
+                ParametroAlgoritmo.builder()
+                        .nombreParametro("beta")
+                        .valorParametro(new BigDecimal("0.05"))
+                        .valorMinimo(new BigDecimal("0.01"))
+                        .valorMaximo(new BigDecimal("0.5"))
+                        .tipoAlgoritmo("CROSTON_TSB")
+                        .descripcion("Suavizado de la probabilidad de venta (todos los días)")
+                        .activo(true)
+                        .fechaCreacion(LocalDateTime.now())
+                        .fechaActualizacion(LocalDateTime.now())
+                        .build());
+
+        parametroRepositorio.saveAll(parametros);
+        log.debug("[PARAMETROS] Parámetros CROSTON_TSB creados");
+    }
+
+    /**
+     * Crea parámetros para HOLT_WINTERS (estado en línea con tendencia
+     * amortiguada). Valores iguales a los de prediccion.ml.holt-winters.*.
+     */
+    private void crearParametrosHoltWinters() {
+        List<ParametroAlgoritmo> parametros = Arrays.asList(
+                ParametroAlgoritmo.builder()
+                        .nombreParametro("alpha")
+                        .valorParametro(new BigDecimal("0.2"))
+                        .valorMinimo(new BigDecimal("0.01"))
+                        .valorMaximo(new BigDecimal("0.9"))
+                        .tipoAlgoritmo("HOLT_WINTERS")
+                        .descripcion("Suavizado del nivel")
+                        .activo(true)
+                        .fechaCreacion(LocalDateTime.now())
+                        .fechaActualizacion(LocalDateTime.now())
+                        .build(),
+
+                ParametroAlgoritmo.builder()
+                        .nombreParametro("beta")
+                        .valorParametro(new BigDecimal("0.05"))
+                        .valorMinimo(new BigDecimal("0.01"))
+                        .valorMaximo(new BigDecimal("0.5"))
+                        .tipoAlgoritmo("HOLT_WINTERS")
+                        .descripcion("Suavizado de la tendencia")
+                        .activo(true)
+                        .fechaCreacion(LocalDateTime.now())
+                        .fechaActualizacion(LocalDateTime.now())
+                        .build(),
+
+                ParametroAlgoritmo.builder()
+                        .nombreParametro("gamma")
+                        .valorParametro(new BigDecimal("0.1"))
+                        .valorMinimo(new BigDecimal("0.01"))
+                        .valorMaximo(new BigDecimal("0.9"))
+                        .tipoAlgoritmo("HOLT_WINTERS")
+                        .descripcion("Suavizado de los índices estacionales semanales")
+                        .activo(true)
+                        .fechaCreacion(LocalDateTime.now())
+                        .fechaActualizacion(LocalDateTime.now())
+                        .build(),
+
+                ParametroAlgoritmo.builder()
+                        .nombreParametro("phi")
+                        .valorParametro(new BigDecimal("0.98"))
+                        .valorMinimo(new BigDecimal("0.8"))
+                        .valorMaximo(new BigDecimal("1.0"))
+                        .tipoAlgoritmo("HOLT_WINTERS")
+                        .descripcion("Amortiguación de la tendencia")
+                        .activo(true)
+                        .fechaCreacion(LocalDateTime.now())
+                        .fechaActualizacion(LocalDateTime.now())
+                        .build());
+
+        parametroRepositorio.saveAll(parametros);
+        log.debug("[PARAMETROS] Parámetros HOLT_WINTERS creados");
+    }
 }
\ No newline at end of file
@@ -0,0 +1,168 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.repository.IParametroAlgoritmoRepositorio;
+import com.prediccion.apppredicciongm.models.ParametroAlgoritmo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instantánea inmutable en memoria de los parámetros de algoritmo activos.
+ *
+ * Se carga una sola vez (perezosamente en el primer acceso) y se reemplaza
+ * completa de forma atómica cuando se confirma una transacción que crea,
+ * actualiza o elimina parámetros. Los lectores del camino de predicción
+ * nunca consultan la base de datos ni ven un estado a medio actualizar.
+ *
+ * Si hay más de una fila activa con el mismo (tipo, nombre), gana la de
+ * fecha de actualización más reciente.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class InstantaneaParametrosService {
+
+    private final IParametroAlgoritmoRepositorio parametroRepositorio;
+
+    private volatile Instantanea actual;
+
+    private final AtomicLong recargas = new AtomicLong();
+    private final AtomicLong lecturas = new AtomicLong();
+
+    /**
+     * Valores activos indexados por tipo de algoritmo y nombre de parámetro.
+     *
+     * @param valores       tipoAlgoritmo → (nombreParametro → valor)
+     * @param version       número de recarga que la produjo
+     * @param fechaCarga    momento de la carga
+     * @param numParametros total de parámetros activos
+     */
+    private record Instantanea(Map<String, Map<String, BigDecimal>> valores, long version,
+            LocalDateTime fechaCarga, int numParametros) {
+
+        BigDecimal obtener(String tipoAlgoritmo, String nombreParametro) {
+            Map<String, BigDecimal> porAlgoritmo = valores.get(tipoAlgoritmo);
+            return porAlgoritmo != null ? porAlgoritmo.get(nombreParametro) : null;
+        }
+    }
+
+    /**
+     * Obtiene un parámetro entero o el valor por defecto si no está activo.
+     */
+    public int obtenerInt(String tipoAlgoritmo, String nombreParametro, int valorDefecto) {
+        BigDecimal valor = obtenerInstantanea().obtener(tipoAlgoritmo, nombreParametro);
+        lecturas.incrementAndGet();
+        return valor != null ? valor.intValue() : valorDefecto;
+    }
+
+    /**
+     * Obtiene un parámetro decimal o el valor por defecto si no está activo.
+     */
+    public double obtenerDouble(String tipoAlgoritmo, String nombreParametro, double valorDefecto) {
+        BigDecimal valor = obtenerInstantanea().obtener(tipoAlgoritmo, nombreParametro);
+        lecturas.incrementAndGet();
+        return valor != null ? valor.doubleValue() : valorDefecto;
+    }
+
+    /**
+     * Programa la recarga para cuando confirme la transacción en curso. Sin
+     * transacción activa, recarga de inmediato. Si la transacción se revierte
+     * la instantánea vigente no cambia.
+     */
+    public void recargarAlConfirmar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recargar();
+                }
+            });
+        } else {
+            recargar();
+        }
+    }
+
+    /**
+     * Lee todos los parámetros activos y publica una nueva instantánea.
+     * Las recargas se serializan para que una lectura vieja no pise a una
+     * más reciente.
+     */
+    public synchronized void recargar() {
+        List<ParametroAlgoritmo> activos = parametroRepositorio.findByActivo(true);
+
+        Map<String, Map<String, ParametroAlgoritmo>> vigentes = new HashMap<>();
+        for (ParametroAlgoritmo parametro : activos) {
+            if (parametro.getTipoAlgoritmo() == null || parametro.getNombreParametro() == null
+                    || parametro.getValorParametro() == null) {
+                continue;
+            }
+            vigentes.computeIfAbsent(parametro.getTipoAlgoritmo(), tipo -> new HashMap<>())
+                    .merge(parametro.getNombreParametro(), parametro, InstantaneaParametrosService::masReciente);
+        }
+
+        Map<String, Map<String, BigDecimal>> valores = new HashMap<>();
+        int total = 0;
+        for (Map.Entry<String, Map<String, ParametroAlgoritmo>> tipo : vigentes.entrySet()) {
+            Map<String, BigDecimal> porNombre = new HashMap<>();
+            tipo.getValue().forEach((nombre, parametro) -> porNombre.put(nombre, parametro.getValorParametro()));
+            valores.put(tipo.getKey(), Map.copyOf(porNombre));
+            total += porNombre.size();
+        }
+
+        long version = recargas.incrementAndGet();
+        actual = new Instantanea(Map.copyOf(valores), version, LocalDateTime.now(), total);
+        log.info("[PARAMETROS] Instantánea v{} cargada: {} parámetros activos en {} algoritmos",
+                version, total, valores.size());
+    }
+
+    /**
+     * Estadísticas de la instantánea vigente.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Instantanea instantanea = obtenerInstantanea();
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("version", instantanea.version());
+        estadisticas.put("fechaCarga", instantanea.fechaCarga());
+        estadisticas.put("parametrosActivos", instantanea.numParametros());
+        estadisticas.put("algoritmos", instantanea.valores().keySet());
+        estadisticas.put("lecturas", lecturas.get());
+        return estadisticas;
+    }
+
+    private Instantanea obtenerInstantanea() {
+        Instantanea instantanea = actual;
+        if (instantanea == null) {
+            synchronized (this) {
+                if (actual == null) {
+                    recargar();
+                }
+                instantanea = actual;
+            }
+        }
+        return instantanea;
+    }
+
+    private static ParametroAlgoritmo masReciente(ParametroAlgoritmo a, ParametroAlgoritmo b) {
+        if (a.getFechaActualizacion() == null) {
+            return b;
+        }
+        if (b.getFechaActualizacion() == null) {
+            return a;
+        }
+        return b.getFechaActualizacion().isAfter(a.getFechaActualizacion()) ? b : a;
+    }
+}
@@ -29,6 +29,7 @@ public class ParametroAlgoritmoService implements IParametroAlgoritmoServicio {
 
     private final IParametroAlgoritmoRepositorio parametroRepositorio;
     private final ParametroAlgoritmoMapper mapper;
+    private final InstantaneaParametrosService instantaneaParametros;
 
     private static final String PARAMETRO_NO_ENCONTRADO = "Parámetro de algoritmo no encontrado con ID: ";
 
@@ -49,6 +50,7 @@ public class ParametroAlgoritmoService implements IParametroAlgoritmoServicio {
         parametro.setFechaActualizacion(LocalDateTime.now());
 
         ParametroAlgoritmo guardado = parametroRepositorio.save(parametro);
+        instantaneaParametros.recargarAlConfirmar();
 
         log.info("Parámetro creado con ID: {}", guardado.getParametroId());
 
@@ -137,6 +139,7 @@ public class ParametroAlgoritmoService implements IParametroAlgoritmoServicio {
         parametro.setFechaActualizacion(LocalDateTime.now());
 
         ParametroAlgoritmo actualizado = parametroRepositorio.save(parametro);
+        instantaneaParametros.recargarAlConfirmar();
 
         log.info("Parámetro actualizado correctamente");
 
@@ -172,6 +175,7 @@ public class ParametroAlgoritmoService implements IParametroAlgoritmoServicio {
         }
 
         parametroRepositorio.deleteById(parametroId);
+        instantaneaParametros.recargarAlConfirmar();
         log.info("Parámetro eliminado correctamente");
     }
 
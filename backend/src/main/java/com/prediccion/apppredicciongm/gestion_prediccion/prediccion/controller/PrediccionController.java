@@ -126,7 +126,7 @@ public class PrediccionController {
                 return ResponseEntity.ok(resultado);
             } else {
                 // Non-SMILE algorithms: respond with bad request explaining deprecation
-                return ResponseEntity.badRequest().body(Map.of("error", "ALGORITHM_NOT_SUPPORTED", "message", "Generación con algoritmos legacy (SMA/SES/HOLT_WINTERS) está obsoleta. Use SMILE (AUTO, LINEAR_REGRESSION, ARIMA, RANDOM_FOREST, GRADIENT_BOOSTING)"));
+                return ResponseEntity.badRequest().body(Map.of("error", "ALGORITHM_NOT_SUPPORTED", "message", "Generación con algoritmos legacy (SMA/SES) está obsoleta. Use uno de: " + String.join(", ", new TreeSet<>(smileAlgorithms))));
             }
         } catch (Exception e) {
             log.error("Error generando predicción: {}", e.getMessage(), e);
@@ -1,9 +1,20 @@
 package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.controller;
 
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.BacktestingResponse;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.BacktestingService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.CurvaPrediccionService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.EscaleraDegradacionService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.HoltWintersOnlineService;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.ISmartPredictorService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.ModeloEntrenadoCacheService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.ModeloGlobalGBTService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PronosticoFlotaService;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.SmartPredictorServiceImpl;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.TorneoAlgoritmosService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.TrabajoPronosticoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -20,7 +31,9 @@ import org.springframework.web.bind.annotation.*;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.List;
+import java.util.Optional;
 import java.time.LocalDateTime;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador REST para predicciones avanzadas usando Smile ML
@@ -38,6 +51,16 @@ import java.time.LocalDateTime;
 public class SmartPrediccionController {
 
     private final ISmartPredictorService smartPredictorService;
+    private final ModeloEntrenadoCacheService modeloCache;
+    private final AlmacenSeriesDemandaService almacenSeries;
+    private final TorneoAlgoritmosService torneoAlgoritmos;
+    private final BacktestingService backtestingService;
+    private final HoltWintersOnlineService holtWintersOnline;
+    private final PronosticoFlotaService pronosticoFlota;
+    private final CurvaPrediccionService curvaPrediccion;
+    private final TrabajoPronosticoService trabajosPronostico;
+    private final ModeloGlobalGBTService modeloGlobal;
+    private final EscaleraDegradacionService escaleraDegradacion;
 
     /**
      * Ejecuta predicción inteligente con Smile ML
@@ -239,24 +262,16 @@ public class SmartPrediccionController {
      */
     @PostMapping("/procesar-alertas")
     @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
-    @Operation(summary = "Procesar productos con alertas", description = "Genera predicciones inteligentes para todos los productos con alertas de inventario")
+    @Operation(summary = "Procesar productos con alertas", description = "Inicia (o reanuda) en segundo plano el pronóstico de toda la flota de productos por particiones. Consultar el avance en GET /flota")
     public ResponseEntity<?> procesarProductosConAlertas() {
-        log.info("[BATCH] Iniciando procesamiento masivo de productos con alertas");
+        log.info("[BATCH] Iniciando pronóstico de la flota de productos");
 
         try {
-            List<SmartPrediccionResponse> resultados = smartPredictorService.procesarProductosConAlertas();
-
-            log.info("[BATCH] Procesamiento completado. {} productos procesados", resultados.size());
-
-            Map<String, Object> resumen = Map.of(
-                    "productosProcessados", resultados.size(),
-                    "resultados", resultados,
-                    "timestamp", java.time.LocalDateTime.now());
-
-            return ResponseEntity.ok(resumen);
+            Map<String, Object> estado = pronosticoFlota.iniciar("MANUAL");
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(estado);
 
         } catch (Exception e) {
-            log.error("[BATCH] Error en procesamiento masivo: {}", e.getMessage(), e);
+            log.error("[BATCH] Error iniciando pronóstico de la flota: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of(
                     "error", "BATCH_PROCESSING_ERROR",
                     "mensaje", "Error procesando productos con alertas",
@@ -264,6 +279,58 @@ public class SmartPrediccionController {
         }
     }
 
+    /**
+     * Avance de la ejecución de flota en curso o de la última registrada
+     */
+    @GetMapping("/flota")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estado del pronóstico de flota", description = "Retorna particiones y productos terminados, productos por segundo y ETA de la ejecución en curso, o el resumen de la última ejecución")
+    public ResponseEntity<Map<String, Object>> obtenerEstadoFlota() {
+        return ResponseEntity.ok(pronosticoFlota.obtenerEstado());
+    }
+
+    /**
+     * Cancela la ejecución de flota en curso
+     */
+    @DeleteMapping("/flota")
+    @PreAuthorize("hasRole('GERENTE')")
+    @Operation(summary = "Cancelar pronóstico de flota", description = "Detiene la ejecución en curso al terminar las particiones ya iniciadas")
+    public ResponseEntity<Map<String, Object>> cancelarFlota() {
+        boolean cancelada = pronosticoFlota.cancelar();
+        Map<String, Object> respuesta = new HashMap<>();
+        respuesta.put("cancelada", cancelada);
+        respuesta.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(respuesta);
+    }
+
+    /**
+     * Curva diaria guardada de una predicción
+     */
+    @GetMapping("/curva/{idPrediccion}")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Curva de una predicción", description = "Retorna la curva diaria y las métricas de validación guardadas de una predicción, sin reentrenar el modelo")
+    public ResponseEntity<SmartPrediccionResponse> obtenerCurvaPrediccion(@PathVariable Long idPrediccion) {
+        return curvaPrediccion.obtenerPorId(idPrediccion)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Curva diaria guardada de la última predicción de un producto
+     */
+    @GetMapping("/curva/producto/{productoId}")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Curva de la última predicción de un producto", description = "Retorna la curva guardada más reciente del producto. Si se indica horizonte, solo la retorna si está vigente para ese horizonte")
+    public ResponseEntity<SmartPrediccionResponse> obtenerCurvaProducto(
+            @PathVariable Long productoId,
+            @RequestParam(required = false) Integer horizonte) {
+        return (horizonte != null
+                ? curvaPrediccion.obtenerVigente(productoId, horizonte)
+                : curvaPrediccion.obtenerUltima(productoId))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Validar datos históricos de un producto
      */
@@ -442,6 +509,256 @@ public class SmartPrediccionController {
         }
     }
 
+    /**
+     * Estadísticas de la caché de modelos entrenados
+     */
+    @GetMapping("/cache-modelos")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estadísticas de caché de modelos", description = "Retorna aciertos, fallos, desalojos y tamaño de la caché de modelos ML entrenados")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasCacheModelos() {
+        return ResponseEntity.ok(modeloCache.obtenerEstadisticas());
+    }
+
+    /**
+     * Vacía la caché de modelos entrenados (completa o de un producto)
+     */
+    @DeleteMapping("/cache-modelos")
+    @PreAuthorize("hasRole('GERENTE')")
+    @Operation(summary = "Invalidar caché de modelos", description = "Elimina los modelos entrenados. Si se indica productoId se invalidan los de ese producto en memoria y en disco. "
+            + "Sin productoId se vacía la memoria y, con incluirDisco=true, también el almacén en disco")
+    public ResponseEntity<Map<String, Object>> invalidarCacheModelos(
+            @RequestParam(required = false) Long productoId,
+            @RequestParam(defaultValue = "false") boolean incluirDisco) {
+        if (productoId != null) {
+            modeloCache.invalidarProducto(productoId);
+        } else {
+            modeloCache.invalidarTodo(incluirDisco);
+        }
+        return ResponseEntity.ok(modeloCache.obtenerEstadisticas());
+    }
+
+    /**
+     * Estadísticas del almacén de series de demanda en memoria
+     */
+    @GetMapping("/series-demanda")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estadísticas del almacén de series", description = "Retorna productos en memoria, memoria estimada por producto y tiempo de la última precarga")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasSeriesDemanda() {
+        return ResponseEntity.ok(almacenSeries.obtenerEstadisticas());
+    }
+
+    /**
+     * Precarga en memoria las series de demanda de todos los productos
+     */
+    @PostMapping("/series-demanda/precargar")
+    @PreAuthorize("hasRole('GERENTE')")
+    @Operation(summary = "Precargar series de demanda", description = "Carga con una consulta de proyección la demanda diaria de todos los productos y reporta tiempo y memoria")
+    public ResponseEntity<Map<String, Object>> precargarSeriesDemanda() {
+        almacenSeries.precargarTodo();
+        return ResponseEntity.ok(almacenSeries.obtenerEstadisticas());
+    }
+
+    /**
+     * Estadísticas del torneo de algoritmos del modo AUTO
+     */
+    @GetMapping("/torneo")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estadísticas del torneo AUTO", description = "Retorna torneos ejecutados, candidatos cancelados por plazo y ocupación del pool de cómputo")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasTorneo() {
+        return ResponseEntity.ok(torneoAlgoritmos.obtenerEstadisticas());
+    }
+
+    /**
+     * Estadísticas de la degradación por presupuesto de tiempo
+     */
+    @GetMapping("/presupuesto")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estadísticas de degradación por presupuesto", description = "Retorna cuántas solicitudes atendió cada escalón (GBT, RF, ARIMA, promedio móvil), degradaciones y plazos vencidos")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasPresupuesto() {
+        return ResponseEntity.ok(escaleraDegradacion.obtenerEstadisticas());
+    }
+
+    /**
+     * Ejecuta el backtesting walk-forward de un producto y guarda los
+     * resultados para la selección AUTO
+     */
+    @PostMapping("/backtesting/{productoId}")
+    @PreAuthorize("hasRole('GERENTE')")
+    @Operation(summary = "Ejecutar backtesting walk-forward", description = "Evalúa cada algoritmo sobre varios orígenes móviles y guarda MAPE, RMSE y MAE por algoritmo. El modo AUTO usa el mejor resultado vigente")
+    public ResponseEntity<?> ejecutarBacktesting(
+            @Parameter(description = "ID del producto", required = true) @PathVariable Long productoId,
+            @Parameter(description = "Número de orígenes (opcional)") @RequestParam(required = false) Integer origenes,
+            @Parameter(description = "Días pronosticados en cada origen (opcional)") @RequestParam(required = false) Integer horizonte) {
+        try {
+            return ResponseEntity.ok(backtestingService.ejecutarBacktesting(productoId, origenes, horizonte));
+        } catch (IllegalStateException e) {
+            log.warn("[BACKTESTING] Datos insuficientes para producto {}: {}", productoId, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "INSUFFICIENT_DATA",
+                    "mensaje", e.getMessage(),
+                    "timestamp", java.time.LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Resultados guardados del último backtesting de un producto
+     */
+    @GetMapping("/backtesting/{productoId}")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Consultar backtesting", description = "Retorna la precisión medida por algoritmo en el último backtesting del producto")
+    public ResponseEntity<BacktestingResponse> obtenerBacktesting(
+            @Parameter(description = "ID del producto", required = true) @PathVariable Long productoId) {
+        return ResponseEntity.ok(backtestingService.obtenerResultados(productoId));
+    }
+
+    /**
+     * Estadísticas del modelo Holt-Winters en línea
+     */
+    @GetMapping("/holt-winters")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estadísticas de Holt-Winters en línea", description = "Retorna productos con estado en memoria, ventas aplicadas, días cerrados y estados pendientes de guardar")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasHoltWinters() {
+        return ResponseEntity.ok(holtWintersOnline.obtenerEstadisticas());
+    }
+
+    /**
+     * Estadísticas del modelo Gradient Boosting global del catálogo
+     */
+    @GetMapping("/modelo-global")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estadísticas del modelo GBT global", description = "Retorna productos cubiertos, filas y duración del último entrenamiento, inferencias y productos sin cobertura")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasModeloGlobal() {
+        return ResponseEntity.ok(modeloGlobal.obtenerEstadisticas());
+    }
+
+    /**
+     * Reentrena en segundo plano el modelo Gradient Boosting global
+     */
+    @PostMapping("/modelo-global/entrenar")
+    @PreAuthorize("hasRole('GERENTE')")
+    @Operation(summary = "Reentrenar modelo GBT global", description = "Lanza el entrenamiento del modelo global con la demanda actual del catálogo. Retorna 409 si ya hay uno en curso")
+    public ResponseEntity<Map<String, Object>> entrenarModeloGlobal() {
+        if (!modeloGlobal.solicitarEntrenamiento()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(modeloGlobal.obtenerEstadisticas());
+        }
+        return ResponseEntity.accepted().body(modeloGlobal.obtenerEstadisticas());
+    }
+
+    /**
+     * Registra una predicción inteligente como trabajo asíncrono
+     */
+    @PostMapping("/trabajos")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Enviar trabajo de predicción", description = "Registra la predicción y retorna de inmediato el ID del trabajo. "
+            + "El entrenamiento corre en segundo plano; consultar el avance con GET /trabajos/{idTrabajo}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Trabajo registrado"),
+            @ApiResponse(responseCode = "429", description = "Demasiados trabajos sin terminar")
+    })
+    public ResponseEntity<Map<String, Object>> enviarTrabajo(@Valid @RequestBody SmartPrediccionRequest request) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(trabajosPronostico.enviar(request));
+        } catch (RejectedExecutionException e) {
+            return trabajoRechazado(e);
+        }
+    }
+
+    /**
+     * Registra una predicción automática (misma configuración que
+     * /automatico/{productoId}) como trabajo asíncrono
+     */
+    @PostMapping("/trabajos/automatico/{productoId}")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Enviar trabajo de predicción automática", description = "Horizonte por autocorrelación, algoritmo AUTO y estacionalidad activada, ejecutado en segundo plano")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Trabajo registrado"),
+            @ApiResponse(responseCode = "429", description = "Demasiados trabajos sin terminar")
+    })
+    public ResponseEntity<Map<String, Object>> enviarTrabajoAutomatico(
+            @Parameter(description = "ID del producto a predecir", required = true) @PathVariable Long productoId) {
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(trabajosPronostico.enviarAutomatico(productoId));
+        } catch (RejectedExecutionException e) {
+            return trabajoRechazado(e);
+        }
+    }
+
+    /**
+     * Estadísticas de los trabajos de predicción
+     */
+    @GetMapping("/trabajos")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estadísticas de trabajos", description = "Trabajos retenidos por estado, cupos de entrenamiento libres y totales")
+    public ResponseEntity<Map<String, Object>> obtenerEstadisticasTrabajos() {
+        return ResponseEntity.ok(trabajosPronostico.obtenerEstadisticas());
+    }
+
+    /**
+     * Estado y avance de un trabajo de predicción
+     */
+    @GetMapping("/trabajos/{idTrabajo}")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Estado de un trabajo", description = "Retorna estado, etapa, progreso (0-100), fechas y error si lo hubo")
+    public ResponseEntity<Map<String, Object>> obtenerEstadoTrabajo(
+            @Parameter(description = "ID del trabajo", required = true) @PathVariable String idTrabajo) {
+        return trabajosPronostico.obtenerEstado(idTrabajo)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Resultado de un trabajo de predicción
+     */
+    @GetMapping("/trabajos/{idTrabajo}/resultado")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Resultado de un trabajo", description = "Retorna la predicción si el trabajo está COMPLETADO; 202 con el estado si sigue en curso")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Predicción del trabajo"),
+            @ApiResponse(responseCode = "202", description = "El trabajo sigue en cola o ejecutándose"),
+            @ApiResponse(responseCode = "404", description = "Trabajo inexistente o ya descartado"),
+            @ApiResponse(responseCode = "409", description = "El trabajo falló o fue cancelado")
+    })
+    public ResponseEntity<?> obtenerResultadoTrabajo(
+            @Parameter(description = "ID del trabajo", required = true) @PathVariable String idTrabajo) {
+        Optional<SmartPrediccionResponse> resultado = trabajosPronostico.obtenerResultado(idTrabajo);
+        if (resultado.isPresent()) {
+            return ResponseEntity.ok(resultado.get());
+        }
+        Optional<Map<String, Object>> estado = trabajosPronostico.obtenerEstado(idTrabajo);
+        if (estado.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        Object estadoTrabajo = estado.get().get("estado");
+        boolean enCurso = estadoTrabajo == TrabajoPronosticoService.EstadoTrabajo.EN_COLA
+                || estadoTrabajo == TrabajoPronosticoService.EstadoTrabajo.EJECUTANDO;
+        return ResponseEntity.status(enCurso ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT).body(estado.get());
+    }
+
+    /**
+     * Cancela un trabajo de predicción
+     */
+    @DeleteMapping("/trabajos/{idTrabajo}")
+    @PreAuthorize("hasAnyRole('GERENTE', 'OPERARIO')")
+    @Operation(summary = "Cancelar trabajo", description = "Un trabajo en cola se cancela de inmediato; uno en ejecución termina su entrenamiento y su resultado se descarta")
+    public ResponseEntity<Map<String, Object>> cancelarTrabajo(
+            @Parameter(description = "ID del trabajo", required = true) @PathVariable String idTrabajo) {
+        if (!trabajosPronostico.cancelar(idTrabajo)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of(
+                    "error", "TRABAJO_NO_CANCELABLE",
+                    "mensaje", "El trabajo no existe o ya terminó",
+                    "timestamp", java.time.LocalDateTime.now()));
+        }
+        return ResponseEntity.ok(trabajosPronostico.obtenerEstado(idTrabajo).orElseGet(Map::of));
+    }
+
+    private ResponseEntity<Map<String, Object>> trabajoRechazado(RejectedExecutionException e) {
+        log.warn("[TRABAJOS] Trabajo rechazado: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of(
+                "error", "DEMASIADOS_TRABAJOS",
+                "mensaje", e.getMessage(),
+                "timestamp", java.time.LocalDateTime.now()));
+    }
+
     /**
      * Estado del servicio de predicción inteligente
      */
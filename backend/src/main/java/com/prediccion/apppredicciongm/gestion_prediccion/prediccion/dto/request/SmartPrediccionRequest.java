@@ -1,5 +1,6 @@
 package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -51,4 +52,22 @@ public class SmartPrediccionRequest {
     @Schema(description = "Generar análisis de estacionalidad y guardarlo en la base de datos", 
             example = "true", defaultValue = "true")
     private Boolean guardarAnalisisEstacionalidad = true;
-}
\ No newline at end of file
+
+    @Schema(description = "En modo AUTO, entrenar los algoritmos candidatos en paralelo y elegir el de menor MAPE en validación. Si no se especifica, se usa la configuración del servidor",
+            example = "true")
+    private Boolean modoTorneo;
+
+    @Schema(description = "Presupuesto de tiempo en milisegundos para el entrenamiento. En modo torneo, los candidatos que no terminan a tiempo se descartan; en los demás casos, si el algoritmo no termina a tiempo se degrada a uno más barato (GBT → RF → ARIMA → promedio móvil). Si no se especifica, se usa la configuración del servidor",
+            example = "5000")
+    @Min(value = 1, message = "El presupuesto de tiempo debe ser positivo")
+    private Long presupuestoTiempoMs;
+
+    /**
+     * Lo marcan los procesos por lotes (flota, lote de alertas, trabajos
+     * asíncronos): sin presupuestoTiempoMs se usa prediccion.ml.presupuesto.lote-ms
+     * en lugar del presupuesto interactivo. No se recibe desde la API.
+     */
+    @JsonIgnore
+    @Schema(hidden = true)
+    private boolean ejecucionEnLote;
+}
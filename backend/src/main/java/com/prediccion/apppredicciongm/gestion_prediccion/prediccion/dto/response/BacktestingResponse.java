@@ -0,0 +1,75 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DTO de respuesta del backtesting walk-forward de un producto.
+ *
+ * Cada algoritmo se evalúa en varios orígenes móviles: se entrena con la
+ * historia hasta el origen y se compara el pronóstico con la demanda real de
+ * los días siguientes.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(description = "Precisión medida de cada algoritmo mediante backtesting walk-forward")
+public class BacktestingResponse {
+
+    @Schema(description = "ID del producto evaluado", example = "1")
+    private Long idProducto;
+
+    @Schema(description = "Longitud de la serie preparada evaluada", example = "180")
+    private Integer longitudSerie;
+
+    @Schema(description = "Pasos pronosticados en cada origen", example = "7")
+    private Integer horizonteEvaluacion;
+
+    @Schema(description = "Índices de la serie usados como orígenes de evaluación")
+    private List<Integer> origenes;
+
+    @Schema(description = "Algoritmo con menor MAPE", example = "ARIMA")
+    private String mejorAlgoritmo;
+
+    @Schema(description = "Tiempo total de la evaluación en milisegundos", example = "850")
+    private Long duracionMs;
+
+    @Schema(description = "Fecha de la evaluación")
+    private LocalDateTime fechaEvaluacion;
+
+    @Schema(description = "Resultados por algoritmo, de menor a mayor MAPE")
+    private List<ResultadoAlgoritmo> resultados;
+
+    @Data
+    @Builder
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Schema(description = "Error agregado de un algoritmo sobre todos los orígenes")
+    public static class ResultadoAlgoritmo {
+
+        @Schema(description = "Código del algoritmo", example = "RANDOM_FOREST")
+        private String algoritmo;
+
+        @Schema(description = "MAPE agregado (%)", example = "12.4")
+        private Double mape;
+
+        @Schema(description = "RMSE agregado", example = "3.1")
+        private Double rmse;
+
+        @Schema(description = "MAE agregado", example = "2.4")
+        private Double mae;
+
+        @Schema(description = "Número de orígenes evaluados", example = "6")
+        private Integer numOrigenes;
+
+        @Schema(description = "Tiempo de cómputo del algoritmo en milisegundos", example = "320")
+        private Long duracionMs;
+    }
+}
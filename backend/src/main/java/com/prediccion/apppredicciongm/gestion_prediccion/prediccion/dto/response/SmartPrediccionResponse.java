@@ -45,6 +45,14 @@ public class SmartPrediccionResponse {
             example = "Mejor MAPE (8.5%) en validación cruzada")
     private String razonSeleccionAlgoritmo;
 
+    @Schema(description = "Escalón de la escalera de degradación que atendió la solicitud: 0 si respondió el algoritmo solicitado, mayor si se agotó el presupuesto de tiempo y respondió uno más barato",
+            example = "0")
+    private Integer nivelDegradacion;
+
+    @Schema(description = "Algoritmo intentado primero cuando la solicitud se degradó por presupuesto de tiempo (null si no hubo degradación)",
+            example = "GRADIENT_BOOSTING")
+    private String algoritmoOriginal;
+
     @Schema(description = "Predicciones detalladas por período")
     private List<PrediccionDetalle> prediccionesDetalladas;
 
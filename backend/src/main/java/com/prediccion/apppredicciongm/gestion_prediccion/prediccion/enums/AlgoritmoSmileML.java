@@ -70,6 +70,36 @@ public enum AlgoritmoSmileML {
             20// Balance entre precisión y datos necesarios
     ),
 
+    /**
+     * Holt-Winters aditivo en línea (nivel, tendencia amortiguada y
+     * estacionalidad semanal). Implementación propia: el estado por producto
+     * se actualiza con cada venta y el pronóstico no entrena modelos Smile.
+     */
+    HOLT_WINTERS(
+            "HOLT_WINTERS",
+            "Holt-Winters en línea",
+            "Suavizado exponencial triple actualizado con cada venta. El pronóstico solo lee el estado guardado, " +
+                    "sin recorrer el historial ni entrenar. Ideal para la cola larga de productos.",
+            "online",
+            TipoPatronDemanda.TEMPORAL_AUTOCORRELADO,
+            14// Dos semanas para inicializar nivel, tendencia y estacionalidad semanal
+    ),
+
+    /**
+     * Croston/TSB (Teunter-Syntetos-Babai) para demanda intermitente.
+     * Implementación propia en forma cerrada: suaviza por separado la
+     * probabilidad de venta y el tamaño de la venta, sin entrenar modelos.
+     */
+    CROSTON_TSB(
+            "CROSTON_TSB",
+            "Croston/TSB",
+            "Suavizado de probabilidad y tamaño de venta para productos que se venden pocos días. " +
+                    "Pronóstico plano, sin entrenamiento. Ideal para: repuestos, artículos de baja rotación.",
+            "cerrado",
+            TipoPatronDemanda.INTERMITENTE,
+            10// Días con venta para estimar el tamaño medio
+    ),
+
     /**
      * Modo automático: selecciona el mejor algoritmo según características de los
      * datos
@@ -132,6 +162,9 @@ public enum AlgoritmoSmileML {
         ERRATICO_PERECEDERO(
                 "Alta variabilidad y cambios frecuentes",
                 "Alto coeficiente de variación (CV > 0.7)"),
+        INTERMITENTE(
+                "Ventas esporádicas con muchos días sin demanda",
+                "Intervalo medio entre ventas ADI ≥ 1.32"),
         AUTOMATICO(
                 "Detección automática del patrón",
                 "Análisis inteligente de características");
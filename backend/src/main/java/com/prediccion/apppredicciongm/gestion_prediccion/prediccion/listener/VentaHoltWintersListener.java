@@ -0,0 +1,91 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.listener;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.prediccion.apppredicciongm.gestion_inventario.movimiento.events.VentaConfirmadaEvent;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.HoltWintersOnlineService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PresupuestoConexionesService;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Alimenta el Holt-Winters en línea con cada venta confirmada.
+ *
+ * Los eventos se procesan en un único hilo consumidor, fuera del hilo de la
+ * venta: en AFTER_COMMIT ese hilo todavía retiene su conexión, y la siembra
+ * de un producto sin estado consulta la base de datos. Con un solo
+ * consumidor las ventas de un producto se aplican en orden, y la siembra
+ * toma un permiso del presupuesto de conexiones compartido con el resto del
+ * trabajo en segundo plano; las ventas de productos ya en memoria no tocan
+ * la base de datos y se aplican sin esperarlo.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Component
+@Slf4j
+public class VentaHoltWintersListener {
+
+    private final HoltWintersOnlineService holtWintersOnline;
+    private final PresupuestoConexionesService presupuesto;
+    private final ExecutorService consumidor;
+
+    public VentaHoltWintersListener(HoltWintersOnlineService holtWintersOnline,
+            PresupuestoConexionesService presupuesto) {
+        this.holtWintersOnline = holtWintersOnline;
+        this.presupuesto = presupuesto;
+        this.consumidor = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "holt-winters-ventas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Encola la venta (o su anulación) para el Holt-Winters en línea.
+     *
+     * @param evento venta confirmada
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onVentaConfirmada(VentaConfirmadaEvent evento) {
+        try {
+            consumidor.execute(() -> aplicar(evento));
+        } catch (RejectedExecutionException e) {
+            log.debug("[LISTENER] Holt-Winters detenido, venta del producto {} ignorada", evento.productoId());
+        }
+    }
+
+    private void aplicar(VentaConfirmadaEvent evento) {
+        try {
+            if (holtWintersOnline.estaEnMemoria(evento.productoId())) {
+                aplicarVenta(evento);
+            } else {
+                presupuesto.ejecutar(() -> aplicarVenta(evento));
+            }
+        } catch (Exception e) {
+            log.warn("[LISTENER] Advertencia: Error actualizando Holt-Winters para producto {}: {}",
+                    evento.productoId(), e.getMessage());
+        }
+    }
+
+    private void aplicarVenta(VentaConfirmadaEvent evento) {
+        if (evento.anulada()) {
+            holtWintersOnline.anularVenta(evento.productoId(), evento.fecha(), evento.cantidad());
+        } else {
+            holtWintersOnline.registrarVenta(evento.productoId(), evento.fecha(), evento.cantidad());
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        consumidor.shutdown();
+    }
+}
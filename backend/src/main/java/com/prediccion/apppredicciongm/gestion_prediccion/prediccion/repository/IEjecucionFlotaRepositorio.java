@@ -0,0 +1,50 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository;
+
+import com.prediccion.apppredicciongm.models.EjecucionFlota;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Repositorio JPA para las ejecuciones de pronóstico de flota.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Repository
+public interface IEjecucionFlotaRepositorio extends JpaRepository<EjecucionFlota, Long> {
+
+    /**
+     * Ejecución más reciente en un estado dado.
+     *
+     * @param estado estado buscado
+     * @return ejecución si existe
+     */
+    Optional<EjecucionFlota> findFirstByEstadoOrderByFechaInicioDesc(String estado);
+
+    /**
+     * Ejecución más reciente.
+     *
+     * @return ejecución si existe
+     */
+    Optional<EjecucionFlota> findFirstByOrderByFechaInicioDesc();
+
+    /**
+     * Acumula los contadores de una partición confirmada. Se hace con un
+     * UPDATE relativo para que varias particiones concurrentes no se pisen.
+     */
+    @Modifying
+    @Query("UPDATE EjecucionFlota e SET e.particionesCompletadas = e.particionesCompletadas + 1, "
+            + "e.productosProcesados = e.productosProcesados + :procesados, "
+            + "e.productosOmitidos = e.productosOmitidos + :omitidos, "
+            + "e.productosFallidos = e.productosFallidos + :fallidos, "
+            + "e.fechaActualizacion = :ahora WHERE e.ejecucionId = :ejecucionId")
+    int acumularParticion(@Param("ejecucionId") Long ejecucionId, @Param("procesados") int procesados,
+            @Param("omitidos") int omitidos, @Param("fallidos") int fallidos, @Param("ahora") LocalDateTime ahora);
+}
@@ -0,0 +1,36 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository;
+
+import com.prediccion.apppredicciongm.models.EstadoHoltWinters;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio JPA para el estado Holt-Winters en línea por producto.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Repository
+public interface IEstadoHoltWintersRepositorio extends JpaRepository<EstadoHoltWinters, Long> {
+
+    /**
+     * Estado de un producto.
+     *
+     * @param productoId ID del producto
+     * @return estado si existe
+     */
+    Optional<EstadoHoltWinters> findByProductoId(Long productoId);
+
+    /**
+     * Estados de varios productos, para la recalibración por bloques.
+     *
+     * @param productoIds IDs de los productos
+     * @return estados existentes
+     */
+    List<EstadoHoltWinters> findByProductoIdIn(Collection<Long> productoIds);
+}
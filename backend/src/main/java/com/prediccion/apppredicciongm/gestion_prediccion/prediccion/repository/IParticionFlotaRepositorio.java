@@ -0,0 +1,28 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository;
+
+import com.prediccion.apppredicciongm.models.ParticionFlota;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio JPA para las particiones (puntos de control) de una ejecución
+ * de flota.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Repository
+public interface IParticionFlotaRepositorio extends JpaRepository<ParticionFlota, Long> {
+
+    /**
+     * Particiones de una ejecución en un estado, por índice.
+     *
+     * @param ejecucionId ID de la ejecución
+     * @param estado      estado buscado
+     * @return particiones
+     */
+    List<ParticionFlota> findByEjecucionIdAndEstadoOrderByIndiceAsc(Long ejecucionId, String estado);
+}
@@ -96,6 +96,31 @@ public interface IPrediccionRepositorio extends JpaRepository<Prediccion, Intege
         Integer horizonte
     );
 
+    /**
+     * Predicción más reciente de un producto y horizonte con curva guardada,
+     * ejecutada después de la fecha indicada.
+     *
+     * @param productoId ID del producto
+     * @param horizonte horizonte de tiempo
+     * @param desde fecha mínima de ejecución
+     * @return Optional con la predicción si existe
+     */
+    Optional<Prediccion> findFirstByProductoProductoIdAndHorizonteTiempoAndCurvaCompactaIsNotNullAndFechaEjecucionAfterOrderByFechaEjecucionDesc(
+        Integer productoId,
+        Integer horizonte,
+        LocalDateTime desde
+    );
+
+    /**
+     * Predicción más reciente de un producto con curva guardada.
+     *
+     * @param productoId ID del producto
+     * @return Optional con la predicción si existe
+     */
+    Optional<Prediccion> findFirstByProductoProductoIdAndCurvaCompactaIsNotNullOrderByFechaEjecucionDesc(
+        Integer productoId
+    );
+
     /**
      * Obtiene predicciones antiguas de un producto (más allá del límite de historial).
      * Usado para limpieza automática manteniendo solo las N más recientes.
@@ -0,0 +1,37 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository;
+
+import com.prediccion.apppredicciongm.models.ResultadoBacktesting;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio JPA para los resultados de backtesting por producto y
+ * algoritmo.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Repository
+public interface IResultadoBacktestingRepositorio extends JpaRepository<ResultadoBacktesting, Long> {
+
+    /**
+     * Resultados de un producto ordenados de menor a mayor MAPE.
+     *
+     * @param productoId ID del producto
+     * @return resultados por algoritmo
+     */
+    List<ResultadoBacktesting> findByProductoIdOrderByMapeAsc(Long productoId);
+
+    /**
+     * Resultado de un producto y algoritmo.
+     *
+     * @param productoId ID del producto
+     * @param algoritmo  código del algoritmo
+     * @return resultado si existe
+     */
+    Optional<ResultadoBacktesting> findByProductoIdAndAlgoritmo(Long productoId, String algoritmo);
+}
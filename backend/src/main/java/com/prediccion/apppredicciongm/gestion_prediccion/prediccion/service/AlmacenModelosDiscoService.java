@@ -0,0 +1,512 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Almacén en disco de modelos ML entrenados, segundo nivel de
+ * ModeloEntrenadoCacheService: los modelos sobreviven a reinicios y
+ * despliegues, y el primer pronóstico tras arrancar no tiene que reentrenar.
+ *
+ * Estructura del directorio:
+ * - manifiesto.json: una entrada por (producto, algoritmo, hiperparámetros)
+ *   con la huella de la serie de entrenamiento, versión, tamaño, fechas y
+ *   métricas de validación (RMSE, MAE, MAPE).
+ * - {productoId}/{ALGORITMO}-{hash hiperparámetros}.v{versión}.modelo: el
+ *   modelo serializado (java.io.Serializable).
+ *
+ * Al arrancar solo se lee el manifiesto; cada modelo se deserializa la
+ * primera vez que se pide y solo si la huella de la serie actual coincide con
+ * la guardada. Un modelo nuevo para la misma clave reemplaza al anterior
+ * (versión + 1). Se desalojan los modelos más antiguos que max-dias y, si el
+ * directorio supera max-mb, los de uso menos reciente.
+ *
+ * El manifiesto se reescribe de forma atómica cada escritura-manifiesto-ms si
+ * cambió y al apagar; los archivos huérfanos (manifiesto no guardado tras una
+ * caída) se eliminan al arrancar.
+ *
+ * Configurable mediante application.properties (prediccion.ml.almacen.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class AlmacenModelosDiscoService {
+
+    /** Se incrementa si cambia el formato del manifiesto o de los archivos. */
+    private static final int VERSION_FORMATO = 1;
+
+    private static final String MANIFIESTO = "manifiesto.json";
+    private static final String EXTENSION = ".modelo";
+
+    /** Solo se deserializan clases de Smile, del JDK y de la aplicación. */
+    private static final ObjectInputFilter FILTRO_CLASES = ObjectInputFilter.Config.createFilter(
+            "smile.**;java.base/*;com.prediccion.apppredicciongm.**;!*");
+
+    @Value("${prediccion.ml.almacen.enabled:true}")
+    private boolean almacenHabilitado;
+
+    @Value("${prediccion.ml.almacen.directorio:modelos-ml}")
+    private String directorio;
+
+    /**
+     * Algoritmos que se guardan en disco (los baratos de entrenar no compensan
+     * la escritura).
+     */
+    @Value("${prediccion.ml.almacen.algoritmos:RANDOM_FOREST,GRADIENT_BOOSTING}")
+    private Set<String> algoritmosPersistidos;
+
+    @Value("${prediccion.ml.almacen.max-mb:512}")
+    private long maxMb;
+
+    @Value("${prediccion.ml.almacen.max-dias:30}")
+    private long maxDias;
+
+    private final ObjectMapper mapper = new ObjectMapper()
+            .enable(SerializationFeature.INDENT_OUTPUT)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+    private final Map<ClaveArchivo, EntradaManifiesto> entradas = new HashMap<>();
+    private Path raiz;
+    private boolean manifiestoModificado;
+
+    private final AtomicLong cargados = new AtomicLong();
+    private final AtomicLong guardados = new AtomicLong();
+    private final AtomicLong huellaDistinta = new AtomicLong();
+    private final AtomicLong errores = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+
+    /**
+     * Identifica un modelo guardado; la huella de la serie no forma parte de
+     * la clave porque un reentrenamiento reemplaza al modelo anterior.
+     */
+    private record ClaveArchivo(Long productoId, String algoritmo, String hiperparametros) {
+        static ClaveArchivo de(ModeloEntrenadoCacheService.ClaveModelo clave) {
+            return new ClaveArchivo(clave.productoId(), clave.algoritmo(), clave.hiperparametros());
+        }
+    }
+
+    /**
+     * Entrada del manifiesto (se serializa a JSON).
+     */
+    public record EntradaManifiesto(
+            Long productoId,
+            String algoritmo,
+            String hiperparametros,
+            long huellaSerie,
+            int version,
+            String archivo,
+            String claseModelo,
+            long bytes,
+            long creadoEnMs,
+            long ultimoUsoMs,
+            Map<String, Double> metricas) {
+
+        EntradaManifiesto usado(long ahora) {
+            return new EntradaManifiesto(productoId, algoritmo, hiperparametros, huellaSerie, version, archivo,
+                    claseModelo, bytes, creadoEnMs, ahora, metricas);
+        }
+
+        EntradaManifiesto conMetricas(Map<String, Double> nuevas) {
+            return new EntradaManifiesto(productoId, algoritmo, hiperparametros, huellaSerie, version, archivo,
+                    claseModelo, bytes, creadoEnMs, ultimoUsoMs, nuevas);
+        }
+    }
+
+    public record Manifiesto(int versionFormato, List<EntradaManifiesto> modelos) {
+    }
+
+    @PostConstruct
+    public void inicializar() {
+        if (!almacenHabilitado) {
+            return;
+        }
+        raiz = Path.of(directorio).toAbsolutePath();
+        try {
+            Files.createDirectories(raiz);
+            leerManifiesto();
+            eliminarHuerfanos();
+            synchronized (entradas) {
+                desalojar();
+            }
+            log.info("[ALMACEN-MODELOS] {} modelos registrados en {}", entradas.size(), raiz);
+        } catch (IOException e) {
+            log.error("[ALMACEN-MODELOS] No se pudo preparar {}: {}. Almacén deshabilitado", raiz, e.getMessage());
+            almacenHabilitado = false;
+        }
+    }
+
+    /**
+     * Carga el modelo guardado para la clave si la huella de la serie coincide.
+     *
+     * @return modelo deserializado o null si no hay modelo vigente
+     */
+    public Object cargar(ModeloEntrenadoCacheService.ClaveModelo clave) {
+        if (!aplica(clave.algoritmo())) {
+            return null;
+        }
+        EntradaManifiesto entrada;
+        synchronized (entradas) {
+            entrada = entradas.get(ClaveArchivo.de(clave));
+        }
+        if (entrada == null) {
+            return null;
+        }
+        if (entrada.huellaSerie() != clave.huellaSerie()) {
+            huellaDistinta.incrementAndGet();
+            return null;
+        }
+
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(raiz.resolve(entrada.archivo())));
+                ObjectInputStream ois = new ObjectInputStream(in)) {
+            ois.setObjectInputFilter(FILTRO_CLASES);
+            Object modelo = ois.readObject();
+            synchronized (entradas) {
+                entradas.computeIfPresent(ClaveArchivo.de(clave),
+                        (k, actual) -> actual.version() == entrada.version() ? actual.usado(System.currentTimeMillis()) : actual);
+                manifiestoModificado = true;
+            }
+            cargados.incrementAndGet();
+            log.debug("[ALMACEN-MODELOS] Cargado producto={} algoritmo={} v{}", clave.productoId(), clave.algoritmo(),
+                    entrada.version());
+            return modelo;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            // Archivo dañado o de una versión incompatible de Smile: se descarta
+            errores.incrementAndGet();
+            log.warn("[ALMACEN-MODELOS] Modelo ilegible {} ({}), se descarta", entrada.archivo(), e.getMessage());
+            synchronized (entradas) {
+                if (entradas.remove(ClaveArchivo.de(clave), entrada)) {
+                    eliminarArchivo(entrada.archivo());
+                    manifiestoModificado = true;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Guarda un modelo recién entrenado, reemplazando la versión anterior de la
+     * misma clave. Los modelos no serializables se ignoran.
+     */
+    public void guardar(ModeloEntrenadoCacheService.ClaveModelo clave, Object modelo) {
+        if (!aplica(clave.algoritmo()) || !(modelo instanceof Serializable)) {
+            return;
+        }
+        ClaveArchivo claveArchivo = ClaveArchivo.de(clave);
+        int version;
+        synchronized (entradas) {
+            EntradaManifiesto anterior = entradas.get(claveArchivo);
+            version = anterior != null ? anterior.version() + 1 : 1;
+        }
+        String archivo = clave.productoId() + "/" + clave.algoritmo() + "-"
+                + Integer.toHexString(clave.hiperparametros().hashCode()) + ".v" + version + EXTENSION;
+
+        long bytes;
+        try {
+            Path destino = raiz.resolve(archivo);
+            Files.createDirectories(destino.getParent());
+            Path temporal = Files.createTempFile(destino.getParent(), "modelo", ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporal));
+                    ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(modelo);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporal);
+                throw e;
+            }
+            Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            bytes = Files.size(destino);
+        } catch (IOException | RuntimeException e) {
+            errores.incrementAndGet();
+            log.warn("[ALMACEN-MODELOS] No se pudo guardar producto={} algoritmo={}: {}", clave.productoId(),
+                    clave.algoritmo(), e.getMessage());
+            return;
+        }
+
+        long ahora = System.currentTimeMillis();
+        EntradaManifiesto nueva = new EntradaManifiesto(clave.productoId(), clave.algoritmo(),
+                clave.hiperparametros(), clave.huellaSerie(), version, archivo, modelo.getClass().getName(), bytes,
+                ahora, ahora, Map.of());
+        synchronized (entradas) {
+            EntradaManifiesto reemplazada = entradas.put(claveArchivo, nueva);
+            if (reemplazada != null && !reemplazada.archivo().equals(archivo)) {
+                eliminarArchivo(reemplazada.archivo());
+            }
+            manifiestoModificado = true;
+            desalojar();
+        }
+        guardados.incrementAndGet();
+        log.debug("[ALMACEN-MODELOS] Guardado producto={} algoritmo={} v{} ({} KB)", clave.productoId(),
+                clave.algoritmo(), version, bytes / 1024);
+    }
+
+    /**
+     * Registra las métricas de validación del modelo guardado de un producto y
+     * algoritmo entrenado sobre la serie con esa huella.
+     */
+    public void registrarMetricas(Long productoId, String algoritmo, long huellaSerie, double rmse, double mae,
+            double mape) {
+        if (!aplica(algoritmo) || productoId == null) {
+            return;
+        }
+        Map<String, Double> metricas = new LinkedHashMap<>();
+        metricas.put("rmse", rmse);
+        metricas.put("mae", mae);
+        metricas.put("mape", mape);
+        synchronized (entradas) {
+            for (Map.Entry<ClaveArchivo, EntradaManifiesto> registro : entradas.entrySet()) {
+                EntradaManifiesto entrada = registro.getValue();
+                if (productoId.equals(entrada.productoId()) && algoritmo.equals(entrada.algoritmo())
+                        && entrada.huellaSerie() == huellaSerie && !metricas.equals(entrada.metricas())) {
+                    registro.setValue(entrada.conMetricas(metricas));
+                    manifiestoModificado = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Elimina del disco los modelos de un producto.
+     *
+     * @return número de modelos eliminados
+     */
+    public int eliminarProducto(Long productoId) {
+        if (!almacenHabilitado || productoId == null) {
+            return 0;
+        }
+        int eliminados = 0;
+        synchronized (entradas) {
+            var it = entradas.values().iterator();
+            while (it.hasNext()) {
+                EntradaManifiesto entrada = it.next();
+                if (productoId.equals(entrada.productoId())) {
+                    eliminarArchivo(entrada.archivo());
+                    it.remove();
+                    eliminados++;
+                }
+            }
+            if (eliminados > 0) {
+                manifiestoModificado = true;
+            }
+        }
+        return eliminados;
+    }
+
+    /**
+     * Elimina del disco todos los modelos.
+     */
+    public void eliminarTodo() {
+        if (!almacenHabilitado) {
+            return;
+        }
+        synchronized (entradas) {
+            entradas.values().forEach(entrada -> eliminarArchivo(entrada.archivo()));
+            entradas.clear();
+            manifiestoModificado = true;
+        }
+        log.info("[ALMACEN-MODELOS] Almacén vaciado");
+    }
+
+    /**
+     * Desaloja por antigüedad y guarda el manifiesto si cambió.
+     */
+    @Scheduled(fixedDelayString = "${prediccion.ml.almacen.escritura-manifiesto-ms:30000}")
+    public void sincronizar() {
+        if (!almacenHabilitado) {
+            return;
+        }
+        synchronized (entradas) {
+            desalojar();
+            if (!manifiestoModificado) {
+                return;
+            }
+            escribirManifiesto();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        sincronizar();
+    }
+
+    /**
+     * Estadísticas del almacén: modelos, espacio ocupado y contadores.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("habilitado", almacenHabilitado);
+        estadisticas.put("directorio", raiz != null ? raiz.toString() : directorio);
+        estadisticas.put("algoritmos", algoritmosPersistidos);
+        synchronized (entradas) {
+            estadisticas.put("modelosEnDisco", entradas.size());
+            estadisticas.put("megabytes", bytesTotales() / (1024.0 * 1024.0));
+        }
+        estadisticas.put("maxMb", maxMb);
+        estadisticas.put("maxDias", maxDias);
+        estadisticas.put("cargados", cargados.get());
+        estadisticas.put("guardados", guardados.get());
+        estadisticas.put("huellaDistinta", huellaDistinta.get());
+        estadisticas.put("desalojos", desalojos.get());
+        estadisticas.put("errores", errores.get());
+        return estadisticas;
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private boolean aplica(String algoritmo) {
+        return almacenHabilitado && algoritmosPersistidos.contains(algoritmo);
+    }
+
+    private void leerManifiesto() {
+        Path archivo = raiz.resolve(MANIFIESTO);
+        if (!Files.exists(archivo)) {
+            return;
+        }
+        try {
+            Manifiesto manifiesto = mapper.readValue(archivo.toFile(), Manifiesto.class);
+            if (manifiesto.versionFormato() != VERSION_FORMATO || manifiesto.modelos() == null) {
+                log.warn("[ALMACEN-MODELOS] Manifiesto con formato {} (esperado {}), se descartan los modelos",
+                        manifiesto.versionFormato(), VERSION_FORMATO);
+                return;
+            }
+            for (EntradaManifiesto entrada : manifiesto.modelos()) {
+                if (Files.exists(raiz.resolve(entrada.archivo()))) {
+                    entradas.put(new ClaveArchivo(entrada.productoId(), entrada.algoritmo(),
+                            entrada.hiperparametros()), entrada);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[ALMACEN-MODELOS] Manifiesto ilegible ({}), se descartan los modelos", e.getMessage());
+        }
+    }
+
+    /**
+     * Borra los archivos de modelo que el manifiesto no referencia.
+     */
+    private void eliminarHuerfanos() throws IOException {
+        Set<Path> referenciados = new HashSet<>();
+        entradas.values().forEach(entrada -> referenciados.add(raiz.resolve(entrada.archivo())));
+        List<Path> huerfanos;
+        try (Stream<Path> archivos = Files.walk(raiz)) {
+            huerfanos = archivos
+                    .filter(p -> p.toString().endsWith(EXTENSION) || p.toString().endsWith(".tmp"))
+                    .filter(p -> !referenciados.contains(p))
+                    .toList();
+        }
+        for (Path huerfano : huerfanos) {
+            Files.deleteIfExists(huerfano);
+        }
+        if (!huerfanos.isEmpty()) {
+            log.info("[ALMACEN-MODELOS] {} archivos huérfanos eliminados", huerfanos.size());
+        }
+    }
+
+    /**
+     * Desaloja modelos vencidos y, si se supera max-mb, los de uso menos
+     * reciente. Debe llamarse con el bloqueo del manifiesto tomado.
+     */
+    private void desalojar() {
+        List<Map.Entry<ClaveArchivo, EntradaManifiesto>> candidatos = new ArrayList<>();
+        long limiteEdad = maxDias > 0 ? System.currentTimeMillis() - maxDias * 86_400_000L : Long.MIN_VALUE;
+        int desalojados = 0;
+
+        var it = entradas.entrySet().iterator();
+        while (it.hasNext()) {
+            var registro = it.next();
+            if (registro.getValue().creadoEnMs() < limiteEdad) {
+                eliminarArchivo(registro.getValue().archivo());
+                it.remove();
+                desalojados++;
+            } else {
+                candidatos.add(registro);
+            }
+        }
+
+        long excedente = bytesTotales() - maxMb * 1024L * 1024L;
+        if (maxMb > 0 && excedente > 0) {
+            candidatos.sort(Comparator.comparingLong(e -> e.getValue().ultimoUsoMs()));
+            for (var registro : candidatos) {
+                if (excedente <= 0) {
+                    break;
+                }
+                eliminarArchivo(registro.getValue().archivo());
+                entradas.remove(registro.getKey());
+                excedente -= registro.getValue().bytes();
+                desalojados++;
+            }
+        }
+
+        if (desalojados > 0) {
+            desalojos.addAndGet(desalojados);
+            manifiestoModificado = true;
+            log.debug("[ALMACEN-MODELOS] {} modelos desalojados", desalojados);
+        }
+    }
+
+    private long bytesTotales() {
+        long total = 0;
+        for (EntradaManifiesto entrada : entradas.values()) {
+            total += entrada.bytes();
+        }
+        return total;
+    }
+
+    /**
+     * Escribe el manifiesto en un temporal y lo mueve sobre el anterior.
+     * Debe llamarse con el bloqueo del manifiesto tomado.
+     */
+    private void escribirManifiesto() {
+        try {
+            List<EntradaManifiesto> modelos = new ArrayList<>(entradas.values());
+            modelos.sort(Comparator.comparing(EntradaManifiesto::productoId)
+                    .thenComparing(EntradaManifiesto::algoritmo));
+            Path temporal = Files.createTempFile(raiz, "manifiesto", ".tmp");
+            mapper.writeValue(temporal.toFile(), new Manifiesto(VERSION_FORMATO, modelos));
+            Files.move(temporal, raiz.resolve(MANIFIESTO), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            manifiestoModificado = false;
+        } catch (IOException e) {
+            errores.incrementAndGet();
+            log.warn("[ALMACEN-MODELOS] No se pudo escribir el manifiesto: {}", e.getMessage());
+        }
+    }
+
+    private void eliminarArchivo(String archivo) {
+        try {
+            Files.deleteIfExists(raiz.resolve(archivo));
+        } catch (IOException e) {
+            log.warn("[ALMACEN-MODELOS] No se pudo eliminar {}: {}", archivo, e.getMessage());
+        }
+    }
+}
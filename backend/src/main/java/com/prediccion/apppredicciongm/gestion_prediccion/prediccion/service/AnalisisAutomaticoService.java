@@ -30,14 +30,16 @@ public class AnalisisAutomaticoService {
             throw new IllegalArgumentException("Se necesitan al menos 7 registros para el análisis");
         }
 
-        // Análisis de patrones
-        boolean tieneEstacionalidad = detectarEstacionalidad(datosHistoricos);
-        TendenciaInfo tendencia = detectarTendencia(datosHistoricos);
-        double coeficienteVariacion = calcularCoeficienteVariacion(datosHistoricos);
+        // Análisis de patrones (momentos, tendencia y ACF calculados una sola vez)
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(
+                datosHistoricos.stream().mapToDouble(Double::doubleValue).toArray());
+        boolean tieneEstacionalidad = detectarEstacionalidad(estadisticas);
+        TendenciaInfo tendencia = detectarTendencia(estadisticas);
+        double coeficienteVariacion = estadisticas.coeficienteVariacion(Double.MAX_VALUE); // CV indefinido cuando media = 0
 
         // Decisión de algoritmo basada en los patrones detectados
         if (tieneEstacionalidad && datosHistoricos.size() >= MIN_DATOS_ESTACIONALIDAD) {
-            return recomendarHoltWinters(datosHistoricos, tendencia, coeficienteVariacion);
+            return recomendarHoltWinters(estadisticas, tendencia, coeficienteVariacion);
         } else if (tendencia.esSignificativa || coeficienteVariacion > CV_MODERADO) {
             return recomendarSES(tendencia, coeficienteVariacion);
         } else if (coeficienteVariacion < CV_ESTABLE) {
@@ -51,117 +53,43 @@ public class AnalisisAutomaticoService {
     /**
      * Detecta estacionalidad usando autocorrelación (ACF).
      */
-    private boolean detectarEstacionalidad(List<Double> datos) {
-        if (datos.size() < MIN_DATOS_ESTACIONALIDAD) {
+    private boolean detectarEstacionalidad(EstadisticasSerie estadisticas) {
+        if (estadisticas.tamano() < MIN_DATOS_ESTACIONALIDAD) {
             return false;
         }
 
-        // Calcular ACF para lags comunes (7 días = semanal, 30 días = mensual)
-        double acf7 = calcularAutocorrelacion(datos, 7);
-        double acf30 = datos.size() >= 30 ? calcularAutocorrelacion(datos, 30) : 0.0;
+        // ACF para lags comunes (7 días = semanal, 30 días = mensual)
+        double acf7 = estadisticas.autocorrelacion(7);
+        double acf30 = estadisticas.tamano() >= 30 ? estadisticas.autocorrelacion(30) : 0.0;
 
         return acf7 > UMBRAL_ESTACIONALIDAD || acf30 > UMBRAL_ESTACIONALIDAD;
     }
 
     /**
-     * Calcula la autocorrelación para un lag específico.
+     * Detecta tendencia usando regresión lineal simple (x = tiempo 0, 1, 2, ...).
      */
-    private double calcularAutocorrelacion(List<Double> datos, int lag) {
-        if (datos.size() <= lag) {
-            return 0.0;
-        }
-
-        double media = datos.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-        
-        double numerador = 0.0;
-        double denominador = 0.0;
-
-        // Calcular numerador (covarianza con lag)
-        for (int i = 0; i < datos.size() - lag; i++) {
-            numerador += (datos.get(i) - media) * (datos.get(i + lag) - media);
-        }
-
-        // Calcular denominador (varianza)
-        for (double dato : datos) {
-            denominador += Math.pow(dato - media, 2);
-        }
-
-        return denominador > 0 ? numerador / denominador : 0.0;
-    }
-
-    /**
-     * Detecta tendencia usando regresión lineal simple.
-     */
-    private TendenciaInfo detectarTendencia(List<Double> datos) {
-        int n = datos.size();
-        
-        // Preparar datos para regresión: x = tiempo (0, 1, 2, ...), y = demanda
-        double sumX = 0, sumY = 0, sumXY = 0, sumX2 = 0;
-        
-        for (int i = 0; i < n; i++) {
-            double x = i;
-            double y = datos.get(i);
-            sumX += x;
-            sumY += y;
-            sumXY += x * y;
-            sumX2 += x * x;
-        }
-
-        // Calcular pendiente (beta) e intercepto (alpha)
-        double pendiente = (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
-        double intercepto = (sumY - pendiente * sumX) / n;
-
-        // Calcular R² (coeficiente de determinación)
-        double mediaY = sumY / n;
-        double ssTotal = 0, ssResidual = 0;
-        
-        for (int i = 0; i < n; i++) {
-            double y = datos.get(i);
-            double yPredicho = intercepto + pendiente * i;
-            ssTotal += Math.pow(y - mediaY, 2);
-            ssResidual += Math.pow(y - yPredicho, 2);
-        }
-
-        double r2 = ssTotal > 0 ? 1 - (ssResidual / ssTotal) : 0.0;
+    private TendenciaInfo detectarTendencia(EstadisticasSerie estadisticas) {
+        double r2 = estadisticas.r2();
         boolean esSignificativa = r2 > UMBRAL_TENDENCIA_R2;
 
-        return new TendenciaInfo(pendiente, r2, esSignificativa);
-    }
-
-    /**
-     * Calcula el coeficiente de variación (CV = desviación estándar / media).
-     */
-    private double calcularCoeficienteVariacion(List<Double> datos) {
-        double media = datos.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-        
-        if (media == 0) {
-            return Double.MAX_VALUE; // CV indefinido cuando media = 0
-        }
-
-        double varianza = datos.stream()
-            .mapToDouble(d -> Math.pow(d - media, 2))
-            .average()
-            .orElse(0.0);
-        
-        double desviacion = Math.sqrt(varianza);
-        
-        return desviacion / media;
+        return new TendenciaInfo(estadisticas.pendiente(), r2, esSignificativa);
     }
 
     /**
      * Recomienda Holt-Winters para datos con estacionalidad.
      */
-    private RecomendacionAlgoritmo recomendarHoltWinters(List<Double> datos, TendenciaInfo tendencia, double cv) {
+    private RecomendacionAlgoritmo recomendarHoltWinters(EstadisticasSerie estadisticas, TendenciaInfo tendencia, double cv) {
         Map<String, Double> parametros = new HashMap<>();
         parametros.put("alpha", 0.4);  // Nivel: moderado
         parametros.put("beta", tendencia.esSignificativa ? 0.3 : 0.1);  // Tendencia según análisis
         parametros.put("gamma", 0.3);  // Estacionalidad: moderado
-        parametros.put("periodo", (double) detectarPeriodo(datos));
+        int periodo = detectarPeriodo(estadisticas);
+        parametros.put("periodo", (double) periodo);
 
         String justificacion = String.format(
             "Patrón estacional detectado cada %d días con %s. " +
             "Holt-Winters captura nivel, tendencia y estacionalidad para predicciones precisas.",
-            detectarPeriodo(datos),
+            periodo,
             tendencia.esSignificativa ? "tendencia significativa" : "estacionalidad dominante"
         );
 
@@ -232,13 +160,13 @@ public class AnalisisAutomaticoService {
     /**
      * Detecta el periodo de estacionalidad (7 o 30 días).
      */
-    private int detectarPeriodo(List<Double> datos) {
-        if (datos.size() < 30) {
+    private int detectarPeriodo(EstadisticasSerie estadisticas) {
+        if (estadisticas.tamano() < 30) {
             return 7; // Default: semanal
         }
 
-        double acf7 = calcularAutocorrelacion(datos, 7);
-        double acf30 = calcularAutocorrelacion(datos, 30);
+        double acf7 = estadisticas.autocorrelacion(7);
+        double acf30 = estadisticas.autocorrelacion(30);
 
         return acf30 > acf7 ? 30 : 7;
     }
@@ -0,0 +1,464 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.BacktestingResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.enums.AlgoritmoSmileML;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IResultadoBacktestingRepositorio;
+import com.prediccion.apppredicciongm.models.ResultadoBacktesting;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Backtesting walk-forward (orígenes móviles) de los algoritmos de predicción.
+ *
+ * Para cada producto se eligen varios orígenes sobre la serie original; en
+ * cada uno se prepara (suavizado/agregación semanal) y se entrena solo con la
+ * historia hasta el origen, y se pronostican los siguientes días, que se
+ * comparan con la demanda real. El error se agrega sobre todos los orígenes
+ * y se guarda por producto y algoritmo para que el modo AUTO elija con
+ * precisión medida en lugar de heurísticas.
+ *
+ * - La preparación de cada origen no ve datos posteriores a él: la decisión
+ *   de suavizar o agregar usa solo su historia.
+ * - Los resultados de un producto se reemplazan enteros: los algoritmos que
+ *   fallan en una evaluación pierden su fila anterior en la misma
+ *   transacción, para que AUTO no elija con un error ya no medido.
+ *
+ * - Los orígenes de Linear Regression, Random Forest y Gradient Boosting se
+ *   evalúan en paralelo sobre el pool de cómputo ML.
+ * - ARIMA (OLS con lags) no se reajusta en cada origen: se inicializa en el
+ *   primero y avanza con mínimos cuadrados recursivos (RLS), O(lags²) por día,
+ *   siempre que todos los orígenes tengan la misma preparación diaria.
+ *
+ * Configurable mediante application.properties (prediccion.ml.backtesting.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BacktestingService {
+
+    private static final List<AlgoritmoSmileML> ALGORITMOS = List.of(
+            AlgoritmoSmileML.LINEAR_REGRESSION,
+            AlgoritmoSmileML.ARIMA,
+            AlgoritmoSmileML.RANDOM_FOREST,
+            AlgoritmoSmileML.GRADIENT_BOOSTING);
+
+    /** Fracción mínima de la serie usada para entrenar en el primer origen. */
+    private static final double FRACCION_ENTRENAMIENTO_MINIMA = 0.5;
+
+    /** Longitud mínima del tramo de entrenamiento en el primer origen. */
+    private static final int ENTRENAMIENTO_MINIMO = 20;
+
+    /** Filas mínimas de lags para ajustar ARIMA (igual que el pronóstico). */
+    private static final int FILAS_MINIMAS_LAGS = 10;
+
+    private final SmartPredictorServiceImpl smartPredictor;
+    private final TorneoAlgoritmosService poolComputo;
+    private final IResultadoBacktestingRepositorio resultadoRepositorio;
+    private final IProductoRepositorio productoRepositorio;
+    private final PlatformTransactionManager transactionManager;
+    private final PresupuestoConexionesService presupuesto;
+
+    @Value("${prediccion.ml.backtesting.origenes:6}")
+    private int origenesDefecto;
+
+    @Value("${prediccion.ml.backtesting.horizonte:7}")
+    private int horizonteDefecto;
+
+    @Value("${prediccion.ml.backtesting.nocturno.enabled:true}")
+    private boolean nocturnoHabilitado;
+
+    /**
+     * Cron job nocturno: reevalúa todos los productos con datos suficientes.
+     * Corre a las 01:30, entre el modelo global (01:00) y la flota (02:00).
+     * Cada producto se evalúa con un permiso del presupuesto de conexiones.
+     */
+    @Scheduled(cron = "${prediccion.ml.backtesting.cron:0 30 1 * * ?}")
+    public void ejecutarBacktestingNocturno() {
+        if (!nocturnoHabilitado) {
+            return;
+        }
+        log.info("[BACKTESTING] Iniciando backtesting nocturno...");
+        long inicio = System.currentTimeMillis();
+        int evaluados = 0;
+        int omitidos = 0;
+        int errores = 0;
+
+        for (Object[] fila : presupuesto.ejecutar(productoRepositorio::findAllSimple)) {
+            Long productoId = ((Number) fila[0]).longValue();
+            try {
+                presupuesto.ejecutar(() -> ejecutarBacktesting(productoId, null, null));
+                evaluados++;
+            } catch (IllegalStateException e) {
+                omitidos++;
+                log.debug("[BACKTESTING] Producto {} omitido: {}", productoId, e.getMessage());
+            } catch (Exception e) {
+                errores++;
+                log.error("[BACKTESTING] Error en producto {}: {}", productoId, e.getMessage());
+            }
+        }
+
+        log.info("[BACKTESTING] Nocturno completado: {} evaluados, {} omitidos, {} errores en {}ms",
+                evaluados, omitidos, errores, System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Evalúa todos los algoritmos candidatos sobre orígenes móviles y guarda
+     * el resultado por algoritmo.
+     *
+     * @param productoId ID del producto
+     * @param numOrigenes número de orígenes (null = configuración)
+     * @param horizonte   días pronosticados en cada origen (null = configuración)
+     * @return resultados ordenados por MAPE
+     * @throws IllegalStateException si la serie es demasiado corta
+     */
+    public BacktestingResponse ejecutarBacktesting(Long productoId, Integer numOrigenes, Integer horizonte) {
+        long inicio = System.currentTimeMillis();
+        int pasos = horizonte != null && horizonte > 0 ? horizonte : horizonteDefecto;
+        int origenesSolicitados = numOrigenes != null && numOrigenes > 0 ? numOrigenes : origenesDefecto;
+
+        double[] serie = smartPredictor.obtenerSerieOriginal(productoId);
+        int[] origenes = calcularOrigenes(serie.length, pasos, origenesSolicitados);
+        if (origenes.length == 0) {
+            throw new IllegalStateException(String.format(
+                    "Serie demasiado corta para backtesting del producto %d: %d valores, horizonte %d",
+                    productoId, serie.length, pasos));
+        }
+
+        log.info("[BACKTESTING] Producto {}: serie={} orígenes={} horizonte={}",
+                productoId, serie.length, Arrays.toString(origenes), pasos);
+
+        // Preparación por origen, solo con la historia anterior a él
+        List<Pliegue> pliegues = new ArrayList<>(origenes.length);
+        int historiaMinima = Integer.MAX_VALUE;
+        for (int origen : origenes) {
+            Pliegue pliegue = Pliegue.de(serie, origen);
+            pliegues.add(pliegue);
+            historiaMinima = Math.min(historiaMinima, pliegue.historia().length);
+        }
+
+        // Enviar primero los orígenes de los modelos costosos para que corran
+        // en paralelo mientras ARIMA avanza de forma incremental
+        Map<AlgoritmoSmileML, List<Future<EvaluacionOrigen>>> enCurso = new LinkedHashMap<>();
+        for (AlgoritmoSmileML algoritmo : ALGORITMOS) {
+            if (algoritmo == AlgoritmoSmileML.ARIMA || historiaMinima < algoritmo.getMinimoRegistrosRequeridos()) {
+                continue;
+            }
+            List<Future<EvaluacionOrigen>> futuros = new ArrayList<>(pliegues.size());
+            for (Pliegue pliegue : pliegues) {
+                futuros.add(poolComputo.enviar(() -> evaluarOrigen(algoritmo, pliegue, pasos)));
+            }
+            enCurso.put(algoritmo, futuros);
+        }
+
+        List<BacktestingResponse.ResultadoAlgoritmo> resultados = new ArrayList<>();
+        BacktestingResponse.ResultadoAlgoritmo arima = evaluarArima(pliegues, historiaMinima, pasos);
+        if (arima != null) {
+            resultados.add(arima);
+        }
+
+        for (Map.Entry<AlgoritmoSmileML, List<Future<EvaluacionOrigen>>> entrada : enCurso.entrySet()) {
+            try {
+                List<EvaluacionOrigen> evaluaciones = new ArrayList<>();
+                for (Future<EvaluacionOrigen> futuro : entrada.getValue()) {
+                    evaluaciones.add(futuro.get());
+                }
+                resultados.add(agregar(entrada.getKey(), serie, evaluaciones));
+            } catch (ExecutionException e) {
+                log.warn("[BACKTESTING] {} falló en producto {}: {}", entrada.getKey(), productoId,
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Backtesting interrumpido para producto " + productoId, e);
+            }
+        }
+
+        resultados.sort(Comparator.comparing(BacktestingResponse.ResultadoAlgoritmo::getMape));
+        LocalDateTime fechaEvaluacion = LocalDateTime.now();
+        guardarResultados(productoId, serie.length, pasos, resultados, fechaEvaluacion);
+
+        long duracion = System.currentTimeMillis() - inicio;
+        log.info("[BACKTESTING] Producto {} evaluado en {}ms: {}", productoId, duracion,
+                resultados.stream().map(r -> r.getAlgoritmo() + "=" + String.format("%.1f%%", r.getMape())).toList());
+
+        return BacktestingResponse.builder()
+                .idProducto(productoId)
+                .longitudSerie(serie.length)
+                .horizonteEvaluacion(pasos)
+                .origenes(Arrays.stream(origenes).boxed().toList())
+                .mejorAlgoritmo(resultados.isEmpty() ? null : resultados.get(0).getAlgoritmo())
+                .duracionMs(duracion)
+                .fechaEvaluacion(fechaEvaluacion)
+                .resultados(resultados)
+                .build();
+    }
+
+    /**
+     * Resultados guardados de un producto, ordenados por MAPE.
+     *
+     * @param productoId ID del producto
+     * @return último backtesting del producto (sin resultados si nunca se evaluó)
+     */
+    public BacktestingResponse obtenerResultados(Long productoId) {
+        List<ResultadoBacktesting> guardados = resultadoRepositorio.findByProductoIdOrderByMapeAsc(productoId);
+        List<BacktestingResponse.ResultadoAlgoritmo> resultados = guardados.stream()
+                .map(r -> BacktestingResponse.ResultadoAlgoritmo.builder()
+                        .algoritmo(r.getAlgoritmo())
+                        .mape(r.getMape())
+                        .rmse(r.getRmse())
+                        .mae(r.getMae())
+                        .numOrigenes(r.getNumOrigenes())
+                        .duracionMs(r.getDuracionMs())
+                        .build())
+                .toList();
+
+        ResultadoBacktesting primero = guardados.isEmpty() ? null : guardados.get(0);
+        return BacktestingResponse.builder()
+                .idProducto(productoId)
+                .longitudSerie(primero != null ? primero.getLongitudSerie() : null)
+                .horizonteEvaluacion(primero != null ? primero.getHorizonteEvaluacion() : null)
+                .mejorAlgoritmo(primero != null ? primero.getAlgoritmo() : null)
+                .fechaEvaluacion(primero != null ? primero.getFechaEvaluacion() : null)
+                .resultados(resultados)
+                .build();
+    }
+
+    /**
+     * Orígenes equiespaciados entre el entrenamiento mínimo y el último
+     * origen que aún deja {@code pasos} valores reales para comparar.
+     */
+    private int[] calcularOrigenes(int longitud, int pasos, int numOrigenes) {
+        int primero = Math.max(ENTRENAMIENTO_MINIMO, (int) (longitud * FRACCION_ENTRENAMIENTO_MINIMA));
+        int ultimo = longitud - pasos;
+        if (ultimo < primero) {
+            return new int[0];
+        }
+
+        int cantidad = Math.min(numOrigenes, ultimo - primero + 1);
+        if (cantidad == 1) {
+            return new int[] { ultimo };
+        }
+        int[] origenes = new int[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            origenes[i] = primero + (int) ((long) i * (ultimo - primero) / (cantidad - 1));
+        }
+        return origenes;
+    }
+
+    private EvaluacionOrigen evaluarOrigen(AlgoritmoSmileML algoritmo, Pliegue pliegue, int pasos) {
+        long inicio = System.nanoTime();
+        double[] pronostico = smartPredictor.pronosticarDesdeOrigen(
+                algoritmo, pliegue.historia(), pliegue.pasosModelo(pasos));
+        return new EvaluacionOrigen(pliegue.origen(), pliegue.aDiario(pronostico, pasos),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * ARIMA (OLS con lags) sobre todos los orígenes con un único ajuste
+     * inicial y actualizaciones RLS entre orígenes. Solo si todos los
+     * orígenes tienen la misma preparación diaria: el suavizado es causal,
+     * así que la historia de cada origen es un prefijo de la del último. Si
+     * no, o si el primer origen no tiene filas suficientes, evalúa cada
+     * origen con el pronóstico normal (que recurre al promedio móvil).
+     */
+    private BacktestingResponse.ResultadoAlgoritmo evaluarArima(List<Pliegue> pliegues, int historiaMinima,
+            int pasos) {
+        AlgoritmoSmileML arima = AlgoritmoSmileML.ARIMA;
+        if (historiaMinima < arima.getMinimoRegistrosRequeridos()) {
+            return null;
+        }
+
+        Pliegue primero = pliegues.get(0);
+        boolean prefijos = pliegues.stream()
+                .allMatch(p -> p.tratamiento() == primero.tratamiento() && !p.semanal());
+
+        try {
+            int numLags = Math.min(smartPredictor.obtenerNumLagsArima(), primero.origen() / 4);
+            List<EvaluacionOrigen> evaluaciones = new ArrayList<>(pliegues.size());
+
+            if (!prefijos || numLags < 1 || primero.origen() - numLags < FILAS_MINIMAS_LAGS) {
+                for (Pliegue pliegue : pliegues) {
+                    evaluaciones.add(evaluarOrigen(arima, pliegue, pasos));
+                }
+                return agregar(arima, primero.serie(), evaluaciones);
+            }
+
+            double[] historia = pliegues.get(pliegues.size() - 1).historia();
+            RegresionLagsIncremental modelo = new RegresionLagsIncremental(numLags);
+            long inicio = System.nanoTime();
+            modelo.inicializar(historia, primero.origen());
+            int conocido = primero.origen();
+
+            for (Pliegue pliegue : pliegues) {
+                int origen = pliegue.origen();
+                for (int t = conocido; t < origen; t++) {
+                    modelo.actualizar(historia, t);
+                }
+                conocido = origen;
+                long fin = System.nanoTime();
+                evaluaciones.add(new EvaluacionOrigen(origen, modelo.predecirRecursivo(historia, origen, pasos),
+                        (fin - inicio) / 1_000_000));
+                inicio = fin;
+            }
+            return agregar(arima, primero.serie(), evaluaciones);
+
+        } catch (Exception e) {
+            log.warn("[BACKTESTING] ARIMA falló: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Agrega los errores de todos los orígenes (MAPE, RMSE y MAE sobre el
+     * conjunto de pares pronóstico/real, con la misma definición que la
+     * validación del pronóstico: el MAPE ignora días con demanda real cero).
+     * Los valores reales son los de la serie original, sin preparar.
+     */
+    private BacktestingResponse.ResultadoAlgoritmo agregar(AlgoritmoSmileML algoritmo, double[] serie,
+            List<EvaluacionOrigen> evaluaciones) {
+        double sumaCuadrados = 0.0;
+        double sumaAbsolutos = 0.0;
+        double sumaPorcentual = 0.0;
+        int pares = 0;
+        int paresPorcentuales = 0;
+        long duracion = 0;
+
+        for (EvaluacionOrigen evaluacion : evaluaciones) {
+            double[] pronostico = evaluacion.pronostico();
+            for (int i = 0; i < pronostico.length; i++) {
+                double real = serie[evaluacion.origen() + i];
+                double error = real - pronostico[i];
+                sumaCuadrados += error * error;
+                sumaAbsolutos += Math.abs(error);
+                if (real != 0.0) {
+                    sumaPorcentual += Math.abs(error / real) * 100.0;
+                    paresPorcentuales++;
+                }
+                pares++;
+            }
+            duracion += evaluacion.duracionMs();
+        }
+
+        return BacktestingResponse.ResultadoAlgoritmo.builder()
+                .algoritmo(algoritmo.getCodigo())
+                .mape(paresPorcentuales > 0 ? sumaPorcentual / paresPorcentuales : 100.0)
+                .rmse(pares > 0 ? Math.sqrt(sumaCuadrados / pares) : 0.0)
+                .mae(pares > 0 ? sumaAbsolutos / pares : 0.0)
+                .numOrigenes(evaluaciones.size())
+                .duracionMs(duracion)
+                .build();
+    }
+
+    /**
+     * Reemplaza los resultados del producto en una transacción corta (el
+     * cómputo se hace fuera de la transacción). Las filas de algoritmos sin
+     * resultado en esta evaluación se eliminan en la misma transacción.
+     */
+    private void guardarResultados(Long productoId, int longitudSerie, int pasos,
+            List<BacktestingResponse.ResultadoAlgoritmo> resultados, LocalDateTime fechaEvaluacion) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Map<String, ResultadoBacktesting> anteriores = new HashMap<>();
+            for (ResultadoBacktesting anterior : resultadoRepositorio.findByProductoIdOrderByMapeAsc(productoId)) {
+                anteriores.put(anterior.getAlgoritmo(), anterior);
+            }
+
+            for (BacktestingResponse.ResultadoAlgoritmo resultado : resultados) {
+                ResultadoBacktesting entidad = anteriores.remove(resultado.getAlgoritmo());
+                if (entidad == null) {
+                    entidad = ResultadoBacktesting.builder()
+                            .productoId(productoId)
+                            .algoritmo(resultado.getAlgoritmo())
+                            .build();
+                }
+                entidad.setNumOrigenes(resultado.getNumOrigenes());
+                entidad.setHorizonteEvaluacion(pasos);
+                entidad.setLongitudSerie(longitudSerie);
+                entidad.setMape(resultado.getMape());
+                entidad.setRmse(resultado.getRmse());
+                entidad.setMae(resultado.getMae());
+                entidad.setDuracionMs(resultado.getDuracionMs());
+                entidad.setFechaEvaluacion(fechaEvaluacion);
+                resultadoRepositorio.save(entidad);
+            }
+
+            if (!anteriores.isEmpty()) {
+                log.info("[BACKTESTING] Producto {}: se eliminan resultados sin evaluar en esta ejecución: {}",
+                        productoId, anteriores.keySet());
+                resultadoRepositorio.deleteAll(anteriores.values());
+            }
+        });
+    }
+
+    /**
+     * Pronóstico diario de un algoritmo desde un origen.
+     */
+    private record EvaluacionOrigen(int origen, double[] pronostico, long duracionMs) {
+    }
+
+    /**
+     * Un origen del walk-forward con su historia ya preparada.
+     *
+     * @param serie       serie original completa (valores reales)
+     * @param origen      número de valores conocidos
+     * @param historia    serie[0..origen) preparada sin ver datos posteriores
+     * @param tratamiento preparación aplicada a la historia
+     */
+    private record Pliegue(double[] serie, int origen, double[] historia,
+            PreprocesamientoSerie.Tratamiento tratamiento) {
+
+        static Pliegue de(double[] serie, int origen) {
+            PreprocesamientoSerie.Resultado preparada = PreprocesamientoSerie.preparar(
+                    Arrays.copyOfRange(serie, 0, origen));
+            return new Pliegue(serie, origen, preparada.serie(), preparada.tratamiento());
+        }
+
+        boolean semanal() {
+            return tratamiento == PreprocesamientoSerie.Tratamiento.SUAVIZADO_SEMANAL;
+        }
+
+        /**
+         * Pasos que debe pronosticar el modelo para cubrir {@code pasos}
+         * días. Con agregación semanal, los días sobrantes de la última
+         * semana incompleta (descartados de la historia) caen en el primer
+         * paso.
+         */
+        int pasosModelo(int pasos) {
+            return semanal() ? (origen % 7 + pasos - 1) / 7 + 1 : pasos;
+        }
+
+        /**
+         * Pronóstico por día a partir del origen: con agregación semanal,
+         * cada día toma el promedio diario pronosticado para su semana.
+         */
+        double[] aDiario(double[] pronostico, int pasos) {
+            if (!semanal()) {
+                return pronostico;
+            }
+            double[] diario = new double[Math.min(pasos, pronostico.length * 7)];
+            for (int dia = 0; dia < diario.length; dia++) {
+                diario[dia] = pronostico[Math.min((origen % 7 + dia) / 7, pronostico.length - 1)];
+            }
+            return diario;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.models.AnalisisEstacionalidad;
+import com.prediccion.apppredicciongm.models.Inventario.Producto;
+import com.prediccion.apppredicciongm.models.ResultadoBacktesting;
+import com.prediccion.apppredicciongm.models.Usuario;
+
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * Datos de una solicitud de pronóstico, cargados una sola vez al inicio de
+ * generarPrediccionInteligente y leídos por todas las etapas posteriores
+ * (validación, selección, respuesta, razón de selección y persistencia).
+ *
+ * - producto, análisis de estacionalidad activo y mejor backtesting vigente:
+ *   una consulta (join)
+ * - serie de demanda: AlmacenSeriesDemandaService (sin consulta si ya está en memoria)
+ * - usuario: referencia desde el principal autenticado (sin consulta)
+ *
+ * Las estadísticas de la serie original (CV, tendencia, ADI/CV²) y la serie
+ * preparada (suavizado / agregación semanal) se calculan la primera vez que
+ * se piden y se reutilizan. {@link #consultas()} cuenta las consultas
+ * emitidas al construir el contexto; ContextoPronosticoConsultasTest lo
+ * contrasta con las llamadas a los repositorios.
+ *
+ * No es seguro compartir una instancia entre hilos.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class ContextoPronostico {
+
+    private final Producto producto;
+    private final AlmacenSeriesDemandaService.SerieDemanda serieDemanda;
+    private final AnalisisEstacionalidad analisisEstacionalidad;
+    private final ResultadoBacktesting backtestingVigente;
+    private final Usuario usuario;
+    private final int consultas;
+    private final BiFunction<double[], EstadisticasSerie, double[]> preparador;
+
+    private double[] serieOriginal;
+    private EstadisticasSerie estadisticasOriginal;
+    private double[] seriePreparada;
+
+    ContextoPronostico(Producto producto, AlmacenSeriesDemandaService.SerieDemanda serieDemanda,
+            AnalisisEstacionalidad analisisEstacionalidad, ResultadoBacktesting backtestingVigente,
+            Usuario usuario, int consultas, BiFunction<double[], EstadisticasSerie, double[]> preparador) {
+        this.producto = producto;
+        this.serieDemanda = serieDemanda;
+        this.analisisEstacionalidad = analisisEstacionalidad;
+        this.backtestingVigente = backtestingVigente;
+        this.usuario = usuario;
+        this.consultas = consultas;
+        this.preparador = preparador;
+    }
+
+    public Producto producto() {
+        return producto;
+    }
+
+    public Long productoId() {
+        return producto.getProductoId().longValue();
+    }
+
+    /** Serie diaria del almacén (fechas y cantidades por día). */
+    public AlmacenSeriesDemandaService.SerieDemanda serieDemanda() {
+        return serieDemanda;
+    }
+
+    public int numRegistros() {
+        return serieDemanda.numRegistros();
+    }
+
+    /** Demanda de los días con registro, ordenada por fecha. */
+    public double[] serieOriginal() {
+        if (serieOriginal == null) {
+            serieOriginal = serieDemanda.valoresRegistrados();
+        }
+        return serieOriginal;
+    }
+
+    /** Estadísticas de la serie original, calculadas en una sola pasada. */
+    public EstadisticasSerie estadisticasOriginal() {
+        if (estadisticasOriginal == null) {
+            estadisticasOriginal = EstadisticasSerie.de(serieOriginal());
+        }
+        return estadisticasOriginal;
+    }
+
+    /** Serie original tras el preprocesamiento del pronóstico. */
+    public double[] seriePreparada() {
+        if (seriePreparada == null) {
+            double[] original = serieOriginal();
+            seriePreparada = original.length == 0 ? original : preparador.apply(original, estadisticasOriginal());
+        }
+        return seriePreparada;
+    }
+
+    public Optional<AnalisisEstacionalidad> analisisEstacionalidad() {
+        return Optional.ofNullable(analisisEstacionalidad);
+    }
+
+    /** Resultado de backtesting con menor MAPE, si no ha vencido (decide el modo AUTO). */
+    public Optional<ResultadoBacktesting> backtestingVigente() {
+        return Optional.ofNullable(backtestingVigente);
+    }
+
+    /** Usuario autenticado de la solicitud, o null en procesos sin sesión. */
+    public Usuario usuario() {
+        return usuario;
+    }
+
+    /** Consultas a la base de datos emitidas para construir el contexto. */
+    public int consultas() {
+        return consultas;
+    }
+}
@@ -0,0 +1,120 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Curva diaria de una predicción y sus métricas de validación, empaquetadas
+ * en binario para guardarlas en Prediccion.curvaCompacta (bytea).
+ *
+ * Formato (little-endian):
+ * - byte  versión (1)
+ * - byte  banderas (bit 0 = estacionalidad aplicada)
+ * - int   número de días
+ * - float MAE, RMSE, MAPE (NaN = sin dato)
+ * - float demanda de cada día
+ *
+ * Un horizonte de 30 días ocupa 138 bytes.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class CurvaPrediccionCompacta {
+
+    private static final byte VERSION = 1;
+    private static final int BANDERA_ESTACIONALIDAD = 1;
+    private static final int CABECERA_BYTES = 1 + 1 + Integer.BYTES + 3 * Float.BYTES;
+
+    private final float[] demandaDiaria;
+    private final double mae;
+    private final double rmse;
+    private final double mape;
+    private final boolean estacionalidad;
+
+    public CurvaPrediccionCompacta(float[] demandaDiaria, double mae, double rmse, double mape,
+            boolean estacionalidad) {
+        this.demandaDiaria = demandaDiaria;
+        this.mae = mae;
+        this.rmse = rmse;
+        this.mape = mape;
+        this.estacionalidad = estacionalidad;
+    }
+
+    public float[] demandaDiaria() {
+        return demandaDiaria;
+    }
+
+    public int numDias() {
+        return demandaDiaria.length;
+    }
+
+    /** MAE de validación (NaN si no se calculó). */
+    public double mae() {
+        return mae;
+    }
+
+    /** RMSE de validación (NaN si no se calculó). */
+    public double rmse() {
+        return rmse;
+    }
+
+    /** MAPE de validación en porcentaje (NaN si no se calculó). */
+    public double mape() {
+        return mape;
+    }
+
+    public boolean estacionalidad() {
+        return estacionalidad;
+    }
+
+    public double demandaTotal() {
+        double total = 0.0;
+        for (float valor : demandaDiaria) {
+            total += valor;
+        }
+        return total;
+    }
+
+    public byte[] codificar() {
+        ByteBuffer buffer = ByteBuffer.allocate(CABECERA_BYTES + demandaDiaria.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(VERSION);
+        buffer.put((byte) (estacionalidad ? BANDERA_ESTACIONALIDAD : 0));
+        buffer.putInt(demandaDiaria.length);
+        buffer.putFloat((float) mae);
+        buffer.putFloat((float) rmse);
+        buffer.putFloat((float) mape);
+        for (float valor : demandaDiaria) {
+            buffer.putFloat(valor);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @throws IllegalArgumentException si los bytes no tienen el formato esperado
+     */
+    public static CurvaPrediccionCompacta decodificar(byte[] datos) {
+        if (datos == null || datos.length < CABECERA_BYTES) {
+            throw new IllegalArgumentException("Curva compacta vacía o truncada");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(datos).order(ByteOrder.LITTLE_ENDIAN);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Versión de curva compacta no soportada: " + version);
+        }
+        boolean estacionalidad = (buffer.get() & BANDERA_ESTACIONALIDAD) != 0;
+        int dias = buffer.getInt();
+        if (dias < 0 || datos.length != CABECERA_BYTES + dias * Float.BYTES) {
+            throw new IllegalArgumentException("Longitud de curva compacta inconsistente: " + dias + " días");
+        }
+        double mae = buffer.getFloat();
+        double rmse = buffer.getFloat();
+        double mape = buffer.getFloat();
+        float[] demanda = new float[dias];
+        for (int i = 0; i < dias; i++) {
+            demanda[i] = buffer.getFloat();
+        }
+        return new CurvaPrediccionCompacta(demanda, mae, rmse, mape, estacionalidad);
+    }
+}
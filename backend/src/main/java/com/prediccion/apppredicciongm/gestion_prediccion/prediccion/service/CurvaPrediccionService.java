@@ -0,0 +1,210 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IPrediccionRepositorio;
+import com.prediccion.apppredicciongm.models.Prediccion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lectura de la curva diaria guardada en Prediccion.
+ *
+ * Reconstruye una SmartPrediccionResponse (curva, intervalos, métricas de
+ * validación) desde la columna compacta, sin reentrenar el modelo. Los
+ * consumidores masivos la usan mientras la predicción esté vigente:
+ *
+ * - Ejecutada dentro de prediccion.ml.curva.vigencia-horas.
+ * - Posterior a la última demanda registrada del producto: la normalización
+ *   invalida la curva al confirmar (invalidarProductoAlConfirmar).
+ * - Posterior al arranque: la demanda registrada antes no se conoce, así
+ *   que tras reiniciar cada curva se recalcula una vez.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CurvaPrediccionService {
+
+    /** Ancho del intervalo de confianza (igual que la respuesta original). */
+    private static final double MARGEN_INTERVALO = 0.1;
+
+    private final IPrediccionRepositorio prediccionRepositorio;
+
+    /** Momento de la última demanda confirmada por producto. */
+    private final Map<Long, LocalDateTime> demandaRegistrada = new ConcurrentHashMap<>();
+
+    private final LocalDateTime arranque = LocalDateTime.now();
+
+    @Value("${prediccion.ml.curva.vigencia-horas:12}")
+    private int vigenciaHoras;
+
+    /**
+     * Predicción vigente de un producto y horizonte, reconstruida desde la
+     * curva guardada.
+     *
+     * @param productoId ID del producto
+     * @param horizonte  horizonte en días
+     * @return respuesta si hay una predicción con curva más reciente que la vigencia
+     */
+    @Transactional(readOnly = true)
+    public Optional<SmartPrediccionResponse> obtenerVigente(Long productoId, Integer horizonte) {
+        LocalDateTime desde = vigenteDesde(productoId);
+        return prediccionRepositorio
+                .findFirstByProductoProductoIdAndHorizonteTiempoAndCurvaCompactaIsNotNullAndFechaEjecucionAfterOrderByFechaEjecucionDesc(
+                        Math.toIntExact(productoId), horizonte, desde)
+                .flatMap(this::reconstruir);
+    }
+
+    /**
+     * Última predicción con curva de un producto, sin importar su antigüedad.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SmartPrediccionResponse> obtenerUltima(Long productoId) {
+        return prediccionRepositorio
+                .findFirstByProductoProductoIdAndCurvaCompactaIsNotNullOrderByFechaEjecucionDesc(
+                        Math.toIntExact(productoId))
+                .flatMap(this::reconstruir);
+    }
+
+    /**
+     * Predicción por ID con su curva.
+     */
+    @Transactional(readOnly = true)
+    public Optional<SmartPrediccionResponse> obtenerPorId(Long prediccionId) {
+        return prediccionRepositorio.findById(Math.toIntExact(prediccionId))
+                .flatMap(this::reconstruir);
+    }
+
+    /**
+     * Decodifica la curva de una entidad ya cargada.
+     *
+     * @return curva, o vacío si la predicción no tiene curva o está corrupta
+     */
+    public Optional<CurvaPrediccionCompacta> decodificar(Prediccion prediccion) {
+        if (prediccion.getCurvaCompacta() == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(CurvaPrediccionCompacta.decodificar(prediccion.getCurvaCompacta()));
+        } catch (IllegalArgumentException e) {
+            log.warn("[CURVA] Curva ilegible en predicción {}: {}", prediccion.getPrediccionId(), e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public boolean estaVigente(Prediccion prediccion) {
+        return prediccion.getFechaEjecucion() != null
+                && prediccion.getFechaEjecucion().isAfter(
+                        vigenteDesde(prediccion.getProducto().getProductoId().longValue()));
+    }
+
+    /**
+     * Marca como no vigentes las curvas del producto calculadas hasta ahora.
+     *
+     * @param productoId ID del producto cuya demanda cambió
+     */
+    public void invalidarProducto(Long productoId) {
+        demandaRegistrada.put(productoId, LocalDateTime.now());
+        log.debug("[CURVA] Curvas del producto {} invalidadas por nueva demanda", productoId);
+    }
+
+    /**
+     * Invalida las curvas del producto cuando confirme la transacción en
+     * curso (de inmediato si no hay ninguna): una curva calculada antes de
+     * confirmar la nueva demanda no la incluye.
+     *
+     * @param productoId ID del producto cuya demanda cambió
+     */
+    public void invalidarProductoAlConfirmar(Long productoId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidarProducto(productoId);
+                }
+            });
+        } else {
+            invalidarProducto(productoId);
+        }
+    }
+
+    /**
+     * Fecha de ejecución mínima de una curva vigente del producto.
+     */
+    private LocalDateTime vigenteDesde(Long productoId) {
+        LocalDateTime desde = LocalDateTime.now().minusHours(vigenciaHoras);
+        if (arranque.isAfter(desde)) {
+            desde = arranque;
+        }
+        LocalDateTime demanda = demandaRegistrada.get(productoId);
+        return demanda != null && demanda.isAfter(desde) ? demanda : desde;
+    }
+
+    private Optional<SmartPrediccionResponse> reconstruir(Prediccion prediccion) {
+        return decodificar(prediccion).map(curva -> aRespuesta(prediccion, curva));
+    }
+
+    private SmartPrediccionResponse aRespuesta(Prediccion prediccion, CurvaPrediccionCompacta curva) {
+        LocalDate inicio = prediccion.getFechaInicioCurva() != null
+                ? prediccion.getFechaInicioCurva()
+                : prediccion.getFechaEjecucion().toLocalDate().plusDays(1);
+
+        float[] demanda = curva.demandaDiaria();
+        List<SmartPrediccionResponse.PrediccionDetalle> detalle = new ArrayList<>(demanda.length);
+        for (int i = 0; i < demanda.length; i++) {
+            double valor = demanda[i];
+            detalle.add(SmartPrediccionResponse.PrediccionDetalle.builder()
+                    .periodo(i + 1)
+                    .fecha(inicio.plusDays(i).toString())
+                    .demandaPredicha(valor)
+                    .intervaloCorrfianzaInferior(valor * (1 - MARGEN_INTERVALO))
+                    .intervaloConfianzaSuperior(valor * (1 + MARGEN_INTERVALO))
+                    .build());
+        }
+
+        SmartPrediccionResponse.MetricasCalidad.MetricasCalidadBuilder metricas = SmartPrediccionResponse.MetricasCalidad
+                .builder()
+                .mae(SmartPredictorServiceImpl.sinNaN(curva.mae()))
+                .rmse(SmartPredictorServiceImpl.sinNaN(curva.rmse()))
+                .mape(SmartPredictorServiceImpl.sinNaN(curva.mape()))
+                .rSquared(0.0)
+                .nivelConfianza(95);
+        if (!Double.isNaN(curva.mape())) {
+            metricas.calificacionCalidad(SmartPredictorServiceImpl.clasificarCalidad(curva.mape()));
+        }
+
+        return SmartPrediccionResponse.builder()
+                .idPrediccion(prediccion.getPrediccionId().longValue())
+                .idProducto(prediccion.getProducto().getProductoId().longValue())
+                .nombreProducto(prediccion.getProducto().getNombre())
+                .fechaEjecucion(prediccion.getFechaEjecucion())
+                .horizonteTiempo(prediccion.getHorizonteTiempo())
+                .algoritmoUtilizado(prediccion.getAlgoritmoUsado())
+                .razonSeleccionAlgoritmo("Curva guardada de la ejecución del " + prediccion.getFechaEjecucion())
+                .demandaTotalPredicha(curva.demandaTotal())
+                .prediccionesDetalladas(detalle)
+                .metricas(metricas.build())
+                .estacionalidad(SmartPrediccionResponse.EstacionalidadInfo.builder()
+                        .tieneEstacionalidad(curva.estacionalidad())
+                        .horizonteSugerido(prediccion.getHorizonteTiempo())
+                        .build())
+                .metadatos(Map.of("origen", "CURVA_GUARDADA"))
+                .build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+/**
+ * Clasificación de demanda intermitente (Syntetos-Boylan) y pronóstico
+ * Croston/TSB en forma cerrada.
+ *
+ * La clasificación usa dos estadísticos:
+ * - ADI: intervalo medio entre días con demanda (períodos / días con demanda).
+ * - CV²: cuadrado del coeficiente de variación de los tamaños de demanda
+ *   (solo días con demanda).
+ *
+ * Con los umbrales clásicos (ADI 1.32, CV² 0.49) la demanda es SUAVE,
+ * ERRATICA, INTERMITENTE o IRREGULAR (intermitente y errática a la vez). Las
+ * dos últimas son esporádicas: la mayoría de los días no hay venta y los
+ * modelos de regresión sobre el tiempo (o los árboles) ajustan ruido; para
+ * ellas se usa TSB (Teunter-Syntetos-Babai), variante de Croston que
+ * suaviza por separado la probabilidad de venta (cada día) y el tamaño de
+ * la venta (solo los días con venta). El pronóstico es plano: probabilidad ×
+ * tamaño.
+ *
+ * Los momentos de la clasificación salen de EstadisticasSerie, en la misma
+ * pasada que media, CV y tendencia; quien ya tiene las estadísticas de la
+ * serie clasifica sin recorrerla de nuevo. nivelTsb es una pasada O(n) sin
+ * reservar memoria.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class DemandaIntermitente {
+
+    /** ADI a partir del cual la demanda se considera intermitente. */
+    public static final double UMBRAL_ADI = 1.32;
+
+    /** CV² a partir del cual el tamaño de la demanda se considera errático. */
+    public static final double UMBRAL_CV2 = 0.49;
+
+    private DemandaIntermitente() {
+    }
+
+    /**
+     * Patrón de demanda según ADI y CV².
+     */
+    public enum Patron {
+        SUAVE,
+        ERRATICA,
+        INTERMITENTE,
+        IRREGULAR
+    }
+
+    /**
+     * Resultado de la clasificación.
+     *
+     * @param patron patrón de demanda
+     * @param adi    intervalo medio entre días con demanda (infinito si no hay ventas)
+     * @param cv2    CV² de los tamaños de demanda
+     */
+    public record Clasificacion(Patron patron, double adi, double cv2) {
+
+        /** Intermitente o irregular: se pronostica con Croston/TSB. */
+        public boolean esEsporadica() {
+            return patron == Patron.INTERMITENTE || patron == Patron.IRREGULAR;
+        }
+    }
+
+    /**
+     * Clasifica una serie diaria densa (días sin venta valen 0).
+     *
+     * @param serie demanda por día
+     * @return clasificación
+     */
+    public static Clasificacion clasificar(double[] serie) {
+        return clasificar(serie, serie.length);
+    }
+
+    /**
+     * Clasifica a partir de los tamaños de demanda y del número de días que
+     * cubren. Sirve para la serie de días registrados del almacén de series,
+     * que solo contiene días con venta: el ADI sale del rango de días sin
+     * necesidad de expandir la serie.
+     *
+     * @param tamanos     demanda de los días registrados (los ceros se ignoran)
+     * @param numPeriodos días cubiertos entre el primer y el último registro
+     * @return clasificación
+     */
+    public static Clasificacion clasificar(double[] tamanos, int numPeriodos) {
+        return clasificar(EstadisticasSerie.de(tamanos), numPeriodos);
+    }
+
+    /**
+     * Clasifica con los momentos de los días con demanda ya calculados en
+     * EstadisticasSerie (sin recorrer la serie).
+     *
+     * @param estadisticas estadísticas de la serie de tamaños
+     * @param numPeriodos  días cubiertos por la serie
+     * @return clasificación
+     */
+    public static Clasificacion clasificar(EstadisticasSerie estadisticas, int numPeriodos) {
+        int conDemanda = estadisticas.diasConDemanda();
+        double media = estadisticas.mediaConDemanda();
+
+        double adi = conDemanda > 0 ? (double) numPeriodos / conDemanda : Double.POSITIVE_INFINITY;
+        double cv2 = conDemanda > 0 && media > 0 ? estadisticas.varianzaConDemanda() / (media * media) : 0.0;
+
+        boolean intermitente = adi >= UMBRAL_ADI;
+        boolean erratica = cv2 >= UMBRAL_CV2;
+        Patron patron = intermitente
+                ? (erratica ? Patron.IRREGULAR : Patron.INTERMITENTE)
+                : (erratica ? Patron.ERRATICA : Patron.SUAVE);
+        return new Clasificacion(patron, adi, cv2);
+    }
+
+    /**
+     * Demanda diaria esperada según TSB tras recorrer serie[0..hasta).
+     *
+     * La probabilidad se inicializa con la fracción de días con venta y el
+     * tamaño con la media de las ventas, ambos sobre el tramo recorrido.
+     *
+     * @param serie serie diaria densa
+     * @param hasta número de días a recorrer (exclusivo)
+     * @param alfa  suavizado del tamaño de la venta (0..1)
+     * @param beta  suavizado de la probabilidad de venta (0..1)
+     * @return probabilidad × tamaño (0 si no hubo ventas)
+     */
+    public static double nivelTsb(double[] serie, int hasta, double alfa, double beta) {
+        int conDemanda = 0;
+        double suma = 0.0;
+        for (int i = 0; i < hasta; i++) {
+            if (serie[i] > 0) {
+                conDemanda++;
+                suma += serie[i];
+            }
+        }
+        if (conDemanda == 0) {
+            return 0.0;
+        }
+
+        double probabilidad = (double) conDemanda / hasta;
+        double tamano = suma / conDemanda;
+        for (int i = 0; i < hasta; i++) {
+            if (serie[i] > 0) {
+                probabilidad += beta * (1.0 - probabilidad);
+                tamano += alfa * (serie[i] - tamano);
+            } else {
+                probabilidad -= beta * probabilidad;
+            }
+        }
+        return probabilidad * tamano;
+    }
+}
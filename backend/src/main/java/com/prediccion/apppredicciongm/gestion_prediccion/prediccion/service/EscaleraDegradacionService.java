@@ -0,0 +1,217 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Entrenamiento con presupuesto de tiempo y degradación a algoritmos más
+ * baratos.
+ *
+ * Cada escalón de la escalera (de mayor a menor costo, p. ej. GBT → RF →
+ * regresión de lags) se entrena en el pool de cómputo del torneo y se espera
+ * solo lo que queda del presupuesto de la solicitud. Si el escalón no termina
+ * a tiempo (o falla), se cancela y se intenta el siguiente. Una vez vencido
+ * el presupuesto, cada escalón restante recibe el plazo mínimo por escalón.
+ * Un escalón solo se inicia si el pool tiene un hilo libre en ese momento
+ * (los ajustes huérfanos conservan el suyo hasta terminar): no espera en cola
+ * consumiendo su plazo, ni se ejecuta en el hilo llamador (allí no habría
+ * forma de cortarlo); se descarta y se pasa al siguiente. El último recurso
+ * (promedio móvil) no usa el pool: se calcula en el hilo llamador y siempre
+ * responde, aunque todos los hilos estén ocupados.
+ *
+ * Peor caso de latencia: presupuesto + plazo mínimo × escalones restantes.
+ *
+ * Nota: cancel(true) solo evita que arranque un escalón que sigue en cola;
+ * los ajustes de Smile no atienden la interrupción, así que uno ya iniciado
+ * termina en segundo plano ocupando su hilo (si el modelo pasa por la caché
+ * de modelos, la siguiente solicitud del producto lo encuentra entrenado).
+ * Por eso el presupuesto es para solicitudes interactivas: los procesos por
+ * lotes (flota, alertas, trabajos asíncronos) usan
+ * prediccion.ml.presupuesto.lote-ms, que por defecto es 0 = sin presupuesto
+ * (entrenan directamente, sin escalera ni hilos huérfanos).
+ *
+ * Configurable mediante application.properties (prediccion.ml.presupuesto.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EscaleraDegradacionService {
+
+    /** Código del último recurso de la escalera. */
+    public static final String ULTIMO_RECURSO = "PROMEDIO_MOVIL";
+
+    private final TorneoAlgoritmosService torneoAlgoritmos;
+
+    @Value("${prediccion.ml.presupuesto.enabled:true}")
+    private boolean habilitado;
+
+    /** Presupuesto de una solicitud que no indica presupuestoTiempoMs. */
+    @Value("${prediccion.ml.presupuesto.default-ms:3000}")
+    private long presupuestoDefectoMs;
+
+    /** Presupuesto de los procesos por lotes que no lo indican (0 = sin presupuesto). */
+    @Value("${prediccion.ml.presupuesto.lote-ms:0}")
+    private long presupuestoLoteMs;
+
+    /** Plazo de cada escalón restante una vez vencido el presupuesto. */
+    @Value("${prediccion.ml.presupuesto.escalon-minimo-ms:500}")
+    private long escalonMinimoMs;
+
+    private final Map<String, AtomicLong> atendidasPorNivel = new ConcurrentHashMap<>();
+    private final AtomicLong solicitudes = new AtomicLong();
+    private final AtomicLong degradadas = new AtomicLong();
+    private final AtomicLong plazosVencidos = new AtomicLong();
+    private final AtomicLong escalonesFallidos = new AtomicLong();
+    private final AtomicLong escalonesRechazados = new AtomicLong();
+
+    /**
+     * Escalón de la escalera.
+     *
+     * @param codigo código del algoritmo del escalón
+     * @param tarea  entrenamiento y pronóstico
+     */
+    public record Escalon<R>(String codigo, Callable<R> tarea) {
+    }
+
+    /**
+     * Resultado de recorrer la escalera.
+     *
+     * @param resultado  resultado del escalón que respondió
+     * @param codigo     código del escalón que respondió
+     * @param nivel      posición del escalón (0 = el solicitado)
+     * @param agotados   escalones descartados por plazo o error
+     * @param duracionMs tiempo total
+     */
+    public record ResultadoEscalera<R>(R resultado, String codigo, int nivel, List<String> agotados,
+            long duracionMs) {
+
+        public boolean fueDegradado() {
+            return nivel > 0;
+        }
+    }
+
+    public boolean estaHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Presupuesto efectivo: el de la solicitud si es positivo; si no, el de
+     * la configuración para procesos por lotes o para solicitudes
+     * interactivas.
+     *
+     * @param presupuestoSolicitud presupuestoTiempoMs de la solicitud (puede ser null)
+     * @param enLote               true en flota, lote de alertas y trabajos asíncronos
+     * @return presupuesto en ms, o null si el entrenamiento no tiene plazo
+     */
+    public Long resolverPresupuesto(Long presupuestoSolicitud, boolean enLote) {
+        if (presupuestoSolicitud != null && presupuestoSolicitud > 0) {
+            return presupuestoSolicitud;
+        }
+        if (enLote) {
+            return presupuestoLoteMs > 0 ? presupuestoLoteMs : null;
+        }
+        return presupuestoDefectoMs;
+    }
+
+    /**
+     * Recorre la escalera hasta que un escalón termina dentro de su plazo.
+     *
+     * @param escalones     escalones de mayor a menor costo
+     * @param ultimoRecurso cálculo sin entrenamiento, en el hilo llamador
+     * @param presupuestoMs presupuesto total de la solicitud
+     */
+    public <R> ResultadoEscalera<R> ejecutar(List<Escalon<R>> escalones, Supplier<R> ultimoRecurso,
+            long presupuestoMs) {
+        solicitudes.incrementAndGet();
+        long inicio = System.currentTimeMillis();
+        long limite = inicio + presupuestoMs;
+        List<String> agotados = new ArrayList<>();
+
+        for (int nivel = 0; nivel < escalones.size(); nivel++) {
+            Escalon<R> escalon = escalones.get(nivel);
+            long plazo = Math.max(limite - System.currentTimeMillis(), escalonMinimoMs);
+            Future<R> futuro;
+            try {
+                futuro = torneoAlgoritmos.enviarConPlazo(escalon.tarea());
+            } catch (RejectedExecutionException e) {
+                escalonesRechazados.incrementAndGet();
+                log.warn("[PRESUPUESTO] Sin hilos de cómputo libres, {} no se inicia, degradando", escalon.codigo());
+                agotados.add(escalon.codigo());
+                continue;
+            }
+            try {
+                R resultado = futuro.get(plazo, TimeUnit.MILLISECONDS);
+                return registrar(new ResultadoEscalera<>(resultado, escalon.codigo(), nivel, agotados,
+                        System.currentTimeMillis() - inicio));
+            } catch (TimeoutException e) {
+                futuro.cancel(true);
+                plazosVencidos.incrementAndGet();
+                log.warn("[PRESUPUESTO] {} no terminó en {}ms, degradando", escalon.codigo(), plazo);
+            } catch (ExecutionException e) {
+                escalonesFallidos.incrementAndGet();
+                log.warn("[PRESUPUESTO] {} falló ({}), degradando", escalon.codigo(),
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            } catch (InterruptedException e) {
+                futuro.cancel(true);
+                Thread.currentThread().interrupt();
+                agotados.add(escalon.codigo());
+                break;
+            }
+            agotados.add(escalon.codigo());
+        }
+
+        return registrar(new ResultadoEscalera<>(ultimoRecurso.get(), ULTIMO_RECURSO, escalones.size(), agotados,
+                System.currentTimeMillis() - inicio));
+    }
+
+    private <R> ResultadoEscalera<R> registrar(ResultadoEscalera<R> resultado) {
+        atendidasPorNivel.computeIfAbsent(resultado.codigo(), k -> new AtomicLong()).incrementAndGet();
+        if (resultado.fueDegradado()) {
+            degradadas.incrementAndGet();
+            log.info("[PRESUPUESTO] Atendido por {} tras agotar {} en {}ms", resultado.codigo(),
+                    resultado.agotados(), resultado.duracionMs());
+        }
+        return resultado;
+    }
+
+    /**
+     * Solicitudes atendidas por cada escalón y degradaciones.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Long> porNivel = new LinkedHashMap<>();
+        atendidasPorNivel.forEach((codigo, contador) -> porNivel.put(codigo, contador.get()));
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("habilitado", habilitado);
+        estadisticas.put("presupuestoDefectoMs", presupuestoDefectoMs);
+        estadisticas.put("presupuestoLoteMs", presupuestoLoteMs);
+        estadisticas.put("escalonMinimoMs", escalonMinimoMs);
+        estadisticas.put("solicitudes", solicitudes.get());
+        estadisticas.put("degradadas", degradadas.get());
+        estadisticas.put("plazosVencidos", plazosVencidos.get());
+        estadisticas.put("escalonesFallidos", escalonesFallidos.get());
+        estadisticas.put("escalonesRechazados", escalonesRechazados.get());
+        estadisticas.put("atendidasPorNivel", porNivel);
+        return estadisticas;
+    }
+}
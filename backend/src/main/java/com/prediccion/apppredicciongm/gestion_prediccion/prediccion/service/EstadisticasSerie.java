@@ -0,0 +1,250 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import org.apache.commons.math3.transform.DftNormalization;
+import org.apache.commons.math3.transform.FastFourierTransformer;
+import org.apache.commons.math3.transform.TransformType;
+
+/**
+ * Estadísticas descriptivas de una serie de demanda calculadas una sola vez:
+ * media, varianza, coeficiente de variación, tendencia OLS (pendiente,
+ * intercepto, R²), momentos de los días con demanda (para ADI/CV² de
+ * DemandaIntermitente) y autocorrelación para todos los lags.
+ *
+ * Momentos y tendencia salen de una única pasada sobre la serie (más la
+ * acumulación centrada de las desviaciones). Las sumas
+ * cruzadas Σ x[i]·x[i+k] de todos los lags se obtienen con una FFT
+ * (Wiener-Khinchin, relleno a potencia de 2 ≥ 2n para evitar solapamiento
+ * circular), de modo que pedir 1 o 30 lags cuesta lo mismo: O(n log n) en
+ * lugar de O(n·lag). La FFT se ejecuta la primera vez que se pide una
+ * correlación; quien solo necesita el CV no la paga.
+ *
+ * Se ofrecen las dos correlaciones que usan los servicios:
+ * - {@link #autocorrelacion(int)}: ACF estándar (media y varianza globales).
+ * - {@link #correlacionLag(int)}: Pearson entre x[0..n-k) y x[k..n), cada
+ *   tramo con su propia media y varianza (se resuelve con sumas prefijas).
+ *
+ * No es seguro compartir una instancia entre hilos.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class EstadisticasSerie {
+
+    /** Varianza relativa por debajo de la cual un tramo se considera constante. */
+    private static final double EPSILON_RELATIVO = 1e-12;
+
+    private final double[] serie;
+    private final int n;
+    private final double media;
+    private final double varianza;
+    private final double pendiente;
+    private final double intercepto;
+    private final double r2;
+    private final int diasConDemanda;
+    private final double mediaConDemanda;
+    private final double varianzaConDemanda;
+
+    /** Σ (x[i]-media)·(x[i+k]-media) por lag; se llena al pedir la primera correlación. */
+    private double[] sumasCruzadas;
+    /** Sumas prefijas de la serie centrada y de sus cuadrados (n+1 posiciones). */
+    private double[] prefijo;
+    private double[] prefijoCuadrados;
+
+    private EstadisticasSerie(double[] serie) {
+        this.serie = serie;
+        this.n = serie.length;
+
+        double suma = 0.0;
+        double sumaTY = 0.0;
+        int positivos = 0;
+        double sumaPositivos = 0.0;
+        for (int i = 0; i < n; i++) {
+            double valor = serie[i];
+            suma += valor;
+            sumaTY += i * valor;
+            if (valor > 0) {
+                positivos++;
+                sumaPositivos += valor;
+            }
+        }
+        this.media = n > 0 ? suma / n : 0.0;
+        this.diasConDemanda = positivos;
+        this.mediaConDemanda = positivos > 0 ? sumaPositivos / positivos : 0.0;
+
+        // Segunda acumulación sobre valores centrados: evita la cancelación
+        // de Σx² - n·media² con series de nivel alto y poca variación.
+        double sumaCuadrados = 0.0;
+        double sumaCuadradosPositivos = 0.0;
+        for (int i = 0; i < n; i++) {
+            double valor = serie[i];
+            double d = valor - media;
+            sumaCuadrados += d * d;
+            if (valor > 0) {
+                double dp = valor - mediaConDemanda;
+                sumaCuadradosPositivos += dp * dp;
+            }
+        }
+        this.varianza = n > 0 ? sumaCuadrados / n : 0.0;
+        this.varianzaConDemanda = positivos > 0 ? sumaCuadradosPositivos / positivos : 0.0;
+
+        if (n >= 2) {
+            // t = 0..n-1: media de t y Σ(t - t̄)² tienen forma cerrada
+            double mediaT = (n - 1) / 2.0;
+            double sxx = (double) n * ((double) n * n - 1) / 12.0;
+            double sxy = sumaTY - mediaT * suma;
+            this.pendiente = sxy / sxx;
+            this.intercepto = media - pendiente * mediaT;
+            this.r2 = sumaCuadrados > 0 ? Math.min(1.0, (sxy * sxy) / (sxx * sumaCuadrados)) : 0.0;
+        } else {
+            this.pendiente = 0.0;
+            this.intercepto = media;
+            this.r2 = 0.0;
+        }
+    }
+
+    /**
+     * Calcula momentos y tendencia de la serie. La serie no se copia y no
+     * debe modificarse mientras se use la instancia.
+     */
+    public static EstadisticasSerie de(double[] serie) {
+        return new EstadisticasSerie(serie != null ? serie : new double[0]);
+    }
+
+    public int tamano() {
+        return n;
+    }
+
+    public double media() {
+        return media;
+    }
+
+    /** Varianza poblacional (divide entre n). */
+    public double varianza() {
+        return varianza;
+    }
+
+    public double desviacion() {
+        return Math.sqrt(varianza);
+    }
+
+    /**
+     * Coeficiente de variación (desviación / media).
+     *
+     * @param siMediaCero valor a devolver cuando la media es 0 (cada
+     *                    servicio tiene su convención)
+     */
+    public double coeficienteVariacion(double siMediaCero) {
+        return media == 0 ? siMediaCero : desviacion() / media;
+    }
+
+    /** Pendiente de la recta OLS demanda ~ t (t = 0..n-1); 0 con menos de 2 puntos. */
+    public double pendiente() {
+        return pendiente;
+    }
+
+    public double intercepto() {
+        return intercepto;
+    }
+
+    /** R² de la recta de tendencia; 0 si la serie es constante. */
+    public double r2() {
+        return r2;
+    }
+
+    /** Número de valores mayores que cero. */
+    public int diasConDemanda() {
+        return diasConDemanda;
+    }
+
+    /** Media de los valores mayores que cero (0 si no hay ninguno). */
+    public double mediaConDemanda() {
+        return mediaConDemanda;
+    }
+
+    /** Varianza poblacional de los valores mayores que cero (0 si no hay ninguno). */
+    public double varianzaConDemanda() {
+        return varianzaConDemanda;
+    }
+
+    /**
+     * Autocorrelación estándar del lag indicado (media y varianza de toda la
+     * serie). Devuelve 0 si el lag no cabe en la serie o la serie es constante.
+     */
+    public double autocorrelacion(int lag) {
+        if (lag < 0 || lag >= n) {
+            return 0.0;
+        }
+        asegurarSumasCruzadas();
+        double varianzaTotal = sumasCruzadas[0];
+        return varianzaTotal > 0 ? sumasCruzadas[lag] / varianzaTotal : 0.0;
+    }
+
+    /**
+     * Correlación de Pearson entre la serie y su versión desplazada lag
+     * períodos. Devuelve 0 si quedan menos de 2 pares o algún tramo es
+     * constante.
+     */
+    public double correlacionLag(int lag) {
+        if (lag < 1 || n - lag < 2) {
+            return 0.0;
+        }
+        asegurarSumasCruzadas();
+        int m = n - lag;
+
+        // Tramo A = y[0..m), tramo B = y[lag..n)
+        double sumaA = prefijo[m];
+        double sumaB = prefijo[n] - prefijo[lag];
+        double cuadradosA = prefijoCuadrados[m];
+        double cuadradosB = prefijoCuadrados[n] - prefijoCuadrados[lag];
+
+        double covarianza = sumasCruzadas[lag] - sumaA * sumaB / m;
+        double varianzaA = cuadradosA - sumaA * sumaA / m;
+        double varianzaB = cuadradosB - sumaB * sumaB / m;
+
+        double tolerancia = EPSILON_RELATIVO * sumasCruzadas[0];
+        if (varianzaA <= tolerancia || varianzaB <= tolerancia) {
+            return 0.0;
+        }
+        double correlacion = covarianza / Math.sqrt(varianzaA * varianzaB);
+        return Math.max(-1.0, Math.min(1.0, correlacion));
+    }
+
+    /**
+     * Sumas cruzadas de la serie centrada para todos los lags vía FFT:
+     * IFFT(|FFT(y)|²) con relleno de ceros a potencia de 2 ≥ 2n.
+     */
+    private void asegurarSumasCruzadas() {
+        if (sumasCruzadas != null) {
+            return;
+        }
+        prefijo = new double[n + 1];
+        prefijoCuadrados = new double[n + 1];
+        sumasCruzadas = new double[n];
+        if (n == 0) {
+            return;
+        }
+
+        int longitud = Integer.highestOneBit(Math.max(1, 2 * n - 1)) << 1;
+        double[][] datos = new double[2][longitud];
+        double[] real = datos[0];
+        double[] imaginaria = datos[1];
+        for (int i = 0; i < n; i++) {
+            double y = serie[i] - media;
+            real[i] = y;
+            prefijo[i + 1] = prefijo[i] + y;
+            prefijoCuadrados[i + 1] = prefijoCuadrados[i] + y * y;
+        }
+
+        FastFourierTransformer.transformInPlace(datos, DftNormalization.STANDARD, TransformType.FORWARD);
+        for (int i = 0; i < longitud; i++) {
+            real[i] = real[i] * real[i] + imaginaria[i] * imaginaria[i];
+            imaginaria[i] = 0.0;
+        }
+        FastFourierTransformer.transformInPlace(datos, DftNormalization.STANDARD, TransformType.INVERSE);
+
+        System.arraycopy(real, 0, sumasCruzadas, 0, n);
+        // El lag 0 se toma exacto de las sumas prefijas (es el denominador de todo lo demás)
+        sumasCruzadas[0] = prefijoCuadrados[n];
+    }
+}
@@ -0,0 +1,610 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.InstantaneaParametrosService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IEstadoHoltWintersRepositorio;
+import com.prediccion.apppredicciongm.models.EstadoHoltWinters;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holt-Winters aditivo en línea (nivel, tendencia amortiguada y
+ * estacionalidad semanal) con estado por producto.
+ *
+ * Cada venta SALIDA_VENTA confirmada suma su cantidad al día abierto; al
+ * llegar una venta de un día posterior, el día abierto (y los días sin venta
+ * intermedios, con demanda cero) se incorporan al modelo con una
+ * actualización O(1) por día. El pronóstico solo lee el estado: no recorre el
+ * historial ni entrena modelos Smile.
+ *
+ * - El estado vive en memoria y se guarda en estado_holt_winters de forma
+ *   diferida (prediccion.ml.holt-winters.guardado-ms), no en cada venta.
+ * - Un producto sin estado se siembra una vez desde su serie diaria.
+ * - La recalibración nocturna vuelve a sembrar desde RegistroDemanda para
+ *   absorber anulaciones de días cerrados e importaciones masivas. Los
+ *   productos sin estado en memoria se resiembran directo a la tabla, sin
+ *   cargarlos en memoria.
+ *
+ * El guardado diferido y la recalibración corren con un permiso del
+ * presupuesto de conexiones compartido (PresupuestoConexionesService).
+ *
+ * Las constantes de suavizado son los parámetros HOLT_WINTERS de
+ * parametro_algoritmo (alpha, beta, gamma, phi); los de application.properties
+ * (prediccion.ml.holt-winters.*) son los valores por defecto. Un cambio rige
+ * para los días que se cierran desde entonces y por completo tras la
+ * siguiente recalibración.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class HoltWintersOnlineService {
+
+    private static final int PERIODO = 7;
+
+    /** Huecos sin ventas más largos que esto se resuelven resembrando. */
+    private static final int MAX_DIAS_HUECO = 366;
+
+    /** Productos por transacción al resembrar los que no están en memoria. */
+    private static final int TAMANO_LOTE_RECALIBRACION = 200;
+
+    private static final String TIPO_ALGORITMO = "HOLT_WINTERS";
+
+    private final IEstadoHoltWintersRepositorio estadoRepositorio;
+    private final AlmacenSeriesDemandaService almacenSeries;
+    private final IProductoRepositorio productoRepositorio;
+    private final InstantaneaParametrosService instantaneaParametros;
+    private final PresupuestoConexionesService presupuesto;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentHashMap<Long, EstadoHoltWinters> estados = new ConcurrentHashMap<>();
+    private final Set<Long> pendientesGuardar = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendientesRecalibrar = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong ventasAplicadas = new AtomicLong();
+    private final AtomicLong diasCerrados = new AtomicLong();
+    private final AtomicLong siembras = new AtomicLong();
+    private final AtomicLong pronosticos = new AtomicLong();
+
+    @Value("${prediccion.ml.holt-winters.alpha:0.2}")
+    private double alpha;
+
+    @Value("${prediccion.ml.holt-winters.beta:0.05}")
+    private double beta;
+
+    @Value("${prediccion.ml.holt-winters.gamma:0.1}")
+    private double gamma;
+
+    @Value("${prediccion.ml.holt-winters.phi:0.98}")
+    private double phi;
+
+    public HoltWintersOnlineService(IEstadoHoltWintersRepositorio estadoRepositorio,
+            AlmacenSeriesDemandaService almacenSeries,
+            IProductoRepositorio productoRepositorio,
+            InstantaneaParametrosService instantaneaParametros,
+            PresupuestoConexionesService presupuesto,
+            PlatformTransactionManager transactionManager) {
+        this.estadoRepositorio = estadoRepositorio;
+        this.almacenSeries = almacenSeries;
+        this.productoRepositorio = productoRepositorio;
+        this.instantaneaParametros = instantaneaParametros;
+        this.presupuesto = presupuesto;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Constantes de suavizado leídas una vez por operación.
+     */
+    private record Suavizado(double alpha, double beta, double gamma, double phi) {
+    }
+
+    /**
+     * Pronóstico del modelo con sus errores a un paso.
+     *
+     * @param valores       demanda diaria desde mañana
+     * @param mae           error absoluto medio a un paso
+     * @param rmse          raíz del error cuadrático medio a un paso
+     * @param mape          error porcentual medio a un paso (días con demanda)
+     * @param diasEvaluados días incorporados desde la última siembra
+     */
+    public record Pronostico(double[] valores, double mae, double rmse, double mape, int diasEvaluados) {
+    }
+
+    /**
+     * Registra una venta confirmada. O(1) salvo cuando cierra días sin venta
+     * intermedios (uno por día transcurrido).
+     *
+     * @param productoId ID del producto
+     * @param fecha      día de la venta
+     * @param cantidad   unidades vendidas
+     */
+    public void registrarVenta(Long productoId, LocalDate fecha, int cantidad) {
+        Suavizado suavizado = suavizado();
+        while (true) {
+            EstadoHoltWinters estado = obtenerEstado(productoId, suavizado);
+            synchronized (estado) {
+                if (estados.get(productoId) != estado) {
+                    // Una recalibración lo reemplazó mientras se esperaba: la venta va al nuevo
+                    continue;
+                }
+                if (estado.getDiaAbierto() != null && fecha.isBefore(estado.getDiaAbierto())) {
+                    // Venta con fecha de un día ya cerrado: se absorbe al recalibrar
+                    pendientesRecalibrar.add(productoId);
+                    return;
+                }
+                avanzarHasta(estado, fecha, suavizado);
+                if (!fecha.equals(estado.getDiaAbierto())) {
+                    estado.setDiaAbierto(fecha);
+                    estado.setAcumuladoDiaAbierto(0.0);
+                }
+                estado.setAcumuladoDiaAbierto(estado.getAcumuladoDiaAbierto() + cantidad);
+                estado.setFechaActualizacion(LocalDateTime.now());
+                break;
+            }
+        }
+        ventasAplicadas.incrementAndGet();
+        pendientesGuardar.add(productoId);
+    }
+
+    /**
+     * Revierte una venta anulada. Si el día sigue abierto se descuenta en
+     * O(1); si ya se cerró, el producto se recalibra en el próximo guardado.
+     *
+     * @param productoId ID del producto
+     * @param fecha      día de la venta anulada
+     * @param cantidad   unidades anuladas
+     */
+    public void anularVenta(Long productoId, LocalDate fecha, int cantidad) {
+        EstadoHoltWinters estado;
+        while ((estado = estados.get(productoId)) != null) {
+            synchronized (estado) {
+                if (estados.get(productoId) != estado) {
+                    continue;
+                }
+                if (fecha.equals(estado.getDiaAbierto())) {
+                    estado.setAcumuladoDiaAbierto(Math.max(0.0, estado.getAcumuladoDiaAbierto() - cantidad));
+                    estado.setFechaActualizacion(LocalDateTime.now());
+                    pendientesGuardar.add(productoId);
+                } else {
+                    pendientesRecalibrar.add(productoId);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pronostica la demanda diaria desde mañana leyendo solo el estado. Los
+     * días transcurridos sin venta se incorporan sobre una copia.
+     *
+     * @param productoId ID del producto
+     * @param pasos      días a pronosticar
+     * @return pronóstico y errores a un paso
+     */
+    public Pronostico pronosticar(Long productoId, int pasos) {
+        pronosticos.incrementAndGet();
+        Suavizado suavizado = suavizado();
+        EstadoHoltWinters copia;
+        EstadoHoltWinters estado = obtenerEstado(productoId, suavizado);
+        synchronized (estado) {
+            copia = copiar(estado);
+        }
+
+        LocalDate hoy = LocalDate.now();
+        avanzarHasta(copia, hoy, suavizado);
+
+        double[] estacionales = copia.getIndicesEstacionales();
+        LocalDate base = copia.getUltimoDiaCerrado() != null ? copia.getUltimoDiaCerrado() : hoy.minusDays(1);
+        double[] valores = new double[pasos];
+        for (int i = 0; i < pasos; i++) {
+            LocalDate dia = hoy.plusDays(i + 1);
+            int m = (int) ChronoUnit.DAYS.between(base, dia);
+            valores[i] = Math.max(0.0, copia.getNivel() + tendenciaAmortiguada(copia.getTendencia(), m, suavizado.phi())
+                    + estacionales[indiceDia(dia)]);
+        }
+
+        int evaluados = copia.getDiasEvaluados();
+        int conDemanda = copia.getDiasConDemanda();
+        return new Pronostico(
+                valores,
+                evaluados > 0 ? copia.getSumaErrorAbsoluto() / evaluados : 0.0,
+                evaluados > 0 ? Math.sqrt(copia.getSumaErrorCuadrado() / evaluados) : 0.0,
+                conDemanda > 0 ? copia.getSumaErrorPorcentual() / conDemanda : 100.0,
+                evaluados);
+    }
+
+    /**
+     * Indica si el estado del producto ya está en memoria: registrar una
+     * venta no consultará la base de datos.
+     */
+    public boolean estaEnMemoria(Long productoId) {
+        return estados.containsKey(productoId);
+    }
+
+    /**
+     * Guarda los estados modificados y recalibra los productos marcados.
+     */
+    @Scheduled(fixedDelayString = "${prediccion.ml.holt-winters.guardado-ms:60000}")
+    public void guardarPendientes() {
+        presupuesto.ejecutar(this::guardarEstados);
+    }
+
+    private void guardarEstados() {
+        Suavizado suavizado = suavizado();
+        for (Long productoId : new ArrayList<>(pendientesRecalibrar)) {
+            pendientesRecalibrar.remove(productoId);
+            try {
+                recalibrar(productoId, suavizado);
+            } catch (Exception e) {
+                log.warn("[HOLT-WINTERS] Error recalibrando producto {}: {}", productoId, e.getMessage());
+            }
+        }
+
+        if (pendientesGuardar.isEmpty()) {
+            return;
+        }
+        List<Long> productos = new ArrayList<>(pendientesGuardar);
+        pendientesGuardar.removeAll(productos);
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Long productoId : productos) {
+                    EstadoHoltWinters estado = estados.get(productoId);
+                    if (estado == null) {
+                        continue;
+                    }
+                    EstadoHoltWinters copia;
+                    synchronized (estado) {
+                        copia = copiar(estado);
+                    }
+                    EstadoHoltWinters guardado = estadoRepositorio.save(copia);
+                    synchronized (estado) {
+                        estado.setEstadoId(guardado.getEstadoId());
+                    }
+                }
+            });
+            log.debug("[HOLT-WINTERS] {} estados guardados", productos.size());
+        } catch (Exception e) {
+            pendientesGuardar.addAll(productos);
+            log.warn("[HOLT-WINTERS] Error guardando estados, se reintentará: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Recalibración nocturna: vuelve a sembrar el estado de todos los
+     * productos desde su demanda normalizada. Los que están en memoria se
+     * reemplazan en el mapa; el resto se resiembra y guarda por bloques sin
+     * cargarlo en memoria (se carga de la tabla cuando se lo necesite).
+     */
+    @Scheduled(cron = "${prediccion.ml.holt-winters.recalibracion-cron:0 15 0 * * ?}")
+    public void recalibrarTodos() {
+        presupuesto.ejecutar(this::recalibrarCatalogo);
+    }
+
+    private void recalibrarCatalogo() {
+        log.info("[HOLT-WINTERS] Iniciando recalibración nocturna...");
+        long inicio = System.currentTimeMillis();
+        Suavizado suavizado = suavizado();
+        int recalibrados = 0;
+        List<Long> fueraDeMemoria = new ArrayList<>(TAMANO_LOTE_RECALIBRACION);
+        for (Object[] fila : productoRepositorio.findAllSimple()) {
+            Long productoId = ((Number) fila[0]).longValue();
+            if (!estados.containsKey(productoId)) {
+                fueraDeMemoria.add(productoId);
+                if (fueraDeMemoria.size() == TAMANO_LOTE_RECALIBRACION) {
+                    recalibrados += resembrarEnTabla(fueraDeMemoria, suavizado);
+                    fueraDeMemoria.clear();
+                }
+                continue;
+            }
+            try {
+                recalibrar(productoId, suavizado);
+                recalibrados++;
+            } catch (Exception e) {
+                log.warn("[HOLT-WINTERS] Error recalibrando producto {}: {}", productoId, e.getMessage());
+            }
+        }
+        if (!fueraDeMemoria.isEmpty()) {
+            recalibrados += resembrarEnTabla(fueraDeMemoria, suavizado);
+        }
+        guardarPendientes();
+        log.info("[HOLT-WINTERS] Recalibración completada: {} productos en {}ms ({} en memoria)",
+                recalibrados, System.currentTimeMillis() - inicio, estados.size());
+    }
+
+    /**
+     * Resiembra y guarda en una transacción el estado de productos que no
+     * están en memoria.
+     *
+     * @return productos resembrados (0 si el bloque falló)
+     */
+    private int resembrarEnTabla(List<Long> productoIds, Suavizado suavizado) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Map<Long, Long> estadoIds = new HashMap<>();
+                estadoRepositorio.findByProductoIdIn(productoIds)
+                        .forEach(guardado -> estadoIds.put(guardado.getProductoId(), guardado.getEstadoId()));
+                List<EstadoHoltWinters> sembrados = new ArrayList<>(productoIds.size());
+                for (Long productoId : productoIds) {
+                    if (!estados.containsKey(productoId)) {
+                        // Si entró a memoria mientras tanto, su estado lo guarda guardarPendientes
+                        sembrados.add(sembrar(productoId, estadoIds.get(productoId), suavizado));
+                    }
+                }
+                estadoRepositorio.saveAll(sembrados);
+            });
+            return productoIds.size();
+        } catch (Exception e) {
+            log.warn("[HOLT-WINTERS] Error resembrando {} productos fuera de memoria: {}", productoIds.size(),
+                    e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Estadísticas del modelo en línea.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("productosEnMemoria", estados.size());
+        estadisticas.put("ventasAplicadas", ventasAplicadas.get());
+        estadisticas.put("diasCerrados", diasCerrados.get());
+        estadisticas.put("siembras", siembras.get());
+        estadisticas.put("pronosticos", pronosticos.get());
+        estadisticas.put("pendientesGuardar", pendientesGuardar.size());
+        estadisticas.put("pendientesRecalibrar", pendientesRecalibrar.size());
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        guardarPendientes();
+    }
+
+    // ========== ESTADO ==========
+
+    private Suavizado suavizado() {
+        return new Suavizado(
+                instantaneaParametros.obtenerDouble(TIPO_ALGORITMO, "alpha", alpha),
+                instantaneaParametros.obtenerDouble(TIPO_ALGORITMO, "beta", beta),
+                instantaneaParametros.obtenerDouble(TIPO_ALGORITMO, "gamma", gamma),
+                instantaneaParametros.obtenerDouble(TIPO_ALGORITMO, "phi", phi));
+    }
+
+    private EstadoHoltWinters obtenerEstado(Long productoId, Suavizado suavizado) {
+        EstadoHoltWinters estado = estados.get(productoId);
+        if (estado != null) {
+            return estado;
+        }
+        EstadoHoltWinters cargado = estadoRepositorio.findByProductoId(productoId)
+                .orElseGet(() -> sembrar(productoId, null, suavizado));
+        EstadoHoltWinters previo = estados.putIfAbsent(productoId, cargado);
+        if (previo != null) {
+            return previo;
+        }
+        if (cargado.getEstadoId() == null) {
+            pendientesGuardar.add(productoId);
+        }
+        return cargado;
+    }
+
+    /**
+     * Reemplaza el estado del producto por uno resembrado. El reemplazo se
+     * hace con el estado vigente bloqueado y solo si sigue siendo el del
+     * mapa; quien esperaba ese bloqueo para registrar una venta vuelve a leer
+     * el mapa y la aplica al nuevo.
+     */
+    private void recalibrar(Long productoId, Suavizado suavizado) {
+        EstadoHoltWinters actual = estados.get(productoId);
+        Long estadoId = actual != null ? actual.getEstadoId()
+                : estadoRepositorio.findByProductoId(productoId).map(EstadoHoltWinters::getEstadoId).orElse(null);
+
+        EstadoHoltWinters nuevo = sembrar(productoId, estadoId, suavizado);
+        while (true) {
+            if (actual == null) {
+                actual = estados.putIfAbsent(productoId, nuevo);
+                if (actual == null) {
+                    break;
+                }
+            }
+            synchronized (actual) {
+                if (estados.get(productoId) == actual) {
+                    // Conservar lo acumulado hoy si la siembra no lo incluye
+                    if (actual.getDiaAbierto() != null && actual.getDiaAbierto().equals(nuevo.getDiaAbierto())) {
+                        nuevo.setAcumuladoDiaAbierto(Math.max(nuevo.getAcumuladoDiaAbierto(),
+                                actual.getAcumuladoDiaAbierto()));
+                    }
+                    if (nuevo.getEstadoId() == null) {
+                        nuevo.setEstadoId(actual.getEstadoId());
+                    }
+                    estados.put(productoId, nuevo);
+                    break;
+                }
+            }
+            actual = estados.get(productoId);
+        }
+        pendientesGuardar.add(productoId);
+    }
+
+    /**
+     * Siembra el estado desde la serie diaria del producto: los días
+     * anteriores a hoy se incorporan al modelo y el de hoy queda abierto.
+     */
+    private EstadoHoltWinters sembrar(Long productoId, Long estadoId, Suavizado suavizado) {
+        siembras.incrementAndGet();
+        AlmacenSeriesDemandaService.SerieDemanda serie = almacenSeries.obtener(productoId);
+        LocalDate hoy = LocalDate.now();
+
+        EstadoHoltWinters estado = EstadoHoltWinters.builder()
+                .estadoId(estadoId)
+                .productoId(productoId)
+                .nivel(0.0)
+                .tendencia(0.0)
+                .indicesEstacionales(new double[PERIODO])
+                .acumuladoDiaAbierto(0.0)
+                .diasEvaluados(0)
+                .diasConDemanda(0)
+                .sumaErrorAbsoluto(0.0)
+                .sumaErrorCuadrado(0.0)
+                .sumaErrorPorcentual(0.0)
+                .fechaActualizacion(LocalDateTime.now())
+                .build();
+
+        if (serie.estaVacia()) {
+            return estado;
+        }
+
+        double[] diaria = serie.serieDiaria();
+        LocalDate inicio = serie.fechaInicio();
+        int cerrados = (int) Math.min(diaria.length, Math.max(0, ChronoUnit.DAYS.between(inicio, hoy)));
+
+        if (cerrados >= 2 * PERIODO) {
+            double mediaPrimera = media(diaria, 0, PERIODO);
+            double mediaSegunda = media(diaria, PERIODO, 2 * PERIODO);
+            estado.setNivel(mediaPrimera);
+            estado.setTendencia((mediaSegunda - mediaPrimera) / PERIODO);
+            for (int i = 0; i < PERIODO; i++) {
+                estado.getIndicesEstacionales()[indiceDia(inicio.plusDays(i))] = diaria[i] - mediaPrimera;
+            }
+            estado.setUltimoDiaCerrado(inicio.plusDays(PERIODO - 1));
+            for (int i = PERIODO; i < cerrados; i++) {
+                actualizar(estado, inicio.plusDays(i), diaria[i], suavizado);
+            }
+        } else if (cerrados > 0) {
+            estado.setNivel(media(diaria, 0, cerrados));
+            estado.setUltimoDiaCerrado(inicio.plusDays(cerrados - 1));
+        }
+
+        // Lo ya normalizado de hoy abre el día en curso
+        estado.setDiaAbierto(hoy);
+        int offsetHoy = (int) ChronoUnit.DAYS.between(inicio, hoy);
+        if (offsetHoy >= 0 && offsetHoy < diaria.length) {
+            estado.setAcumuladoDiaAbierto(diaria[offsetHoy]);
+        }
+        return estado;
+    }
+
+    // ========== MODELO ==========
+
+    /**
+     * Cierra el día abierto y los días sin venta anteriores a {@code dia}.
+     */
+    private void avanzarHasta(EstadoHoltWinters estado, LocalDate dia, Suavizado suavizado) {
+        LocalDate abierto = estado.getDiaAbierto();
+        if (abierto != null && abierto.isBefore(dia)) {
+            actualizar(estado, abierto, estado.getAcumuladoDiaAbierto(), suavizado);
+            estado.setDiaAbierto(null);
+            estado.setAcumuladoDiaAbierto(0.0);
+        }
+
+        LocalDate ultimo = estado.getUltimoDiaCerrado();
+        if (ultimo == null) {
+            return;
+        }
+        long hueco = ChronoUnit.DAYS.between(ultimo, dia) - 1;
+        if (hueco > MAX_DIAS_HUECO) {
+            // Producto sin ventas por más de un año: el nivel se reinicia
+            estado.setNivel(0.0);
+            estado.setTendencia(0.0);
+            estado.setIndicesEstacionales(new double[PERIODO]);
+            estado.setUltimoDiaCerrado(dia.minusDays(1));
+            return;
+        }
+        for (LocalDate d = ultimo.plusDays(1); d.isBefore(dia); d = d.plusDays(1)) {
+            actualizar(estado, d, 0.0, suavizado);
+        }
+    }
+
+    /**
+     * Actualización aditiva de un día con tendencia amortiguada. Acumula el
+     * error del pronóstico a un paso antes de incorporar la observación.
+     */
+    private void actualizar(EstadoHoltWinters estado, LocalDate dia, double observado, Suavizado suavizado) {
+        double alpha = suavizado.alpha();
+        double beta = suavizado.beta();
+        double gamma = suavizado.gamma();
+        double phi = suavizado.phi();
+        double[] estacionales = estado.getIndicesEstacionales();
+        int indice = indiceDia(dia);
+        double nivelPrevio = estado.getNivel();
+        double tendenciaPrevia = estado.getTendencia();
+
+        double pronostico = Math.max(0.0, nivelPrevio + phi * tendenciaPrevia + estacionales[indice]);
+        double error = observado - pronostico;
+        estado.setDiasEvaluados(estado.getDiasEvaluados() + 1);
+        estado.setSumaErrorAbsoluto(estado.getSumaErrorAbsoluto() + Math.abs(error));
+        estado.setSumaErrorCuadrado(estado.getSumaErrorCuadrado() + error * error);
+        if (observado != 0.0) {
+            estado.setDiasConDemanda(estado.getDiasConDemanda() + 1);
+            estado.setSumaErrorPorcentual(estado.getSumaErrorPorcentual() + Math.abs(error / observado) * 100.0);
+        }
+
+        double nivel = alpha * (observado - estacionales[indice]) + (1 - alpha) * (nivelPrevio + phi * tendenciaPrevia);
+        estado.setTendencia(beta * (nivel - nivelPrevio) + (1 - beta) * phi * tendenciaPrevia);
+        estacionales[indice] = gamma * (observado - nivel) + (1 - gamma) * estacionales[indice];
+        estado.setNivel(nivel);
+        estado.setUltimoDiaCerrado(dia);
+        diasCerrados.incrementAndGet();
+    }
+
+    /**
+     * Suma de la tendencia amortiguada para m pasos: tendencia * (phi + ... + phi^m).
+     */
+    private static double tendenciaAmortiguada(double tendencia, int m, double phi) {
+        if (phi >= 1.0) {
+            return tendencia * m;
+        }
+        return tendencia * phi * (1 - Math.pow(phi, m)) / (1 - phi);
+    }
+
+    private static int indiceDia(LocalDate dia) {
+        return dia.getDayOfWeek().getValue() - 1;
+    }
+
+    private static double media(double[] valores, int desde, int hasta) {
+        double suma = 0.0;
+        for (int i = desde; i < hasta; i++) {
+            suma += valores[i];
+        }
+        return suma / (hasta - desde);
+    }
+
+    private static EstadoHoltWinters copiar(EstadoHoltWinters estado) {
+        return EstadoHoltWinters.builder()
+                .estadoId(estado.getEstadoId())
+                .productoId(estado.getProductoId())
+                .nivel(estado.getNivel())
+                .tendencia(estado.getTendencia())
+                .indicesEstacionales(estado.getIndicesEstacionales().clone())
+                .ultimoDiaCerrado(estado.getUltimoDiaCerrado())
+                .diaAbierto(estado.getDiaAbierto())
+                .acumuladoDiaAbierto(estado.getAcumuladoDiaAbierto())
+                .diasEvaluados(estado.getDiasEvaluados())
+                .diasConDemanda(estado.getDiasConDemanda())
+                .sumaErrorAbsoluto(estado.getSumaErrorAbsoluto())
+                .sumaErrorCuadrado(estado.getSumaErrorCuadrado())
+                .sumaErrorPorcentual(estado.getSumaErrorPorcentual())
+                .fechaActualizacion(estado.getFechaActualizacion())
+                .build();
+    }
+}
@@ -39,16 +39,28 @@ public interface ISmartPredictorService {
     SmartPrediccionResponse generarPrediccionInteligente(SmartPrediccionRequest request);
 
     /**
-     * Obtiene predicciones inteligentes para todos los productos con alertas de
-     * inventario.
-     * 
-     * Este método procesa automáticamente todos los productos que tienen alertas
-     * activas de inventario y genera predicciones para ayudar en la toma de
-     * decisiones.
-     * 
-     * @return Lista de predicciones para productos con alertas
+     * Primera mitad de {@link #generarPrediccionInteligente}: carga el
+     * contexto en una transacción corta de solo lectura y entrena sin ninguna
+     * transacción abierta. No persiste nada.
+     *
+     * @param request Configuración de la predicción inteligente
+     * @return Pronóstico listo para {@link #registrarPrediccion}
+     * @throws IllegalStateException    Si el producto no tiene datos históricos
+     *                                  suficientes
+     * @throws IllegalArgumentException Si el producto no existe
+     */
+    PrediccionCalculada calcularPrediccion(SmartPrediccionRequest request);
+
+    /**
+     * Segunda mitad de {@link #generarPrediccionInteligente}: persiste un
+     * pronóstico ya calculado, dentro de la transacción de quien llama (o en
+     * una propia si no hay ninguna). Puede repetirse tras un rollback sin
+     * volver a entrenar.
+     *
+     * @param calculada Pronóstico devuelto por {@link #calcularPrediccion}
+     * @return Respuesta con el ID de la predicción persistida
      */
-    List<SmartPrediccionResponse> procesarProductosConAlertas();
+    SmartPrediccionResponse registrarPrediccion(PrediccionCalculada calculada);
 
     /**
      * Valida si un producto tiene suficientes datos históricos para generar una
@@ -60,6 +72,15 @@ public interface ISmartPredictorService {
      */
     boolean validarDatosHistoricosProducto(Long idProducto, int minimoRegistros);
 
+    /**
+     * Calcula el horizonte de predicción recomendado para un producto a partir
+     * de la autocorrelación de su demanda histórica.
+     * 
+     * @param idProducto ID del producto
+     * @return Horizonte recomendado en días
+     */
+    int calcularHorizonteAutomatico(Long idProducto);
+
     /**
      * Obtiene los algoritmos disponibles para predicción.
      * 
@@ -0,0 +1,104 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import smile.data.DataFrame;
+import smile.data.vector.DoubleVector;
+import smile.regression.DataFrameRegression;
+import smile.regression.LinearModel;
+
+/**
+ * Inferencia por lotes para modelos entrenados con Smile ML.
+ *
+ * En lugar de construir un DataFrame de una fila por cada día del horizonte,
+ * arma una sola columna de features con todos los pasos y predice en una
+ * única llamada. Los modelos lineales se evalúan directamente como producto
+ * punto sobre sus coeficientes, sin un DataFrame por cada paso.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class InferenciaLoteML {
+
+    private InferenciaLoteML() {
+    }
+
+    /**
+     * Predice los valores para t = tiempoInicial .. tiempoInicial+pasos-1 con
+     * un modelo entrenado sobre la feature "tiempo".
+     *
+     * @param modelo        modelo entrenado (OLS, RandomForest, GradientTreeBoost)
+     * @param tiempoInicial primer índice temporal a predecir
+     * @param pasos         número de pasos
+     * @return predicciones sin recortar (pueden ser negativas)
+     */
+    public static double[] predecirTiempo(DataFrameRegression modelo, int tiempoInicial, int pasos) {
+        double[] predicciones = new double[pasos];
+        if (pasos == 0) {
+            return predicciones;
+        }
+
+        if (modelo instanceof LinearModel lineal) {
+            double[] coeficientes = coeficientesLineales(lineal, "tiempo");
+            double intercepto = coeficientes[0];
+            double pendiente = coeficientes[1];
+            for (int i = 0; i < pasos; i++) {
+                predicciones[i] = intercepto + pendiente * (tiempoInicial + i);
+            }
+            return predicciones;
+        }
+
+        double[] tiempo = new double[pasos];
+        for (int i = 0; i < pasos; i++) {
+            tiempo[i] = tiempoInicial + i;
+        }
+        return modelo.predict(DataFrame.of(DoubleVector.of("tiempo", tiempo)));
+    }
+
+    /**
+     * Intercepto y pesos de un modelo lineal, en el orden de las features
+     * indicadas: [b, w1, ..., wp].
+     *
+     * Se leen con una sola llamada a predict sobre p+1 filas (el origen y
+     * cada vector unitario) en lugar de intercept()/coefficients(), cuya
+     * disposición (intercepto separado o como primer coeficiente) depende de
+     * la versión de Smile. Así el camino rápido da lo mismo que predict.
+     *
+     * @param modelo   modelo lineal entrenado
+     * @param features nombres de las features del modelo
+     * @return intercepto seguido de un peso por feature
+     */
+    public static double[] coeficientesLineales(LinearModel modelo, String... features) {
+        int p = features.length;
+        DoubleVector[] columnas = new DoubleVector[p];
+        for (int j = 0; j < p; j++) {
+            double[] columna = new double[p + 1];
+            columna[j + 1] = 1.0;
+            columnas[j] = DoubleVector.of(features[j], columna);
+        }
+        double[] salida = modelo.predict(DataFrame.of(columnas));
+
+        double[] coeficientes = new double[p + 1];
+        coeficientes[0] = salida[0];
+        for (int j = 1; j <= p; j++) {
+            coeficientes[j] = salida[j] - salida[0];
+        }
+        return coeficientes;
+    }
+
+    /**
+     * Evalúa un modelo lineal como b + w·x sin crear estructuras de Smile.
+     *
+     * @param coeficientes coeficientes del modelo (sin intercepto, p. ej. los
+     *                     de {@link #coeficientesLineales} desde el índice 1)
+     * @param intercepto   intercepto del modelo
+     * @param x            valores de las features en el mismo orden que los
+     *                     coeficientes
+     */
+    public static double predecirLineal(double[] coeficientes, double intercepto, double[] x) {
+        double suma = intercepto;
+        for (int j = 0; j < coeficientes.length; j++) {
+            suma += coeficientes[j] * x[j];
+        }
+        return suma;
+    }
+}
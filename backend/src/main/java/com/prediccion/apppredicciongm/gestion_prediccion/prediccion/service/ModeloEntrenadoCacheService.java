@@ -0,0 +1,283 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caché en memoria de modelos ML ya entrenados (OLS, RandomForest,
+ * GradientTreeBoost).
+ *
+ * La clave combina producto, algoritmo, hiperparámetros y la huella (hash) de
+ * la serie de demanda usada para entrenar. Si la serie no cambió desde la
+ * última ejecución, el modelo se reutiliza y se salta el entrenamiento.
+ *
+ * Estrategia de desalojo:
+ * - Tamaño máximo (LRU por orden de acceso)
+ * - TTL desde el momento del entrenamiento
+ * - Invalidación explícita por producto cuando se normaliza nueva demanda
+ *
+ * Ante un fallo en memoria se consulta AlmacenModelosDiscoService antes de
+ * entrenar, y cada modelo recién entrenado se guarda también en disco.
+ *
+ * Configurable mediante application.properties (prediccion.ml.cache.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ModeloEntrenadoCacheService {
+
+    private final AlmacenModelosDiscoService almacenDisco;
+
+    /**
+     * Habilita/deshabilita la caché de modelos.
+     * Default: true
+     */
+    @Value("${prediccion.ml.cache.enabled:true}")
+    private boolean cacheHabilitada;
+
+    /**
+     * Número máximo de modelos en memoria.
+     * Default: 500
+     */
+    @Value("${prediccion.ml.cache.max-modelos:500}")
+    private int maxModelos;
+
+    /**
+     * Tiempo de vida de un modelo entrenado en minutos.
+     * Default: 360 (6 horas)
+     */
+    @Value("${prediccion.ml.cache.ttl-minutos:360}")
+    private long ttlMinutos;
+
+    private final LinkedHashMap<ClaveModelo, EntradaModelo> modelos = new LinkedHashMap<>(64, 0.75f, true);
+
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong desalojos = new AtomicLong();
+    private final AtomicLong invalidaciones = new AtomicLong();
+    private final AtomicLong aciertosDisco = new AtomicLong();
+
+    /**
+     * Clave de un modelo entrenado.
+     *
+     * @param productoId      ID del producto
+     * @param algoritmo       código del algoritmo (AlgoritmoSmileML)
+     * @param hiperparametros hiperparámetros serializados en forma canónica
+     * @param huellaSerie     hash de la serie de entrenamiento
+     */
+    public record ClaveModelo(Long productoId, String algoritmo, String hiperparametros, long huellaSerie) {
+    }
+
+    private record EntradaModelo(Object modelo, long creadoEnMs) {
+    }
+
+    /**
+     * Retorna el modelo en caché para la clave, lo carga del almacén en disco
+     * o lo entrena con el supplier y lo guarda en ambos. Carga y entrenamiento
+     * se ejecutan fuera del bloqueo para no serializar productos distintos.
+     *
+     * @param clave      clave del modelo
+     * @param entrenador función que entrena el modelo en caso de fallo de caché
+     * @return modelo entrenado (reutilizado o nuevo)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T obtenerOEntrenar(ClaveModelo clave, Supplier<T> entrenador) {
+        if (!cacheHabilitada || clave.productoId() == null) {
+            return entrenador.get();
+        }
+
+        synchronized (modelos) {
+            EntradaModelo entrada = modelos.get(clave);
+            if (entrada != null) {
+                if (!estaExpirada(entrada)) {
+                    aciertos.incrementAndGet();
+                    log.debug("[CACHE-MODELOS] Hit producto={} algoritmo={}", clave.productoId(), clave.algoritmo());
+                    return (T) entrada.modelo();
+                }
+                modelos.remove(clave);
+                desalojos.incrementAndGet();
+            }
+        }
+
+        fallos.incrementAndGet();
+        T modelo = (T) almacenDisco.cargar(clave);
+        if (modelo != null) {
+            aciertosDisco.incrementAndGet();
+            log.debug("[CACHE-MODELOS] Miss producto={} algoritmo={}, cargado de disco", clave.productoId(),
+                    clave.algoritmo());
+        } else {
+            log.debug("[CACHE-MODELOS] Miss producto={} algoritmo={}, entrenando", clave.productoId(),
+                    clave.algoritmo());
+            modelo = entrenador.get();
+            if (modelo != null) {
+                almacenDisco.guardar(clave, modelo);
+            }
+        }
+
+        if (modelo != null) {
+            synchronized (modelos) {
+                modelos.put(clave, new EntradaModelo(modelo, System.currentTimeMillis()));
+                desalojarExcedentes();
+            }
+        }
+        return modelo;
+    }
+
+    /**
+     * Registra las métricas de validación del modelo entrenado sobre la serie
+     * con esa huella (se guardan en el manifiesto del almacén en disco).
+     */
+    public void registrarMetricas(Long productoId, String algoritmo, long huellaSerie, double rmse, double mae,
+            double mape) {
+        almacenDisco.registrarMetricas(productoId, algoritmo, huellaSerie, rmse, mae, mape);
+    }
+
+    /**
+     * Elimina todos los modelos de un producto, en memoria y en disco. Se
+     * invoca cuando la normalización escribe nueva demanda para ese producto:
+     * los modelos guardados se entrenaron con la serie anterior y no volverían
+     * a coincidir con su huella.
+     *
+     * @param productoId ID del producto
+     */
+    public void invalidarProducto(Long productoId) {
+        if (productoId == null) {
+            return;
+        }
+        int eliminados = 0;
+        synchronized (modelos) {
+            Iterator<ClaveModelo> it = modelos.keySet().iterator();
+            while (it.hasNext()) {
+                if (productoId.equals(it.next().productoId())) {
+                    it.remove();
+                    eliminados++;
+                }
+            }
+        }
+        int eliminadosDisco = almacenDisco.eliminarProducto(productoId);
+        if (eliminados > 0 || eliminadosDisco > 0) {
+            invalidaciones.addAndGet(eliminados);
+            log.debug("[CACHE-MODELOS] Invalidados {} modelos en memoria y {} en disco del producto {}", eliminados,
+                    eliminadosDisco, productoId);
+        }
+    }
+
+    /**
+     * Programa {@link #invalidarProducto} para cuando confirme la transacción
+     * en curso que escribe la demanda. Así un lector concurrente no vuelve a
+     * poblar la caché desde la demanda anterior entre la invalidación y el
+     * commit. Sin transacción activa, invalida de inmediato; si la
+     * transacción se revierte, no invalida.
+     *
+     * @param productoId ID del producto
+     */
+    public void invalidarProductoAlConfirmar(Long productoId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidarProducto(productoId);
+                }
+            });
+        } else {
+            invalidarProducto(productoId);
+        }
+    }
+
+    /**
+     * Vacía la caché completa.
+     *
+     * @param incluirDisco si también se borra el almacén en disco; si no, los
+     *                     modelos en disco se conservan y solo se reutilizan
+     *                     mientras la huella de la serie coincida
+     */
+    public void invalidarTodo(boolean incluirDisco) {
+        int eliminados;
+        synchronized (modelos) {
+            eliminados = modelos.size();
+            modelos.clear();
+        }
+        invalidaciones.addAndGet(eliminados);
+        if (incluirDisco) {
+            almacenDisco.eliminarTodo();
+        }
+        log.info("[CACHE-MODELOS] Caché vaciada: {} modelos eliminados de memoria, disco {}", eliminados,
+                incluirDisco ? "vaciado" : "conservado");
+    }
+
+    /**
+     * Estadísticas de uso de la caché (hits, misses, desalojos, tamaño).
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        long hits = aciertos.get();
+        long misses = fallos.get();
+        long total = hits + misses;
+        int tamanio;
+        synchronized (modelos) {
+            tamanio = modelos.size();
+        }
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("habilitada", cacheHabilitada);
+        estadisticas.put("modelosEnCache", tamanio);
+        estadisticas.put("maxModelos", maxModelos);
+        estadisticas.put("ttlMinutos", ttlMinutos);
+        estadisticas.put("aciertos", hits);
+        estadisticas.put("fallos", misses);
+        estadisticas.put("tasaAciertos", total > 0 ? (double) hits / total : 0.0);
+        estadisticas.put("desalojos", desalojos.get());
+        estadisticas.put("invalidaciones", invalidaciones.get());
+        estadisticas.put("aciertosDisco", aciertosDisco.get());
+        estadisticas.put("disco", almacenDisco.obtenerEstadisticas());
+        return estadisticas;
+    }
+
+    /**
+     * Calcula una huella de 64 bits (FNV-1a) sobre los valores de la serie.
+     * Dos series con los mismos valores en el mismo orden producen la misma
+     * huella.
+     */
+    public static long calcularHuella(double[] serie) {
+        long hash = 0xcbf29ce484222325L;
+        for (double valor : serie) {
+            long bits = Double.doubleToLongBits(valor);
+            for (int i = 0; i < 8; i++) {
+                hash ^= (bits >>> (i * 8)) & 0xff;
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash ^ serie.length;
+    }
+
+    private boolean estaExpirada(EntradaModelo entrada) {
+        return ttlMinutos > 0
+                && System.currentTimeMillis() - entrada.creadoEnMs() > ttlMinutos * 60_000L;
+    }
+
+    /**
+     * Desaloja los modelos menos usados recientemente hasta respetar el
+     * tamaño máximo. Debe llamarse con el bloqueo de la caché tomado.
+     */
+    private void desalojarExcedentes() {
+        Iterator<EntradaModelo> it = modelos.values().iterator();
+        while (modelos.size() > maxModelos && it.hasNext()) {
+            it.next();
+            it.remove();
+            desalojos.incrementAndGet();
+        }
+    }
+}
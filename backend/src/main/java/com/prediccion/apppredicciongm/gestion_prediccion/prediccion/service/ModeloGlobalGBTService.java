@@ -0,0 +1,458 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.InstantaneaParametrosService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import smile.data.DataFrame;
+import smile.data.Tuple;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.regression.GradientTreeBoost;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Modelo Gradient Boosting global: un solo GradientTreeBoost entrenado con
+ * la demanda de todo el catálogo, de modo que el pronóstico GRADIENT_BOOSTING
+ * de cada producto es solo inferencia.
+ *
+ * - Features por día: lags 1..7 y 14, medias móviles de 7 y 28 días
+ *   (escalados por el nivel del producto), calendario (día de la semana,
+ *   día del mes, mes) y nivel del producto y de su categoría. El objetivo es
+ *   la demanda escalada, así productos de distinto volumen comparten árboles.
+ * - Cada producto aporta los días de su tramo de entrenamiento (el mismo
+ *   split 80/20 de SmartPredictorServiceImpl, sin la validación), limitados a
+ *   los últimos ventana-dias: cada reentrenamiento usa una ventana deslizante
+ *   y su costo no crece con la historia.
+ * - El pronóstico es recursivo: cada predicción alimenta los lags del paso
+ *   siguiente.
+ * - Productos que no estaban en el entrenamiento (nuevos, con historia corta
+ *   o con serie agregada por semana) devuelven vacío y el llamador entrena
+ *   el modelo por producto.
+ *
+ * Se reentrena con un cron nocturno (antes de la flota) y al arrancar.
+ * Configurable mediante application.properties (prediccion.ml.global.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class ModeloGlobalGBTService {
+
+    static final String[] FEATURES = {
+            "lag1", "lag2", "lag3", "lag4", "lag5", "lag6", "lag7", "lag14",
+            "media7", "media28", "diaSemana", "diaMes", "mes", "nivelProducto", "nivelCategoria" };
+
+    /** Días de historia necesarios para calcular todas las features. */
+    private static final int HISTORIA_MINIMA = 28;
+
+    private final IProductoRepositorio productoRepositorio;
+    private final AlmacenSeriesDemandaService almacenSeries;
+    private final InstantaneaParametrosService instantaneaParametros;
+    private final ExecutorService entrenador;
+
+    private final AtomicBoolean entrenando = new AtomicBoolean();
+    private final AtomicLong inferencias = new AtomicLong();
+    private final AtomicLong sinCobertura = new AtomicLong();
+    private volatile ModeloGlobal modelo;
+    private volatile String ultimoError;
+
+    @Value("${prediccion.ml.global.enabled:false}")
+    private boolean habilitado;
+
+    @Value("${prediccion.ml.global.ventana-dias:365}")
+    private int ventanaDias;
+
+    @Value("${prediccion.ml.global.max-filas:300000}")
+    private int maxFilas;
+
+    @Value("${prediccion.ml.global.entrenar-al-iniciar:true}")
+    private boolean entrenarAlIniciar;
+
+    /**
+     * Modelo entrenado con el nivel (escala) y nivel de categoría de cada
+     * producto visto. Inmutable: un reentrenamiento publica una instancia
+     * nueva.
+     */
+    private record ModeloGlobal(GradientTreeBoost gbt, Map<Long, Double> escalas, Map<Long, Double> nivelesCategoria,
+            int filas, LocalDateTime fechaEntrenamiento, long duracionMs) {
+    }
+
+    /**
+     * Pronóstico recursivo de un producto.
+     *
+     * @param validacion predicciones para la ventana de validación
+     * @param futuro     predicciones del horizonte, a continuación de la serie
+     */
+    public record Pronostico(double[] validacion, double[] futuro) {
+    }
+
+    /** Serie preparada de un producto y su tramo de entrenamiento. */
+    private record Entrada(Long productoId, double[] serie, long[] fechas, int desde, int hasta, double escala,
+            Integer categoriaId) {
+    }
+
+    public ModeloGlobalGBTService(
+            IProductoRepositorio productoRepositorio,
+            AlmacenSeriesDemandaService almacenSeries,
+            InstantaneaParametrosService instantaneaParametros) {
+        this.productoRepositorio = productoRepositorio;
+        this.almacenSeries = almacenSeries;
+        this.instantaneaParametros = instantaneaParametros;
+        this.entrenador = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "gbt-global");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Reentrenamiento nocturno (01:00), antes del backtesting (01:30) y del
+     * pronóstico de flota (02:00), para no competir por CPU ni por conexiones.
+     */
+    @Scheduled(cron = "${prediccion.ml.global.cron:0 0 1 * * ?}")
+    public void entrenarNocturno() {
+        if (habilitado) {
+            solicitarEntrenamiento();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void entrenarAlArrancar() {
+        if (habilitado && entrenarAlIniciar) {
+            solicitarEntrenamiento();
+        }
+    }
+
+    /**
+     * Lanza el entrenamiento en segundo plano.
+     *
+     * @return false si ya hay un entrenamiento en curso
+     */
+    public boolean solicitarEntrenamiento() {
+        if (entrenando.get()) {
+            return false;
+        }
+        entrenador.execute(this::entrenar);
+        return true;
+    }
+
+    /**
+     * Entrena el modelo global con la demanda actual del catálogo y lo
+     * publica. Si ya hay un entrenamiento en curso no hace nada.
+     */
+    public void entrenar() {
+        if (!entrenando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long inicio = System.currentTimeMillis();
+            List<Entrada> entradas = cargarEntradas();
+            if (entradas.isEmpty()) {
+                log.warn("[GBT-GLOBAL] Sin productos con historia suficiente, no se entrena");
+                return;
+            }
+
+            Map<Long, Double> nivelesCategoria = calcularNivelesCategoria(entradas);
+
+            long total = 0;
+            for (Entrada entrada : entradas) {
+                total += entrada.hasta() - entrada.desde();
+            }
+            int paso = (int) Math.max(1, (total + maxFilas - 1) / Math.max(1, maxFilas));
+            int filas = (int) ((total + paso - 1) / paso);
+
+            double[][] columnas = new double[FEATURES.length][filas];
+            double[] objetivo = new double[filas];
+            double[] fila = new double[FEATURES.length];
+            long contador = 0;
+            int f = 0;
+            for (Entrada entrada : entradas) {
+                double nivelCategoria = nivelesCategoria.get(entrada.productoId());
+                for (int t = entrada.desde(); t < entrada.hasta(); t++, contador++) {
+                    if (contador % paso != 0 || f >= filas) {
+                        continue;
+                    }
+                    llenarFeatures(entrada.serie(), t, entrada.fechas()[t], entrada.escala(), nivelCategoria, fila);
+                    for (int j = 0; j < fila.length; j++) {
+                        columnas[j][f] = fila[j];
+                    }
+                    objetivo[f++] = entrada.serie()[t] / entrada.escala();
+                }
+            }
+
+            DoubleVector[] vectores = new DoubleVector[FEATURES.length + 1];
+            for (int j = 0; j < FEATURES.length; j++) {
+                vectores[j] = DoubleVector.of(FEATURES[j], columnas[j]);
+            }
+            vectores[FEATURES.length] = DoubleVector.of("demanda", objetivo);
+
+            GradientTreeBoost gbt = GradientTreeBoost.fit(Formula.lhs("demanda"), DataFrame.of(vectores),
+                    propiedades());
+
+            Map<Long, Double> escalas = new HashMap<>();
+            for (Entrada entrada : entradas) {
+                escalas.put(entrada.productoId(), entrada.escala());
+            }
+            modelo = new ModeloGlobal(gbt, escalas, nivelesCategoria, filas, LocalDateTime.now(),
+                    System.currentTimeMillis() - inicio);
+            ultimoError = null;
+            log.info("[GBT-GLOBAL] Modelo entrenado: {} productos, {} filas (1 de cada {}), {}ms",
+                    escalas.size(), filas, paso, modelo.duracionMs());
+        } catch (RuntimeException e) {
+            ultimoError = e.getMessage();
+            log.error("[GBT-GLOBAL] Error entrenando el modelo global: {}", e.getMessage(), e);
+        } finally {
+            entrenando.set(false);
+        }
+    }
+
+    /**
+     * Pronóstico de un producto con el modelo global.
+     *
+     * @param productoId     ID del producto
+     * @param serie          serie preparada completa del producto
+     * @param trainSize      inicio de la ventana de validación
+     * @param validationSize pasos de validación
+     * @param horizonte      pasos del horizonte, a continuación de la serie
+     * @return vacío si el modelo no está disponible o no conoce el producto
+     */
+    public Optional<Pronostico> pronosticar(Long productoId, double[] serie, int trainSize, int validationSize,
+            int horizonte) {
+        ModeloGlobal actual = modelo;
+        if (!habilitado || actual == null || productoId == null) {
+            return Optional.empty();
+        }
+        Double escala = actual.escalas().get(productoId);
+        AlmacenSeriesDemandaService.SerieDemanda serieDemanda = almacenSeries.obtener(productoId);
+        // La serie debe ser diaria (un punto por día registrado) para tener fechas
+        if (escala == null || trainSize < HISTORIA_MINIMA || serieDemanda.numRegistros() != serie.length) {
+            sinCobertura.incrementAndGet();
+            return Optional.empty();
+        }
+
+        long[] fechas = fechasRegistradas(serieDemanda);
+        double nivelCategoria = actual.nivelesCategoria().get(productoId);
+        long ultimo = fechas[fechas.length - 1];
+
+        double[] validacion = predecirRecursivo(actual.gbt(), serie, trainSize, validationSize,
+                i -> fechas[trainSize + i], escala, nivelCategoria);
+        double[] futuro = predecirRecursivo(actual.gbt(), serie, serie.length, horizonte,
+                i -> ultimo + 1 + i, escala, nivelCategoria);
+        inferencias.incrementAndGet();
+        return Optional.of(new Pronostico(validacion, futuro));
+    }
+
+    public Map<String, Object> obtenerEstadisticas() {
+        ModeloGlobal actual = modelo;
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("habilitado", habilitado);
+        estadisticas.put("entrenado", actual != null);
+        estadisticas.put("entrenando", entrenando.get());
+        estadisticas.put("ventanaDias", ventanaDias);
+        if (actual != null) {
+            estadisticas.put("productos", actual.escalas().size());
+            estadisticas.put("filas", actual.filas());
+            estadisticas.put("fechaEntrenamiento", actual.fechaEntrenamiento());
+            estadisticas.put("duracionEntrenamientoMs", actual.duracionMs());
+        }
+        estadisticas.put("inferencias", inferencias.get());
+        estadisticas.put("productosSinCobertura", sinCobertura.get());
+        if (ultimoError != null) {
+            estadisticas.put("ultimoError", ultimoError);
+        }
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        entrenador.shutdownNow();
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    /**
+     * Series preparadas del catálogo con su tramo de entrenamiento. Omite
+     * productos con historia corta, sin demanda en el tramo o con serie
+     * agregada por semana.
+     */
+    private List<Entrada> cargarEntradas() {
+        Map<Long, Integer> categorias = new HashMap<>();
+        for (Object[] fila : productoRepositorio.findIdsConCategoriaYProveedor()) {
+            categorias.put(((Integer) fila[0]).longValue(), (Integer) fila[1]);
+        }
+        Map<Long, AlmacenSeriesDemandaService.SerieDemanda> series = almacenSeries.obtenerVarios(categorias.keySet());
+
+        List<Entrada> entradas = new ArrayList<>();
+        for (Map.Entry<Long, AlmacenSeriesDemandaService.SerieDemanda> registro : series.entrySet()) {
+            AlmacenSeriesDemandaService.SerieDemanda serieDemanda = registro.getValue();
+            if (serieDemanda.numRegistros() <= HISTORIA_MINIMA) {
+                continue;
+            }
+            PreprocesamientoSerie.Resultado preparada = PreprocesamientoSerie.preparar(
+                    serieDemanda.valoresRegistrados());
+            if (preparada.tratamiento() == PreprocesamientoSerie.Tratamiento.SUAVIZADO_SEMANAL) {
+                continue;
+            }
+            double[] serie = preparada.serie();
+            int hasta = tamanoEntrenamiento(serie.length);
+            int desde = Math.max(HISTORIA_MINIMA, hasta - Math.max(1, ventanaDias));
+            if (desde >= hasta) {
+                continue;
+            }
+            double suma = 0.0;
+            for (int t = desde; t < hasta; t++) {
+                suma += serie[t];
+            }
+            double escala = suma / (hasta - desde);
+            if (escala <= 0) {
+                continue;
+            }
+            entradas.add(new Entrada(registro.getKey(), serie, fechasRegistradas(serieDemanda), desde, hasta,
+                    escala, categorias.get(registro.getKey())));
+        }
+        return entradas;
+    }
+
+    /**
+     * Nivel de categoría por producto: media de log(1 + escala) de los
+     * productos de la categoría (o de todo el catálogo si no tiene).
+     */
+    private Map<Long, Double> calcularNivelesCategoria(List<Entrada> entradas) {
+        Map<Integer, double[]> acumulado = new HashMap<>();
+        double sumaGlobal = 0.0;
+        for (Entrada entrada : entradas) {
+            double nivel = Math.log1p(entrada.escala());
+            sumaGlobal += nivel;
+            if (entrada.categoriaId() != null) {
+                double[] suma = acumulado.computeIfAbsent(entrada.categoriaId(), k -> new double[2]);
+                suma[0] += nivel;
+                suma[1]++;
+            }
+        }
+        double nivelGlobal = sumaGlobal / entradas.size();
+
+        Map<Long, Double> niveles = new HashMap<>();
+        for (Entrada entrada : entradas) {
+            double[] suma = entrada.categoriaId() != null ? acumulado.get(entrada.categoriaId()) : null;
+            niveles.put(entrada.productoId(), suma != null ? suma[0] / suma[1] : nivelGlobal);
+        }
+        return niveles;
+    }
+
+    /**
+     * Predice pasos días a partir de origen: cada predicción se escribe en la
+     * historia y alimenta los lags del paso siguiente.
+     *
+     * El punto a predecir es una fila de un único DataFrame construido sobre
+     * columnas propias de un elemento: cada paso reescribe esas columnas en
+     * lugar de crear vectores y un DataFrame nuevos.
+     */
+    static double[] predecirRecursivo(GradientTreeBoost gbt, double[] serie, int origen, int pasos,
+            IntToLongFunction fechaPaso, double escala, double nivelCategoria) {
+        double[] historia = new double[origen + pasos];
+        System.arraycopy(serie, 0, historia, 0, origen);
+        double[] predicciones = new double[pasos];
+        double[] fila = new double[FEATURES.length];
+        double[][] columnas = new double[FEATURES.length][1];
+        DoubleVector[] vectores = new DoubleVector[FEATURES.length];
+        for (int j = 0; j < FEATURES.length; j++) {
+            vectores[j] = DoubleVector.of(FEATURES[j], columnas[j]);
+        }
+        Tuple punto = DataFrame.of(vectores).get(0);
+
+        for (int i = 0; i < pasos; i++) {
+            int t = origen + i;
+            llenarFeatures(historia, t, fechaPaso.applyAsLong(i), escala, nivelCategoria, fila);
+            for (int j = 0; j < FEATURES.length; j++) {
+                columnas[j][0] = fila[j];
+            }
+            double prediccion = Math.max(0, gbt.predict(punto) * escala);
+            historia[t] = prediccion;
+            predicciones[i] = prediccion;
+        }
+        return predicciones;
+    }
+
+    /**
+     * Features para predecir serie[t] con la historia serie[0..t).
+     */
+    static void llenarFeatures(double[] serie, int t, long diaEpoch, double escala, double nivelCategoria,
+            double[] destino) {
+        for (int k = 1; k <= 7; k++) {
+            destino[k - 1] = serie[t - k] / escala;
+        }
+        destino[7] = serie[t - 14] / escala;
+
+        double suma7 = 0.0;
+        double suma28 = 0.0;
+        for (int k = 1; k <= 28; k++) {
+            suma28 += serie[t - k];
+            if (k <= 7) {
+                suma7 += serie[t - k];
+            }
+        }
+        destino[8] = suma7 / 7 / escala;
+        destino[9] = suma28 / 28 / escala;
+
+        LocalDate fecha = LocalDate.ofEpochDay(diaEpoch);
+        destino[10] = fecha.getDayOfWeek().getValue();
+        destino[11] = fecha.getDayOfMonth();
+        destino[12] = fecha.getMonthValue();
+        destino[13] = Math.log1p(escala);
+        destino[14] = nivelCategoria;
+    }
+
+    /** Días (epoch) de los registros de la serie, en orden. */
+    private static long[] fechasRegistradas(AlmacenSeriesDemandaService.SerieDemanda serieDemanda) {
+        long[] fechas = new long[serieDemanda.numRegistros()];
+        int[] k = new int[1];
+        serieDemanda.paraCadaRegistro((fecha, cantidad) -> fechas[k[0]++] = fecha.toEpochDay());
+        return fechas;
+    }
+
+    /** Mismo split 80/20 que SmartPredictorServiceImpl#ejecutarPrediccionML. */
+    private static int tamanoEntrenamiento(int n) {
+        int trainSize = (int) (n * 0.8);
+        return n - trainSize < 5 ? n : trainSize;
+    }
+
+    private Properties propiedades() {
+        Properties props = new Properties();
+        props.setProperty("smile.gbt.trees",
+                String.valueOf(instantaneaParametros.obtenerInt("GRADIENT_BOOSTING", "num_trees", 200)));
+        props.setProperty("smile.gbt.shrinkage",
+                String.valueOf(instantaneaParametros.obtenerDouble("GRADIENT_BOOSTING", "shrinkage", 0.05)));
+        props.setProperty("smile.gbt.max.depth",
+                String.valueOf(instantaneaParametros.obtenerInt("GRADIENT_BOOSTING", "max_depth", 6)));
+        props.setProperty("smile.gbt.max.nodes",
+                String.valueOf(instantaneaParametros.obtenerInt("GRADIENT_BOOSTING", "max_nodes", 50)));
+        props.setProperty("smile.gbt.node.size",
+                String.valueOf(instantaneaParametros.obtenerInt("GRADIENT_BOOSTING", "node_size", 5)));
+        props.setProperty("smile.gbt.sample.rate",
+                String.valueOf(instantaneaParametros.obtenerDouble("GRADIENT_BOOSTING", "sample_rate", 0.7)));
+        return props;
+    }
+}
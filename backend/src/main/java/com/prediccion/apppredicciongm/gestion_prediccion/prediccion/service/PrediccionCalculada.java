@@ -0,0 +1,70 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+
+import java.math.BigDecimal;
+
+/**
+ * Pronóstico ya entrenado y pendiente de persistir.
+ *
+ * Lo produce {@link ISmartPredictorService#calcularPrediccion}, que lee el
+ * contexto en una transacción corta de solo lectura y entrena sin ninguna
+ * transacción abierta; {@link ISmartPredictorService#registrarPrediccion} lo
+ * guarda en la transacción de quien llama (un bloque de alertas, una
+ * partición de la flota). Así la conexión no queda retenida mientras se
+ * entrena y un fallo de persistencia se puede repetir sin reentrenar.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class PrediccionCalculada {
+
+    private final ContextoPronostico contexto;
+    private final SmartPrediccionResponse respuesta;
+    private final String algoritmoPersistido;
+    private final int demandaTotal;
+    private final BigDecimal metricasError;
+    private final CurvaPrediccionCompacta curva;
+
+    PrediccionCalculada(ContextoPronostico contexto, SmartPrediccionResponse respuesta, String algoritmoPersistido,
+            int demandaTotal, BigDecimal metricasError, CurvaPrediccionCompacta curva) {
+        this.contexto = contexto;
+        this.respuesta = respuesta;
+        this.algoritmoPersistido = algoritmoPersistido;
+        this.demandaTotal = demandaTotal;
+        this.metricasError = metricasError;
+        this.curva = curva;
+    }
+
+    public Long productoId() {
+        return contexto.productoId();
+    }
+
+    /** Respuesta del pronóstico; el ID de la predicción se asigna al registrarla. */
+    public SmartPrediccionResponse respuesta() {
+        return respuesta;
+    }
+
+    ContextoPronostico contexto() {
+        return contexto;
+    }
+
+    /** Algoritmo bajo el que se guarda (el solicitado si respondió el promedio móvil). */
+    String algoritmoPersistido() {
+        return algoritmoPersistido;
+    }
+
+    int demandaTotal() {
+        return demandaTotal;
+    }
+
+    /** MAPE (o MAE si no hay MAPE) de validación; null si no hubo ventana de validación. */
+    BigDecimal metricasError() {
+        return metricasError;
+    }
+
+    CurvaPrediccionCompacta curva() {
+        return curva;
+    }
+}
@@ -0,0 +1,103 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+/**
+ * Preprocesamiento de la serie de demanda antes de entrenar: reducción de
+ * ruido para productos con variabilidad alta.
+ *
+ * - CV ≤ 25% o menos de 14 puntos: la serie se usa tal cual.
+ * - CV > 25%: suavizado exponencial simple (α = 0.3).
+ * - Si tras suavizar el CV sigue > 30% y hay al menos 21 puntos: además se
+ *   agrega por semana (promedio diario de cada bloque de 7 días).
+ *
+ * Funciones puras sobre arreglos (sin estado ni logging); quien llama decide
+ * qué registrar a partir del {@link Resultado}.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class PreprocesamientoSerie {
+
+    private static final double UMBRAL_CV_SUAVIZADO = 0.25;
+    private static final double UMBRAL_CV_AGREGACION = 0.30;
+    private static final int MIN_PUNTOS_SUAVIZADO = 14;
+    private static final int MIN_PUNTOS_AGREGACION = 21;
+    private static final double ALPHA_SUAVIZADO = 0.3;
+
+    private PreprocesamientoSerie() {
+    }
+
+    public enum Tratamiento {
+        NINGUNO, SUAVIZADO, SUAVIZADO_SEMANAL
+    }
+
+    /**
+     * @param serie       serie preparada (la original si no hubo tratamiento)
+     * @param tratamiento técnicas aplicadas
+     * @param cvOriginal  coeficiente de variación de la serie original
+     * @param cvSuavizado coeficiente de variación tras el suavizado (NaN si no se suavizó)
+     */
+    public record Resultado(double[] serie, Tratamiento tratamiento, double cvOriginal, double cvSuavizado) {
+    }
+
+    public static Resultado preparar(double[] serieOriginal) {
+        return preparar(serieOriginal, EstadisticasSerie.de(serieOriginal));
+    }
+
+    /**
+     * @param estadisticasOriginal estadísticas ya calculadas de serieOriginal
+     */
+    public static Resultado preparar(double[] serieOriginal, EstadisticasSerie estadisticasOriginal) {
+        double cvOriginal = estadisticasOriginal.coeficienteVariacion(1.0);
+        if (cvOriginal <= UMBRAL_CV_SUAVIZADO || serieOriginal.length < MIN_PUNTOS_SUAVIZADO) {
+            return new Resultado(serieOriginal, Tratamiento.NINGUNO, cvOriginal, Double.NaN);
+        }
+
+        double[] suavizada = suavizadoExponencial(serieOriginal, ALPHA_SUAVIZADO);
+        double cvSuavizado = EstadisticasSerie.de(suavizada).coeficienteVariacion(1.0);
+        if (cvSuavizado > UMBRAL_CV_AGREGACION && serieOriginal.length >= MIN_PUNTOS_AGREGACION) {
+            return new Resultado(agregarPorSemana(suavizada), Tratamiento.SUAVIZADO_SEMANAL, cvOriginal, cvSuavizado);
+        }
+        return new Resultado(suavizada, Tratamiento.SUAVIZADO, cvOriginal, cvSuavizado);
+    }
+
+    /**
+     * Suavizado exponencial simple (SES): S_t = α·Y_t + (1-α)·S_{t-1}.
+     *
+     * Alpha bajo (0.1-0.3): más suavizado, responde lento a cambios.
+     * Alpha alto (0.7-0.9): menos suavizado, responde rápido a cambios.
+     */
+    public static double[] suavizadoExponencial(double[] serie, double alpha) {
+        if (serie.length == 0) {
+            return serie;
+        }
+        double[] suavizada = new double[serie.length];
+        suavizada[0] = serie[0];
+        for (int i = 1; i < serie.length; i++) {
+            suavizada[i] = alpha * serie[i] + (1 - alpha) * suavizada[i - 1];
+        }
+        return suavizada;
+    }
+
+    /**
+     * Agrega la serie diaria por semanas completas usando el promedio diario
+     * de cada semana (mantiene la escala diaria). Los días sobrantes al final
+     * se descartan; con menos de 7 días la serie se retorna sin cambios.
+     */
+    public static double[] agregarPorSemana(double[] serie) {
+        if (serie.length < 7) {
+            return serie;
+        }
+        int numSemanas = serie.length / 7;
+        double[] semanal = new double[numSemanas];
+        for (int semana = 0; semana < numSemanas; semana++) {
+            double suma = 0;
+            int inicio = semana * 7;
+            for (int dia = 0; dia < 7; dia++) {
+                suma += serie[inicio + dia];
+            }
+            semanal[semana] = suma / 7.0;
+        }
+        return semanal;
+    }
+}
@@ -0,0 +1,155 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Presupuesto de conexiones compartido por todo el trabajo en segundo plano.
+ *
+ * El pool de Hikari es pequeño (2 conexiones en producción) y lo usan varios
+ * ejecutores independientes: los lotes de alertas, los trabajadores de la
+ * flota, los trabajos de pronóstico asíncronos, el Holt-Winters en línea
+ * (consumidor de ventas, guardado y recalibración) y el backtesting nocturno.
+ * Si cada uno se acotara por su cuenta al pool, juntos podrían tomar todas
+ * las conexiones y dejar sin ninguna a las solicitudes web.
+ *
+ * - Cada unidad de trabajo en segundo plano que usa la base de datos corre
+ *   con un permiso. Hay tantos permisos como conexiones del pool menos las
+ *   reservadas para la web (prediccion.conexiones.reservadas-web), mínimo 1.
+ * - Los permisos son reentrantes por hilo: una unidad que ya tiene permiso y
+ *   llama a otra no toma un segundo (ni se bloquea esperándolo).
+ * - Las solicitudes web no pasan por aquí.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class PresupuestoConexionesService {
+
+    private final Semaphore permisos;
+    private final int totalPermisos;
+    private final int poolConexiones;
+
+    /** Profundidad de anidamiento del permiso en el hilo actual (0 = sin permiso). */
+    private final ThreadLocal<int[]> retenido = ThreadLocal.withInitial(() -> new int[1]);
+
+    private final AtomicLong adquisiciones = new AtomicLong();
+    private final AtomicLong esperas = new AtomicLong();
+    private final AtomicLong esperaAcumuladaMs = new AtomicLong();
+
+    public PresupuestoConexionesService(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolConexiones,
+            @Value("${prediccion.conexiones.reservadas-web:1}") int reservadasWeb) {
+        this.poolConexiones = poolConexiones;
+        this.totalPermisos = Math.max(1, poolConexiones - Math.max(0, reservadasWeb));
+        this.permisos = new Semaphore(totalPermisos, true);
+        log.info("[CONEXIONES] Presupuesto de segundo plano: {} de {} conexiones", totalPermisos, poolConexiones);
+    }
+
+    /**
+     * Ejecuta la tarea con un permiso del presupuesto, esperándolo si hace
+     * falta. Si el hilo ya tiene uno, la ejecuta directamente.
+     *
+     * @param tarea unidad de trabajo que puede usar la base de datos
+     * @return resultado de la tarea
+     */
+    public <T> T ejecutar(Supplier<T> tarea) {
+        int[] profundidad = retenido.get();
+        if (profundidad[0] > 0) {
+            return conPermiso(profundidad, tarea);
+        }
+        long inicio = System.currentTimeMillis();
+        if (!permisos.tryAcquire()) {
+            esperas.incrementAndGet();
+            permisos.acquireUninterruptibly();
+        }
+        return adquirido(profundidad, tarea, inicio);
+    }
+
+    /**
+     * Como {@link #ejecutar(Supplier)}, sin resultado.
+     */
+    public void ejecutar(Runnable tarea) {
+        ejecutar(() -> {
+            tarea.run();
+            return null;
+        });
+    }
+
+    /**
+     * Como {@link #ejecutar(Supplier)}, pero la espera del permiso se puede
+     * interrumpir (p. ej. al cancelar un trabajo en cola).
+     *
+     * @throws InterruptedException si se interrumpe mientras espera el permiso
+     */
+    public <T> T ejecutarInterrumpible(Supplier<T> tarea) throws InterruptedException {
+        int[] profundidad = retenido.get();
+        if (profundidad[0] > 0) {
+            return conPermiso(profundidad, tarea);
+        }
+        long inicio = System.currentTimeMillis();
+        if (!permisos.tryAcquire()) {
+            esperas.incrementAndGet();
+            permisos.acquire();
+        }
+        return adquirido(profundidad, tarea, inicio);
+    }
+
+    /**
+     * Indica si el hilo actual ya tiene un permiso. Quien reparte trabajo a
+     * otros hilos debe hacerlo en línea en ese caso: esos hilos esperarían un
+     * permiso que este hilo no suelta hasta que terminen.
+     */
+    public boolean retieneHiloActual() {
+        return retenido.get()[0] > 0;
+    }
+
+    /** Número de permisos (conexiones para el trabajo en segundo plano). */
+    public int permisos() {
+        return totalPermisos;
+    }
+
+    /**
+     * Permisos, libres, hilos esperando y espera acumulada.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        long total = adquisiciones.get();
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("poolConexiones", poolConexiones);
+        estadisticas.put("permisos", totalPermisos);
+        estadisticas.put("permisosLibres", permisos.availablePermits());
+        estadisticas.put("hilosEsperando", permisos.getQueueLength());
+        estadisticas.put("adquisiciones", total);
+        estadisticas.put("esperas", esperas.get());
+        estadisticas.put("esperaPromedioMs", total > 0 ? esperaAcumuladaMs.get() / total : 0);
+        return estadisticas;
+    }
+
+    private <T> T adquirido(int[] profundidad, Supplier<T> tarea, long inicio) {
+        adquisiciones.incrementAndGet();
+        esperaAcumuladaMs.addAndGet(System.currentTimeMillis() - inicio);
+        try {
+            return conPermiso(profundidad, tarea);
+        } finally {
+            permisos.release();
+        }
+    }
+
+    private static <T> T conPermiso(int[] profundidad, Supplier<T> tarea) {
+        profundidad[0]++;
+        try {
+            return tarea.get();
+        } finally {
+            profundidad[0]--;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+/**
+ * Pronóstico de una serie agregada (demanda sumada de los productos de una
+ * categoría o proveedor), con las métricas de validación del modelo que lo
+ * produjo. Lo genera SmartPredictorServiceImpl#pronosticarSerieAgregada y lo
+ * reparte PronosticoJerarquicoService entre los productos del grupo.
+ *
+ * @param algoritmo código del algoritmo entrenado sobre la serie agregada
+ * @param valores   demanda agregada pronosticada por período
+ * @param rmse      RMSE en validación (unidades del agregado)
+ * @param mae       MAE en validación (unidades del agregado)
+ * @param mape      MAPE en validación (%)
+ * @param confianza confianza derivada del MAPE
+ * @param detalle   explicación de la selección del algoritmo, o null
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public record PronosticoAgregado(String algoritmo, double[] valores, double rmse, double mae, double mape,
+        double confianza, String detalle) {
+}
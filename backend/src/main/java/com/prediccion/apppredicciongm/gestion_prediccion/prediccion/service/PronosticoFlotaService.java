@@ -0,0 +1,566 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IEjecucionFlotaRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IParticionFlotaRepositorio;
+import com.prediccion.apppredicciongm.models.EjecucionFlota;
+import com.prediccion.apppredicciongm.models.ParticionFlota;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pronóstico de toda la flota de productos, particionado y reanudable.
+ *
+ * - El catálogo (IDs ordenados) se divide en particiones de tamaño fijo que
+ *   se guardan con la ejecución; así una reanudación procesa exactamente los
+ *   mismos productos pendientes.
+ * - Las particiones se procesan en un pool de trabajadores; cada partición
+ *   corre con un permiso del presupuesto de conexiones compartido
+ *   (PresupuestoConexionesService), así que la flota, los lotes de alertas y
+ *   el resto del trabajo en segundo plano no dejan sin conexión a la web.
+ * - Los productos de una partición se entrenan sin transacción abierta; sus
+ *   predicciones se registran después en una sola transacción junto con el
+ *   punto de control. Si un registro falla, solo se repiten los registros,
+ *   cada uno en su propia transacción: nada se vuelve a entrenar (las
+ *   predicciones se actualizan por producto/algoritmo/horizonte, por lo que
+ *   repetir es idempotente).
+ * - Una ejecución EN_CURSO tras una caída o reinicio se reanuda desde las
+ *   particiones pendientes.
+ * - Con el pronóstico jerárquico habilitado, antes de procesar las
+ *   particiones se entrena un modelo por grupo (PronosticoJerarquicoService)
+ *   y los productos de bajo volumen solo persisten su parte del pronóstico
+ *   del grupo; los de alto volumen conservan su modelo propio.
+ *
+ * Configurable mediante application.properties (prediccion.ml.flota.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class PronosticoFlotaService {
+
+    /** Registros mínimos para intentar el pronóstico (igual que la solicitud por defecto). */
+    private static final int MINIMO_REGISTROS = 10;
+
+    private final ISmartPredictorService smartPredictor;
+    private final PronosticoJerarquicoService jerarquico;
+    private final IProductoRepositorio productoRepositorio;
+    private final IEjecucionFlotaRepositorio ejecucionRepositorio;
+    private final IParticionFlotaRepositorio particionRepositorio;
+    private final TransactionTemplate transaccion;
+    private final PresupuestoConexionesService presupuesto;
+
+    private final int hilos;
+    private final ExecutorService trabajadores;
+    private final ExecutorService coordinador;
+    private final AtomicReference<Progreso> enCurso = new AtomicReference<>();
+
+    @Value("${prediccion.ml.flota.tamano-particion:25}")
+    private int tamanoParticion;
+
+    @Value("${prediccion.ml.flota.horizonte:30}")
+    private int horizonte;
+
+    @Value("${prediccion.ml.flota.nocturno.enabled:true}")
+    private boolean nocturnoHabilitado;
+
+    @Value("${prediccion.ml.flota.reanudar-al-iniciar:true}")
+    private boolean reanudarAlIniciar;
+
+    public PronosticoFlotaService(
+            ISmartPredictorService smartPredictor,
+            PronosticoJerarquicoService jerarquico,
+            IProductoRepositorio productoRepositorio,
+            IEjecucionFlotaRepositorio ejecucionRepositorio,
+            IParticionFlotaRepositorio particionRepositorio,
+            PlatformTransactionManager transactionManager,
+            PresupuestoConexionesService presupuesto,
+            @Value("${prediccion.ml.flota.hilos:0}") int hilosConfigurados) {
+        this.smartPredictor = smartPredictor;
+        this.jerarquico = jerarquico;
+        this.productoRepositorio = productoRepositorio;
+        this.ejecucionRepositorio = ejecucionRepositorio;
+        this.particionRepositorio = particionRepositorio;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.presupuesto = presupuesto;
+        this.hilos = hilosConfigurados > 0 ? hilosConfigurados : presupuesto.permisos();
+
+        AtomicInteger contador = new AtomicInteger();
+        this.trabajadores = Executors.newFixedThreadPool(hilos, tarea -> {
+            Thread hilo = new Thread(tarea, "flota-ml-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.coordinador = Executors.newSingleThreadExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "flota-coordinador");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    /**
+     * Progreso en memoria de la ejecución activa en este proceso.
+     */
+    private static final class Progreso {
+        final Long ejecucionId;
+        final int horizonte;
+        final int totalProductos;
+        final int totalParticiones;
+        final int productosPrevios;
+        final int particionesPrevias;
+        final long inicioSesion = System.currentTimeMillis();
+        final AtomicInteger procesados = new AtomicInteger();
+        final AtomicInteger omitidos = new AtomicInteger();
+        final AtomicInteger fallidos = new AtomicInteger();
+        final AtomicInteger particiones = new AtomicInteger();
+        final AtomicInteger desagregados = new AtomicInteger();
+        volatile PronosticoJerarquicoService.Plan plan = PronosticoJerarquicoService.Plan.VACIO;
+        volatile boolean cancelado;
+
+        Progreso(EjecucionFlota ejecucion) {
+            this.ejecucionId = ejecucion.getEjecucionId();
+            this.horizonte = ejecucion.getHorizonte();
+            this.totalProductos = ejecucion.getTotalProductos();
+            this.totalParticiones = ejecucion.getTotalParticiones();
+            this.productosPrevios = ejecucion.getProductosProcesados() + ejecucion.getProductosOmitidos()
+                    + ejecucion.getProductosFallidos();
+            this.particionesPrevias = ejecucion.getParticionesCompletadas();
+        }
+
+        int productosSesion() {
+            return procesados.get() + omitidos.get() + fallidos.get();
+        }
+    }
+
+    /**
+     * @param desagregados procesados con el pronóstico de su grupo (incluidos en procesados)
+     */
+    private record ResumenParticion(int procesados, int omitidos, int fallidos, int desagregados) {
+    }
+
+    /**
+     * Predicción de un producto lista para registrar: entrenada por el
+     * producto o, si asignacion no es null, su parte del pronóstico del grupo.
+     */
+    private record RegistroPendiente(int productoId, PrediccionCalculada calculada,
+            PronosticoJerarquicoService.Asignacion asignacion) {
+    }
+
+    /**
+     * Productos de una partición ya entrenados, a falta de registrar.
+     */
+    private record ParticionEntrenada(List<RegistroPendiente> pendientes, int omitidos, int fallidos) {
+    }
+
+    /**
+     * Cron job nocturno: pronóstico de toda la flota.
+     */
+    @Scheduled(cron = "${prediccion.ml.flota.cron:0 0 2 * * ?}")
+    public void ejecutarNocturno() {
+        if (!nocturnoHabilitado) {
+            return;
+        }
+        log.info("[FLOTA] Iniciando pronóstico nocturno de la flota...");
+        iniciar("NOCTURNO");
+    }
+
+    /**
+     * Reanuda al arrancar una ejecución que quedó EN_CURSO.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reanudarPendiente() {
+        if (!reanudarAlIniciar) {
+            return;
+        }
+        try {
+            ejecucionRepositorio.findFirstByEstadoOrderByFechaInicioDesc(EjecucionFlota.EN_CURSO)
+                    .ifPresent(ejecucion -> {
+                        log.info("[FLOTA] Reanudando ejecución {} interrumpida ({}/{} particiones)",
+                                ejecucion.getEjecucionId(), ejecucion.getParticionesCompletadas(),
+                                ejecucion.getTotalParticiones());
+                        lanzar(ejecucion);
+                    });
+        } catch (Exception e) {
+            log.error("[FLOTA] No se pudo reanudar la ejecución pendiente: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Inicia una ejecución de flota, o reanuda la que esté EN_CURSO. Si ya hay
+     * una corriendo en este proceso, solo retorna su estado.
+     *
+     * @param origen MANUAL o NOCTURNO
+     * @return estado de la ejecución
+     */
+    public synchronized Map<String, Object> iniciar(String origen) {
+        if (enCurso.get() != null) {
+            log.info("[FLOTA] Ya hay una ejecución en curso, se retorna su estado");
+            return obtenerEstado();
+        }
+
+        Optional<EjecucionFlota> pendiente = ejecucionRepositorio
+                .findFirstByEstadoOrderByFechaInicioDesc(EjecucionFlota.EN_CURSO);
+        EjecucionFlota ejecucion = pendiente.isPresent() ? pendiente.get() : crearEjecucion(origen);
+        lanzar(ejecucion);
+        return obtenerEstado();
+    }
+
+    /**
+     * Solicita cancelar la ejecución en curso. Las particiones ya iniciadas
+     * terminan y se confirman; no se inician nuevas.
+     *
+     * @return true si había una ejecución en curso
+     */
+    public boolean cancelar() {
+        Progreso progreso = enCurso.get();
+        if (progreso == null) {
+            return false;
+        }
+        progreso.cancelado = true;
+        log.info("[FLOTA] Cancelación solicitada para la ejecución {}", progreso.ejecucionId);
+        return true;
+    }
+
+    /**
+     * Estado de la ejecución activa (con rendimiento y ETA) o, si no hay, de la
+     * última registrada.
+     */
+    public Map<String, Object> obtenerEstado() {
+        Map<String, Object> estado = new LinkedHashMap<>();
+        Progreso progreso = enCurso.get();
+        if (progreso != null) {
+            int productosSesion = progreso.productosSesion();
+            int terminados = progreso.productosPrevios + productosSesion;
+            double segundos = Math.max(1, System.currentTimeMillis() - progreso.inicioSesion) / 1000.0;
+            double porSegundo = productosSesion / segundos;
+            int restantes = Math.max(0, progreso.totalProductos - terminados);
+
+            estado.put("ejecucionId", progreso.ejecucionId);
+            estado.put("estado", progreso.cancelado ? "CANCELANDO" : EjecucionFlota.EN_CURSO);
+            estado.put("totalProductos", progreso.totalProductos);
+            estado.put("productosTerminados", terminados);
+            estado.put("productosProcesadosSesion", progreso.procesados.get());
+            estado.put("productosOmitidosSesion", progreso.omitidos.get());
+            estado.put("productosFallidosSesion", progreso.fallidos.get());
+            estado.put("particionesCompletadas", progreso.particionesPrevias + progreso.particiones.get());
+            estado.put("totalParticiones", progreso.totalParticiones);
+            estado.put("porcentaje", progreso.totalProductos > 0
+                    ? Math.round(terminados * 1000.0 / progreso.totalProductos) / 10.0 : 100.0);
+            estado.put("productosPorSegundo", Math.round(porSegundo * 100.0) / 100.0);
+            estado.put("etaSegundos", porSegundo > 0 ? Math.round(restantes / porSegundo) : null);
+            estado.put("hilos", hilos);
+            if (jerarquico.estaHabilitado()) {
+                estado.put("modelosGrupo", progreso.plan.modelosGrupo());
+                estado.put("productosDesagregadosPlan", progreso.plan.asignaciones().size());
+                estado.put("productosDesagregadosSesion", progreso.desagregados.get());
+            }
+            return estado;
+        }
+
+        Optional<EjecucionFlota> ultima = ejecucionRepositorio.findFirstByOrderByFechaInicioDesc();
+        if (ultima.isEmpty()) {
+            estado.put("estado", "SIN_EJECUCIONES");
+            return estado;
+        }
+        EjecucionFlota ejecucion = ultima.get();
+        estado.put("ejecucionId", ejecucion.getEjecucionId());
+        estado.put("estado", ejecucion.getEstado());
+        estado.put("origen", ejecucion.getOrigen());
+        estado.put("totalProductos", ejecucion.getTotalProductos());
+        estado.put("productosProcesados", ejecucion.getProductosProcesados());
+        estado.put("productosOmitidos", ejecucion.getProductosOmitidos());
+        estado.put("productosFallidos", ejecucion.getProductosFallidos());
+        estado.put("particionesCompletadas", ejecucion.getParticionesCompletadas());
+        estado.put("totalParticiones", ejecucion.getTotalParticiones());
+        estado.put("fechaInicio", ejecucion.getFechaInicio());
+        estado.put("fechaFin", ejecucion.getFechaFin());
+        return estado;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        // Una ejecución interrumpida queda EN_CURSO y se reanuda en el próximo arranque
+        coordinador.shutdownNow();
+        trabajadores.shutdown();
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private EjecucionFlota crearEjecucion(String origen) {
+        List<Integer> ids = productoRepositorio.findAllIds();
+        int tamano = Math.max(1, tamanoParticion);
+        int numParticiones = (ids.size() + tamano - 1) / tamano;
+
+        EjecucionFlota ejecucion = transaccion.execute(status -> {
+            EjecucionFlota nueva = ejecucionRepositorio.save(EjecucionFlota.builder()
+                    .estado(EjecucionFlota.EN_CURSO)
+                    .origen(origen)
+                    .horizonte(horizonte)
+                    .tamanoParticion(tamano)
+                    .totalProductos(ids.size())
+                    .totalParticiones(numParticiones)
+                    .particionesCompletadas(0)
+                    .productosProcesados(0)
+                    .productosOmitidos(0)
+                    .productosFallidos(0)
+                    .fechaInicio(LocalDateTime.now())
+                    .fechaActualizacion(LocalDateTime.now())
+                    .build());
+
+            List<ParticionFlota> particiones = new ArrayList<>(numParticiones);
+            for (int indice = 0; indice < numParticiones; indice++) {
+                int desde = indice * tamano;
+                int hasta = Math.min(ids.size(), desde + tamano);
+                particiones.add(ParticionFlota.builder()
+                        .ejecucionId(nueva.getEjecucionId())
+                        .indice(indice)
+                        .productoIds(ids.subList(desde, hasta).stream().mapToInt(Integer::intValue).toArray())
+                        .estado(ParticionFlota.PENDIENTE)
+                        .build());
+            }
+            particionRepositorio.saveAll(particiones);
+            return nueva;
+        });
+
+        log.info("[FLOTA] Ejecución {} creada: {} productos en {} particiones de {}",
+                ejecucion.getEjecucionId(), ids.size(), numParticiones, tamano);
+        return ejecucion;
+    }
+
+    private void lanzar(EjecucionFlota ejecucion) {
+        Progreso progreso = new Progreso(ejecucion);
+        if (!enCurso.compareAndSet(null, progreso)) {
+            return;
+        }
+        coordinador.execute(() -> {
+            try {
+                ejecutar(progreso);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.info("[FLOTA] Ejecución {} interrumpida, se reanudará en el próximo arranque",
+                        progreso.ejecucionId);
+            } catch (Exception e) {
+                log.error("[FLOTA] Error en la ejecución {}: {}", progreso.ejecucionId, e.getMessage(), e);
+            } finally {
+                enCurso.set(null);
+            }
+        });
+    }
+
+    private void ejecutar(Progreso progreso) throws InterruptedException {
+        List<ParticionFlota> pendientes = presupuesto.ejecutar(() -> particionRepositorio
+                .findByEjecucionIdAndEstadoOrderByIndiceAsc(progreso.ejecucionId, ParticionFlota.PENDIENTE));
+        log.info("[FLOTA] Ejecución {}: {} particiones pendientes, {} hilos",
+                progreso.ejecucionId, pendientes.size(), hilos);
+
+        if (jerarquico.estaHabilitado() && !pendientes.isEmpty()) {
+            try {
+                progreso.plan = jerarquico.planificar(progreso.horizonte);
+            } catch (RuntimeException e) {
+                log.warn("[FLOTA] Plan jerárquico no disponible ({}), todos los productos usan modelo propio",
+                        e.getMessage());
+            }
+        }
+
+        Semaphore permisos = new Semaphore(hilos);
+        for (ParticionFlota particion : pendientes) {
+            if (progreso.cancelado) {
+                break;
+            }
+            permisos.acquire();
+            trabajadores.execute(() -> {
+                try {
+                    presupuesto.ejecutar(() -> procesarParticion(progreso, particion));
+                } catch (Exception e) {
+                    // La partición queda PENDIENTE y se reintenta al reanudar
+                    log.error("[FLOTA] Partición {} sin confirmar: {}", particion.getIndice(), e.getMessage());
+                } finally {
+                    permisos.release();
+                }
+            });
+        }
+        // Esperar a que terminen las particiones en vuelo
+        permisos.acquire(hilos);
+        permisos.release(hilos);
+
+        presupuesto.ejecutar(() -> finalizar(progreso));
+    }
+
+    private void procesarParticion(Progreso progreso, ParticionFlota particion) {
+        long inicio = System.currentTimeMillis();
+        ParticionEntrenada entrenada = entrenarProductos(particion, progreso);
+        ResumenParticion resumen;
+        try {
+            resumen = transaccion.execute(status -> {
+                ResumenParticion r = registrarProductos(entrenada, progreso.horizonte, true);
+                confirmarParticion(particion, r, System.currentTimeMillis() - inicio);
+                return r;
+            });
+        } catch (RuntimeException e) {
+            log.warn("[FLOTA] Partición {} revertida ({}), se repite el registro producto a producto",
+                    particion.getIndice(), e.getMessage());
+            ResumenParticion r = registrarProductos(entrenada, progreso.horizonte, false);
+            transaccion.executeWithoutResult(
+                    status -> confirmarParticion(particion, r, System.currentTimeMillis() - inicio));
+            resumen = r;
+        }
+
+        progreso.procesados.addAndGet(resumen.procesados());
+        progreso.omitidos.addAndGet(resumen.omitidos());
+        progreso.fallidos.addAndGet(resumen.fallidos());
+        progreso.desagregados.addAndGet(resumen.desagregados());
+        int completadas = progreso.particionesPrevias + progreso.particiones.incrementAndGet();
+
+        long segundos = Math.max(1, (System.currentTimeMillis() - progreso.inicioSesion) / 1000);
+        int terminados = progreso.productosPrevios + progreso.productosSesion();
+        double porSegundo = (double) progreso.productosSesion() / segundos;
+        log.info("[FLOTA] Partición {}/{} confirmada en {}ms ({} ok, {} omitidos, {} fallidos) - "
+                        + "{} productos/s, ETA {}s",
+                completadas, progreso.totalParticiones, System.currentTimeMillis() - inicio,
+                resumen.procesados(), resumen.omitidos(), resumen.fallidos(),
+                String.format("%.2f", porSegundo),
+                porSegundo > 0 ? Math.round((progreso.totalProductos - terminados) / porSegundo) : "-");
+    }
+
+    /**
+     * Entrena los productos de una partición, sin transacción abierta (cada
+     * uno lee su contexto en una de solo lectura). Los que están en el plan
+     * jerárquico no se entrenan: registran su parte del pronóstico del grupo.
+     */
+    private ParticionEntrenada entrenarProductos(ParticionFlota particion, Progreso progreso) {
+        Map<Integer, PronosticoJerarquicoService.Asignacion> asignaciones = progreso.plan.asignaciones();
+        List<RegistroPendiente> pendientes = new ArrayList<>(particion.getProductoIds().length);
+        int omitidos = 0;
+        int fallidos = 0;
+
+        for (int productoId : particion.getProductoIds()) {
+            Long id = (long) productoId;
+            PronosticoJerarquicoService.Asignacion asignacion = asignaciones.get(productoId);
+            if (asignacion != null) {
+                pendientes.add(new RegistroPendiente(productoId, null, asignacion));
+                continue;
+            }
+            if (!smartPredictor.validarDatosHistoricosProducto(id, MINIMO_REGISTROS)) {
+                omitidos++;
+                continue;
+            }
+            try {
+                SmartPrediccionRequest request = new SmartPrediccionRequest();
+                request.setIdProducto(id);
+                request.setAlgoritmoSeleccionado("AUTO");
+                request.setHorizonteTiempo(progreso.horizonte);
+                request.setDetectarEstacionalidad(true);
+                request.setGenerarOrdenCompra(true);
+                request.setEjecucionEnLote(true);
+
+                pendientes.add(new RegistroPendiente(productoId, smartPredictor.calcularPrediccion(request), null));
+            } catch (RuntimeException e) {
+                fallidos++;
+                log.warn("[FLOTA] Error procesando producto {}: {}", productoId, e.getMessage());
+            }
+        }
+        return new ParticionEntrenada(pendientes, omitidos, fallidos);
+    }
+
+    /**
+     * Registra las predicciones ya entrenadas de una partición.
+     *
+     * @param abortarAlFallar dentro de la transacción de la partición un fallo
+     *                        la deja marcada para rollback, así que se aborta
+     *                        de inmediato para repetir el registro producto a
+     *                        producto, cada uno en su propia transacción
+     */
+    private ResumenParticion registrarProductos(ParticionEntrenada entrenada, int horizonteDias,
+            boolean abortarAlFallar) {
+        int procesados = 0;
+        int fallidos = entrenada.fallidos();
+        int desagregados = 0;
+
+        for (RegistroPendiente pendiente : entrenada.pendientes()) {
+            try {
+                if (pendiente.asignacion() != null) {
+                    jerarquico.registrar(pendiente.asignacion(), horizonteDias);
+                    desagregados++;
+                } else {
+                    smartPredictor.registrarPrediccion(pendiente.calculada());
+                }
+                procesados++;
+            } catch (RuntimeException e) {
+                if (abortarAlFallar) {
+                    throw e;
+                }
+                fallidos++;
+                log.warn("[FLOTA] Error registrando pronóstico del producto {}: {}",
+                        pendiente.productoId(), e.getMessage());
+            }
+        }
+        return new ResumenParticion(procesados, entrenada.omitidos(), fallidos, desagregados);
+    }
+
+    private void confirmarParticion(ParticionFlota particion, ResumenParticion resumen, long duracionMs) {
+        particion.setEstado(ParticionFlota.COMPLETADA);
+        particion.setProcesados(resumen.procesados());
+        particion.setOmitidos(resumen.omitidos());
+        particion.setFallidos(resumen.fallidos());
+        particion.setDuracionMs(duracionMs);
+        particion.setFechaFin(LocalDateTime.now());
+        particionRepositorio.save(particion);
+        ejecucionRepositorio.acumularParticion(particion.getEjecucionId(), resumen.procesados(),
+                resumen.omitidos(), resumen.fallidos(), LocalDateTime.now());
+    }
+
+    private void finalizar(Progreso progreso) {
+        boolean quedanPendientes = !particionRepositorio
+                .findByEjecucionIdAndEstadoOrderByIndiceAsc(progreso.ejecucionId, ParticionFlota.PENDIENTE)
+                .isEmpty();
+        String estadoFinal;
+        if (!quedanPendientes) {
+            estadoFinal = EjecucionFlota.COMPLETADA;
+        } else if (progreso.cancelado) {
+            estadoFinal = EjecucionFlota.CANCELADA;
+        } else {
+            // Particiones sin confirmar: se reintentan en la próxima ejecución
+            log.warn("[FLOTA] Ejecución {} queda EN_CURSO con particiones pendientes", progreso.ejecucionId);
+            return;
+        }
+
+        transaccion.executeWithoutResult(status -> ejecucionRepositorio.findById(progreso.ejecucionId)
+                .ifPresent(ejecucion -> {
+                    ejecucion.setEstado(estadoFinal);
+                    ejecucion.setFechaFin(LocalDateTime.now());
+                    ejecucion.setFechaActualizacion(LocalDateTime.now());
+                    ejecucionRepositorio.save(ejecucion);
+                }));
+
+        long segundos = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(
+                System.currentTimeMillis() - progreso.inicioSesion));
+        log.info("[FLOTA] Ejecución {} {}: {} procesados ({} desagregados de {} modelos de grupo), {} omitidos, "
+                        + "{} fallidos en {}s ({} productos/s)",
+                progreso.ejecucionId, estadoFinal, progreso.procesados.get(), progreso.desagregados.get(),
+                progreso.plan.modelosGrupo(), progreso.omitidos.get(), progreso.fallidos.get(), segundos,
+                String.format("%.2f", (double) progreso.productosSesion() / segundos));
+    }
+}
@@ -0,0 +1,349 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pronóstico jerárquico top-down para el pronóstico de flota.
+ *
+ * En lugar de entrenar un modelo por producto, se entrena uno por grupo
+ * (categoría o proveedor principal) sobre la demanda diaria sumada de sus
+ * productos, y el pronóstico del grupo se reparte entre ellos según su
+ * participación en la demanda del grupo durante la ventana reciente.
+ *
+ * - Los productos de alto volumen (demanda media diaria en la ventana igual o
+ *   superior al umbral) conservan su modelo propio: su patrón justifica el
+ *   entrenamiento y no se diluye en el agregado.
+ * - Los productos sin demanda en la ventana, sin grupo, o de grupos con menos
+ *   de min-productos candidatos, siguen el camino por producto.
+ * - Si el modelo de un grupo falla, sus productos siguen el camino por
+ *   producto.
+ * - La serie del grupo tiene la misma base temporal que la de un producto:
+ *   los días en que algún producto del grupo registró demanda, y la serie
+ *   diaria completa solo para Croston-TSB. Así un paso del pronóstico del
+ *   grupo equivale a un paso del modelo propio que reemplaza.
+ *
+ * El plan se calcula una vez al iniciar (o reanudar) una ejecución de flota
+ * y solo vive en memoria. Las series se leen con un permiso del presupuesto
+ * de conexiones; los modelos de grupo se entrenan después, sin él, en
+ * paralelo (prediccion.ml.jerarquico.hilos).
+ *
+ * Deshabilitado por defecto: cambia el pronóstico de flota de todos los
+ * productos de bajo volumen.
+ *
+ * Configurable mediante application.properties (prediccion.ml.jerarquico.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class PronosticoJerarquicoService {
+
+    /** Días mínimos de la serie agregada para entrenar el modelo del grupo. */
+    private static final int MINIMO_DIAS_AGREGADO = 10;
+
+    /**
+     * Nivel de la jerarquía por el que se agrupan los productos.
+     */
+    public enum Nivel {
+        CATEGORIA,
+        PROVEEDOR
+    }
+
+    /**
+     * Parte de un pronóstico de grupo asignada a un producto.
+     *
+     * @param productoId    ID del producto
+     * @param grupo         descripción del grupo (para la razón de selección)
+     * @param pronostico    pronóstico agregado del grupo
+     * @param participacion fracción de la demanda del grupo en la ventana
+     */
+    public record Asignacion(int productoId, String grupo, PronosticoAgregado pronostico, double participacion) {
+    }
+
+    /**
+     * Resultado de la planificación: productos desagregados y conteos.
+     *
+     * @param asignaciones         productoId → asignación (solo productos desagregados)
+     * @param modelosGrupo         modelos entrenados sobre series agregadas
+     * @param productosIndividuales productos de alto volumen que conservan su modelo
+     * @param duracionMs           tiempo de planificación (incluye entrenamiento)
+     */
+    public record Plan(Map<Integer, Asignacion> asignaciones, int modelosGrupo, int productosIndividuales,
+            long duracionMs) {
+
+        public static final Plan VACIO = new Plan(Map.of(), 0, 0, 0);
+    }
+
+    private final SmartPredictorServiceImpl smartPredictor;
+    private final IProductoRepositorio productoRepositorio;
+    private final AlmacenSeriesDemandaService almacenSeries;
+    private final PresupuestoConexionesService presupuesto;
+
+    @Value("${prediccion.ml.jerarquico.enabled:false}")
+    private boolean habilitado;
+
+    @Value("${prediccion.ml.jerarquico.nivel:CATEGORIA}")
+    private Nivel nivel;
+
+    /** Demanda media diaria a partir de la cual un producto conserva su modelo propio. */
+    @Value("${prediccion.ml.jerarquico.umbral-demanda-diaria:5.0}")
+    private double umbralDemandaDiaria;
+
+    @Value("${prediccion.ml.jerarquico.ventana-dias:90}")
+    private int ventanaDias;
+
+    @Value("${prediccion.ml.jerarquico.min-productos:3}")
+    private int minProductos;
+
+    /** Hilos para entrenar los modelos de grupo (0 = procesadores disponibles). */
+    @Value("${prediccion.ml.jerarquico.hilos:0}")
+    private int hilosConfigurados;
+
+    /** Grupo con candidatos suficientes, pendiente de entrenar su modelo. */
+    private record GrupoCandidato(String descripcion, List<Long> candidatos, List<Double> demandaVentana,
+            double totalVentana, SerieAgregada serie) {
+    }
+
+    /**
+     * Demanda sumada de un grupo.
+     *
+     * @param registrados demanda de los días en que algún producto registró
+     * @param diaria      demanda de todos los días (sin registro = 0)
+     */
+    private record SerieAgregada(double[] registrados, double[] diaria) {
+    }
+
+    public boolean estaHabilitado() {
+        return habilitado;
+    }
+
+    /**
+     * Agrupa el catálogo, separa los productos de alto volumen y entrena en
+     * paralelo un modelo por grupo sobre su demanda agregada.
+     *
+     * @param horizonte días a pronosticar
+     * @return plan con las asignaciones de los productos desagregados
+     */
+    public Plan planificar(int horizonte) {
+        long inicio = System.currentTimeMillis();
+        int[] individuales = new int[1];
+        List<GrupoCandidato> pendientes = presupuesto.ejecutar(() -> agruparCandidatos(individuales));
+
+        Map<Integer, Asignacion> asignaciones = new HashMap<>();
+        int modelosGrupo = 0;
+        List<Future<PronosticoAgregado>> pronosticos = entrenarGrupos(pendientes, horizonte);
+        for (int g = 0; g < pendientes.size(); g++) {
+            GrupoCandidato grupo = pendientes.get(g);
+            PronosticoAgregado pronostico;
+            try {
+                pronostico = pronosticos.get(g).get();
+            } catch (ExecutionException e) {
+                log.warn("[JERARQUICO] Modelo de {} falló ({}), sus productos usan modelo propio",
+                        grupo.descripcion(), e.getCause().getMessage());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Planificación jerárquica interrumpida", e);
+            }
+            modelosGrupo++;
+
+            for (int i = 0; i < grupo.candidatos().size(); i++) {
+                int productoId = Math.toIntExact(grupo.candidatos().get(i));
+                asignaciones.put(productoId, new Asignacion(productoId, grupo.descripcion(), pronostico,
+                        grupo.demandaVentana().get(i) / grupo.totalVentana()));
+            }
+            log.debug("[JERARQUICO] {}: {} sobre {} días registrados", grupo.descripcion(), pronostico.algoritmo(),
+                    grupo.serie().registrados().length);
+        }
+
+        Plan plan = new Plan(asignaciones, modelosGrupo, individuales[0], System.currentTimeMillis() - inicio);
+        log.info("[JERARQUICO] Plan por {}: {} modelos de grupo para {} productos, {} productos de alto volumen "
+                        + "con modelo propio ({}ms)",
+                nivel, plan.modelosGrupo(), asignaciones.size(), individuales[0], plan.duracionMs());
+        return plan;
+    }
+
+    /**
+     * Agrupa el catálogo y arma la serie agregada de cada grupo con
+     * candidatos suficientes. Cuenta en individuales[0] los productos de alto
+     * volumen.
+     */
+    private List<GrupoCandidato> agruparCandidatos(int[] individuales) {
+        Map<Integer, List<Long>> grupos = new LinkedHashMap<>();
+        for (Object[] fila : productoRepositorio.findIdsConCategoriaYProveedor()) {
+            Integer grupo = (Integer) (nivel == Nivel.CATEGORIA ? fila[1] : fila[2]);
+            if (grupo != null) {
+                grupos.computeIfAbsent(grupo, k -> new ArrayList<>()).add(((Integer) fila[0]).longValue());
+            }
+        }
+
+        List<Long> todos = new ArrayList<>();
+        grupos.values().forEach(todos::addAll);
+        Map<Long, AlmacenSeriesDemandaService.SerieDemanda> series = almacenSeries.obtenerVarios(todos);
+
+        // Fecha de referencia común: último día con demanda en todo el catálogo
+        LocalDate fin = null;
+        for (AlmacenSeriesDemandaService.SerieDemanda serie : series.values()) {
+            if (!serie.estaVacia()) {
+                LocalDate ultimo = serie.fechaInicio().plusDays(serie.numDias() - 1L);
+                fin = fin == null || ultimo.isAfter(fin) ? ultimo : fin;
+            }
+        }
+        if (fin == null) {
+            return List.of();
+        }
+        int ventana = Math.max(1, ventanaDias);
+        LocalDate inicioVentana = fin.minusDays(ventana - 1L);
+
+        List<GrupoCandidato> pendientes = new ArrayList<>();
+        for (Map.Entry<Integer, List<Long>> grupo : grupos.entrySet()) {
+            List<Long> candidatos = new ArrayList<>();
+            List<Double> demandaVentana = new ArrayList<>();
+            double totalVentana = 0.0;
+
+            for (Long productoId : grupo.getValue()) {
+                AlmacenSeriesDemandaService.SerieDemanda serie = series.get(productoId);
+                if (serie == null || serie.estaVacia()) {
+                    continue;
+                }
+                double[] suma = new double[1];
+                serie.paraCadaRegistro((fecha, cantidad) -> {
+                    if (!fecha.isBefore(inicioVentana)) {
+                        suma[0] += cantidad;
+                    }
+                });
+                if (suma[0] <= 0) {
+                    continue;
+                }
+                if (suma[0] / ventana >= umbralDemandaDiaria) {
+                    individuales[0]++;
+                    continue;
+                }
+                candidatos.add(productoId);
+                demandaVentana.add(suma[0]);
+                totalVentana += suma[0];
+            }
+
+            if (candidatos.size() < Math.max(2, minProductos)) {
+                continue;
+            }
+
+            SerieAgregada agregada = agregar(candidatos, series, fin);
+            if (agregada.registrados().length < MINIMO_DIAS_AGREGADO) {
+                continue;
+            }
+
+            String descripcion = String.format("%s %d (%d productos)",
+                    nivel == Nivel.CATEGORIA ? "la categoría" : "el proveedor", grupo.getKey(), candidatos.size());
+            pendientes.add(new GrupoCandidato(descripcion, candidatos, demandaVentana, totalVentana, agregada));
+        }
+        return pendientes;
+    }
+
+    /**
+     * Entrena los modelos de grupo en paralelo. El entrenamiento no consulta
+     * la base de datos; el pool vive solo durante la planificación.
+     */
+    private List<Future<PronosticoAgregado>> entrenarGrupos(List<GrupoCandidato> grupos, int horizonte) {
+        if (grupos.isEmpty()) {
+            return List.of();
+        }
+        int hilos = hilosConfigurados > 0 ? hilosConfigurados : Runtime.getRuntime().availableProcessors();
+        AtomicInteger contador = new AtomicInteger();
+        ExecutorService entrenamiento = Executors.newFixedThreadPool(Math.min(hilos, grupos.size()), tarea -> {
+            Thread hilo = new Thread(tarea, "jerarquico-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        try {
+            List<Future<PronosticoAgregado>> pronosticos = new ArrayList<>(grupos.size());
+            for (GrupoCandidato grupo : grupos) {
+                pronosticos.add(entrenamiento.submit(() -> smartPredictor.pronosticarSerieAgregada(
+                        grupo.serie().registrados(), grupo.serie().diaria(), horizonte)));
+            }
+            return pronosticos;
+        } finally {
+            // Las tareas enviadas terminan; el coordinador espera sus futuros
+            entrenamiento.shutdown();
+        }
+    }
+
+    /**
+     * Persiste la predicción desagregada de un producto del plan.
+     *
+     * @param asignacion    asignación del producto
+     * @param horizonteDias horizonte de la ejecución
+     * @return respuesta con la predicción persistida
+     */
+    public SmartPrediccionResponse registrar(Asignacion asignacion, int horizonteDias) {
+        SmartPrediccionRequest request = new SmartPrediccionRequest();
+        request.setIdProducto((long) asignacion.productoId());
+        request.setAlgoritmoSeleccionado("AUTO");
+        request.setHorizonteTiempo(horizonteDias);
+        request.setDetectarEstacionalidad(true);
+        request.setGenerarOrdenCompra(true);
+
+        return smartPredictor.registrarPrediccionDesagregada(request, asignacion.pronostico(),
+                asignacion.participacion(), asignacion.grupo());
+    }
+
+    /**
+     * Demanda sumada de los productos, desde el primer registro del grupo
+     * hasta la fecha de referencia: por día registrado (como la serie de un
+     * producto) y por día calendario (días sin registro valen 0).
+     */
+    private SerieAgregada agregar(List<Long> productoIds, Map<Long, AlmacenSeriesDemandaService.SerieDemanda> series,
+            LocalDate fin) {
+        LocalDate primerDia = fin;
+        for (Long productoId : productoIds) {
+            LocalDate fechaInicio = series.get(productoId).fechaInicio();
+            if (fechaInicio.isBefore(primerDia)) {
+                primerDia = fechaInicio;
+            }
+        }
+
+        LocalDate origen = primerDia;
+        double[] diaria = new double[(int) ChronoUnit.DAYS.between(origen, fin) + 1];
+        BitSet registrados = new BitSet(diaria.length);
+        for (Long productoId : productoIds) {
+            series.get(productoId).paraCadaRegistro((fecha, cantidad) -> {
+                if (!fecha.isAfter(fin)) {
+                    int dia = (int) ChronoUnit.DAYS.between(origen, fecha);
+                    diaria[dia] += cantidad;
+                    registrados.set(dia);
+                }
+            });
+        }
+
+        double[] valores = new double[registrados.cardinality()];
+        int i = 0;
+        for (int dia = registrados.nextSetBit(0); dia >= 0; dia = registrados.nextSetBit(dia + 1)) {
+            valores[i++] = diaria[dia];
+        }
+        return new SerieAgregada(valores, diaria);
+    }
+}
@@ -0,0 +1,362 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+/**
+ * Regresión lineal sobre lags (intercepto + lag1..lagN) resuelta sobre
+ * arreglos primitivos, sin DataFrame ni matrices de Smile.
+ *
+ * - {@link #ajustar}: mínimos cuadrados por QR (Householder) sobre un prefijo
+ *   de la serie; mismos coeficientes que OLS.fit de Smile.
+ * - {@link #actualizar}: incorpora una nueva observación en O(N²) con
+ *   mínimos cuadrados recursivos (RLS), sin reajustar.
+ * - {@link #predecirRecursivo}: pronóstico multi-paso sobre un buffer
+ *   circular de lags.
+ *
+ * El orden de las columnas es el del modelo ARIMA de SmartPredictorServiceImpl:
+ * lag1 es el valor más antiguo de la ventana y lagN el más reciente.
+ *
+ * Una vez ajustado, predecirRecursivo no modifica el estado y puede llamarse
+ * desde varios hilos (el modelo se comparte vía ModeloEntrenadoCacheService);
+ * actualizar no.
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+public final class RegresionLagsIncremental {
+
+    /** Regularización mínima para que X'X sea invertible con series planas. */
+    private static final double REGULARIZACION = 1e-6;
+
+    /** |R_kk| relativo por debajo del cual el diseño se considera de rango deficiente. */
+    private static final double TOLERANCIA_RANGO = 1e-10;
+
+    private final int numLags;
+    private final int dimension;
+
+    /** Coeficientes [intercepto, lag1..lagN]. */
+    private final double[] theta;
+    /** Inversa de X'X (dimension x dimension, fila mayor). */
+    private final double[] p;
+
+    private final double[] x;
+    private final double[] px;
+
+    private int observaciones;
+
+    public RegresionLagsIncremental(int numLags) {
+        if (numLags < 1) {
+            throw new IllegalArgumentException("numLags debe ser al menos 1");
+        }
+        this.numLags = numLags;
+        this.dimension = numLags + 1;
+        this.theta = new double[dimension];
+        this.p = new double[dimension * dimension];
+        this.x = new double[dimension];
+        this.px = new double[dimension];
+    }
+
+    public int numLags() {
+        return numLags;
+    }
+
+    public int observaciones() {
+        return observaciones;
+    }
+
+    /**
+     * Ajuste por mínimos cuadrados con descomposición QR (Householder) usando
+     * las filas cuyo objetivo cae en serie[numLags .. hasta-1]. Deja además
+     * P = (X'X)⁻¹ = R⁻¹R⁻ᵀ listo para actualizaciones RLS.
+     *
+     * @param serie serie completa
+     * @param hasta longitud del prefijo de entrenamiento
+     * @throws IllegalStateException si hay menos filas que coeficientes o las
+     *                               columnas son colineales (p. ej. serie plana)
+     */
+    public void ajustar(double[] serie, int hasta) {
+        int m = hasta - numLags;
+        if (m < dimension) {
+            throw new IllegalStateException("Filas insuficientes para " + numLags + " lags: " + m);
+        }
+
+        // Diseño en orden columna mayor: a[j*m + i] = X[i][j]
+        double[] a = new double[dimension * m];
+        double[] y = new double[m];
+        for (int i = 0; i < m; i++) {
+            a[i] = 1.0;
+            y[i] = serie[i + numLags];
+        }
+        for (int lag = 0; lag < numLags; lag++) {
+            System.arraycopy(serie, lag, a, (lag + 1) * m, m);
+        }
+
+        double[] diagonal = new double[dimension];
+        double maximaDiagonal = 0.0;
+        for (int k = 0; k < dimension; k++) {
+            int columna = k * m;
+            double norma = 0.0;
+            for (int i = k; i < m; i++) {
+                norma += a[columna + i] * a[columna + i];
+            }
+            norma = Math.sqrt(norma);
+            if (norma <= TOLERANCIA_RANGO * maximaDiagonal || norma == 0.0) {
+                throw new IllegalStateException("Diseño de lags de rango deficiente (columna " + k + ")");
+            }
+            double alfa = a[columna + k] > 0 ? -norma : norma;
+            diagonal[k] = alfa;
+            maximaDiagonal = Math.max(maximaDiagonal, norma);
+
+            // v = x - alfa·e_k queda guardado en la propia columna k
+            a[columna + k] -= alfa;
+            double normaV = 0.0;
+            for (int i = k; i < m; i++) {
+                normaV += a[columna + i] * a[columna + i];
+            }
+
+            for (int j = k + 1; j < dimension; j++) {
+                reflejar(a, columna, a, j * m, k, m, normaV);
+            }
+            reflejar(a, columna, y, 0, k, m, normaV);
+        }
+
+        // R·theta = Qᵀy ; R[k][j] = a[j*m + k] (j > k), R[k][k] = diagonal[k]
+        for (int k = dimension - 1; k >= 0; k--) {
+            double suma = y[k];
+            for (int j = k + 1; j < dimension; j++) {
+                suma -= a[j * m + k] * theta[j];
+            }
+            theta[k] = suma / diagonal[k];
+        }
+
+        // R⁻¹ (triangular superior), luego P = R⁻¹·R⁻ᵀ
+        double[] rInversa = new double[dimension * dimension];
+        for (int k = dimension - 1; k >= 0; k--) {
+            rInversa[k * dimension + k] = 1.0 / diagonal[k];
+            for (int j = k + 1; j < dimension; j++) {
+                double suma = 0.0;
+                for (int l = k + 1; l <= j; l++) {
+                    suma += a[l * m + k] * rInversa[l * dimension + j];
+                }
+                rInversa[k * dimension + j] = -suma / diagonal[k];
+            }
+        }
+        for (int i = 0; i < dimension; i++) {
+            for (int j = i; j < dimension; j++) {
+                double suma = 0.0;
+                for (int l = j; l < dimension; l++) {
+                    suma += rInversa[i * dimension + l] * rInversa[j * dimension + l];
+                }
+                p[i * dimension + j] = suma;
+                p[j * dimension + i] = suma;
+            }
+        }
+        observaciones = m;
+    }
+
+    /**
+     * Ajuste inicial para RLS: QR como {@link #ajustar}; si el diseño es de
+     * rango deficiente recurre a las ecuaciones normales con una
+     * regularización mínima, para que el modelo siga siendo actualizable.
+     *
+     * @param serie serie completa
+     * @param hasta longitud del prefijo de entrenamiento
+     */
+    public void inicializar(double[] serie, int hasta) {
+        try {
+            ajustar(serie, hasta);
+        } catch (IllegalStateException e) {
+            inicializarRegularizado(serie, hasta);
+        }
+    }
+
+    private void inicializarRegularizado(double[] serie, int hasta) {
+        double[] xtx = new double[dimension * dimension];
+        double[] xty = new double[dimension];
+
+        for (int t = numLags; t < hasta; t++) {
+            cargarFila(serie, t);
+            for (int i = 0; i < dimension; i++) {
+                xty[i] += x[i] * serie[t];
+                for (int j = 0; j < dimension; j++) {
+                    xtx[i * dimension + j] += x[i] * x[j];
+                }
+            }
+        }
+        for (int i = 0; i < dimension; i++) {
+            xtx[i * dimension + i] += REGULARIZACION;
+        }
+
+        invertir(xtx, p, dimension);
+        for (int i = 0; i < dimension; i++) {
+            double suma = 0.0;
+            for (int j = 0; j < dimension; j++) {
+                suma += p[i * dimension + j] * xty[j];
+            }
+            theta[i] = suma;
+        }
+        observaciones = Math.max(0, hasta - numLags);
+    }
+
+    /**
+     * Incorpora la observación serie[t] (con sus N lags previos) en O(N²).
+     *
+     * @param serie serie completa
+     * @param t     índice del valor objetivo (t >= numLags)
+     */
+    public void actualizar(double[] serie, int t) {
+        cargarFila(serie, t);
+
+        // px = P x ; denominador = 1 + x' P x
+        double denominador = 1.0;
+        for (int i = 0; i < dimension; i++) {
+            double suma = 0.0;
+            int fila = i * dimension;
+            for (int j = 0; j < dimension; j++) {
+                suma += p[fila + j] * x[j];
+            }
+            px[i] = suma;
+            denominador += x[i] * suma;
+        }
+
+        double estimado = 0.0;
+        for (int i = 0; i < dimension; i++) {
+            estimado += theta[i] * x[i];
+        }
+        double error = serie[t] - estimado;
+        for (int i = 0; i < dimension; i++) {
+            theta[i] += px[i] * error / denominador;
+        }
+
+        // P = P - (P x)(P x)' / denominador (P simétrica)
+        for (int i = 0; i < dimension; i++) {
+            int fila = i * dimension;
+            double factor = px[i] / denominador;
+            for (int j = 0; j < dimension; j++) {
+                p[fila + j] -= factor * px[j];
+            }
+        }
+        observaciones++;
+    }
+
+    /**
+     * Predicción recursiva de varios pasos desde el origen indicado: cada
+     * valor predicho pasa a ser el lag más reciente del paso siguiente.
+     *
+     * La ventana es un buffer circular: cada paso sobrescribe el lag más
+     * antiguo y avanza la cabeza, sin desplazar el arreglo.
+     *
+     * @param serie  serie completa
+     * @param origen número de valores conocidos (se usan serie[origen-N .. origen-1])
+     * @param pasos  número de pasos a predecir
+     * @return predicciones (recortadas a cero)
+     */
+    public double[] predecirRecursivo(double[] serie, int origen, int pasos) {
+        double[] ventana = new double[numLags];
+        System.arraycopy(serie, origen - numLags, ventana, 0, numLags);
+        int cabeza = 0; // posición del lag1 (el más antiguo)
+
+        double[] predicciones = new double[pasos];
+        for (int i = 0; i < pasos; i++) {
+            double suma = theta[0];
+            int coeficiente = 1;
+            for (int j = cabeza; j < numLags; j++) {
+                suma += theta[coeficiente++] * ventana[j];
+            }
+            for (int j = 0; j < cabeza; j++) {
+                suma += theta[coeficiente++] * ventana[j];
+            }
+            predicciones[i] = Math.max(0, suma);
+
+            ventana[cabeza] = predicciones[i];
+            cabeza = cabeza + 1 == numLags ? 0 : cabeza + 1;
+        }
+        return predicciones;
+    }
+
+    public double intercepto() {
+        return theta[0];
+    }
+
+    /**
+     * Coeficientes de lag1..lagN (sin el intercepto).
+     */
+    public double[] coeficientes() {
+        double[] coeficientes = new double[numLags];
+        System.arraycopy(theta, 1, coeficientes, 0, numLags);
+        return coeficientes;
+    }
+
+    private void cargarFila(double[] serie, int t) {
+        x[0] = 1.0;
+        System.arraycopy(serie, t - numLags, x, 1, numLags);
+    }
+
+    /**
+     * Aplica la reflexión de Householder H = I - 2vvᵀ/(vᵀv) a las filas
+     * k..m-1 de un vector (v guardado en origen[inicioV + k ..]).
+     */
+    private static void reflejar(double[] origen, int inicioV, double[] destino, int inicioDestino, int k, int m,
+            double normaV) {
+        double producto = 0.0;
+        for (int i = k; i < m; i++) {
+            producto += origen[inicioV + i] * destino[inicioDestino + i];
+        }
+        double factor = 2.0 * producto / normaV;
+        for (int i = k; i < m; i++) {
+            destino[inicioDestino + i] -= factor * origen[inicioV + i];
+        }
+    }
+
+    /**
+     * Inversión Gauss-Jordan con pivoteo parcial.
+     */
+    private static void invertir(double[] a, double[] inversa, int n) {
+        double[] m = a.clone();
+        for (int i = 0; i < n * n; i++) {
+            inversa[i] = 0.0;
+        }
+        for (int i = 0; i < n; i++) {
+            inversa[i * n + i] = 1.0;
+        }
+
+        for (int col = 0; col < n; col++) {
+            int pivote = col;
+            for (int fila = col + 1; fila < n; fila++) {
+                if (Math.abs(m[fila * n + col]) > Math.abs(m[pivote * n + col])) {
+                    pivote = fila;
+                }
+            }
+            if (pivote != col) {
+                intercambiarFilas(m, n, col, pivote);
+                intercambiarFilas(inversa, n, col, pivote);
+            }
+
+            double diagonal = m[col * n + col];
+            for (int j = 0; j < n; j++) {
+                m[col * n + j] /= diagonal;
+                inversa[col * n + j] /= diagonal;
+            }
+            for (int fila = 0; fila < n; fila++) {
+                if (fila == col) {
+                    continue;
+                }
+                double factor = m[fila * n + col];
+                if (factor == 0.0) {
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    m[fila * n + j] -= factor * m[col * n + j];
+                    inversa[fila * n + j] -= factor * inversa[col * n + j];
+                }
+            }
+        }
+    }
+
+    private static void intercambiarFilas(double[] m, int n, int a, int b) {
+        for (int j = 0; j < n; j++) {
+            double tmp = m[a * n + j];
+            m[a * n + j] = m[b * n + j];
+            m[b * n + j] = tmp;
+        }
+    }
+}
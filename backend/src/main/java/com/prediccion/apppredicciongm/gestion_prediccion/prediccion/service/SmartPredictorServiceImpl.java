@@ -1,18 +1,17 @@
 package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
 
+import com.prediccion.apppredicciongm.auth.models.SeguridadUsuario;
 import com.prediccion.apppredicciongm.auth.repository.IUsuarioRepository;
 import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.HorizontePrediccionService;
-import com.prediccion.apppredicciongm.gestion_prediccion.estacionalidad.repository.IAnalisisEstacionalidadRepositorio;
-import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
-import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.repository.IParametroAlgoritmoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.InstantaneaParametrosService;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IPrediccionRepositorio;
 import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
 import com.prediccion.apppredicciongm.models.AnalisisEstacionalidad;
-import com.prediccion.apppredicciongm.models.ParametroAlgoritmo;
 import com.prediccion.apppredicciongm.models.Prediccion;
-import com.prediccion.apppredicciongm.models.RegistroDemanda;
+import com.prediccion.apppredicciongm.models.ResultadoBacktesting;
 import com.prediccion.apppredicciongm.models.Usuario;
 import com.prediccion.apppredicciongm.models.Inventario.Producto;
 
@@ -24,13 +23,17 @@ import smile.regression.LinearModel;
 import smile.regression.OLS;
 import smile.regression.RandomForest;
 import smile.regression.GradientTreeBoost;
+import smile.regression.DataFrameRegression;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.enums.AlgoritmoSmileML;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -55,70 +58,150 @@ import java.util.stream.Collectors;
 public class SmartPredictorServiceImpl implements ISmartPredictorService {
 
     private final IProductoRepositorio productoRepository;
-    private final IRegistroDemandaRepositorio registroDemandaRepository;
+    private final AlmacenSeriesDemandaService almacenSeries;
     private final HorizontePrediccionService horizontePrediccionService;
     private final IPrediccionRepositorio prediccionRepositorio;
     private final IUsuarioRepository usuarioRepository;
-    private final IAnalisisEstacionalidadRepositorio analisisEstacionalidadRepository;
-    private final IParametroAlgoritmoRepositorio parametroAlgoritmoRepositorio;
+    private final InstantaneaParametrosService instantaneaParametros;
+    private final ModeloEntrenadoCacheService modeloCache;
+    private final TorneoAlgoritmosService torneoAlgoritmos;
+    private final HoltWintersOnlineService holtWintersOnline;
+    private final ModeloGlobalGBTService modeloGlobal;
+    private final EscaleraDegradacionService escaleraDegradacion;
+    private final PlatformTransactionManager transactionManager;
 
     private static final int MAX_PREDICCIONES_POR_CONFIGURACION = 5;
 
+    /**
+     * Candidatos del torneo AUTO, de menor a mayor costo de entrenamiento
+     * (en empate de MAPE gana el más barato).
+     */
+    private static final List<AlgoritmoSmileML> CANDIDATOS_TORNEO = List.of(
+            AlgoritmoSmileML.LINEAR_REGRESSION,
+            AlgoritmoSmileML.ARIMA,
+            AlgoritmoSmileML.RANDOM_FOREST,
+            AlgoritmoSmileML.GRADIENT_BOOSTING);
+
+    /**
+     * Escalera de degradación por presupuesto de tiempo, de mayor a menor
+     * costo. Debajo del último escalón queda el promedio móvil.
+     */
+    private static final List<AlgoritmoSmileML> ESCALERA_DEGRADACION = List.of(
+            AlgoritmoSmileML.GRADIENT_BOOSTING,
+            AlgoritmoSmileML.RANDOM_FOREST,
+            AlgoritmoSmileML.ARIMA);
+
+    @Value("${prediccion.ml.torneo.enabled:true}")
+    private boolean torneoHabilitado;
+
+    @Value("${prediccion.ml.torneo.plazo-ms:5000}")
+    private long plazoTorneoMs;
+
+    /** Días durante los que un resultado de backtesting decide el modo AUTO. */
+    @Value("${prediccion.ml.backtesting.vigencia-dias:7}")
+    private int vigenciaBacktestingDias;
+
+    /** En modo AUTO, enviar la demanda intermitente a Croston/TSB. */
+    @Value("${prediccion.ml.intermitente.enabled:true}")
+    private boolean intermitenteHabilitado;
+
+    /**
+     * Sin transacción propia durante el entrenamiento: el contexto se lee en
+     * una transacción corta de solo lectura y la predicción se persiste en
+     * otra (o en la de quien llama, si la hay).
+     */
     @Override
-    @Transactional
     public SmartPrediccionResponse generarPrediccionInteligente(SmartPrediccionRequest request) {
+        PrediccionCalculada calculada = calcularPrediccion(request);
+        SmartPrediccionResponse response = new TransactionTemplate(transactionManager)
+                .execute(status -> registrarPrediccion(calculada));
+
+        log.info("Predicción completada: Algoritmo={}, Calidad={}",
+                response.getAlgoritmoUtilizado(), response.getMetricas().getCalificacionCalidad());
+        return response;
+    }
+
+    @Override
+    public PrediccionCalculada calcularPrediccion(SmartPrediccionRequest request) {
         log.info("Iniciando predicción inteligente Smile ML v3.1.1 para producto: {}", request.getIdProducto());
 
         try {
+            // Producto, serie, estacionalidad y usuario: se cargan una sola vez, en una
+            // transacción de solo lectura que se cierra antes de entrenar
+            TransactionTemplate lectura = new TransactionTemplate(transactionManager);
+            lectura.setReadOnly(true);
+            ContextoPronostico contexto = lectura.execute(status -> construirContexto(request.getIdProducto()));
+
             // Validar datos del producto
             int minimoRegistros = request.getMinimoRegistrosHistoricos() != null
                     ? request.getMinimoRegistrosHistoricos()
                     : 10;
 
-            if (!validarDatosHistoricosProducto(request.getIdProducto(), minimoRegistros)) {
-                Producto producto = obtenerProducto(request.getIdProducto());
-                long registrosActuales = registroDemandaRepository.countByProducto(producto);
+            if (contexto.numRegistros() < minimoRegistros) {
                 throw new IllegalStateException(
                         String.format(
                                 "Datos históricos insuficientes para producto %d: tiene %d registros, se requieren mínimo %d",
-                                request.getIdProducto(), registrosActuales, minimoRegistros));
+                                request.getIdProducto(), contexto.numRegistros(), minimoRegistros));
             }
 
-            // Obtener producto
-            Producto producto = obtenerProducto(request.getIdProducto());
-
-            // Obtener datos históricos normalizados
-            List<RegistroDemanda> datosHistoricos = obtenerDatosHistoricos(request.getIdProducto());
-
-            // Preparar serie temporal
-            double[] serieTemporal = prepararSerieTemporal(datosHistoricos);
-
             // Seleccionar algoritmo (si es AUTO, ejecutar selección automática)
             String algoritmoSolicitado = request.getAlgoritmoSeleccionado();
-            String algoritmoSeleccionado;
-
-            if (algoritmoSolicitado == null || "AUTO".equalsIgnoreCase(algoritmoSolicitado)) {
-                algoritmoSeleccionado = seleccionarMejorAlgoritmo(serieTemporal);
-                log.info("Algoritmo seleccionado automáticamente: {}", algoritmoSeleccionado);
+            boolean automatico = algoritmoSolicitado == null || "AUTO".equalsIgnoreCase(algoritmoSolicitado);
+            ResultadoMLInterno resultado;
+
+            // Intermitencia (ADI/CV²) sobre los días registrados, sin expandir la serie; los
+            // momentos salen de la misma pasada que usan el preprocesamiento y la razón de selección
+            DemandaIntermitente.Clasificacion intermitencia = automatico && intermitenteHabilitado
+                    ? DemandaIntermitente.clasificar(contexto.estadisticasOriginal(), contexto.serieDemanda().numDias())
+                    : null;
+
+            if (AlgoritmoSmileML.HOLT_WINTERS.getCodigo().equalsIgnoreCase(algoritmoSolicitado)) {
+                // Holt-Winters en línea: solo lee el estado del producto, sin serie ni entrenamiento
+                log.info("Algoritmo seleccionado manualmente: {}", algoritmoSolicitado);
+                resultado = ejecutarHoltWintersOnline(request);
+            } else if (AlgoritmoSmileML.CROSTON_TSB.getCodigo().equalsIgnoreCase(algoritmoSolicitado)) {
+                log.info("Algoritmo seleccionado manualmente: {}", algoritmoSolicitado);
+                resultado = ejecutarCrostonTsb(contexto.serieDemanda().serieDiaria(), request);
+            } else if (intermitencia != null && intermitencia.esEsporadica()) {
+                log.info("Algoritmo seleccionado por intermitencia: CROSTON_TSB (demanda {}, ADI={}, CV²={})",
+                        intermitencia.patron(), String.format("%.2f", intermitencia.adi()),
+                        String.format("%.2f", intermitencia.cv2()));
+                resultado = ejecutarCrostonTsb(contexto.serieDemanda().serieDiaria(), request);
+                resultado.setDetalleSeleccion(construirRazonIntermitencia(intermitencia));
             } else {
-                algoritmoSeleccionado = algoritmoSolicitado;
-                log.info("Algoritmo seleccionado manualmente: {}", algoritmoSeleccionado);
+                // Serie temporal normalizada y preparada (calculada una vez en el contexto)
+                double[] serieTemporal = contexto.seriePreparada();
+
+                if (automatico) {
+                    Optional<ResultadoBacktesting> backtesting = contexto.backtestingVigente();
+                    if (backtesting.isPresent()) {
+                        ResultadoBacktesting mejor = backtesting.get();
+                        log.info("Algoritmo seleccionado por backtesting: {} (MAPE {}%)", mejor.getAlgoritmo(),
+                                String.format("%.1f", mejor.getMape()));
+                        resultado = ejecutarConPresupuesto(serieTemporal, mejor.getAlgoritmo(), request,
+                                presupuestoDe(request));
+                        resultado.setDetalleSeleccion(String.format(Locale.ROOT,
+                                "Selección automática por backtesting walk-forward: %s obtuvo el menor MAPE (%.1f%%) en %d orígenes (evaluado %s)",
+                                mejor.getAlgoritmo(), mejor.getMape(), mejor.getNumOrigenes(),
+                                mejor.getFechaEvaluacion().toLocalDate()));
+                    } else if (usarTorneo(request, serieTemporal)) {
+                        resultado = ejecutarTorneo(serieTemporal, request);
+                    } else {
+                        String algoritmoSeleccionado = seleccionarMejorAlgoritmo(serieTemporal);
+                        log.info("Algoritmo seleccionado automáticamente: {}", algoritmoSeleccionado);
+                        resultado = ejecutarConPresupuesto(serieTemporal, algoritmoSeleccionado, request,
+                                presupuestoDe(request));
+                    }
+                } else {
+                    log.info("Algoritmo seleccionado manualmente: {}", algoritmoSolicitado);
+                    resultado = ejecutarConPresupuesto(serieTemporal, algoritmoSolicitado, request,
+                            presupuestoDe(request));
+                }
             }
 
-            // Ejecutar predicción
-            ResultadoMLInterno resultado = ejecutarPrediccionML(serieTemporal, algoritmoSeleccionado, request);
-
-            // Construir respuesta
-            SmartPrediccionResponse response = construirRespuesta(producto, request, resultado);
-            Prediccion prediccionPersistida = persistirPrediccion(producto, request, resultado, response);
-            response.setIdPrediccion(prediccionPersistida.getPrediccionId().longValue());
-
-            log.info("Predicción persistida con ID: {}", prediccionPersistida.getPrediccionId());
-
-            log.info("Predicción completada: Algoritmo={}, Calidad={}",
-                    response.getAlgoritmoUtilizado(), response.getMetricas().getCalificacionCalidad());
-
-            return response;
+            // Construir respuesta (se persiste en registrarPrediccion)
+            SmartPrediccionResponse response = construirRespuesta(contexto, request, resultado);
+            return calculada(contexto, resultado, response);
 
         } catch (IllegalStateException | IllegalArgumentException e) {
             // Re-lanzar excepciones de validación sin envolver
@@ -131,50 +214,21 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
     }
 
     @Override
-    public List<SmartPrediccionResponse> procesarProductosConAlertas() {
-        log.info("Procesando productos con alertas de inventario");
-
-        try {
-            // TODO: Integrar con sistema de alertas
-            // Por ahora, procesamos algunos productos de ejemplo
-            List<SmartPrediccionResponse> resultados = new ArrayList<>();
-
-            // Obtener productos disponibles
-            List<Producto> productos = productoRepository.findAll().stream()
-                    .limit(5) // Limitar para pruebas
-                    .collect(Collectors.toList());
-
-            for (Producto producto : productos) {
-                try {
-                    SmartPrediccionRequest request = new SmartPrediccionRequest();
-                    request.setIdProducto(Long.valueOf(producto.getProductoId()));
-                    request.setAlgoritmoSeleccionado("AUTO");
-                    request.setHorizonteTiempo(30);
-                    request.setDetectarEstacionalidad(true);
-                    request.setGenerarOrdenCompra(true);
-
-                    SmartPrediccionResponse prediccion = generarPrediccionInteligente(request);
-                    resultados.add(prediccion);
-
-                } catch (Exception e) {
-                    log.warn("Error procesando producto {}: {}", producto.getProductoId(), e.getMessage());
-                }
-            }
-
-            log.info("Procesamiento masivo completado: {} productos procesados", resultados.size());
-            return resultados;
+    @Transactional
+    public SmartPrediccionResponse registrarPrediccion(PrediccionCalculada calculada) {
+        Prediccion prediccionPersistida = persistirPrediccion(calculada);
+        SmartPrediccionResponse response = calculada.respuesta();
+        response.setIdPrediccion(prediccionPersistida.getPrediccionId().longValue());
 
-        } catch (Exception e) {
-            log.error("Error en procesamiento masivo: {}", e.getMessage(), e);
-            return new ArrayList<>();
-        }
+        log.info("Predicción persistida con ID: {}", prediccionPersistida.getPrediccionId());
+        return response;
     }
 
     @Override
     public boolean validarDatosHistoricosProducto(Long idProducto, int minimoRegistros) {
         try {
-            Producto producto = obtenerProducto(idProducto);
-            long cantidadRegistros = registroDemandaRepository.countByProducto(producto);
+            obtenerProducto(idProducto);
+            long cantidadRegistros = almacenSeries.obtener(idProducto).numRegistros();
             boolean esValido = cantidadRegistros >= minimoRegistros;
 
             log.debug("Validación producto {}: {} registros (mínimo: {}), válido: {}",
@@ -192,6 +246,8 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
     public List<String> obtenerAlgoritmosDisponibles() {
         return List.of(
                 "AUTO",
+                "HOLT_WINTERS",
+                "CROSTON_TSB",
                 "RANDOM_FOREST",
                 "LINEAR_REGRESSION",
                 "GRADIENT_BOOSTING",
@@ -222,11 +278,12 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
      * @param idProducto ID del producto
      * @return Horizonte óptimo en días
      */
+    @Override
     public int calcularHorizonteAutomatico(Long idProducto) {
         try {
-            List<RegistroDemanda> datosHistoricos = obtenerDatosHistoricos(idProducto);
+            double[] datosHistoricos = obtenerDatosHistoricos(idProducto);
 
-            if (datosHistoricos.isEmpty()) {
+            if (datosHistoricos.length == 0) {
                 log.warn("Sin datos históricos para producto {}. Usando horizonte por defecto: 30", idProducto);
                 return 30;
             }
@@ -244,29 +301,136 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         }
     }
 
+    /**
+     * Serie de demanda del producto sin preparar (días con registro). El
+     * backtesting la prepara en cada origen solo con la historia anterior,
+     * como lo haría el pronóstico en ese momento.
+     *
+     * @param idProducto ID del producto
+     * @return serie original (vacía si no hay datos)
+     */
+    public double[] obtenerSerieOriginal(Long idProducto) {
+        return obtenerDatosHistoricos(idProducto);
+    }
+
+    /**
+     * Entrena el algoritmo sobre la historia dada y pronostica los siguientes
+     * pasos, sin usar la caché de modelos (los modelos de cada origen del
+     * backtesting no se vuelven a usar).
+     *
+     * @param algoritmo algoritmo a evaluar
+     * @param historia  valores conocidos hasta el origen
+     * @param pasos     número de pasos a pronosticar
+     * @return pronóstico de los pasos siguientes al origen
+     */
+    public double[] pronosticarDesdeOrigen(AlgoritmoSmileML algoritmo, double[] historia, int pasos) {
+        return switch (algoritmo) {
+            case LINEAR_REGRESSION, RANDOM_FOREST, GRADIENT_BOOSTING ->
+                    ejecutarModeloTemporal(null, algoritmo, historia, pasos, 0).validacion();
+            default -> ejecutarTimeSeriesRegression(null, historia, historia.length, pasos, 0).validacion();
+        };
+    }
+
+    /**
+     * Número de lags configurado para el modelo ARIMA (lag OLS).
+     */
+    public int obtenerNumLagsArima() {
+        return obtenerParametroInt("ARIMA", "num_lags", 7);
+    }
+
+    /**
+     * Entrena un único modelo sobre una serie agregada (demanda sumada de un
+     * grupo de productos) y pronostica el horizonte. Usa la misma base
+     * temporal, preparación y selección AUTO que un producto: intermitencia
+     * sobre los días registrados, Croston-TSB sobre la serie diaria y el
+     * resto (torneo o heurística) sobre los días registrados. Sin caché de
+     * modelos (la serie no pertenece a un producto) y sin persistir nada.
+     *
+     * @param registrados demanda agregada de los días con registro
+     * @param diaria      demanda agregada por día calendario (sin registro = 0)
+     * @param horizonte   pasos a pronosticar
+     * @return pronóstico agregado con sus métricas de validación
+     */
+    public PronosticoAgregado pronosticarSerieAgregada(double[] registrados, double[] diaria, int horizonte) {
+        SmartPrediccionRequest request = new SmartPrediccionRequest();
+        request.setAlgoritmoSeleccionado("AUTO");
+        request.setHorizonteTiempo(horizonte);
+        request.setEjecucionEnLote(true);
+
+        ResultadoMLInterno resultado;
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(registrados);
+        DemandaIntermitente.Clasificacion intermitencia = DemandaIntermitente.clasificar(estadisticas, diaria.length);
+        if (intermitenteHabilitado && intermitencia.esEsporadica()) {
+            resultado = ejecutarCrostonTsb(diaria, request);
+            resultado.setDetalleSeleccion(construirRazonIntermitencia(intermitencia));
+        } else {
+            double[] serieTemporal = prepararSerieTemporal(registrados, estadisticas);
+            resultado = usarTorneo(request, serieTemporal)
+                    ? ejecutarTorneo(serieTemporal, request)
+                    : ejecutarPrediccionML(serieTemporal, seleccionarMejorAlgoritmo(serieTemporal), request);
+        }
+
+        double[] valores = resultado.getPredicciones().stream().mapToDouble(Double::doubleValue).toArray();
+        return new PronosticoAgregado(resultado.getAlgoritmo(), valores, resultado.getRmse(), resultado.getMae(),
+                resultado.getMape(), resultado.getConfianza(), resultado.getDetalleSeleccion());
+    }
+
+    /**
+     * Persiste como predicción del producto su parte del pronóstico de un
+     * grupo: la curva agregada escalada por la participación histórica del
+     * producto. Sigue el mismo camino que generarPrediccionInteligente
+     * (ajuste estacional del producto, respuesta y reemplazo de la
+     * predicción existente) pero sin entrenar.
+     *
+     * @param request      solicitud del producto (ID, horizonte, flags)
+     * @param agregado     pronóstico del grupo
+     * @param participacion fracción de la demanda del grupo que aporta el producto
+     * @param grupo        descripción del grupo para la razón de selección
+     * @return respuesta con la predicción persistida
+     */
+    @Transactional
+    public SmartPrediccionResponse registrarPrediccionDesagregada(SmartPrediccionRequest request,
+            PronosticoAgregado agregado, double participacion, String grupo) {
+        ContextoPronostico contexto = construirContexto(request.getIdProducto());
+
+        List<Double> predicciones = new ArrayList<>(agregado.valores().length);
+        for (double valor : agregado.valores()) {
+            predicciones.add(valor * participacion);
+        }
+
+        ResultadoMLInterno resultado = ResultadoMLInterno.builder()
+                .algoritmo(agregado.algoritmo())
+                .predicciones(predicciones)
+                .rmse(agregado.rmse() * participacion)
+                .mae(agregado.mae() * participacion)
+                .mape(agregado.mape())
+                .confianza(agregado.confianza())
+                .detalleSeleccion(String.format(Locale.ROOT,
+                        "Pronóstico jerárquico: %s entrenado sobre la demanda agregada de %s, "
+                                + "desagregado por participación histórica (%.1f%%)",
+                        agregado.algoritmo(), grupo, participacion * 100))
+                .build();
+
+        SmartPrediccionResponse response = construirRespuesta(contexto, request, resultado);
+        return registrarPrediccion(calculada(contexto, resultado, response));
+    }
+
     // ========== MÉTODOS AUXILIARES ==========
 
     /**
-     * Obtiene el valor de un parámetro de algoritmo desde la base de datos.
+     * Obtiene el valor de un parámetro de algoritmo desde la instantánea en
+     * memoria (sin consultar la base de datos).
      * Retorna el valor por defecto si no se encuentra el parámetro.
      */
     private int obtenerParametroInt(String tipoAlgoritmo, String nombreParametro, int valorDefecto) {
-        return parametroAlgoritmoRepositorio
-                .findByNombreParametroAndTipoAlgoritmo(nombreParametro, tipoAlgoritmo)
-                .filter(ParametroAlgoritmo::getActivo)
-                .map(p -> p.getValorParametro().intValue())
-                .orElse(valorDefecto);
+        return instantaneaParametros.obtenerInt(tipoAlgoritmo, nombreParametro, valorDefecto);
     }
 
     /**
      * Obtiene el valor de un parámetro de algoritmo como double.
      */
     private double obtenerParametroDouble(String tipoAlgoritmo, String nombreParametro, double valorDefecto) {
-        return parametroAlgoritmoRepositorio
-                .findByNombreParametroAndTipoAlgoritmo(nombreParametro, tipoAlgoritmo)
-                .filter(ParametroAlgoritmo::getActivo)
-                .map(p -> p.getValorParametro().doubleValue())
-                .orElse(valorDefecto);
+        return instantaneaParametros.obtenerDouble(tipoAlgoritmo, nombreParametro, valorDefecto);
     }
 
     private Producto obtenerProducto(Long productoId) {
@@ -274,103 +438,82 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
                 .orElseThrow(() -> new IllegalArgumentException("Producto no encontrado: " + productoId));
     }
 
-    private List<RegistroDemanda> obtenerDatosHistoricos(Long productoId) {
-        Producto producto = obtenerProducto(productoId);
-        return registroDemandaRepository.findByProducto(producto);
-    }
+    /**
+     * Carga lo que necesita un pronóstico: producto, análisis de
+     * estacionalidad activo y backtesting vigente (una consulta), serie del
+     * almacén en memoria y usuario autenticado. Visible en el paquete para
+     * verificar el número de consultas emitidas.
+     */
+    ContextoPronostico construirContexto(Long productoId) {
+        int consultas = 1;
+        // Sin vigencia configurada ningún resultado es posterior a "ahora"
+        LocalDateTime desdeBacktesting = vigenciaBacktestingDias > 0
+                ? LocalDateTime.now().minusDays(vigenciaBacktestingDias)
+                : LocalDateTime.now();
+        List<Object[]> filas = productoRepository.findContextoPronostico(Math.toIntExact(productoId),
+                desdeBacktesting);
+        if (filas.isEmpty()) {
+            throw new IllegalArgumentException("Producto no encontrado: " + productoId);
+        }
+        Producto producto = (Producto) filas.get(0)[0];
+        AnalisisEstacionalidad analisis = (AnalisisEstacionalidad) filas.get(0)[1];
+        ResultadoBacktesting backtesting = (ResultadoBacktesting) filas.get(0)[2];
 
-    private double[] prepararSerieTemporal(List<RegistroDemanda> registros) {
-        // Los registros ya están ordenados por fecha (query con ORDER BY)
-        double[] serieOriginal = registros.stream()
-                .mapToDouble(r -> r.getCantidadHistorica() != null ? r.getCantidadHistorica().doubleValue() : 0.0)
-                .toArray();
-        
-        // Calcular variabilidad para decidir si aplicar preprocesamiento
-        double variabilidad = calcularCoeficienteVariacion(serieOriginal);
-        
-        // Si la variabilidad es moderada-alta (>25%), aplicar técnicas de reducción de ruido
-        if (variabilidad > 0.25 && serieOriginal.length >= 14) {
-            log.info("[PREPROCESAMIENTO] Variabilidad alta detectada (CV={}). Aplicando suavizado + agregación.", 
-                    String.format("%.2f", variabilidad));
-            
-            // Paso 1: Aplicar suavizado exponencial para reducir ruido diario
-            double[] serieSuavizada = aplicarSuavizadoExponencial(serieOriginal, 0.3);
-            
-            // Paso 2: Si aún hay mucha variabilidad, agregar por semana
-            double variabilidadSuavizada = calcularCoeficienteVariacion(serieSuavizada);
-            if (variabilidadSuavizada > 0.30 && serieOriginal.length >= 21) {
-                log.info("[PREPROCESAMIENTO] Aplicando agregación semanal (CV suavizado={})", 
-                        String.format("%.2f", variabilidadSuavizada));
-                double[] serieAgregada = agregarPorSemana(serieSuavizada);
-                log.info("[PREPROCESAMIENTO] Serie reducida de {} a {} puntos (semanal)", 
-                        serieOriginal.length, serieAgregada.length);
-                return serieAgregada;
+        if (!almacenSeries.estaEnMemoria(productoId)) {
+            consultas++;
+        }
+        AlmacenSeriesDemandaService.SerieDemanda serie = almacenSeries.obtener(productoId);
+
+        Usuario usuario = null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()) {
+            if (authentication.getPrincipal() instanceof SeguridadUsuario seguridad
+                    && seguridad.getUsuarioId() != null) {
+                // El filtro JWT ya cargó el usuario: basta una referencia para la FK
+                usuario = usuarioRepository.getReferenceById(seguridad.getUsuarioId());
+            } else {
+                consultas++;
+                usuario = obtenerUsuarioAutenticado(authentication);
             }
-            
-            log.info("[PREPROCESAMIENTO] Suavizado aplicado. CV original={}, CV suavizado={}", 
-                    String.format("%.2f", variabilidad), String.format("%.2f", variabilidadSuavizada));
-            return serieSuavizada;
         }
-        
-        return serieOriginal;
+
+        log.debug("[CONTEXTO] Producto {}: {} registros, estacionalidad={}, backtesting={}, {} consultas",
+                productoId, serie.numRegistros(), analisis != null, backtesting != null, consultas);
+        return new ContextoPronostico(producto, serie, analisis, backtesting, usuario, consultas,
+                this::prepararSerieTemporal);
     }
-    
+
     /**
-     * Aplica suavizado exponencial simple (SES) para reducir ruido en la serie.
-     * 
-     * Fórmula: S_t = α * Y_t + (1-α) * S_{t-1}
-     * donde:
-     * - α (alpha): factor de suavizado (0 < α < 1)
-     * - Y_t: valor observado en tiempo t
-     * - S_t: valor suavizado en tiempo t
-     * 
-     * Alpha bajo (0.1-0.3): más suavizado, responde lento a cambios
-     * Alpha alto (0.7-0.9): menos suavizado, responde rápido a cambios
-     * 
-     * @param serie Serie temporal original
-     * @param alpha Factor de suavizado (recomendado: 0.2-0.4 para datos ruidosos)
-     * @return Serie suavizada
+     * Serie de demanda (días con registro, ordenados por fecha) leída del
+     * almacén de series primitivas, sin cargar entidades RegistroDemanda.
      */
-    private double[] aplicarSuavizadoExponencial(double[] serie, double alpha) {
-        if (serie.length == 0) return serie;
-        
-        double[] suavizada = new double[serie.length];
-        suavizada[0] = serie[0]; // Primer valor sin cambio
-        
-        for (int i = 1; i < serie.length; i++) {
-            suavizada[i] = alpha * serie[i] + (1 - alpha) * suavizada[i - 1];
-        }
-        
-        return suavizada;
+    private double[] obtenerDatosHistoricos(Long productoId) {
+        return almacenSeries.obtener(productoId).valoresRegistrados();
     }
-    
+
     /**
-     * Agrega la serie temporal por semanas para reducir variabilidad diaria.
-     * 
-     * Convierte datos diarios en datos semanales sumando o promediando
-     * cada 7 días. Esto es especialmente útil para productos con alta
-     * variabilidad día a día pero patrones semanales más estables.
-     * 
-     * @param serie Serie temporal diaria
-     * @return Serie temporal semanal (menor longitud, menor variabilidad)
+     * Reducción de ruido para series con variabilidad alta (ver
+     * PreprocesamientoSerie): suavizado exponencial y, si no basta,
+     * agregación semanal.
      */
-    private double[] agregarPorSemana(double[] serie) {
-        if (serie.length < 7) return serie;
-        
-        int numSemanas = serie.length / 7;
-        double[] semanal = new double[numSemanas];
-        
-        for (int semana = 0; semana < numSemanas; semana++) {
-            double suma = 0;
-            int inicio = semana * 7;
-            for (int dia = 0; dia < 7; dia++) {
-                suma += serie[inicio + dia];
+    private double[] prepararSerieTemporal(double[] serieOriginal) {
+        return prepararSerieTemporal(serieOriginal, EstadisticasSerie.de(serieOriginal));
+    }
+
+    private double[] prepararSerieTemporal(double[] serieOriginal, EstadisticasSerie estadisticasOriginal) {
+        PreprocesamientoSerie.Resultado preparada = PreprocesamientoSerie.preparar(serieOriginal, estadisticasOriginal);
+
+        switch (preparada.tratamiento()) {
+            case SUAVIZADO -> log.info("[PREPROCESAMIENTO] Suavizado aplicado. CV original={}, CV suavizado={}",
+                    String.format("%.2f", preparada.cvOriginal()), String.format("%.2f", preparada.cvSuavizado()));
+            case SUAVIZADO_SEMANAL -> log.info(
+                    "[PREPROCESAMIENTO] Suavizado + agregación semanal (CV original={}, CV suavizado={}). Serie reducida de {} a {} puntos",
+                    String.format("%.2f", preparada.cvOriginal()), String.format("%.2f", preparada.cvSuavizado()),
+                    serieOriginal.length, preparada.serie().length);
+            case NINGUNO -> {
             }
-            // Usar promedio diario de la semana (no suma) para mantener escala
-            semanal[semana] = suma / 7.0;
         }
-        
-        return semanal;
+        return preparada.serie();
     }
 
     /**
@@ -398,13 +541,14 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         }
 
         // Análisis de características de la demanda
-        double variabilidad = calcularCoeficienteVariacion(serie);
-        boolean tieneEstacionalidad = detectarEstacionalidad(serie);
-        double tendencia = calcularTendencia(serie);
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
+        double variabilidad = calcularCoeficienteVariacion(estadisticas);
+        boolean tieneEstacionalidad = detectarEstacionalidad(estadisticas);
+        double tendencia = estadisticas.pendiente();
         
         // NUEVO: Calcular autocorrelación para verificar si ARIMA es apropiado
-        double autocorrelacionLag1 = calcularAutocorrelacion(serie, 1);
-        double autocorrelacionLag7 = calcularAutocorrelacion(serie, 7);
+        double autocorrelacionLag1 = estadisticas.correlacionLag(1);
+        double autocorrelacionLag7 = estadisticas.correlacionLag(7);
         boolean esRuidoBlanco = Math.abs(autocorrelacionLag1) < 0.15 && Math.abs(autocorrelacionLag7) < 0.15;
 
         log.debug("Características detectadas:");
@@ -489,52 +633,246 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
     }
     
     /**
-     * Calcula la autocorrelación de la serie para un lag específico.
-     * Valores cercanos a 0 indican "ruido blanco" (sin dependencia temporal).
-     * Valores > 0.3 indican dependencia temporal significativa.
-     * 
-     * La autocorrelación mide cuánto se correlaciona un valor con su valor anterior (lag).
-     * Es fundamental para determinar si ARIMA es apropiado.
-     * 
-     * @param serie Array de valores de la serie temporal
-     * @param lag Número de períodos de retraso a considerar
-     * @return Coeficiente de autocorrelación entre -1 y 1
+     * Pronóstico Holt-Winters en línea. Las métricas son los errores del
+     * pronóstico a un paso acumulados por el propio modelo.
      */
-    private double calcularAutocorrelacion(double[] serie, int lag) {
-        if (serie.length <= lag + 1) {
-            return 0.0;
+    private ResultadoMLInterno ejecutarHoltWintersOnline(SmartPrediccionRequest request) {
+        int horizonte = request.getHorizonteTiempo() != null ? request.getHorizonteTiempo() : 30;
+        HoltWintersOnlineService.Pronostico pronostico = holtWintersOnline.pronosticar(request.getIdProducto(),
+                horizonte);
+
+        List<Double> predicciones = new ArrayList<>(horizonte);
+        for (double valor : pronostico.valores()) {
+            predicciones.add(valor);
         }
-        
-        int n = serie.length - lag;
-        
-        // Calcular medias
-        double mediaX = 0.0, mediaY = 0.0;
-        for (int i = 0; i < n; i++) {
-            mediaX += serie[i];
-            mediaY += serie[i + lag];
+
+        log.info("Holt-Winters en línea: {} días evaluados, MAPE a un paso={}%", pronostico.diasEvaluados(),
+                String.format("%.1f", pronostico.mape()));
+
+        return ResultadoMLInterno.builder()
+                .algoritmo(AlgoritmoSmileML.HOLT_WINTERS.getCodigo())
+                .predicciones(predicciones)
+                .rmse(pronostico.diasEvaluados() > 0 ? pronostico.rmse() : Double.NaN)
+                .mae(pronostico.diasEvaluados() > 0 ? pronostico.mae() : Double.NaN)
+                .mape(pronostico.diasEvaluados() > 0 ? pronostico.mape() : Double.NaN)
+                .confianza(pronostico.diasEvaluados() > 0 ? calcularConfianza(pronostico.mape()) : 0.7)
+                .build();
+    }
+
+    /**
+     * Croston/TSB sobre la serie diaria densa (días sin venta valen 0). Con
+     * el mismo split 80/20 que los modelos ML: el nivel al final del
+     * entrenamiento se evalúa contra la validación y el nivel sobre toda la
+     * serie es el pronóstico (plano) del horizonte. No entrena modelos.
+     */
+    private ResultadoMLInterno ejecutarCrostonTsb(double[] serieDiaria, SmartPrediccionRequest request) {
+        int horizonte = request.getHorizonteTiempo() != null ? request.getHorizonteTiempo() : 30;
+        double alfa = obtenerParametroDouble("CROSTON_TSB", "alpha", 0.1);
+        double beta = obtenerParametroDouble("CROSTON_TSB", "beta", 0.05);
+
+        int trainSize = (int) (serieDiaria.length * 0.8);
+        int validationSize = serieDiaria.length - trainSize;
+        if (validationSize < 5) {
+            trainSize = serieDiaria.length;
+            validationSize = 0;
         }
-        mediaX /= n;
-        mediaY /= n;
-        
-        // Calcular covarianza y varianzas
-        double covarianza = 0.0;
-        double varianzaX = 0.0;
-        double varianzaY = 0.0;
-        
-        for (int i = 0; i < n; i++) {
-            double dx = serie[i] - mediaX;
-            double dy = serie[i + lag] - mediaY;
-            covarianza += dx * dy;
-            varianzaX += dx * dx;
-            varianzaY += dy * dy;
+
+        double nivelEntrenamiento = DemandaIntermitente.nivelTsb(serieDiaria, trainSize, alfa, beta);
+        double nivel = validationSize > 0
+                ? DemandaIntermitente.nivelTsb(serieDiaria, serieDiaria.length, alfa, beta)
+                : nivelEntrenamiento;
+
+        // Sin ventana de validación no hay métricas (NaN = sin dato)
+        double rmse = Double.NaN;
+        double mae = Double.NaN;
+        double mape = Double.NaN;
+        if (validationSize > 0) {
+            double[] validationSerie = Arrays.copyOfRange(serieDiaria, trainSize, serieDiaria.length);
+            double[] prediccionesValidacion = new double[validationSize];
+            Arrays.fill(prediccionesValidacion, nivelEntrenamiento);
+            rmse = calcularRMSE(validationSerie, prediccionesValidacion);
+            mae = calcularMAE(validationSerie, prediccionesValidacion);
+            mape = calcularMAPE(validationSerie, prediccionesValidacion);
         }
-        
-        double denominador = Math.sqrt(varianzaX * varianzaY);
-        if (denominador == 0) {
-            return 0.0;
+
+        log.info("Croston/TSB: {} días, nivel={} por día (alfa={}, beta={}), MAE validación={}",
+                serieDiaria.length, String.format("%.3f", nivel), alfa, beta, String.format("%.2f", mae));
+
+        return ResultadoMLInterno.builder()
+                .algoritmo(AlgoritmoSmileML.CROSTON_TSB.getCodigo())
+                .predicciones(new ArrayList<>(Collections.nCopies(horizonte, nivel)))
+                .rmse(rmse)
+                .mae(mae)
+                .mape(mape)
+                .confianza(validationSize > 0 ? calcularConfianza(mape) : 0.7)
+                .build();
+    }
+
+    private String construirRazonIntermitencia(DemandaIntermitente.Clasificacion intermitencia) {
+        return String.format(Locale.ROOT,
+                "Selección automática por intermitencia: demanda %s (ADI=%.2f ≥ %.2f, CV²=%.2f). "
+                        + "Croston/TSB suaviza la probabilidad y el tamaño de venta sin entrenar modelos",
+                intermitencia.patron(), intermitencia.adi(), DemandaIntermitente.UMBRAL_ADI,
+                intermitencia.cv2());
+    }
+
+    /**
+     * Decide si el modo AUTO se resuelve por torneo. Requiere que la serie
+     * tenga suficientes datos para una ventana de validación significativa
+     * (el mínimo de ARIMA); con menos, el MAPE de validación no discrimina y
+     * se usa la heurística. Tampoco hay torneo si el pool de cómputo no tiene
+     * hilos libres para todos los candidatos: en cola, el plazo no se cumple.
+     */
+    private boolean usarTorneo(SmartPrediccionRequest request, double[] serie) {
+        boolean habilitado = request.getModoTorneo() != null ? request.getModoTorneo() : torneoHabilitado;
+        if (!habilitado || serie.length < AlgoritmoSmileML.ARIMA.getMinimoRegistrosRequeridos()) {
+            return false;
         }
-        
-        return covarianza / denominador;
+        long candidatos = CANDIDATOS_TORNEO.stream()
+                .filter(candidato -> serie.length >= candidato.getMinimoRegistrosRequeridos())
+                .count();
+        if (!torneoAlgoritmos.tieneHolgura((int) candidatos)) {
+            log.info("[TORNEO] Pool de cómputo sin holgura para {} candidatos, usando selección heurística",
+                    candidatos);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Torneo AUTO: entrena los candidatos en paralelo y se queda con el de
+     * menor MAPE en validación entre los que terminan dentro del plazo. Si
+     * ninguno termina a tiempo, recurre a la selección heurística.
+     */
+    private ResultadoMLInterno ejecutarTorneo(double[] serie, SmartPrediccionRequest request) {
+        long plazo = request.getPresupuestoTiempoMs() != null && request.getPresupuestoTiempoMs() > 0
+                ? request.getPresupuestoTiempoMs()
+                : plazoTorneoMs;
+
+        Map<String, java.util.concurrent.Callable<ResultadoMLInterno>> candidatos = new LinkedHashMap<>();
+        for (AlgoritmoSmileML candidato : CANDIDATOS_TORNEO) {
+            if (serie.length >= candidato.getMinimoRegistrosRequeridos()) {
+                candidatos.put(candidato.getCodigo(), () -> ejecutarPrediccionML(serie, candidato.getCodigo(), request));
+            }
+        }
+
+        TorneoAlgoritmosService.ResultadoTorneo<ResultadoMLInterno> torneo = torneoAlgoritmos.competir(
+                candidatos, ResultadoMLInterno::getMape, plazo);
+
+        if (!torneo.hayGanador()) {
+            String algoritmoSeleccionado = seleccionarMejorAlgoritmo(serie);
+            log.warn("[TORNEO] Ningún candidato terminó en {}ms, usando selección heurística: {}",
+                    plazo, algoritmoSeleccionado);
+            // El plazo ya venció: cada escalón recibe solo el plazo mínimo (sin presupuesto, entrena sin plazo)
+            return ejecutarConPresupuesto(serie, algoritmoSeleccionado, request,
+                    presupuestoDe(request) != null ? 0L : null);
+        }
+
+        ResultadoMLInterno ganador = torneo.resultado();
+        ganador.setDetalleSeleccion(construirRazonTorneo(torneo));
+        log.info("Algoritmo seleccionado por torneo: {} (MAPE {}%)", ganador.getAlgoritmo(),
+                String.format("%.1f", ganador.getMape()));
+        return ganador;
+    }
+
+    private String construirRazonTorneo(TorneoAlgoritmosService.ResultadoTorneo<ResultadoMLInterno> torneo) {
+        String puntajes = torneo.puntajes().entrySet().stream()
+                .map(e -> String.format(Locale.ROOT, "%s=%.1f%%", e.getKey(), e.getValue()))
+                .collect(Collectors.joining(", "));
+        StringBuilder razon = new StringBuilder();
+        razon.append(String.format("Selección automática por torneo: %s obtuvo el menor MAPE en validación (%s)",
+                torneo.ganador(), puntajes));
+        if (!torneo.descartados().isEmpty()) {
+            razon.append(". Descartados por plazo o error: ").append(String.join(", ", torneo.descartados()));
+        }
+        return razon.toString();
+    }
+
+    /**
+     * Entrena el algoritmo bajo el presupuesto de tiempo de la solicitud. Si
+     * no termina a tiempo, baja por la escalera de costo (GBT → RF → lags)
+     * desde el algoritmo pedido y, como último recurso, responde con el
+     * promedio móvil. Los algoritmos fuera de la escalera (regresión lineal)
+     * bajan directamente al promedio móvil. Sin presupuesto (null) entrena
+     * directamente, sin plazo.
+     */
+    private ResultadoMLInterno ejecutarConPresupuesto(double[] serie, String algoritmo, SmartPrediccionRequest request,
+            Long presupuestoMs) {
+        if (!escaleraDegradacion.estaHabilitado() || presupuestoMs == null) {
+            return ejecutarPrediccionML(serie, algoritmo, request);
+        }
+
+        AlgoritmoSmileML solicitado = AlgoritmoSmileML.fromCodigo(algoritmo);
+        List<EscaleraDegradacionService.Escalon<ResultadoMLInterno>> escalones = new ArrayList<>();
+        escalones.add(new EscaleraDegradacionService.Escalon<>(algoritmo,
+                () -> ejecutarPrediccionML(serie, algoritmo, request)));
+        int desde = ESCALERA_DEGRADACION.indexOf(solicitado);
+        if (desde >= 0) {
+            for (AlgoritmoSmileML inferior : ESCALERA_DEGRADACION.subList(desde + 1, ESCALERA_DEGRADACION.size())) {
+                if (serie.length >= inferior.getMinimoRegistrosRequeridos()) {
+                    escalones.add(new EscaleraDegradacionService.Escalon<>(inferior.getCodigo(),
+                            () -> ejecutarPrediccionML(serie, inferior.getCodigo(), request)));
+                }
+            }
+        }
+
+        EscaleraDegradacionService.ResultadoEscalera<ResultadoMLInterno> escalera = escaleraDegradacion.ejecutar(
+                escalones, () -> ejecutarPromedioMovil(serie, request), presupuestoMs);
+
+        ResultadoMLInterno resultado = escalera.resultado();
+        if (escalera.fueDegradado()) {
+            resultado.setNivelDegradacion(escalera.nivel());
+            resultado.setAlgoritmoOriginal(algoritmo);
+            resultado.setDetalleDegradacion(String.format(
+                    "Degradado por presupuesto de tiempo (%dms): %s no terminó a tiempo, respondió %s",
+                    presupuestoMs, String.join(", ", escalera.agotados()), escalera.codigo()));
+        }
+        return resultado;
+    }
+
+    /**
+     * Presupuesto de tiempo de la solicitud (null = sin plazo, procesos por
+     * lotes con la configuración por defecto).
+     */
+    private Long presupuestoDe(SmartPrediccionRequest request) {
+        return escaleraDegradacion.resolverPresupuesto(request.getPresupuestoTiempoMs(), request.isEjecucionEnLote());
+    }
+
+    /**
+     * Último recurso de la escalera: promedio móvil sin entrenamiento, con el
+     * mismo split 80/20 para las métricas.
+     */
+    private ResultadoMLInterno ejecutarPromedioMovil(double[] serie, SmartPrediccionRequest request) {
+        int horizonte = request.getHorizonteTiempo() != null ? request.getHorizonteTiempo() : 30;
+        int trainSize = (int) (serie.length * 0.8);
+        int validationSize = serie.length - trainSize;
+        if (validationSize < 5) {
+            trainSize = serie.length;
+            validationSize = 0;
+        }
+
+        double[] trainSerie = Arrays.copyOfRange(serie, 0, trainSize);
+        PrediccionesModelo salida = promedioMovilFallback(trainSerie, serie, validationSize, horizonte);
+
+        // Sin ventana de validación no hay métricas (NaN = sin dato)
+        double rmse = Double.NaN;
+        double mae = Double.NaN;
+        double mape = Double.NaN;
+        if (validationSize > 0) {
+            double[] validationSerie = Arrays.copyOfRange(serie, trainSize, serie.length);
+            rmse = calcularRMSE(validationSerie, salida.validacion());
+            mae = calcularMAE(validationSerie, salida.validacion());
+            mape = calcularMAPE(validationSerie, salida.validacion());
+        }
+
+        return ResultadoMLInterno.builder()
+                .algoritmo(EscaleraDegradacionService.ULTIMO_RECURSO)
+                .predicciones(salida.futuras())
+                .rmse(rmse)
+                .mae(mae)
+                .mape(mape)
+                .confianza(validationSize > 0 ? calcularConfianza(mape) : 0.5)
+                .build();
     }
 
     private ResultadoMLInterno ejecutarPrediccionML(double[] serie, String algoritmo, SmartPrediccionRequest request) {
@@ -574,71 +912,55 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
                                 .mapToObj(String::valueOf).collect(java.util.stream.Collectors.joining(", ")));
             }
 
-            // Preparar datos temporales para entrenamiento (solo tiempo, sin features que
-            // causen data leakage)
-            double[] tiempo = new double[trainSerie.length];
-            for (int i = 0; i < trainSerie.length; i++) {
-                tiempo[i] = i;
-            }
-
-            // Crear DataFrame simple con tiempo y demanda
-            DataFrame dataFrame = DataFrame.of(
-                    DoubleVector.of("tiempo", tiempo),
-                    DoubleVector.of("demanda", trainSerie));
-
-            log.debug("DataFrame creado con feature: tiempo");
-
-            // Seleccionar y ejecutar algoritmo específico
+            // Seleccionar y ejecutar algoritmo específico. Cada modelo se entrena
+            // UNA sola vez sobre trainSerie y ese mismo modelo produce tanto la
+            // ventana de validación como el horizonte futuro.
             AlgoritmoSmileML algoritmoEnum = AlgoritmoSmileML.fromCodigo(algoritmo);
-            List<Double> prediccionesFuturas;
-            double[] prediccionesValidacion = new double[validationSize];
+            Long productoId = request.getIdProducto();
+            PrediccionesModelo salida;
+            boolean modeloGlobalUsado = false;
 
             switch (algoritmoEnum) {
                 case LINEAR_REGRESSION:
-                    prediccionesFuturas = ejecutarLinearRegression(dataFrame, trainSerie, horizonte);
-                    if (validationSize > 0) {
-                        prediccionesValidacion = ejecutarPrediccionValidacion(dataFrame, trainSerie, validationSize,
-                                algoritmoEnum);
+                case RANDOM_FOREST:
+                    salida = ejecutarModeloTemporal(productoId, algoritmoEnum, trainSerie, validationSize, horizonte);
+                    break;
+
+                case GRADIENT_BOOSTING:
+                    // Modelo global del catálogo (solo inferencia); si no cubre el producto se entrena el propio
+                    Optional<ModeloGlobalGBTService.Pronostico> global = modeloGlobal.pronosticar(productoId, serie,
+                            trainSize, validationSize, horizonte);
+                    if (global.isPresent()) {
+                        log.info("GRADIENT_BOOSTING resuelto con el modelo global del catálogo");
+                        modeloGlobalUsado = true;
+                        salida = new PrediccionesModelo(global.get().validacion(),
+                                Arrays.stream(global.get().futuro()).boxed().collect(Collectors.toList()));
+                    } else {
+                        salida = ejecutarModeloTemporal(productoId, AlgoritmoSmileML.GRADIENT_BOOSTING, trainSerie,
+                                validationSize, horizonte);
                     }
                     break;
 
                 case ARIMA:
                     // ARIMA implementado como OLS con lag features (características de retraso
                     // temporal)
-                    prediccionesFuturas = ejecutarTimeSeriesRegression(trainSerie, horizonte);
-                    if (validationSize > 0) {
-                        prediccionesValidacion = ejecutarPrediccionValidacionTimeSeries(trainSerie, validationSize);
-                    }
-                    break;
-
-                case RANDOM_FOREST:
-                    prediccionesFuturas = ejecutarRandomForest(dataFrame, trainSerie, horizonte);
-                    if (validationSize > 0) {
-                        prediccionesValidacion = ejecutarPrediccionValidacion(dataFrame, trainSerie, validationSize,
-                                algoritmoEnum);
-                    }
-                    break;
-
-                case GRADIENT_BOOSTING:
-                    prediccionesFuturas = ejecutarGradientBoosting(dataFrame, trainSerie, horizonte);
-                    if (validationSize > 0) {
-                        prediccionesValidacion = ejecutarPrediccionValidacion(dataFrame, trainSerie, validationSize,
-                                algoritmoEnum);
-                    }
+                    salida = ejecutarTimeSeriesRegression(productoId, serie, trainSize, validationSize, horizonte);
                     break;
 
                 default:
                     log.warn("Algoritmo {} no reconocido, usando Time Series Regression", algoritmo);
-                    prediccionesFuturas = ejecutarTimeSeriesRegression(trainSerie, horizonte);
-                    if (validationSize > 0) {
-                        prediccionesValidacion = ejecutarPrediccionValidacionTimeSeries(trainSerie, validationSize);
-                    }
+                    algoritmoEnum = AlgoritmoSmileML.ARIMA;
+                    salida = ejecutarTimeSeriesRegression(productoId, serie, trainSize, validationSize, horizonte);
             }
 
+            List<Double> prediccionesFuturas = salida.futuras();
+            double[] prediccionesValidacion = salida.validacion();
+
             // Calcular métricas sobre validation set (si existe)
-            double rmse = 0.0;
-            double mae = 0.0;
-            double mape = 0.0;
+            // Sin ventana de validación no hay métricas (NaN = sin dato)
+            double rmse = Double.NaN;
+            double mae = Double.NaN;
+            double mape = Double.NaN;
 
             if (validationSize > 0) {
                 log.info("Validation set - Predicciones vs Reales (primeros 5):");
@@ -655,6 +977,11 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
                         String.format("%.2f", rmse),
                         String.format("%.2f", mae),
                         String.format("%.1f", mape));
+                // Las métricas del modelo global no son de un modelo por producto de la caché
+                if (!modeloGlobalUsado) {
+                    modeloCache.registrarMetricas(productoId, algoritmoEnum.getCodigo(),
+                            ModeloEntrenadoCacheService.calcularHuella(trainSerie), rmse, mae, mape);
+                }
             } else {
                 log.debug("Sin validation set, métricas no disponibles");
             }
@@ -675,96 +1002,74 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
     }
 
     /**
-     * Ejecuta predicción sobre validation set para calcular métricas
+     * Entrena (o recupera de la caché) un modelo con el tiempo como única
+     * feature y lo usa para predecir, en una sola pasada, la ventana de
+     * validación (t = n_train .. n_train+v-1) y el horizonte futuro que le
+     * sigue (t = n_train+v .. n_train+v+h-1).
+     *
+     * Los hiperparámetros salen siempre de parametro_algoritmo, tanto para
+     * validación como para el horizonte.
      */
-    private double[] ejecutarPrediccionValidacion(DataFrame trainDataFrame, double[] trainSerie, int validationSize,
-            AlgoritmoSmileML algoritmo) {
-        try {
-            Formula formula = Formula.lhs("demanda");
-            double[] predicciones = new double[validationSize];
+    private PrediccionesModelo ejecutarModeloTemporal(Long productoId, AlgoritmoSmileML algoritmo,
+            double[] trainSerie, int validationSize, int horizonte) {
 
-            switch (algoritmo) {
-                case LINEAR_REGRESSION:
-                    LinearModel modeloLinear = OLS.fit(formula, trainDataFrame);
-                    for (int i = 0; i < validationSize; i++) {
-                        double tiempoFuturo = trainSerie.length + i;
-                        DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { tiempoFuturo }));
-                        predicciones[i] = Math.max(0, modeloLinear.predict(punto.get(0)));
-                    }
-                    break;
+        // Preparar datos temporales para entrenamiento (solo tiempo, sin features que
+        // causen data leakage)
+        double[] tiempo = new double[trainSerie.length];
+        for (int i = 0; i < trainSerie.length; i++) {
+            tiempo[i] = i;
+        }
 
-                case RANDOM_FOREST:
-                    int numArboles = Math.min(100, Math.max(50, trainSerie.length / 2));
-                    RandomForest modeloRF = RandomForest.fit(formula, trainDataFrame,
-                            numArboles,
-                            1, // mtry = 1 (solo tiempo)
-                            10, // max depth
-                            100, // max nodes
-                            5, // node size
-                            1.0 // subsample
-                    );
-                    for (int i = 0; i < validationSize; i++) {
-                        double tiempoFuturo = trainSerie.length + i;
-                        DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { tiempoFuturo }));
-                        predicciones[i] = Math.max(0, modeloRF.predict(punto.get(0)));
-                    }
-                    break;
+        // Crear DataFrame simple con tiempo y demanda
+        DataFrame dataFrame = DataFrame.of(
+                DoubleVector.of("tiempo", tiempo),
+                DoubleVector.of("demanda", trainSerie));
 
-                case GRADIENT_BOOSTING:
-                    GradientTreeBoost modeloGB = GradientTreeBoost.fit(formula, trainDataFrame,
-                            new Properties() {
-                                {
-                                    setProperty("smile.gbt.trees",
-                                            String.valueOf(Math.min(200, Math.max(100, trainSerie.length))));
-                                    setProperty("smile.gbt.shrinkage", "0.05");
-                                    setProperty("smile.gbt.max.depth", "6");
-                                    setProperty("smile.gbt.max.nodes", "50");
-                                    setProperty("smile.gbt.node.size", "5");
-                                    setProperty("smile.gbt.sample.rate", "0.7");
-                                }
-                            });
-                    for (int i = 0; i < validationSize; i++) {
-                        double tiempoFuturo = trainSerie.length + i;
-                        DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { tiempoFuturo }));
-                        predicciones[i] = Math.max(0, modeloGB.predict(punto.get(0)));
-                    }
-                    break;
-            }
+        log.debug("DataFrame creado con feature: tiempo");
 
-            return predicciones;
+        DataFrameRegression modelo = switch (algoritmo) {
+            case LINEAR_REGRESSION -> entrenarLinearRegression(productoId, dataFrame, trainSerie);
+            case RANDOM_FOREST -> entrenarRandomForest(productoId, dataFrame, trainSerie);
+            case GRADIENT_BOOSTING -> entrenarGradientBoosting(productoId, dataFrame, trainSerie);
+            default -> throw new IllegalArgumentException("Algoritmo sin feature temporal: " + algoritmo);
+        };
 
-        } catch (Exception e) {
-            log.error("[PREDICCION] Error en predicción de validación: {}", e.getMessage());
-            return new double[validationSize];
+        // Inferencia por lotes: una sola matriz para validación + horizonte
+        double[] salida = InferenciaLoteML.predecirTiempo(modelo, trainSerie.length, validationSize + horizonte);
+
+        double[] validacion = new double[validationSize];
+        List<Double> futuras = new ArrayList<>(horizonte);
+        for (int i = 0; i < salida.length; i++) {
+            double prediccion = Math.max(0, salida[i]);
+            if (i < validationSize) {
+                validacion[i] = prediccion;
+            } else {
+                futuras.add(prediccion);
+            }
         }
+
+        return new PrediccionesModelo(validacion, futuras);
     }
 
     /**
      * Implementación de Regresión Lineal con OLS (Ordinary Least Squares)
      * Óptimo para productos con demanda estable: arroz, azúcar, sal, aceite
      */
-    private List<Double> ejecutarLinearRegression(DataFrame dataFrame, double[] serie, int horizonte) {
+    private LinearModel entrenarLinearRegression(Long productoId, DataFrame dataFrame, double[] serie) {
         log.debug("[PREDICCION] Ejecutando OLS Linear Regression");
 
         Formula formula = Formula.lhs("demanda");
-        LinearModel modelo = OLS.fit(formula, dataFrame);
-
-        List<Double> predicciones = new ArrayList<>();
-        for (int i = 0; i < horizonte; i++) {
-            double tiempoFuturo = serie.length + i;
-            DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { tiempoFuturo }));
-            double prediccion = modelo.predict(punto.get(0));
-            predicciones.add(Math.max(0, prediccion));
-        }
-
-        return predicciones;
+        return modeloCache.obtenerOEntrenar(
+                new ModeloEntrenadoCacheService.ClaveModelo(productoId, "LINEAR_REGRESSION", "ols",
+                        ModeloEntrenadoCacheService.calcularHuella(serie)),
+                () -> OLS.fit(formula, dataFrame));
     }
 
     /**
      * Implementación de Random Forest con parámetros dinámicos desde BD.
      * Óptimo para patrones complejos: bebidas, snacks, productos de limpieza.
      */
-    private List<Double> ejecutarRandomForest(DataFrame dataFrame, double[] serie, int horizonte) {
+    private RandomForest entrenarRandomForest(Long productoId, DataFrame dataFrame, double[] serie) {
         log.debug("[PREDICCION] Ejecutando Random Forest Regression con parámetros dinámicos");
 
         Formula formula = Formula.lhs("demanda");
@@ -783,32 +1088,26 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         log.debug("[PARAMETROS RF] arboles={}, maxDepth={}, maxNodes={}, nodeSize={}, subsample={}",
                 numArboles, maxDepth, maxNodes, nodeSize, subsample);
 
-        RandomForest modelo = RandomForest.fit(
-                formula,
-                dataFrame,
-                numArboles,
-                mtry,
-                maxDepth,
-                maxNodes,
-                nodeSize,
-                subsample);
-
-        List<Double> predicciones = new ArrayList<>();
-        for (int i = 0; i < horizonte; i++) {
-            double tiempoFuturo = serie.length + i;
-            DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { tiempoFuturo }));
-            double prediccion = modelo.predict(punto.get(0));
-            predicciones.add(Math.max(0, prediccion));
-        }
-
-        return predicciones;
+        return modeloCache.obtenerOEntrenar(
+                new ModeloEntrenadoCacheService.ClaveModelo(productoId, "RANDOM_FOREST",
+                        hiperparametrosRF(numArboles, mtry, maxDepth, maxNodes, nodeSize, subsample),
+                        ModeloEntrenadoCacheService.calcularHuella(serie)),
+                () -> RandomForest.fit(
+                        formula,
+                        dataFrame,
+                        numArboles,
+                        mtry,
+                        maxDepth,
+                        maxNodes,
+                        nodeSize,
+                        subsample));
     }
 
     /**
      * Implementación de Gradient Boosting Machine con parámetros dinámicos.
      * Óptimo para alta variabilidad: pan, lácteos, frutas, verduras, carnes.
      */
-    private List<Double> ejecutarGradientBoosting(DataFrame dataFrame, double[] serie, int horizonte) {
+    private GradientTreeBoost entrenarGradientBoosting(Long productoId, DataFrame dataFrame, double[] serie) {
         log.debug("[PREDICCION] Ejecutando Gradient Boosting Regression con parámetros dinámicos");
 
         Formula formula = Formula.lhs("demanda");
@@ -827,7 +1126,7 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         log.debug("[PARAMETROS GBT] trees={}, shrinkage={}, maxDepth={}, maxNodes={}, nodeSize={}, sampleRate={}",
                 numTrees, shrinkage, maxDepth, maxNodes, nodeSize, sampleRate);
 
-        java.util.Properties props = new java.util.Properties();
+        Properties props = new Properties();
         props.setProperty("smile.gbt.trees", String.valueOf(numTrees));
         props.setProperty("smile.gbt.shrinkage", String.valueOf(shrinkage));
         props.setProperty("smile.gbt.max.depth", String.valueOf(maxDepth));
@@ -835,25 +1134,20 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         props.setProperty("smile.gbt.node.size", String.valueOf(nodeSize));
         props.setProperty("smile.gbt.sample.rate", String.valueOf(sampleRate));
 
-        GradientTreeBoost modelo = GradientTreeBoost.fit(formula, dataFrame, props);
-
-        List<Double> predicciones = new ArrayList<>();
-        for (int i = 0; i < horizonte; i++) {
-            double tiempoFuturo = serie.length + i;
-            DataFrame punto = DataFrame.of(DoubleVector.of("tiempo", new double[] { tiempoFuturo }));
-            double prediccion = modelo.predict(punto.get(0));
-            predicciones.add(Math.max(0, prediccion));
-        }
-
-        return predicciones;
+        return modeloCache.obtenerOEntrenar(
+                new ModeloEntrenadoCacheService.ClaveModelo(productoId, "GRADIENT_BOOSTING",
+                        hiperparametrosGBT(props), ModeloEntrenadoCacheService.calcularHuella(serie)),
+                () -> GradientTreeBoost.fit(formula, dataFrame, props));
     }
 
-    private SmartPrediccionResponse construirRespuesta(Producto producto, SmartPrediccionRequest request,
+
+    private SmartPrediccionResponse construirRespuesta(ContextoPronostico contexto, SmartPrediccionRequest request,
             ResultadoMLInterno resultado) {
 
-        // Obtener análisis de estacionalidad guardado para aplicar coeficientes
-        Optional<AnalisisEstacionalidad> analisisEstacionalidadOpt = analisisEstacionalidadRepository
-                .findByProductoIdAndActivoTrue(request.getIdProducto());
+        Producto producto = contexto.producto();
+
+        // Análisis de estacionalidad guardado para aplicar coeficientes
+        Optional<AnalisisEstacionalidad> analisisEstacionalidadOpt = contexto.analisisEstacionalidad();
 
         // LOG: Verificar si se encontró análisis de estacionalidad
         if (analisisEstacionalidadOpt.isPresent()) {
@@ -898,7 +1192,7 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
                 .sum();
 
         // Analizar estacionalidad mensual de datos históricos
-        EstacionalidadMensual estacionalidadMensual = analizarEstacionalidadMensual(request.getIdProducto());
+        EstacionalidadMensual estacionalidadMensual = analizarEstacionalidadMensual(contexto);
 
         // Determinar algoritmo real y razón de selección
         String algoritmoReal = resultado.getAlgoritmo();
@@ -907,10 +1201,16 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
 
         if (algoritmoSolicitado == null || "AUTO".equalsIgnoreCase(algoritmoSolicitado)) {
             // Modo automático: mostrar algoritmo seleccionado y criterios
-            razonSeleccion = construirRazonSeleccionAutomatica(algoritmoReal, request.getIdProducto());
+            razonSeleccion = resultado.getDetalleSeleccion() != null
+                    ? resultado.getDetalleSeleccion()
+                    : construirRazonSeleccionAutomatica(algoritmoReal, contexto);
         } else {
             // Modo manual: el usuario eligió el algoritmo
-            razonSeleccion = String.format("Algoritmo seleccionado manualmente por el usuario: %s", algoritmoReal);
+            razonSeleccion = String.format("Algoritmo seleccionado manualmente por el usuario: %s",
+                    resultado.getAlgoritmoOriginal() != null ? resultado.getAlgoritmoOriginal() : algoritmoReal);
+        }
+        if (resultado.getDetalleDegradacion() != null) {
+            razonSeleccion = razonSeleccion + ". " + resultado.getDetalleDegradacion();
         }
 
         SmartPrediccionResponse response = SmartPrediccionResponse.builder()
@@ -920,14 +1220,17 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
                 .horizonteTiempo(request.getHorizonteTiempo())
                 .algoritmoUtilizado(algoritmoReal)
                 .razonSeleccionAlgoritmo(razonSeleccion)
+                .nivelDegradacion(resultado.getNivelDegradacion())
+                .algoritmoOriginal(resultado.getAlgoritmoOriginal())
                 .demandaTotalPredicha(demandaTotal)
                 .prediccionesDetalladas(prediccionesDetalladas)
                 .metricas(SmartPrediccionResponse.MetricasCalidad.builder()
-                        .rmse(resultado.getRmse())
-                        .mae(resultado.getMae())
-                        .mape(resultado.getMape())
+                        .rmse(sinNaN(resultado.getRmse()))
+                        .mae(sinNaN(resultado.getMae()))
+                        .mape(sinNaN(resultado.getMape()))
                         .rSquared(0.0) // Deprecado: ya no se usa para calidad
-                        .calificacionCalidad(clasificarCalidad(resultado.getMape()))
+                        .calificacionCalidad(Double.isNaN(resultado.getMape()) ? null
+                                : clasificarCalidad(resultado.getMape()))
                         .nivelConfianza(95)
                         .build())
                 .estacionalidad(SmartPrediccionResponse.EstacionalidadInfo.builder()
@@ -963,11 +1266,11 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
     /**
      * Analiza la estacionalidad mensual de los datos históricos
      */
-    private EstacionalidadMensual analizarEstacionalidadMensual(Long idProducto) {
+    private EstacionalidadMensual analizarEstacionalidadMensual(ContextoPronostico contexto) {
         try {
-            List<RegistroDemanda> datosHistoricos = obtenerDatosHistoricos(idProducto);
+            AlmacenSeriesDemandaService.SerieDemanda serie = contexto.serieDemanda();
 
-            if (datosHistoricos.isEmpty() || datosHistoricos.size() < 30) {
+            if (serie.numRegistros() < 30) {
                 return EstacionalidadMensual.builder()
                         .mesMayor(null)
                         .mesMenor(null)
@@ -976,10 +1279,9 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
             }
 
             // Agrupar demanda por mes
-            Map<Integer, Double> demandaPorMes = datosHistoricos.stream()
-                    .collect(Collectors.groupingBy(
-                            registro -> registro.getFechaRegistro().getMonthValue(),
-                            Collectors.summingDouble(registro -> registro.getCantidadHistorica().doubleValue())));
+            Map<Integer, Double> demandaPorMes = new HashMap<>();
+            serie.paraCadaRegistro((fecha, cantidad) -> demandaPorMes.merge(fecha.getMonthValue(),
+                    (double) cantidad, Double::sum));
 
             if (demandaPorMes.isEmpty()) {
                 return EstacionalidadMensual.builder()
@@ -1019,7 +1321,7 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
 
         } catch (Exception e) {
             log.warn("[ESTACIONALIDAD] Advertencia: Error analizando estacionalidad mensual para producto {}: {}",
-                    idProducto, e.getMessage());
+                    contexto.productoId(), e.getMessage());
             return EstacionalidadMensual.builder()
                     .mesMayor(null)
                     .mesMenor(null)
@@ -1031,22 +1333,19 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
     /**
      * Construye una razón detallada explicando por qué se seleccionó el algoritmo
      */
-    private String construirRazonSeleccionAutomatica(String algoritmo, Long idProducto) {
+    private String construirRazonSeleccionAutomatica(String algoritmo, ContextoPronostico contexto) {
         try {
-            List<RegistroDemanda> datosHistoricos = obtenerDatosHistoricos(idProducto);
+            // Serie ORIGINAL (sin preprocesamiento) para mostrar variabilidad real
+            double[] serieOriginal = contexto.serieOriginal();
             
-            // Obtener serie ORIGINAL (sin preprocesamiento) para mostrar variabilidad real
-            double[] serieOriginal = datosHistoricos.stream()
-                    .mapToDouble(r -> r.getCantidadHistorica() != null ? r.getCantidadHistorica().doubleValue() : 0.0)
-                    .toArray();
-            
-            // Obtener serie procesada para comparar
-            double[] serieProcesada = prepararSerieTemporal(datosHistoricos);
-
-            double variabilidadOriginal = calcularCoeficienteVariacion(serieOriginal);
-            double variabilidadProcesada = calcularCoeficienteVariacion(serieProcesada);
-            boolean tieneEstacionalidad = detectarEstacionalidad(serieProcesada);
-            double tendencia = calcularTendencia(serieProcesada);
+            // Serie procesada para comparar
+            double[] serieProcesada = contexto.seriePreparada();
+
+            EstadisticasSerie estadisticasProcesada = EstadisticasSerie.de(serieProcesada);
+            double variabilidadOriginal = calcularCoeficienteVariacion(contexto.estadisticasOriginal());
+            double variabilidadProcesada = calcularCoeficienteVariacion(estadisticasProcesada);
+            boolean tieneEstacionalidad = detectarEstacionalidad(estadisticasProcesada);
+            double tendencia = estadisticasProcesada.pendiente();
             
             // Detectar si se aplicó preprocesamiento
             boolean seAplicoPreprocesamiento = serieOriginal.length != serieProcesada.length || 
@@ -1090,8 +1389,8 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
                     break;
 
                 case "LINEAR_REGRESSION":
-                    double autocorrLag1 = calcularAutocorrelacion(serieProcesada, 1);
-                    double autocorrLag7 = calcularAutocorrelacion(serieProcesada, 7);
+                    double autocorrLag1 = estadisticasProcesada.correlacionLag(1);
+                    double autocorrLag7 = estadisticasProcesada.correlacionLag(7);
                     boolean esRuidoBlanco = Math.abs(autocorrLag1) < 0.15 && Math.abs(autocorrLag7) < 0.15;
                     
                     if (serieProcesada.length < 10) {
@@ -1161,56 +1460,16 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         };
     }
 
-    private double calcularCoeficienteVariacion(double[] serie) {
-        double media = Arrays.stream(serie).average().orElse(0.0);
-        if (media == 0)
-            return 1.0;
-
-        double desviacion = Math.sqrt(Arrays.stream(serie)
-                .map(x -> Math.pow(x - media, 2))
-                .average().orElse(0.0));
-
-        return desviacion / media;
+    private double calcularCoeficienteVariacion(EstadisticasSerie estadisticas) {
+        return estadisticas.coeficienteVariacion(1.0);
     }
 
-    private boolean detectarEstacionalidad(double[] serie) {
-        if (serie.length < 14)
+    private boolean detectarEstacionalidad(EstadisticasSerie estadisticas) {
+        if (estadisticas.tamano() < 14)
             return false;
 
         // Análisis simple de autocorrelación para patrones semanales
-        int lag = 7;
-        if (serie.length <= lag)
-            return false;
-
-        double correlacion = calcularCorrelacion(
-                Arrays.copyOfRange(serie, 0, serie.length - lag),
-                Arrays.copyOfRange(serie, lag, serie.length));
-
-        return Math.abs(correlacion) > 0.3;
-    }
-
-    private double calcularTendencia(double[] serie) {
-        if (serie.length < 2)
-            return 0.0;
-
-        double[] tiempo = new double[serie.length];
-        for (int i = 0; i < serie.length; i++) {
-            tiempo[i] = i;
-        }
-
-        // Calcular pendiente simple
-        double n = serie.length;
-        double sumX = Arrays.stream(tiempo).sum();
-        double sumY = Arrays.stream(serie).sum();
-        double sumXY = 0.0;
-        double sumX2 = 0.0;
-
-        for (int i = 0; i < serie.length; i++) {
-            sumXY += tiempo[i] * serie[i];
-            sumX2 += tiempo[i] * tiempo[i];
-        }
-
-        return (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
+        return Math.abs(estadisticas.correlacionLag(7)) > 0.3;
     }
 
     private double calcularRMSE(double[] actual, double[] prediccion) {
@@ -1348,36 +1607,12 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         return Math.max(0.0, Math.min(1.0, r2));
     }
 
-    private double calcularCorrelacion(double[] x, double[] y) {
-        if (x.length != y.length || x.length == 0)
-            return 0.0;
-
-        double mediaX = Arrays.stream(x).average().orElse(0.0);
-        double mediaY = Arrays.stream(y).average().orElse(0.0);
-
-        double numerador = 0.0;
-        double sumaCuadradosX = 0.0;
-        double sumaCuadradosY = 0.0;
-
-        for (int i = 0; i < x.length; i++) {
-            double diffX = x[i] - mediaX;
-            double diffY = y[i] - mediaY;
-
-            numerador += diffX * diffY;
-            sumaCuadradosX += diffX * diffX;
-            sumaCuadradosY += diffY * diffY;
-        }
-
-        double denominador = Math.sqrt(sumaCuadradosX * sumaCuadradosY);
-        return denominador > 0 ? numerador / denominador : 0.0;
-    }
-
     /**
      * Clasifica la calidad de la predicción basándose en MAPE
      * MAPE (Mean Absolute Percentage Error) es más intuitivo que R²
      * para operaciones de inventario
      */
-    private String clasificarCalidad(double mape) {
+    static String clasificarCalidad(double mape) {
         if (mape < 10)
             return "EXCELENTE"; // Error menor a 10%
         if (mape < 20)
@@ -1386,6 +1621,13 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
             return "REGULAR"; // Error entre 20-30%
         return "POBRE"; // Error mayor a 30%
     }
+
+    /**
+     * Métrica para la respuesta: null si no se calculó (NaN = sin dato).
+     */
+    static Double sinNaN(double valor) {
+        return Double.isNaN(valor) ? null : valor;
+    }
     
     /**
      * Determina el patrón estacional basado en la intensidad detectada.
@@ -1437,168 +1679,116 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
 
     /**
      * Implementación de Regresión de Series Temporales con Lag Features.
-     * Simula comportamiento de ARIMA usando OLS con características de retraso.
+     * Simula comportamiento de ARIMA usando OLS con características de retraso,
+     * resuelto por RegresionLagsIncremental sobre arreglos primitivos.
      * Captura dependencia temporal usando valores anteriores (lags).
      * Los parámetros se obtienen dinámicamente desde la BD.
+     *
+     * El modelo se entrena una sola vez sobre los primeros trainSize valores.
+     * La validación se predice de forma recursiva desde el final del tramo de
+     * entrenamiento; el horizonte futuro se siembra con los últimos lags reales
+     * de la serie completa.
      */
-    private List<Double> ejecutarTimeSeriesRegression(double[] serie, int horizonte) {
+    private PrediccionesModelo ejecutarTimeSeriesRegression(Long productoId, double[] serie, int trainSize,
+            int validationSize, int horizonte) {
         log.debug("[PREDICCION] Ejecutando Time Series Regression con lag features y parámetros dinámicos");
 
+        double[] trainSerie = Arrays.copyOfRange(serie, 0, trainSize);
+
         try {
             // Obtener número de lags desde BD (con fallback a 7 para autocorrelación semanal)
             int numLagsConfig = obtenerParametroInt("ARIMA", "num_lags", 7);
-            int numLags = Math.min(numLagsConfig, serie.length / 4);
+            int numLags = Math.min(numLagsConfig, trainSerie.length / 4);
 
             log.debug("[PARAMETROS ARIMA] numLags configurado={}, efectivo={}", numLagsConfig, numLags);
 
-            int numFilas = serie.length - numLags;
-            if (numFilas < 10) {
+            int numFilas = trainSerie.length - numLags;
+            if (numLags < 1 || numFilas < 10) {
                 log.warn("[PREDICCION] Advertencia: Datos insuficientes para lag features, usando promedio móvil");
-                double promedio = Arrays.stream(Arrays.copyOfRange(serie, Math.max(0, serie.length - 14), serie.length))
-                        .average().orElse(serie[serie.length - 1]);
-                List<Double> fallback = new ArrayList<>();
-                for (int i = 0; i < horizonte; i++) {
-                    fallback.add(Math.max(0, promedio));
-                }
-                return fallback;
+                return promedioMovilFallback(trainSerie, serie, validationSize, horizonte);
             }
 
-            // Construir arrays para DataFrame
-            double[][] lagsMatrix = new double[numFilas][numLags];
-            double[] target = new double[numFilas];
-
-            for (int i = 0; i < numFilas; i++) {
-                for (int lag = 0; lag < numLags; lag++) {
-                    lagsMatrix[i][lag] = serie[i + lag];
-                }
-                target[i] = serie[i + numLags];
-            }
-
-            // Crear DataFrame con lag features
-            List<DoubleVector> columns = new ArrayList<>();
-            for (int lag = 0; lag < numLags; lag++) {
-                double[] lagColumn = new double[numFilas];
-                for (int i = 0; i < numFilas; i++) {
-                    lagColumn[i] = lagsMatrix[i][lag];
-                }
-                columns.add(DoubleVector.of("lag" + (lag + 1), lagColumn));
-            }
-            columns.add(DoubleVector.of("demanda", target));
-
-            DataFrame dataFrame = DataFrame.of(columns.toArray(new DoubleVector[0]));
-            Formula formula = Formula.lhs("demanda");
-
-            // Entrenar modelo OLS con lag features
-            LinearModel modelo = OLS.fit(formula, dataFrame);
-
-            // Generar predicciones iterativas
-            List<Double> predicciones = new ArrayList<>();
-            double[] bufferLags = Arrays.copyOfRange(serie, serie.length - numLags, serie.length);
-
-            for (int i = 0; i < horizonte; i++) {
-                // Crear punto de predicción con lags actuales
-                double[] lagValues = new double[numLags];
-                System.arraycopy(bufferLags, bufferLags.length - numLags, lagValues, 0, numLags);
-
-                List<DoubleVector> predColumns = new ArrayList<>();
-                for (int lag = 0; lag < numLags; lag++) {
-                    predColumns.add(DoubleVector.of("lag" + (lag + 1), new double[] { lagValues[lag] }));
-                }
-
-                DataFrame punto = DataFrame.of(predColumns.toArray(new DoubleVector[0]));
-                double prediccion = Math.max(0, modelo.predict(punto.get(0)));
-                predicciones.add(prediccion);
-
-                // Actualizar buffer de lags (shift y agregar nueva predicción)
-                double[] nuevoBuffer = new double[bufferLags.length];
-                System.arraycopy(bufferLags, 1, nuevoBuffer, 0, bufferLags.length - 1);
-                nuevoBuffer[bufferLags.length - 1] = prediccion;
-                bufferLags = nuevoBuffer;
+            // Ajuste por QR directo sobre la serie (sin DataFrame), o reutilizar desde caché
+            RegresionLagsIncremental modelo = modeloCache.obtenerOEntrenar(
+                    new ModeloEntrenadoCacheService.ClaveModelo(productoId, "ARIMA", "lags=" + numLags,
+                            ModeloEntrenadoCacheService.calcularHuella(trainSerie)),
+                    () -> {
+                        RegresionLagsIncremental ajuste = new RegresionLagsIncremental(numLags);
+                        ajuste.ajustar(trainSerie, trainSerie.length);
+                        return ajuste;
+                    });
+
+            // Validación desde el final del tramo de entrenamiento; horizonte
+            // desde los últimos lags reales de la serie completa
+            double[] validacion = modelo.predecirRecursivo(trainSerie, trainSerie.length, validationSize);
+            double[] horizonteFuturo = modelo.predecirRecursivo(serie, serie.length, horizonte);
+            List<Double> predicciones = new ArrayList<>(horizonte);
+            for (double valor : horizonteFuturo) {
+                predicciones.add(valor);
             }
 
             log.debug("[PREDICCION] Time Series Regression completado: {} predicciones con {} lags",
                     predicciones.size(), numLags);
-            return predicciones;
+            return new PrediccionesModelo(validacion, predicciones);
 
         } catch (Exception e) {
             log.error("[PREDICCION] Error en Time Series Regression: {}, usando fallback", e.getMessage());
-            double promedio = Arrays.stream(Arrays.copyOfRange(serie, Math.max(0, serie.length - 14), serie.length))
-                    .average().orElse(serie[serie.length - 1]);
-
-            List<Double> fallback = new ArrayList<>();
-            for (int i = 0; i < horizonte; i++) {
-                fallback.add(Math.max(0, promedio));
-            }
-            return fallback;
+            return promedioMovilFallback(trainSerie, serie, validationSize, horizonte);
         }
     }
 
     /**
-     * Predicción de validación con Time Series Regression
+     * Fallback de promedio móvil (últimos 14 valores) cuando no hay datos
+     * suficientes para lag features. La validación usa el promedio del tramo
+     * de entrenamiento y el horizonte el de la serie completa.
      */
-    private double[] ejecutarPrediccionValidacionTimeSeries(double[] trainSerie, int validationSize) {
-        try {
-            int numLags = Math.min(7, trainSerie.length / 4);
-            int numFilas = trainSerie.length - numLags;
-
-            if (numFilas < 10) {
-                return new double[validationSize];
-            }
+    private PrediccionesModelo promedioMovilFallback(double[] trainSerie, double[] serie, int validationSize,
+            int horizonte) {
+        double promedioTrain = promedioUltimos(trainSerie, 14);
+        double promedioSerie = promedioUltimos(serie, 14);
 
-            // Construir DataFrame con lags
-            double[][] lagsMatrix = new double[numFilas][numLags];
-            double[] target = new double[numFilas];
+        double[] validacion = new double[validationSize];
+        Arrays.fill(validacion, Math.max(0, promedioTrain));
 
-            for (int i = 0; i < numFilas; i++) {
-                for (int lag = 0; lag < numLags; lag++) {
-                    lagsMatrix[i][lag] = trainSerie[i + lag];
-                }
-                target[i] = trainSerie[i + numLags];
-            }
-
-            List<DoubleVector> columns = new ArrayList<>();
-            for (int lag = 0; lag < numLags; lag++) {
-                double[] lagColumn = new double[numFilas];
-                for (int i = 0; i < numFilas; i++) {
-                    lagColumn[i] = lagsMatrix[i][lag];
-                }
-                columns.add(DoubleVector.of("lag" + (lag + 1), lagColumn));
-            }
-            columns.add(DoubleVector.of("demanda", target));
-
-            DataFrame dataFrame = DataFrame.of(columns.toArray(new DoubleVector[0]));
-            Formula formula = Formula.lhs("demanda");
-            LinearModel modelo = OLS.fit(formula, dataFrame);
-
-            // Predicciones iterativas
-            double[] predicciones = new double[validationSize];
-            double[] bufferLags = Arrays.copyOfRange(trainSerie, trainSerie.length - numLags, trainSerie.length);
-
-            for (int i = 0; i < validationSize; i++) {
-                double[] lagValues = new double[numLags];
-                System.arraycopy(bufferLags, bufferLags.length - numLags, lagValues, 0, numLags);
+        List<Double> fallback = new ArrayList<>(horizonte);
+        for (int i = 0; i < horizonte; i++) {
+            fallback.add(Math.max(0, promedioSerie));
+        }
+        return new PrediccionesModelo(validacion, fallback);
+    }
 
-                List<DoubleVector> predColumns = new ArrayList<>();
-                for (int lag = 0; lag < numLags; lag++) {
-                    predColumns.add(DoubleVector.of("lag" + (lag + 1), new double[] { lagValues[lag] }));
-                }
+    private double promedioUltimos(double[] serie, int ventana) {
+        if (serie.length == 0) {
+            return 0.0;
+        }
+        return Arrays.stream(Arrays.copyOfRange(serie, Math.max(0, serie.length - ventana), serie.length))
+                .average().orElse(serie[serie.length - 1]);
+    }
 
-                DataFrame punto = DataFrame.of(predColumns.toArray(new DoubleVector[0]));
-                predicciones[i] = Math.max(0, modelo.predict(punto.get(0)));
+    /**
+     * Predicciones producidas por un único modelo entrenado: la ventana de
+     * validación (para métricas) y el horizonte futuro.
+     */
+    private record PrediccionesModelo(double[] validacion, List<Double> futuras) {
+    }
 
-                // Shift buffer
-                double[] nuevoBuffer = new double[bufferLags.length];
-                System.arraycopy(bufferLags, 1, nuevoBuffer, 0, bufferLags.length - 1);
-                nuevoBuffer[bufferLags.length - 1] = predicciones[i];
-                bufferLags = nuevoBuffer;
-            }
 
-            return predicciones;
+    /**
+     * Forma canónica de los hiperparámetros de Random Forest para la clave de
+     * caché.
+     */
+    private String hiperparametrosRF(int arboles, int mtry, int maxDepth, int maxNodes, int nodeSize,
+            double subsample) {
+        return String.format(Locale.ROOT, "trees=%d;mtry=%d;depth=%d;nodes=%d;nodesize=%d;subsample=%s",
+                arboles, mtry, maxDepth, maxNodes, nodeSize, subsample);
+    }
 
-        } catch (Exception e) {
-            log.error("[PREDICCION] Error en predicción validación Time Series: {}", e.getMessage());
-            return new double[validationSize];
-        }
+    /**
+     * Forma canónica de las propiedades de Gradient Boosting para la clave de
+     * caché (ordenadas por nombre).
+     */
+    private String hiperparametrosGBT(Properties props) {
+        return new TreeMap<>(props).toString();
     }
 
     /**
@@ -1615,6 +1805,41 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         private double mae;
         private double mape;
         private double confianza;
+        /** Explicación de la selección cuando la decidió el torneo AUTO. */
+        private String detalleSeleccion;
+        /** Escalón de la escalera de degradación que respondió (0 = el solicitado). */
+        private int nivelDegradacion;
+        /** Algoritmo intentado primero cuando hubo degradación. */
+        private String algoritmoOriginal;
+        private String detalleDegradacion;
+    }
+
+    /**
+     * Reúne lo que persistirPrediccion necesita de un pronóstico entrenado,
+     * para poder guardarlo después (y repetir el guardado) sin reentrenar.
+     */
+    private PrediccionCalculada calculada(ContextoPronostico contexto, ResultadoMLInterno resultado,
+            SmartPrediccionResponse response) {
+        // El promedio móvil de la escalera no es un algoritmo de AlgoritmoSmileML: la
+        // predicción se guarda bajo el algoritmo solicitado (reemplaza a la anterior de
+        // ese algoritmo); la degradación queda en la respuesta
+        String algoritmoUsado = EscaleraDegradacionService.ULTIMO_RECURSO.equals(response.getAlgoritmoUtilizado())
+                && resultado.getAlgoritmoOriginal() != null
+                        ? AlgoritmoSmileML.fromCodigo(resultado.getAlgoritmoOriginal()).getCodigo()
+                        : response.getAlgoritmoUtilizado();
+
+        int demandaTotal = (int) Math.round(
+                resultado.getPredicciones().stream().mapToDouble(Double::doubleValue).sum());
+
+        BigDecimal metricasError = null;
+        if (!Double.isNaN(resultado.getMape()) && resultado.getMape() > 0) {
+            metricasError = BigDecimal.valueOf(resultado.getMape());
+        } else if (!Double.isNaN(resultado.getMae()) && resultado.getMae() > 0) {
+            metricasError = BigDecimal.valueOf(resultado.getMae());
+        }
+
+        return new PrediccionCalculada(contexto, response, algoritmoUsado, demandaTotal, metricasError,
+                empaquetarCurva(resultado, response));
     }
 
     /**
@@ -1629,12 +1854,12 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
      * 
      * Esto evita acumulación infinita de predicciones del mismo producto.
      */
-    private Prediccion persistirPrediccion(Producto producto,
-            SmartPrediccionRequest request,
-            ResultadoMLInterno resultado,
-            SmartPrediccionResponse response) {
+    private Prediccion persistirPrediccion(PrediccionCalculada calculada) {
 
-        String algoritmoUsado = response.getAlgoritmoUtilizado();
+        ContextoPronostico contexto = calculada.contexto();
+        SmartPrediccionResponse response = calculada.respuesta();
+        Producto producto = contexto.producto();
+        String algoritmoUsado = calculada.algoritmoPersistido();
         Integer horizonteTiempo = response.getHorizonteTiempo();
 
         // Buscar predicción existente con la misma configuración
@@ -1661,17 +1886,19 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         // Actualizar campos con nuevos valores
         entidad.setFechaEjecucion(response.getFechaEjecucion());
 
-        int demandaTotal = (int) Math.round(
-                resultado.getPredicciones().stream().mapToDouble(Double::doubleValue).sum());
-        entidad.setDemandaPredichaTotal(demandaTotal);
+        entidad.setDemandaPredichaTotal(calculada.demandaTotal());
 
-        if (!Double.isNaN(resultado.getMape()) && resultado.getMape() > 0) {
-            entidad.setMetricasError(BigDecimal.valueOf(resultado.getMape()));
-        } else if (!Double.isNaN(resultado.getMae()) && resultado.getMae() > 0) {
-            entidad.setMetricasError(BigDecimal.valueOf(resultado.getMae()));
+        if (calculada.metricasError() != null) {
+            entidad.setMetricasError(calculada.metricasError());
         }
 
-        Usuario usuario = obtenerUsuarioAutenticado();
+        // Curva diaria y métricas de validación para servirlas sin reentrenar
+        entidad.setCurvaCompacta(calculada.curva().codificar());
+        entidad.setFechaInicioCurva(response.getPrediccionesDetalladas().isEmpty()
+                ? LocalDate.now().plusDays(1)
+                : LocalDate.parse(response.getPrediccionesDetalladas().get(0).getFecha()));
+
+        Usuario usuario = contexto.usuario();
         if (usuario != null) {
             entidad.setUsuario(usuario);
         }
@@ -1684,6 +1911,22 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
         return prediccionGuardada;
     }
 
+    /**
+     * Empaqueta la curva diaria (ya ajustada estacionalmente) y las métricas
+     * de validación de la respuesta.
+     */
+    private CurvaPrediccionCompacta empaquetarCurva(ResultadoMLInterno resultado, SmartPrediccionResponse response) {
+        List<SmartPrediccionResponse.PrediccionDetalle> detalle = response.getPrediccionesDetalladas();
+        float[] demanda = new float[detalle.size()];
+        for (int i = 0; i < demanda.length; i++) {
+            demanda[i] = detalle.get(i).getDemandaPredicha().floatValue();
+        }
+        boolean estacionalidad = response.getEstacionalidad() != null
+                && Boolean.TRUE.equals(response.getEstacionalidad().getTieneEstacionalidad());
+        return new CurvaPrediccionCompacta(demanda, resultado.getMae(), resultado.getRmse(), resultado.getMape(),
+                estacionalidad);
+    }
+
     /**
      * Limpia predicciones antiguas manteniendo solo las últimas N por
      * configuración.
@@ -1718,15 +1961,11 @@ public class SmartPredictorServiceImpl implements ISmartPredictorService {
     }
 
     /**
-     * Obtiene el usuario autenticado si el contexto de seguridad lo provee.
+     * Busca por email el usuario autenticado cuando el principal no trae la
+     * entidad (autenticaciones que no pasan por el filtro JWT).
      */
-    private Usuario obtenerUsuarioAutenticado() {
+    private Usuario obtenerUsuarioAutenticado(Authentication authentication) {
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication == null || !authentication.isAuthenticated()) {
-                return null;
-            }
-
             String email = authentication.getName();
             return usuarioRepository.findByEmail(email).orElse(null);
         } catch (Exception e) {
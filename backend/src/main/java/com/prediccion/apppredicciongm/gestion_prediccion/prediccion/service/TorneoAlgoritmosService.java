@@ -0,0 +1,369 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Torneo de algoritmos para el modo AUTO.
+ *
+ * Entrena varios candidatos en paralelo sobre un pool de cómputo acotado,
+ * puntúa cada uno (MAPE en validación) y se queda con el mejor. Al vencer el
+ * plazo de la solicitud, los candidatos pendientes se cancelan y se elige el
+ * mejor de los que ya terminaron. El tiempo total queda cerca del candidato
+ * más lento que alcanzó a terminar, no de la suma de todos.
+ *
+ * Nota: los entrenamientos de Smile no atienden interrupciones; un candidato
+ * cancelado en plena ejecución libera la solicitud de inmediato, pero su hilo
+ * termina el ajuste en segundo plano y el resultado se descarta. Por eso cada
+ * tarea reserva un hilo libre al enviarse, sin esperar, y lo devuelve cuando
+ * su ajuste termina de verdad, no al cancelarla. Si no hay hilo libre la
+ * tarea se rechaza: ninguna espera en cola consumiendo su plazo detrás de
+ * ajustes huérfanos de solicitudes anteriores.
+ *
+ * Los ajustes huérfanos (cancelados ya iniciados) se cuentan aparte: las
+ * estadísticas muestran cuántos siguen ocupando un hilo y cuánto tardaron en
+ * soltarlo, para ajustar el plazo o el número de hilos.
+ *
+ * Configurable mediante application.properties (prediccion.ml.torneo.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class TorneoAlgoritmosService {
+
+    private final ThreadPoolExecutor ejecutor;
+
+    /** Hilos sin tarea reservada; un ajuste cancelado conserva el suyo hasta terminar. */
+    private final Semaphore hilosLibres;
+
+    private final AtomicLong torneos = new AtomicLong();
+    private final AtomicLong candidatosCancelados = new AtomicLong();
+    private final AtomicLong candidatosFallidos = new AtomicLong();
+    private final AtomicLong candidatosRechazados = new AtomicLong();
+    private final AtomicLong torneosSinHolgura = new AtomicLong();
+
+    /** Ajustes cancelados que siguen corriendo y reteniendo su hilo. */
+    private final AtomicInteger ajustesHuerfanos = new AtomicInteger();
+    private final AtomicLong ajustesHuerfanosTotales = new AtomicLong();
+    private final AtomicLong huerfanoHiloRetenidoMs = new AtomicLong();
+
+    public TorneoAlgoritmosService(
+            @Value("${prediccion.ml.torneo.hilos:4}") int hilos,
+            @Value("${prediccion.ml.torneo.cola-max:64}") int colaMax) {
+        AtomicInteger contador = new AtomicInteger();
+        this.ejecutor = new ThreadPoolExecutor(
+                hilos, hilos,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(colaMax),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "torneo-ml-" + contador.incrementAndGet());
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.ejecutor.allowCoreThreadTimeOut(true);
+        this.hilosLibres = new Semaphore(hilos);
+    }
+
+    /**
+     * Resultado de un torneo.
+     *
+     * @param ganador     código del candidato ganador (null si ninguno terminó)
+     * @param resultado   resultado del ganador
+     * @param puntajes    puntaje de cada candidato que terminó
+     * @param descartados candidatos cancelados por plazo, fallidos o no
+     *                    iniciados por pool saturado
+     * @param duracionMs  tiempo total del torneo
+     */
+    public record ResultadoTorneo<R>(String ganador, R resultado, Map<String, Double> puntajes,
+            List<String> descartados, long duracionMs) {
+
+        public boolean hayGanador() {
+            return ganador != null;
+        }
+    }
+
+    /**
+     * Ejecuta los candidatos en paralelo y retorna el de menor puntaje entre
+     * los que terminan antes del plazo. En empate gana el primero en el orden
+     * de inserción.
+     *
+     * @param candidatos mapa ordenado código → entrenamiento del candidato
+     * @param puntaje    función de puntaje (menor es mejor)
+     * @param plazoMs    tiempo máximo de espera en milisegundos
+     */
+    public <R> ResultadoTorneo<R> competir(Map<String, Callable<R>> candidatos, ToDoubleFunction<R> puntaje,
+            long plazoMs) {
+        torneos.incrementAndGet();
+        long inicio = System.currentTimeMillis();
+        long limite = inicio + plazoMs;
+
+        BlockingQueue<Future<R>> completados = new LinkedBlockingQueue<>();
+        Map<Future<R>, String> pendientes = new HashMap<>();
+        List<String> descartados = new ArrayList<>();
+
+        for (Map.Entry<String, Callable<R>> candidato : candidatos.entrySet()) {
+            try {
+                pendientes.put(enviarConHiloLibre(candidato.getValue(), completados), candidato.getKey());
+            } catch (RejectedExecutionException e) {
+                // No iniciado: nunca corre fuera del pool ni sin plazo
+                log.warn("[TORNEO] Sin hilos de cómputo libres, candidato {} no iniciado", candidato.getKey());
+                descartados.add(candidato.getKey());
+                candidatosRechazados.incrementAndGet();
+            }
+        }
+
+        Map<String, R> terminados = new LinkedHashMap<>();
+        Map<String, Double> puntajes = new LinkedHashMap<>();
+
+        try {
+            while (!pendientes.isEmpty()) {
+                long restante = limite - System.currentTimeMillis();
+                if (restante <= 0) {
+                    break;
+                }
+                Future<R> listo = completados.poll(restante, TimeUnit.MILLISECONDS);
+                if (listo == null) {
+                    break;
+                }
+                String codigo = pendientes.remove(listo);
+                try {
+                    R resultado = listo.get();
+                    double valor = puntaje.applyAsDouble(resultado);
+                    terminados.put(codigo, resultado);
+                    puntajes.put(codigo, Double.isNaN(valor) ? Double.POSITIVE_INFINITY : valor);
+                    log.debug("[TORNEO] {} terminó en {}ms con puntaje {}", codigo,
+                            System.currentTimeMillis() - inicio, valor);
+                } catch (ExecutionException e) {
+                    log.warn("[TORNEO] Candidato {} falló: {}", codigo, e.getCause() != null
+                            ? e.getCause().getMessage() : e.getMessage());
+                    descartados.add(codigo);
+                    candidatosFallidos.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // Cancelar los candidatos que no alcanzaron el plazo
+        for (Map.Entry<Future<R>, String> pendiente : pendientes.entrySet()) {
+            pendiente.getKey().cancel(true);
+            descartados.add(pendiente.getValue());
+            candidatosCancelados.incrementAndGet();
+            log.info("[TORNEO] Candidato {} cancelado por plazo ({}ms)", pendiente.getValue(), plazoMs);
+        }
+
+        String ganador = null;
+        double mejorPuntaje = Double.POSITIVE_INFINITY;
+        for (Map.Entry<String, Double> entrada : puntajes.entrySet()) {
+            if (ganador == null || entrada.getValue() < mejorPuntaje) {
+                ganador = entrada.getKey();
+                mejorPuntaje = entrada.getValue();
+            }
+        }
+
+        long duracion = System.currentTimeMillis() - inicio;
+        log.info("[TORNEO] Ganador={} puntajes={} descartados={} en {}ms", ganador, puntajes, descartados, duracion);
+        return new ResultadoTorneo<>(ganador, ganador != null ? terminados.get(ganador) : null,
+                puntajes, descartados, duracion);
+    }
+
+    /**
+     * Indica si el pool tiene hilos libres para las tareas indicadas. Los
+     * ajustes huérfanos (cancelados que siguen corriendo en segundo plano)
+     * conservan su hilo reservado y cuentan como ocupados. Cada respuesta negativa se
+     * contabiliza como torneo sin holgura.
+     *
+     * @param tareas número de tareas que se enviarían a la vez
+     */
+    public boolean tieneHolgura(int tareas) {
+        boolean holgura = hilosLibres.availablePermits() >= tareas;
+        if (!holgura) {
+            torneosSinHolgura.incrementAndGet();
+        }
+        return holgura;
+    }
+
+    /**
+     * Envía una tarea sin plazo al pool de cómputo compartido (por ejemplo,
+     * los orígenes del backtesting). Si no hay hilo libre, la tarea se
+     * ejecuta en el hilo llamador. No usar para tareas con plazo: en el hilo
+     * llamador no hay forma de cortarlas; para esas, enviarConPlazo.
+     *
+     * @param tarea tarea de cómputo
+     * @return futuro con el resultado
+     */
+    public <T> Future<T> enviar(Callable<T> tarea) {
+        try {
+            return enviarConHiloLibre(tarea, null);
+        } catch (RejectedExecutionException e) {
+            FutureTask<T> local = new FutureTask<>(tarea);
+            local.run();
+            return local;
+        }
+    }
+
+    /**
+     * Envía una tarea con plazo al pool de cómputo compartido. Solo se
+     * inicia si hay un hilo libre en este momento; si no, se propaga el
+     * rechazo sin esperar, para que el llamador la descarte en lugar de
+     * dejarla en cola consumiendo su plazo o ejecutarla sin plazo.
+     *
+     * @param tarea tarea de cómputo
+     * @return futuro con el resultado
+     * @throws RejectedExecutionException si no hay hilo libre
+     */
+    public <T> Future<T> enviarConPlazo(Callable<T> tarea) {
+        try {
+            return enviarConHiloLibre(tarea, null);
+        } catch (RejectedExecutionException e) {
+            candidatosRechazados.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Reserva un hilo libre, sin esperar, y envía la tarea. El hilo se
+     * devuelve cuando la tarea termina de ejecutarse o si se cancela antes de
+     * empezar.
+     *
+     * @param completados recibe el futuro al terminar o cancelarse (puede ser null)
+     * @throws RejectedExecutionException si no hay hilo libre
+     */
+    private <T> Future<T> enviarConHiloLibre(Callable<T> tarea, BlockingQueue<Future<T>> completados) {
+        if (!hilosLibres.tryAcquire()) {
+            throw new RejectedExecutionException("Sin hilos de cómputo libres");
+        }
+        TareaConHilo<T> reservada = new TareaConHilo<>(tarea, completados);
+        try {
+            ejecutor.execute(reservada);
+        } catch (RejectedExecutionException e) {
+            reservada.liberarHilo();
+            throw e;
+        }
+        return reservada;
+    }
+
+    /**
+     * Tarea con un hilo del pool reservado.
+     */
+    private final class TareaConHilo<T> extends FutureTask<T> {
+
+        private static final int CORRIENDO = 0;
+        private static final int HUERFANA = 1;
+        private static final int TERMINADA = 2;
+
+        private final BlockingQueue<Future<T>> completados;
+        private final AtomicBoolean liberada = new AtomicBoolean();
+        private final AtomicInteger estado = new AtomicInteger(CORRIENDO);
+        private volatile boolean iniciada;
+        private volatile long canceladaEn;
+
+        TareaConHilo(Callable<T> tarea, BlockingQueue<Future<T>> completados) {
+            super(tarea);
+            this.completados = completados;
+        }
+
+        @Override
+        public void run() {
+            iniciada = true;
+            try {
+                super.run();
+            } finally {
+                if (estado.getAndSet(TERMINADA) == HUERFANA) {
+                    long retenido = System.currentTimeMillis() - canceladaEn;
+                    ajustesHuerfanos.decrementAndGet();
+                    huerfanoHiloRetenidoMs.addAndGet(retenido);
+                    log.debug("[TORNEO] Ajuste huérfano terminó {}ms después de cancelarse", retenido);
+                }
+                liberarHilo();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean interrumpir) {
+            canceladaEn = System.currentTimeMillis();
+            boolean cancelada = super.cancel(interrumpir);
+            if (cancelada && !iniciada) {
+                // Nunca correrá: su hilo queda libre ya
+                liberarHilo();
+            } else if (cancelada) {
+                // Smile no atiende la interrupción: el ajuste sigue y retiene su hilo hasta terminar.
+                // Se cuenta antes de marcarla para que run() nunca descuente uno no contado
+                ajustesHuerfanos.incrementAndGet();
+                if (estado.compareAndSet(CORRIENDO, HUERFANA)) {
+                    ajustesHuerfanosTotales.incrementAndGet();
+                } else {
+                    ajustesHuerfanos.decrementAndGet();
+                }
+            }
+            return cancelada;
+        }
+
+        @Override
+        protected void done() {
+            if (completados != null) {
+                completados.add(this);
+            }
+        }
+
+        void liberarHilo() {
+            if (liberada.compareAndSet(false, true)) {
+                hilosLibres.release();
+            }
+        }
+    }
+
+    /**
+     * Estadísticas del torneo y del pool de cómputo.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("torneos", torneos.get());
+        estadisticas.put("candidatosCancelados", candidatosCancelados.get());
+        estadisticas.put("candidatosFallidos", candidatosFallidos.get());
+        estadisticas.put("candidatosRechazados", candidatosRechazados.get());
+        estadisticas.put("torneosSinHolgura", torneosSinHolgura.get());
+        estadisticas.put("hilosActivos", ejecutor.getActiveCount());
+        estadisticas.put("hilosLibres", hilosLibres.availablePermits());
+        estadisticas.put("ajustesHuerfanos", ajustesHuerfanos.get());
+        estadisticas.put("ajustesHuerfanosTotales", ajustesHuerfanosTotales.get());
+        long huerfanosTerminados = ajustesHuerfanosTotales.get() - ajustesHuerfanos.get();
+        estadisticas.put("huerfanoHiloRetenidoPromedioMs",
+                huerfanosTerminados > 0 ? huerfanoHiloRetenidoMs.get() / huerfanosTerminados : 0);
+        estadisticas.put("hilosMaximos", ejecutor.getMaximumPoolSize());
+        estadisticas.put("tareasEnCola", ejecutor.getQueue().size());
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+    }
+}
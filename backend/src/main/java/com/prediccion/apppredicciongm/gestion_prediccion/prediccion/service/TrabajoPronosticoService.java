@@ -0,0 +1,367 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Trabajos de pronóstico asíncronos.
+ *
+ * La solicitud web solo registra el trabajo y retorna su ID; el
+ * entrenamiento corre en un hilo virtual, de modo que las predicciones
+ * pesadas (GBT, torneo) no retienen hilos de Tomcat mientras el resto del
+ * tráfico espera.
+ *
+ * - Un semáforo limita los entrenamientos simultáneos, y cada uno corre con
+ *   un permiso del presupuesto de conexiones compartido con el resto del
+ *   trabajo en segundo plano (PresupuestoConexionesService).
+ * - El contexto de seguridad del solicitante se propaga al trabajo, para que
+ *   la predicción quede asociada a su usuario.
+ * - Un trabajo en cola se cancela de inmediato; uno que ya está entrenando
+ *   termina, pero su resultado se descarta (la predicción persistida queda).
+ *   El paso EN_COLA → EJECUTANDO / CANCELADO es un compareAndSet: solo se
+ *   interrumpe un trabajo que con certeza no empezó a entrenar.
+ * - Los trabajos terminados se conservan prediccion.ml.trabajos.retencion-minutos.
+ *
+ * Configurable mediante application.properties (prediccion.ml.trabajos.*).
+ *
+ * @author Sistema de Predicción
+ * @version 1.0
+ * @since 2025-11-20
+ */
+@Slf4j
+@Service
+public class TrabajoPronosticoService {
+
+    public enum EstadoTrabajo {
+        EN_COLA, EJECUTANDO, COMPLETADO, FALLIDO, CANCELADO;
+
+        boolean esFinal() {
+            return this == COMPLETADO || this == FALLIDO || this == CANCELADO;
+        }
+    }
+
+    private final ISmartPredictorService smartPredictor;
+    private final PresupuestoConexionesService presupuesto;
+    private final ExecutorService ejecutor;
+    private final Semaphore cupos;
+    private final int maxConcurrentes;
+
+    private final ConcurrentHashMap<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+    private final AtomicInteger activos = new AtomicInteger();
+    private final AtomicLong enviados = new AtomicLong();
+    private final AtomicLong rechazados = new AtomicLong();
+    private final AtomicLong completados = new AtomicLong();
+    private final AtomicLong fallidos = new AtomicLong();
+    private final AtomicLong cancelados = new AtomicLong();
+
+    @Value("${prediccion.ml.trabajos.max-activos:50}")
+    private int maxActivos;
+
+    @Value("${prediccion.ml.trabajos.retencion-minutos:30}")
+    private long retencionMinutos;
+
+    public TrabajoPronosticoService(
+            ISmartPredictorService smartPredictor,
+            PresupuestoConexionesService presupuesto,
+            @Value("${prediccion.ml.trabajos.max-concurrentes:1}") int maxConcurrentes) {
+        this.smartPredictor = smartPredictor;
+        this.presupuesto = presupuesto;
+        this.maxConcurrentes = Math.max(1, maxConcurrentes);
+        this.cupos = new Semaphore(this.maxConcurrentes, true);
+        this.ejecutor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("pronostico-trabajo-", 0).factory());
+    }
+
+    /**
+     * Estado en memoria de un trabajo.
+     */
+    private static final class Trabajo {
+        final String id = UUID.randomUUID().toString();
+        final Long productoId;
+        final String tipo;
+        final LocalDateTime fechaCreacion = LocalDateTime.now();
+        final AtomicReference<EstadoTrabajo> estado = new AtomicReference<>(EstadoTrabajo.EN_COLA);
+        volatile String etapa = "EN_COLA";
+        volatile int progreso;
+        volatile LocalDateTime fechaInicio;
+        volatile LocalDateTime fechaFin;
+        volatile SmartPrediccionResponse resultado;
+        volatile String tipoError;
+        volatile String mensajeError;
+        volatile boolean cancelacionSolicitada;
+        volatile Future<?> futuro;
+
+        Trabajo(Long productoId, String tipo) {
+            this.productoId = productoId;
+            this.tipo = tipo;
+        }
+
+        void avanzar(String etapa, int progreso) {
+            this.etapa = etapa;
+            this.progreso = progreso;
+        }
+
+        Map<String, Object> resumen() {
+            Map<String, Object> resumen = new LinkedHashMap<>();
+            resumen.put("idTrabajo", id);
+            resumen.put("productoId", productoId);
+            resumen.put("tipo", tipo);
+            resumen.put("estado", estado.get());
+            resumen.put("etapa", etapa);
+            resumen.put("progreso", progreso);
+            resumen.put("fechaCreacion", fechaCreacion);
+            resumen.put("fechaInicio", fechaInicio);
+            resumen.put("fechaFin", fechaFin);
+            if (fechaInicio != null) {
+                LocalDateTime fin = fechaFin != null ? fechaFin : LocalDateTime.now();
+                resumen.put("duracionMs", Duration.between(fechaInicio, fin).toMillis());
+            }
+            if (resultado != null) {
+                resumen.put("idPrediccion", resultado.getIdPrediccion());
+                resumen.put("algoritmoUtilizado", resultado.getAlgoritmoUtilizado());
+            }
+            if (tipoError != null) {
+                resumen.put("error", tipoError);
+                resumen.put("mensaje", mensajeError);
+            }
+            return resumen;
+        }
+    }
+
+    /**
+     * Registra un trabajo con la configuración dada.
+     *
+     * @return resumen del trabajo (incluye idTrabajo)
+     * @throws RejectedExecutionException si ya hay prediccion.ml.trabajos.max-activos trabajos sin terminar
+     */
+    public Map<String, Object> enviar(SmartPrediccionRequest request) {
+        return registrar(new Trabajo(request.getIdProducto(), "PREDICCION"), trabajo -> () -> request);
+    }
+
+    /**
+     * Registra un trabajo de predicción automática: horizonte calculado por
+     * autocorrelación, algoritmo AUTO y estacionalidad activada (misma
+     * configuración que POST /automatico/{productoId}).
+     */
+    public Map<String, Object> enviarAutomatico(Long productoId) {
+        return registrar(new Trabajo(productoId, "AUTOMATICO"), trabajo -> () -> {
+            trabajo.avanzar("CALCULANDO_HORIZONTE", 10);
+            SmartPrediccionRequest configuracion = new SmartPrediccionRequest();
+            configuracion.setIdProducto(productoId);
+            configuracion.setAlgoritmoSeleccionado("AUTO");
+            configuracion.setHorizonteTiempo(smartPredictor.calcularHorizonteAutomatico(productoId));
+            configuracion.setDetectarEstacionalidad(true);
+            configuracion.setGenerarOrdenCompra(false);
+            return configuracion;
+        });
+    }
+
+    public Optional<Map<String, Object>> obtenerEstado(String idTrabajo) {
+        return Optional.ofNullable(trabajos.get(idTrabajo)).map(Trabajo::resumen);
+    }
+
+    /**
+     * Resultado de un trabajo completado.
+     *
+     * @return respuesta de la predicción, o vacío si el trabajo no existe o no está COMPLETADO
+     */
+    public Optional<SmartPrediccionResponse> obtenerResultado(String idTrabajo) {
+        Trabajo trabajo = trabajos.get(idTrabajo);
+        return trabajo != null && trabajo.estado.get() == EstadoTrabajo.COMPLETADO
+                ? Optional.ofNullable(trabajo.resultado)
+                : Optional.empty();
+    }
+
+    /**
+     * Solicita la cancelación de un trabajo.
+     *
+     * @return false si el trabajo no existe o ya terminó
+     */
+    public boolean cancelar(String idTrabajo) {
+        Trabajo trabajo = trabajos.get(idTrabajo);
+        if (trabajo == null || trabajo.estado.get().esFinal()) {
+            return false;
+        }
+        trabajo.cancelacionSolicitada = true;
+        // Solo se interrumpe la espera del cupo o del permiso de conexión: si
+        // el compareAndSet gana, el hilo ya no puede pasar a EJECUTANDO; un
+        // entrenamiento en curso no se interrumpe a mitad de su transacción
+        if (trabajo.estado.compareAndSet(EstadoTrabajo.EN_COLA, EstadoTrabajo.CANCELADO)) {
+            finalizar(trabajo, EstadoTrabajo.CANCELADO, null, null);
+            if (trabajo.futuro != null) {
+                trabajo.futuro.cancel(true);
+            }
+        }
+        log.info("[TRABAJOS] Cancelación solicitada para trabajo {} ({})", idTrabajo, trabajo.estado.get());
+        return true;
+    }
+
+    /**
+     * Descarta los trabajos terminados cuya retención venció.
+     */
+    @Scheduled(fixedDelayString = "${prediccion.ml.trabajos.limpieza-ms:60000}")
+    public void purgarVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(retencionMinutos);
+        int antes = trabajos.size();
+        trabajos.values().removeIf(t -> t.estado.get().esFinal() && t.fechaFin != null && t.fechaFin.isBefore(limite));
+        int purgados = antes - trabajos.size();
+        if (purgados > 0) {
+            log.debug("[TRABAJOS] {} trabajos vencidos descartados", purgados);
+        }
+    }
+
+    /**
+     * Estadísticas de los trabajos: en cola, en ejecución, cupos y totales.
+     */
+    public Map<String, Object> obtenerEstadisticas() {
+        Map<EstadoTrabajo, Integer> porEstado = new LinkedHashMap<>();
+        for (EstadoTrabajo estado : EstadoTrabajo.values()) {
+            porEstado.put(estado, 0);
+        }
+        trabajos.values().forEach(t -> porEstado.merge(t.estado.get(), 1, Integer::sum));
+
+        Map<String, Object> estadisticas = new LinkedHashMap<>();
+        estadisticas.put("retenidos", trabajos.size());
+        estadisticas.put("porEstado", porEstado);
+        estadisticas.put("activos", activos.get());
+        estadisticas.put("maxActivos", maxActivos);
+        estadisticas.put("maxConcurrentes", maxConcurrentes);
+        estadisticas.put("cuposLibres", cupos.availablePermits());
+        estadisticas.put("enviados", enviados.get());
+        estadisticas.put("rechazados", rechazados.get());
+        estadisticas.put("completados", completados.get());
+        estadisticas.put("fallidos", fallidos.get());
+        estadisticas.put("cancelados", cancelados.get());
+        estadisticas.put("retencionMinutos", retencionMinutos);
+        return estadisticas;
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        ejecutor.shutdownNow();
+    }
+
+    // ========== MÉTODOS AUXILIARES ==========
+
+    private Map<String, Object> registrar(Trabajo trabajo,
+            Function<Trabajo, Supplier<SmartPrediccionRequest>> configuracion) {
+        if (activos.incrementAndGet() > maxActivos) {
+            activos.decrementAndGet();
+            rechazados.incrementAndGet();
+            throw new RejectedExecutionException(
+                    "Hay " + maxActivos + " trabajos de pronóstico sin terminar; intente más tarde");
+        }
+
+        trabajos.put(trabajo.id, trabajo);
+        enviados.incrementAndGet();
+        Supplier<SmartPrediccionRequest> preparar = configuracion.apply(trabajo);
+        // Antes de enviar: el hilo no debe pisar la etapa de una cancelación temprana
+        trabajo.avanzar("ESPERANDO_CUPO", 5);
+        try {
+            trabajo.futuro = ejecutor.submit(new DelegatingSecurityContextRunnable(() -> ejecutar(trabajo, preparar)));
+        } catch (RejectedExecutionException e) {
+            trabajos.remove(trabajo.id);
+            activos.decrementAndGet();
+            throw e;
+        }
+
+        log.info("[TRABAJOS] Trabajo {} registrado: {} producto {}", trabajo.id, trabajo.tipo, trabajo.productoId);
+        return trabajo.resumen();
+    }
+
+    private void ejecutar(Trabajo trabajo, Supplier<SmartPrediccionRequest> preparar) {
+        try {
+            cupos.acquire();
+            try {
+                presupuesto.ejecutarInterrumpible(() -> {
+                    // Si cancelar ganó el compareAndSet, ya cerró el trabajo
+                    if (!trabajo.estado.compareAndSet(EstadoTrabajo.EN_COLA, EstadoTrabajo.EJECUTANDO)) {
+                        return null;
+                    }
+                    trabajo.fechaInicio = LocalDateTime.now();
+
+                    SmartPrediccionRequest request = preparar.get();
+                    // Sin Tomcat esperando: presupuesto de lotes en lugar del interactivo
+                    request.setEjecucionEnLote(true);
+                    trabajo.avanzar("ENTRENANDO", 20);
+                    SmartPrediccionResponse resultado = smartPredictor.generarPrediccionInteligente(request);
+
+                    if (trabajo.cancelacionSolicitada) {
+                        finalizar(trabajo, EstadoTrabajo.CANCELADO, null, null);
+                    } else {
+                        trabajo.resultado = resultado;
+                        finalizar(trabajo, EstadoTrabajo.COMPLETADO, null, null);
+                    }
+                    return null;
+                });
+            } finally {
+                cupos.release();
+            }
+
+        } catch (InterruptedException e) {
+            // Cancelado mientras esperaba el cupo (cancelar ya lo cerró) o apagado del ejecutor
+            Thread.currentThread().interrupt();
+            if (trabajo.estado.compareAndSet(EstadoTrabajo.EN_COLA, EstadoTrabajo.CANCELADO)) {
+                finalizar(trabajo, EstadoTrabajo.CANCELADO, null, null);
+            }
+
+        } catch (IllegalArgumentException e) {
+            finalizar(trabajo, EstadoTrabajo.FALLIDO, "VALIDATION_ERROR", e.getMessage());
+
+        } catch (IllegalStateException e) {
+            finalizar(trabajo, EstadoTrabajo.FALLIDO, "INSUFFICIENT_DATA", e.getMessage());
+
+        } catch (Exception e) {
+            log.error("[TRABAJOS] Error en trabajo {} (producto {}): {}", trabajo.id, trabajo.productoId,
+                    e.getMessage(), e);
+            finalizar(trabajo, EstadoTrabajo.FALLIDO, "PREDICTION_ERROR", "Error interno en el sistema de predicción");
+        }
+    }
+
+    /**
+     * Cierra el trabajo. Se llama una sola vez por trabajo: desde el hilo que
+     * lo ejecuta, o desde cancelar si el trabajo seguía en cola (en ese caso
+     * el hilo puede no llegar a correr, así que aquí se libera su lugar en
+     * activos).
+     */
+    private void finalizar(Trabajo trabajo, EstadoTrabajo estado, String tipoError, String mensaje) {
+        trabajo.tipoError = tipoError;
+        trabajo.mensajeError = mensaje;
+        trabajo.fechaFin = LocalDateTime.now();
+        trabajo.avanzar(estado.name(), 100);
+        trabajo.estado.set(estado);
+        activos.decrementAndGet();
+
+        switch (estado) {
+            case COMPLETADO -> completados.incrementAndGet();
+            case FALLIDO -> fallidos.incrementAndGet();
+            default -> cancelados.incrementAndGet();
+        }
+        log.info("[TRABAJOS] Trabajo {} {} (producto {}){}", trabajo.id, estado, trabajo.productoId,
+                mensaje != null ? ": " + mensaje : "");
+    }
+}
@@ -2,6 +2,8 @@ package com.prediccion.apppredicciongm.gestion_reportes.service;
 
 import com.prediccion.apppredicciongm.gestion_inventario.inventario.repository.IInventarioRepositorio;
 import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IPrediccionRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.CurvaPrediccionCompacta;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.CurvaPrediccionService;
 import com.prediccion.apppredicciongm.gestion_reportes.dto.response.ReporteInventarioDTO;
 import com.prediccion.apppredicciongm.gestion_reportes.dto.response.ReportePrediccionDTO;
 import com.prediccion.apppredicciongm.models.Inventario.Inventario;
@@ -26,6 +28,7 @@ public class ReporteServiceImpl implements IReporteService {
 
     private final IPrediccionRepositorio prediccionRepositorio;
     private final IInventarioRepositorio inventarioRepositorio;
+    private final CurvaPrediccionService curvaPrediccion;
 
     @Override
     @Transactional(readOnly = true)
@@ -42,9 +45,12 @@ public class ReporteServiceImpl implements IReporteService {
             return construirReporteVacio();
         }
 
+        // Métricas de validación guardadas con cada predicción (sin reentrenar)
+        Map<Integer, CurvaPrediccionCompacta> curvas = decodificarCurvas(predicciones);
+
         ReportePrediccionDTO.ResumenGeneralPrediccion resumen = construirResumenPredicciones(predicciones, fechaInicioDateTime, fechaFinDateTime);
-        List<ReportePrediccionDTO.PrediccionDetalle> detalles = construirDetallesPredicciones(predicciones);
-        ReportePrediccionDTO.EstadisticasPrediccion estadisticas = construirEstadisticasPredicciones(predicciones);
+        List<ReportePrediccionDTO.PrediccionDetalle> detalles = construirDetallesPredicciones(predicciones, curvas);
+        ReportePrediccionDTO.EstadisticasPrediccion estadisticas = construirEstadisticasPredicciones(predicciones, curvas);
         List<ReportePrediccionDTO.ProductoConPrediccion> topProductos = construirTopProductos(predicciones);
 
         return ReportePrediccionDTO.builder()
@@ -140,7 +146,25 @@ public class ReporteServiceImpl implements IReporteService {
                 .build();
     }
 
-    private List<ReportePrediccionDTO.PrediccionDetalle> construirDetallesPredicciones(List<Prediccion> predicciones) {
+    private Map<Integer, CurvaPrediccionCompacta> decodificarCurvas(List<Prediccion> predicciones) {
+        Map<Integer, CurvaPrediccionCompacta> curvas = new HashMap<>();
+        for (Prediccion pred : predicciones) {
+            curvaPrediccion.decodificar(pred).ifPresent(curva -> curvas.put(pred.getPrediccionId(), curva));
+        }
+        return curvas;
+    }
+
+    private static BigDecimal metricaCurva(CurvaPrediccionCompacta curva,
+            java.util.function.ToDoubleFunction<CurvaPrediccionCompacta> metrica) {
+        if (curva == null) {
+            return BigDecimal.ZERO;
+        }
+        double valor = metrica.applyAsDouble(curva);
+        return Double.isNaN(valor) ? BigDecimal.ZERO : BigDecimal.valueOf(valor).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    private List<ReportePrediccionDTO.PrediccionDetalle> construirDetallesPredicciones(List<Prediccion> predicciones,
+            Map<Integer, CurvaPrediccionCompacta> curvas) {
         return predicciones.stream()
                 .map(pred -> ReportePrediccionDTO.PrediccionDetalle.builder()
                         .prediccionId(pred.getPrediccionId())
@@ -152,8 +176,8 @@ public class ReporteServiceImpl implements IReporteService {
                         .horizonteTiempo(pred.getHorizonteTiempo())
                         .demandaPredichaTotal(pred.getDemandaPredichaTotal())
                         .mape(pred.getMetricasError())
-                        .rmse(BigDecimal.ZERO)
-                        .mae(BigDecimal.ZERO)
+                        .rmse(metricaCurva(curvas.get(pred.getPrediccionId()), CurvaPrediccionCompacta::rmse))
+                        .mae(metricaCurva(curvas.get(pred.getPrediccionId()), CurvaPrediccionCompacta::mae))
                         .r2(BigDecimal.ZERO)
                         .nivelPrecision(calcularNivelPrecision(pred.getMetricasError()))
                         .nombreUsuario(pred.getUsuario() != null ? pred.getUsuario().getNombre() : "Sistema")
@@ -161,13 +185,26 @@ public class ReporteServiceImpl implements IReporteService {
                 .collect(Collectors.toList());
     }
 
-    private ReportePrediccionDTO.EstadisticasPrediccion construirEstadisticasPredicciones(List<Prediccion> predicciones) {
+    private ReportePrediccionDTO.EstadisticasPrediccion construirEstadisticasPredicciones(List<Prediccion> predicciones,
+            Map<Integer, CurvaPrediccionCompacta> curvas) {
         double mapePromedio = predicciones.stream()
                 .filter(p -> p.getMetricasError() != null)
                 .mapToDouble(p -> p.getMetricasError().doubleValue())
                 .average()
                 .orElse(0.0);
 
+        double rmsePromedio = curvas.values().stream()
+                .mapToDouble(CurvaPrediccionCompacta::rmse)
+                .filter(v -> !Double.isNaN(v))
+                .average()
+                .orElse(0.0);
+
+        double maePromedio = curvas.values().stream()
+                .mapToDouble(CurvaPrediccionCompacta::mae)
+                .filter(v -> !Double.isNaN(v))
+                .average()
+                .orElse(0.0);
+
         Map<String, Long> algoritmos = predicciones.stream()
                 .collect(Collectors.groupingBy(Prediccion::getAlgoritmoUsado, Collectors.counting()));
 
@@ -182,8 +219,8 @@ public class ReporteServiceImpl implements IReporteService {
 
         return ReportePrediccionDTO.EstadisticasPrediccion.builder()
                 .mapePromedio(Math.round(mapePromedio * 100.0) / 100.0)
-                .rmsePromedio(0.0)
-                .maePromedio(0.0)
+                .rmsePromedio(Math.round(rmsePromedio * 100.0) / 100.0)
+                .maePromedio(Math.round(maePromedio * 100.0) / 100.0)
                 .r2Promedio(0.0)
                 .algoritmoMasUsado(algoritmoMasUsado)
                 .cantidadPorAlgoritmo(algoritmos.getOrDefault(algoritmoMasUsado, 0L).intValue())
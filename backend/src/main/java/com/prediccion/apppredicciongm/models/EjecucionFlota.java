@@ -0,0 +1,77 @@
+package com.prediccion.apppredicciongm.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Ejecución de pronóstico de toda la flota de productos. El catálogo se
+ * divide en particiones (ParticionFlota) y los contadores se acumulan al
+ * confirmar cada partición; una ejecución EN_CURSO tras un reinicio se
+ * reanuda desde las particiones pendientes.
+ */
+@Entity
+@Table(name = "ejecucion_flota")
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class EjecucionFlota implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String EN_CURSO = "EN_CURSO";
+    public static final String COMPLETADA = "COMPLETADA";
+    public static final String CANCELADA = "CANCELADA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_ejecucion")
+    private Long ejecucionId;
+
+    // EN_CURSO, COMPLETADA o CANCELADA
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    // MANUAL (endpoint) o NOCTURNO (cron)
+    @Column(name = "origen", nullable = false, length = 20)
+    private String origen;
+
+    @Column(name = "horizonte", nullable = false)
+    private Integer horizonte;
+
+    @Column(name = "tamano_particion", nullable = false)
+    private Integer tamanoParticion;
+
+    @Column(name = "total_productos", nullable = false)
+    private Integer totalProductos;
+
+    @Column(name = "total_particiones", nullable = false)
+    private Integer totalParticiones;
+
+    @Column(name = "particiones_completadas", nullable = false)
+    private Integer particionesCompletadas;
+
+    @Column(name = "productos_procesados", nullable = false)
+    private Integer productosProcesados;
+
+    // Productos sin historia suficiente
+    @Column(name = "productos_omitidos", nullable = false)
+    private Integer productosOmitidos;
+
+    @Column(name = "productos_fallidos", nullable = false)
+    private Integer productosFallidos;
+
+    @Column(name = "fecha_inicio", nullable = false)
+    private LocalDateTime fechaInicio;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    @Column(name = "fecha_fin")
+    private LocalDateTime fechaFin;
+}
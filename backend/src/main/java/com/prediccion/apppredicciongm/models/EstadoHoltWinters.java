@@ -0,0 +1,78 @@
+package com.prediccion.apppredicciongm.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Estado del modelo Holt-Winters en línea de un producto: nivel, tendencia e
+ * índices estacionales por día de la semana, más el día en curso que aún
+ * acumula ventas y los errores de pronóstico a un paso.
+ */
+@Entity
+@Table(name = "estado_holt_winters",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"producto_id"}))
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class EstadoHoltWinters implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_estado")
+    private Long estadoId;
+
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+
+    @Column(name = "nivel", nullable = false)
+    private Double nivel;
+
+    @Column(name = "tendencia", nullable = false)
+    private Double tendencia;
+
+    // Índice estacional aditivo por día de la semana (0 = lunes ... 6 = domingo)
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "indices_estacionales", nullable = false)
+    private double[] indicesEstacionales;
+
+    // Último día ya incorporado al modelo
+    @Column(name = "ultimo_dia_cerrado")
+    private LocalDate ultimoDiaCerrado;
+
+    // Día que todavía acumula ventas (se incorpora al cerrarse)
+    @Column(name = "dia_abierto")
+    private LocalDate diaAbierto;
+
+    @Column(name = "acumulado_dia_abierto", nullable = false)
+    private Double acumuladoDiaAbierto;
+
+    // Errores de pronóstico a un paso desde la última recalibración
+    @Column(name = "dias_evaluados", nullable = false)
+    private Integer diasEvaluados;
+
+    @Column(name = "dias_con_demanda", nullable = false)
+    private Integer diasConDemanda;
+
+    @Column(name = "suma_error_absoluto", nullable = false)
+    private Double sumaErrorAbsoluto;
+
+    @Column(name = "suma_error_cuadrado", nullable = false)
+    private Double sumaErrorCuadrado;
+
+    @Column(name = "suma_error_porcentual", nullable = false)
+    private Double sumaErrorPorcentual;
+
+    @Column(name = "fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+}
@@ -0,0 +1,65 @@
+package com.prediccion.apppredicciongm.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Partición de una ejecución de flota: lista fija de productos que se
+ * pronostican y confirman juntos. Funciona como punto de control: al
+ * reanudar solo se procesan las particiones PENDIENTE.
+ */
+@Entity
+@Table(name = "particion_flota",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"ejecucion_id", "indice"}))
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ParticionFlota implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final String PENDIENTE = "PENDIENTE";
+    public static final String COMPLETADA = "COMPLETADA";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_particion")
+    private Long particionId;
+
+    @Column(name = "ejecucion_id", nullable = false)
+    private Long ejecucionId;
+
+    @Column(name = "indice", nullable = false)
+    private Integer indice;
+
+    // IDs de producto de la partición, en orden ascendente
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    @Column(name = "producto_ids", nullable = false)
+    private int[] productoIds;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado;
+
+    @Column(name = "procesados")
+    private Integer procesados;
+
+    @Column(name = "omitidos")
+    private Integer omitidos;
+
+    @Column(name = "fallidos")
+    private Integer fallidos;
+
+    @Column(name = "duracion_ms")
+    private Long duracionMs;
+
+    @Column(name = "fecha_fin")
+    private LocalDateTime fechaFin;
+}
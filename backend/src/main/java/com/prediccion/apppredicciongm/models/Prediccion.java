@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 import com.prediccion.apppredicciongm.models.Inventario.Producto;
@@ -40,6 +41,14 @@ public class Prediccion implements Serializable {
     @Column(name="metricas_error" )
     private BigDecimal metricasError;
 
+    // Curva diaria + MAE/RMSE/MAPE de validación empaquetados (CurvaPrediccionCompacta)
+    @Column(name = "curva_compacta")
+    private byte[] curvaCompacta;
+
+    // Fecha del primer día de la curva
+    @Column(name = "fecha_inicio_curva")
+    private LocalDate fechaInicioCurva;
+
     @ManyToOne
     @JoinColumn(name="id_producto", referencedColumnName = "id_producto")
     private Producto producto;
@@ -0,0 +1,61 @@
+package com.prediccion.apppredicciongm.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Precisión medida de un algoritmo para un producto mediante backtesting
+ * walk-forward (varios orígenes móviles). Una fila por producto y algoritmo;
+ * cada ejecución reemplaza la anterior.
+ */
+@Entity
+@Table(name = "resultado_backtesting",
+    uniqueConstraints = @UniqueConstraint(columnNames = {"producto_id", "algoritmo"}))
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class ResultadoBacktesting implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_resultado")
+    private Long resultadoId;
+
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+
+    @Column(name = "algoritmo", nullable = false, length = 40)
+    private String algoritmo;
+
+    @Column(name = "num_origenes", nullable = false)
+    private Integer numOrigenes;
+
+    @Column(name = "horizonte_evaluacion", nullable = false)
+    private Integer horizonteEvaluacion;
+
+    @Column(name = "longitud_serie", nullable = false)
+    private Integer longitudSerie;
+
+    @Column(name = "mape")
+    private Double mape;
+
+    @Column(name = "rmse")
+    private Double rmse;
+
+    @Column(name = "mae")
+    private Double mae;
+
+    @Column(name = "duracion_ms")
+    private Long duracionMs;
+
+    @Column(name = "fecha_evaluacion", nullable = false)
+    private LocalDateTime fechaEvaluacion;
+}
@@ -0,0 +1,68 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PresupuestoConexionesService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ejecutor de lotes con el presupuesto de conexiones de producción (pool de
+ * 2, una reservada a la web): un único permiso para todo el trabajo en
+ * segundo plano.
+ */
+class EjecutorLotesServiceTest {
+
+    private final PresupuestoConexionesService presupuesto = new PresupuestoConexionesService(2, 1);
+    private final EjecutorLotesService ejecutorLotes = new EjecutorLotesService(0, 256, 5, presupuesto);
+
+    @AfterEach
+    void cerrar() {
+        ejecutorLotes.cerrar();
+    }
+
+    @Test
+    void loteAnidadoConUnSoloPermisoSeProcesaEnLinea() throws Exception {
+        assertEquals(1, presupuesto.permisos());
+
+        CompletableFuture<List<Integer>> externo = CompletableFuture.supplyAsync(() ->
+                ejecutorLotes.procesarTodos(List.of(1, 2), i ->
+                        ejecutorLotes.procesarTodos(List.of(10, 20), j -> i * j).stream()
+                                .mapToInt(Integer::intValue)
+                                .sum()));
+
+        assertEquals(List.of(30, 60), externo.get(2, TimeUnit.SECONDS));
+        assertEquals(2L, ejecutorLotes.obtenerEstadisticas().get("lotesEnLinea"));
+    }
+
+    @Test
+    void tareaDelLoteEsperaElPermisoDeOtroTrabajoEnSegundoPlano() throws Exception {
+        CountDownLatch tomado = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        Thread flota = new Thread(() -> presupuesto.ejecutar(() -> {
+            tomado.countDown();
+            try {
+                soltar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        flota.start();
+        assertTrue(tomado.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<Integer> tarea = ejecutorLotes.enviar(() -> 1);
+        assertThrows(TimeoutException.class, () -> tarea.get(200, TimeUnit.MILLISECONDS));
+
+        soltar.countDown();
+        assertEquals(1, tarea.get(2, TimeUnit.SECONDS));
+        flota.join(1000);
+    }
+}
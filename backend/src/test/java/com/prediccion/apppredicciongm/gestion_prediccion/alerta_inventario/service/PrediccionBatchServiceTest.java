@@ -0,0 +1,168 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.request.ProcesarAlertasRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.dto.response.ProcesamientoBatchResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.repository.IAlertaInventarioRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.calculo_optimizacion.service.IOptimizacionInventarioService;
+import com.prediccion.apppredicciongm.gestion_prediccion.estacionalidad.service.AnalisisEstacionalidadService;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.CurvaPrediccionService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.ISmartPredictorService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PrediccionCalculada;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service.PresupuestoConexionesService;
+import com.prediccion.apppredicciongm.models.AlertaInventario;
+import com.prediccion.apppredicciongm.models.Inventario.Producto;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Aislamiento de fallos en el procesamiento automatico de alertas: una
+ * prediccion entrenada se confirma aunque falle su optimizacion, y un fallo
+ * al registrar una alerta no se lleva consigo a las demas del bloque.
+ * Servicios y gestor de transacciones simulados, sin base de datos.
+ */
+class PrediccionBatchServiceTest {
+
+    private final ISmartPredictorService smartPredictor = mock(ISmartPredictorService.class);
+    private final IAlertaInventarioRepositorio alertaRepositorio = mock(IAlertaInventarioRepositorio.class);
+    private final IOptimizacionBatchService optimizacionBatch = mock(IOptimizacionBatchService.class);
+    private final IOrdenCompraBatchService ordenCompraBatch = mock(IOrdenCompraBatchService.class);
+    private final AlmacenSeriesDemandaService almacenSeries = mock(AlmacenSeriesDemandaService.class);
+    private final CurvaPrediccionService curvaPrediccion = mock(CurvaPrediccionService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final EjecutorLotesService ejecutorLotes = new EjecutorLotesService(0, 256, 5,
+            new PresupuestoConexionesService(2, 1));
+
+    private PrediccionBatchService servicio;
+
+    @BeforeEach
+    void preparar() {
+        servicio = new PrediccionBatchService(smartPredictor, alertaRepositorio, optimizacionBatch, ordenCompraBatch,
+                mock(AnalisisEstacionalidadService.class), mock(HorizontePrediccionService.class), almacenSeries,
+                mock(IOptimizacionInventarioService.class), curvaPrediccion, ejecutorLotes, transactionManager);
+        ReflectionTestUtils.setField(servicio, "tamanoBloque", 5);
+
+        when(transactionManager.getTransaction(any())).thenAnswer(invocacion -> new SimpleTransactionStatus());
+        when(ordenCompraBatch.agruparAlertasPorProveedor(anyList())).thenReturn(Map.of());
+        when(curvaPrediccion.obtenerVigente(anyLong(), anyInt())).thenReturn(Optional.empty());
+
+        AlmacenSeriesDemandaService.SerieDemanda serie = mock(AlmacenSeriesDemandaService.SerieDemanda.class);
+        when(serie.numRegistros()).thenReturn(120);
+        when(almacenSeries.obtener(anyLong())).thenReturn(serie);
+    }
+
+    @AfterEach
+    void cerrar() {
+        ejecutorLotes.cerrar();
+    }
+
+    @Test
+    void prediccionSeConfirmaAunqueFalleLaOptimizacion() {
+        List<AlertaInventario> alertas = alertas(1);
+        when(alertaRepositorio.findAllById(anyList())).thenReturn(alertas);
+        PrediccionCalculada calculada = entrenada(1, 501L);
+        when(optimizacionBatch.ejecutarOptimizacionIndividual(eq(501), any()))
+                .thenThrow(new IllegalStateException("Sin costo de pedido configurado"));
+
+        ProcesamientoBatchResponse respuesta = servicio.ejecutarPrediccionesBatch(solicitud(alertas));
+
+        assertEquals(1, respuesta.getExitosos());
+        assertEquals(List.of(501L), respuesta.getPrediccionesGeneradas());
+        assertTrue(respuesta.getMensajesError().stream()
+                .anyMatch(mensaje -> mensaje.contains("Sin costo de pedido configurado")));
+
+        // Registro confirmado antes de optimizar; nada se revierte
+        InOrder orden = inOrder(smartPredictor, transactionManager, optimizacionBatch);
+        orden.verify(smartPredictor).registrarPrediccion(calculada);
+        orden.verify(transactionManager).commit(any());
+        orden.verify(optimizacionBatch).ejecutarOptimizacionIndividual(eq(501), any());
+        verify(transactionManager, never()).rollback(any());
+    }
+
+    @Test
+    void falloAlRegistrarSoloAfectaASuAlerta() {
+        List<AlertaInventario> alertas = alertas(2);
+        when(alertaRepositorio.findAllById(anyList())).thenReturn(alertas);
+        PrediccionCalculada primera = entrenada(1, 601L);
+        PrediccionCalculada segunda = entrenada(2, 602L);
+        when(smartPredictor.registrarPrediccion(segunda))
+                .thenThrow(new IllegalStateException("Violación de restricción en prediccion"));
+
+        ProcesamientoBatchResponse respuesta = servicio.ejecutarPrediccionesBatch(solicitud(alertas));
+
+        assertEquals(1, respuesta.getExitosos());
+        assertEquals(1, respuesta.getFallidos());
+        assertEquals(List.of(601L), respuesta.getPrediccionesGeneradas());
+        assertTrue(respuesta.getMensajesError().stream()
+                .anyMatch(mensaje -> mensaje.equals("Alerta ID 2: Violación de restricción en prediccion")));
+
+        // Solo se repite el registro: cada producto se entrena una vez
+        verify(smartPredictor, times(2)).calcularPrediccion(any());
+        verify(smartPredictor, times(2)).registrarPrediccion(primera);
+        verify(optimizacionBatch).ejecutarOptimizacionIndividual(eq(601), any());
+        verify(optimizacionBatch, never()).ejecutarOptimizacionIndividual(eq(602), any());
+    }
+
+    private List<AlertaInventario> alertas(int cantidad) {
+        List<AlertaInventario> alertas = new ArrayList<>();
+        for (int i = 1; i <= cantidad; i++) {
+            Producto producto = new Producto();
+            producto.setProductoId(i);
+            producto.setNombre("Producto " + i);
+            AlertaInventario alerta = new AlertaInventario();
+            alerta.setAlertaId((long) i);
+            alerta.setProducto(producto);
+            alertas.add(alerta);
+        }
+        return alertas;
+    }
+
+    /**
+     * Simula el entrenamiento del producto y el registro de su prediccion con
+     * el ID indicado.
+     */
+    private PrediccionCalculada entrenada(int productoId, long prediccionId) {
+        PrediccionCalculada calculada = mock(PrediccionCalculada.class);
+        when(smartPredictor.calcularPrediccion(argThat(
+                request -> request != null && request.getIdProducto() == productoId))).thenReturn(calculada);
+        when(smartPredictor.registrarPrediccion(calculada)).thenReturn(SmartPrediccionResponse.builder()
+                .idPrediccion(prediccionId)
+                .algoritmoUtilizado("OLS")
+                .build());
+        return calculada;
+    }
+
+    private ProcesarAlertasRequest solicitud(List<AlertaInventario> alertas) {
+        return ProcesarAlertasRequest.builder()
+                .alertaIds(alertas.stream().map(AlertaInventario::getAlertaId).toList())
+                .horizonteTiempo(30)
+                .usuarioId(1)
+                .build();
+    }
+}
@@ -0,0 +1,187 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.auth.models.SeguridadUsuario;
+import com.prediccion.apppredicciongm.auth.repository.IUsuarioRepository;
+import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.HorizontePrediccionService;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.InstantaneaParametrosService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IPrediccionRepositorio;
+import com.prediccion.apppredicciongm.models.Inventario.Producto;
+import com.prediccion.apppredicciongm.models.Prediccion;
+import com.prediccion.apppredicciongm.models.ResultadoBacktesting;
+import com.prediccion.apppredicciongm.models.Usuario;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Consultas que emite un pronóstico: el contexto (producto, estacionalidad y
+ * backtesting vigente en un join) es la única consulta con la serie en
+ * memoria, y {@link ContextoPronostico#consultas()} coincide con las llamadas
+ * a los repositorios. Repositorios y gestor de transacciones simulados, con
+ * el almacén de series real, sin base de datos.
+ */
+class ContextoPronosticoConsultasTest {
+
+    private static final long PRODUCTO = 7L;
+    private static final int DIAS = 60;
+
+    private final IProductoRepositorio productoRepository = mock(IProductoRepositorio.class);
+    private final IRegistroDemandaRepositorio registroDemandaRepositorio = mock(IRegistroDemandaRepositorio.class);
+    private final IPrediccionRepositorio prediccionRepositorio = mock(IPrediccionRepositorio.class);
+    private final IUsuarioRepository usuarioRepository = mock(IUsuarioRepository.class);
+    private final InstantaneaParametrosService instantaneaParametros = mock(InstantaneaParametrosService.class);
+    private final ModeloEntrenadoCacheService modeloCache = mock(ModeloEntrenadoCacheService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final AlmacenSeriesDemandaService almacenSeries = new AlmacenSeriesDemandaService(registroDemandaRepositorio);
+
+    private final Producto producto = new Producto();
+    private SmartPredictorServiceImpl servicio;
+
+    @BeforeEach
+    void preparar() {
+        servicio = new SmartPredictorServiceImpl(productoRepository, almacenSeries,
+                mock(HorizontePrediccionService.class), prediccionRepositorio, usuarioRepository,
+                instantaneaParametros, modeloCache, mock(TorneoAlgoritmosService.class),
+                mock(HoltWintersOnlineService.class), mock(ModeloGlobalGBTService.class),
+                mock(EscaleraDegradacionService.class), transactionManager);
+        ReflectionTestUtils.setField(servicio, "vigenciaBacktestingDias", 7);
+        ReflectionTestUtils.setField(servicio, "intermitenteHabilitado", true);
+
+        producto.setProductoId((int) PRODUCTO);
+        producto.setNombre("Arroz");
+
+        LocalDateTime inicio = LocalDate.now().minusDays(DIAS).atStartOfDay();
+        List<Object[]> filas = new ArrayList<>();
+        for (int d = 0; d < DIAS; d++) {
+            filas.add(new Object[] { (int) PRODUCTO, inicio.plusDays(d), 20 + d % 5 });
+        }
+        when(registroDemandaRepositorio.findSerieProyectadaByProductoId((int) PRODUCTO)).thenReturn(filas);
+        when(productoRepository.findContextoPronostico(eq((int) PRODUCTO), any()))
+                .thenReturn(List.<Object[]>of(new Object[] { producto, null, null }));
+
+        when(transactionManager.getTransaction(any())).thenAnswer(invocacion -> new SimpleTransactionStatus());
+        when(instantaneaParametros.obtenerInt(anyString(), anyString(), anyInt()))
+                .thenAnswer(invocacion -> invocacion.getArgument(2));
+        when(instantaneaParametros.obtenerDouble(anyString(), anyString(), anyDouble()))
+                .thenAnswer(invocacion -> invocacion.getArgument(2));
+        when(modeloCache.obtenerOEntrenar(any(), any()))
+                .thenAnswer(invocacion -> ((Supplier<?>) invocacion.getArgument(1)).get());
+        when(prediccionRepositorio.save(any(Prediccion.class))).thenAnswer(invocacion -> {
+            Prediccion prediccion = invocacion.getArgument(0);
+            prediccion.setPrediccionId(1);
+            return prediccion;
+        });
+    }
+
+    @AfterEach
+    void limpiar() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void serieEnMemoriaEmiteUnaConsulta() {
+        almacenSeries.obtener(PRODUCTO);
+
+        ContextoPronostico contexto = servicio.construirContexto(PRODUCTO);
+        contexto.serieOriginal();
+        contexto.seriePreparada();
+
+        assertEquals(1, contexto.consultas());
+        verify(productoRepository).findContextoPronostico(eq((int) PRODUCTO), any());
+        verify(registroDemandaRepositorio, times(1)).findSerieProyectadaByProductoId((int) PRODUCTO);
+        verifyNoMoreInteractions(productoRepository, registroDemandaRepositorio);
+        verifyNoInteractions(usuarioRepository);
+    }
+
+    @Test
+    void almacenFrioEmiteDosConsultas() {
+        ContextoPronostico contexto = servicio.construirContexto(PRODUCTO);
+
+        assertEquals(2, contexto.consultas());
+        assertEquals(DIAS, contexto.numRegistros());
+        verify(productoRepository).findContextoPronostico(eq((int) PRODUCTO), any());
+        verify(registroDemandaRepositorio).findSerieProyectadaByProductoId((int) PRODUCTO);
+        verifyNoMoreInteractions(productoRepository, registroDemandaRepositorio);
+    }
+
+    @Test
+    void usuarioDelFiltroJwtNoConsultaLaBaseDeDatos() {
+        Usuario usuario = new Usuario();
+        usuario.setUsuarioId(1);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(new SeguridadUsuario(usuario), null, List.of()));
+        almacenSeries.obtener(PRODUCTO);
+
+        ContextoPronostico contexto = servicio.construirContexto(PRODUCTO);
+
+        assertEquals(1, contexto.consultas());
+        verify(usuarioRepository).getReferenceById(1);
+        verify(usuarioRepository, never()).findByEmail(anyString());
+    }
+
+    @Test
+    void modoAutoLeeElBacktestingVigenteEnLaConsultaDelContexto() {
+        ResultadoBacktesting mejor = ResultadoBacktesting.builder()
+                .productoId(PRODUCTO)
+                .algoritmo("LINEAR_REGRESSION")
+                .numOrigenes(4)
+                .mape(8.5)
+                .fechaEvaluacion(LocalDateTime.now().minusDays(1))
+                .build();
+        when(productoRepository.findContextoPronostico(eq((int) PRODUCTO), any()))
+                .thenReturn(List.<Object[]>of(new Object[] { producto, null, mejor }));
+        almacenSeries.obtener(PRODUCTO);
+        LocalDateTime antes = LocalDateTime.now();
+
+        SmartPrediccionRequest request = new SmartPrediccionRequest();
+        request.setIdProducto(PRODUCTO);
+        request.setHorizonteTiempo(14);
+        SmartPrediccionResponse response = servicio.generarPrediccionInteligente(request);
+
+        assertEquals("LINEAR_REGRESSION", response.getAlgoritmoUtilizado());
+        assertTrue(response.getRazonSeleccionAlgoritmo().contains("backtesting"),
+                response.getRazonSeleccionAlgoritmo());
+        assertEquals(14, response.getPrediccionesDetalladas().size());
+
+        // Una sola consulta de lectura para todo el pronóstico, con la vigencia de 7 días
+        ArgumentCaptor<LocalDateTime> desde = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(productoRepository).findContextoPronostico(eq((int) PRODUCTO), desde.capture());
+        assertTrue(!desde.getValue().isBefore(antes.minusDays(7))
+                && !desde.getValue().isAfter(LocalDateTime.now().minusDays(7)), desde.getValue().toString());
+        verifyNoMoreInteractions(productoRepository);
+        verify(registroDemandaRepositorio, times(1)).findSerieProyectadaByProductoId((int) PRODUCTO);
+        verify(prediccionRepositorio).save(any(Prediccion.class));
+    }
+}
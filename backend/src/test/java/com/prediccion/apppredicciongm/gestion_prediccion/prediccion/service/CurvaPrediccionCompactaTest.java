@@ -0,0 +1,92 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del formato binario de CurvaPrediccionCompacta: ida y vuelta,
+ * disposición de bytes documentada y NaN como "sin dato".
+ */
+class CurvaPrediccionCompactaTest {
+
+    @Test
+    void codificarYDecodificarConservaCurvaYMetricas() {
+        float[] demanda = new float[30];
+        for (int i = 0; i < demanda.length; i++) {
+            demanda[i] = 10.5f + i * 0.25f;
+        }
+        CurvaPrediccionCompacta original = new CurvaPrediccionCompacta(demanda, 1.5, 2.25, 12.5, true);
+
+        byte[] bytes = original.codificar();
+        CurvaPrediccionCompacta leida = CurvaPrediccionCompacta.decodificar(bytes);
+
+        assertEquals(138, bytes.length);
+        assertArrayEquals(demanda, leida.demandaDiaria());
+        assertEquals(1.5, leida.mae());
+        assertEquals(2.25, leida.rmse());
+        assertEquals(12.5, leida.mape());
+        assertTrue(leida.estacionalidad());
+    }
+
+    @Test
+    void metricasSinDatoSeConservanComoNaN() {
+        CurvaPrediccionCompacta original = new CurvaPrediccionCompacta(new float[] { 3f, 4f }, Double.NaN,
+                Double.NaN, Double.NaN, false);
+
+        CurvaPrediccionCompacta leida = CurvaPrediccionCompacta.decodificar(original.codificar());
+
+        assertTrue(Double.isNaN(leida.mae()));
+        assertTrue(Double.isNaN(leida.rmse()));
+        assertTrue(Double.isNaN(leida.mape()));
+        assertFalse(leida.estacionalidad());
+    }
+
+    @Test
+    void disposicionDeBytesCoincideConElFormatoDocumentado() {
+        float[] demanda = { 7.0f, 8.5f };
+        byte[] bytes = new CurvaPrediccionCompacta(demanda, 1.0, 2.0, 3.0, true).codificar();
+
+        // Empaquetado a mano: versión, banderas, días y floats little-endian
+        byte[] esperado = new byte[1 + 1 + 4 + 5 * 4];
+        esperado[0] = 1;
+        esperado[1] = 1;
+        escribirEntero(esperado, 2, demanda.length);
+        float[] floats = { 1.0f, 2.0f, 3.0f, demanda[0], demanda[1] };
+        for (int i = 0; i < floats.length; i++) {
+            escribirEntero(esperado, 6 + i * 4, Float.floatToIntBits(floats[i]));
+        }
+
+        assertArrayEquals(esperado, bytes);
+    }
+
+    @Test
+    void demandaTotalSumaLaCurva() {
+        CurvaPrediccionCompacta curva = new CurvaPrediccionCompacta(new float[] { 1f, 2f, 3.5f }, 0, 0, 0, false);
+
+        assertEquals(6.5, curva.demandaTotal(), 1e-9);
+        assertEquals(3, curva.numDias());
+    }
+
+    @Test
+    void rechazaBytesTruncadosOVersionDesconocida() {
+        byte[] bytes = new CurvaPrediccionCompacta(new float[] { 1f, 2f }, 0, 0, 0, false).codificar();
+
+        byte[] truncados = java.util.Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(IllegalArgumentException.class, () -> CurvaPrediccionCompacta.decodificar(truncados));
+
+        bytes[0] = 9;
+        assertThrows(IllegalArgumentException.class, () -> CurvaPrediccionCompacta.decodificar(bytes));
+        assertThrows(IllegalArgumentException.class, () -> CurvaPrediccionCompacta.decodificar(null));
+    }
+
+    private static void escribirEntero(byte[] destino, int posicion, int valor) {
+        for (int i = 0; i < 4; i++) {
+            destino[posicion + i] = (byte) (valor >>> (8 * i));
+        }
+    }
+}
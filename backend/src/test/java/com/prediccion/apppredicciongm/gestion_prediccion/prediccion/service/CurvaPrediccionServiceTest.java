@@ -0,0 +1,79 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IPrediccionRepositorio;
+import com.prediccion.apppredicciongm.models.Inventario.Producto;
+import com.prediccion.apppredicciongm.models.Prediccion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Vigencia de la curva guardada: además de la antigüedad, una demanda
+ * registrada después de calcularla la deja sin vigencia. Repositorio
+ * simulado, sin base de datos.
+ */
+class CurvaPrediccionServiceTest {
+
+    private final IPrediccionRepositorio prediccionRepositorio = mock(IPrediccionRepositorio.class);
+    private final CurvaPrediccionService curvas = new CurvaPrediccionService(prediccionRepositorio);
+
+    @BeforeEach
+    void preparar() {
+        ReflectionTestUtils.setField(curvas, "vigenciaHoras", 12);
+        when(prediccionRepositorio
+                .findFirstByProductoProductoIdAndHorizonteTiempoAndCurvaCompactaIsNotNullAndFechaEjecucionAfterOrderByFechaEjecucionDesc(
+                        anyInt(), anyInt(), any()))
+                .thenReturn(Optional.empty());
+    }
+
+    @Test
+    void curvaAnteriorALaDemandaRegistradaNoEstaVigente() throws InterruptedException {
+        Prediccion anterior = prediccion(7, LocalDateTime.now());
+        Thread.sleep(5);
+        assertTrue(curvas.estaVigente(anterior));
+
+        curvas.invalidarProducto(7L);
+
+        assertFalse(curvas.estaVigente(anterior));
+        assertTrue(curvas.estaVigente(prediccion(7, LocalDateTime.now().plusSeconds(1))));
+        // Otro producto no se ve afectado
+        assertTrue(curvas.estaVigente(prediccion(8, anterior.getFechaEjecucion())));
+    }
+
+    @Test
+    void obtenerVigenteSoloBuscaCurvasPosterioresALaDemanda() {
+        curvas.invalidarProducto(7L);
+        LocalDateTime invalidada = LocalDateTime.now();
+
+        curvas.obtenerVigente(7L, 30);
+
+        ArgumentCaptor<LocalDateTime> desde = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(prediccionRepositorio)
+                .findFirstByProductoProductoIdAndHorizonteTiempoAndCurvaCompactaIsNotNullAndFechaEjecucionAfterOrderByFechaEjecucionDesc(
+                        eq(7), eq(30), desde.capture());
+        assertTrue(desde.getValue().isAfter(invalidada.minusSeconds(1)),
+                "la búsqueda debe empezar en la invalidación, no 12 horas antes: " + desde.getValue());
+    }
+
+    private Prediccion prediccion(int productoId, LocalDateTime fechaEjecucion) {
+        Producto producto = new Producto();
+        producto.setProductoId(productoId);
+        Prediccion prediccion = new Prediccion();
+        prediccion.setProducto(producto);
+        prediccion.setFechaEjecucion(fechaEjecucion);
+        return prediccion;
+    }
+}
@@ -0,0 +1,124 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compara la clasificación ADI/CV² (momentos de EstadisticasSerie) y el nivel
+ * TSB con la forma directa: lista de ventas, media y varianza en recorridos
+ * separados, y TSB con el pronóstico recalculado día a día.
+ */
+class DemandaIntermitenteTest {
+
+    @Test
+    void clasificacionCoincideConRecorridoDirecto() {
+        for (double probabilidad : new double[] { 0.1, 0.4, 0.9 }) {
+            double[] serie = serieIntermitente(365, 21L, probabilidad);
+
+            DemandaIntermitente.Clasificacion clasificacion = DemandaIntermitente.clasificar(serie);
+            double[] esperado = adiYCv2Directos(serie);
+
+            assertEquals(esperado[0], clasificacion.adi(), 1e-9);
+            assertEquals(esperado[1], clasificacion.cv2(), 1e-9);
+        }
+    }
+
+    @Test
+    void diasRegistradosYSerieDensaDanLaMismaClasificacion() {
+        double[] serie = serieIntermitente(200, 8L, 0.3);
+        double[] registrados = java.util.Arrays.stream(serie).filter(v -> v > 0).toArray();
+
+        DemandaIntermitente.Clasificacion densa = DemandaIntermitente.clasificar(serie);
+        DemandaIntermitente.Clasificacion compacta = DemandaIntermitente.clasificar(registrados, serie.length);
+        DemandaIntermitente.Clasificacion desdeEstadisticas = DemandaIntermitente
+                .clasificar(EstadisticasSerie.de(registrados), serie.length);
+
+        assertEquals(densa.patron(), compacta.patron());
+        assertEquals(densa.adi(), compacta.adi(), 1e-12);
+        assertEquals(densa.cv2(), compacta.cv2(), 1e-9);
+        assertEquals(compacta, desdeEstadisticas);
+    }
+
+    @Test
+    void patronesSegunUmbrales() {
+        double[] suave = new double[60];
+        java.util.Arrays.fill(suave, 10.0);
+        assertEquals(DemandaIntermitente.Patron.SUAVE, DemandaIntermitente.clasificar(suave).patron());
+
+        double[] esporadica = serieIntermitente(365, 4L, 0.1);
+        assertTrue(DemandaIntermitente.clasificar(esporadica).esEsporadica());
+
+        DemandaIntermitente.Clasificacion sinVentas = DemandaIntermitente.clasificar(new double[30]);
+        assertEquals(Double.POSITIVE_INFINITY, sinVentas.adi());
+        assertEquals(0.0, sinVentas.cv2());
+        assertFalse(DemandaIntermitente.clasificar(suave).esEsporadica());
+    }
+
+    @Test
+    void nivelTsbCoincideConRecursionDirecta() {
+        double[] serie = serieIntermitente(300, 13L, 0.25);
+
+        for (int hasta : new int[] { 30, 240, 300 }) {
+            assertEquals(tsbDirecto(serie, hasta, 0.1, 0.05),
+                    DemandaIntermitente.nivelTsb(serie, hasta, 0.1, 0.05), 1e-9);
+        }
+        assertEquals(0.0, DemandaIntermitente.nivelTsb(new double[10], 10, 0.1, 0.05));
+    }
+
+    /** Venta con la probabilidad dada y tamaño lognormal; 0 el resto de los días. */
+    private static double[] serieIntermitente(int dias, long semilla, double probabilidad) {
+        Random aleatorio = new Random(semilla);
+        double[] serie = new double[dias];
+        for (int i = 0; i < dias; i++) {
+            if (aleatorio.nextDouble() < probabilidad) {
+                serie[i] = Math.ceil(Math.exp(1.5 + 0.8 * aleatorio.nextGaussian()));
+            }
+        }
+        return serie;
+    }
+
+    // ===== Implementación directa =====
+
+    private static double[] adiYCv2Directos(double[] serie) {
+        List<Double> ventas = new ArrayList<>();
+        for (double valor : serie) {
+            if (valor > 0) {
+                ventas.add(valor);
+            }
+        }
+        double media = ventas.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        double varianza = ventas.stream().mapToDouble(v -> (v - media) * (v - media)).average().orElse(0.0);
+        double adi = ventas.isEmpty() ? Double.POSITIVE_INFINITY : (double) serie.length / ventas.size();
+        double cv2 = media > 0 ? varianza / (media * media) : 0.0;
+        return new double[] { adi, cv2 };
+    }
+
+    private static double tsbDirecto(double[] serie, int hasta, double alfa, double beta) {
+        List<Double> ventas = new ArrayList<>();
+        for (int i = 0; i < hasta; i++) {
+            if (serie[i] > 0) {
+                ventas.add(serie[i]);
+            }
+        }
+        if (ventas.isEmpty()) {
+            return 0.0;
+        }
+        double probabilidad = (double) ventas.size() / hasta;
+        double tamano = ventas.stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
+        for (int i = 0; i < hasta; i++) {
+            boolean hayVenta = serie[i] > 0;
+            probabilidad = probabilidad + beta * ((hayVenta ? 1.0 : 0.0) - probabilidad);
+            if (hayVenta) {
+                tamano = tamano + alfa * (serie[i] - tamano);
+            }
+        }
+        return probabilidad * tamano;
+    }
+}
@@ -0,0 +1,180 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara EstadisticasSerie (una pasada + FFT) con los recorridos directos
+ * que reemplazó: CV, pendiente y R² en bucles simples, y una correlación
+ * recalculada desde cero por cada lag.
+ */
+class EstadisticasSerieTest {
+
+    private static final double TOLERANCIA = 1e-9;
+
+    @Test
+    void momentosYTendenciaCoincidenConRecorridoDirecto() {
+        for (int dias : new int[] { 2, 7, 90, 731 }) {
+            double[] serie = serieDemanda(dias, 42L);
+            EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
+
+            double media = 0.0;
+            for (double valor : serie) {
+                media += valor;
+            }
+            media /= serie.length;
+            double varianza = 0.0;
+            for (double valor : serie) {
+                varianza += (valor - media) * (valor - media);
+            }
+            varianza /= serie.length;
+
+            assertEquals(media, estadisticas.media(), TOLERANCIA);
+            assertEquals(varianza, estadisticas.varianza(), TOLERANCIA * Math.max(1.0, varianza));
+            assertEquals(Math.sqrt(varianza) / media, estadisticas.coeficienteVariacion(1.0), TOLERANCIA);
+            assertEquals(pendienteDirecta(serie), estadisticas.pendiente(), TOLERANCIA);
+            assertEquals(r2Directo(serie), estadisticas.r2(), TOLERANCIA);
+        }
+    }
+
+    @Test
+    void correlacionLagCoincideConPearsonPorLag() {
+        double[] serie = serieDemanda(365, 7L);
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
+
+        for (int lag = 1; lag <= 30; lag++) {
+            assertEquals(correlacionConLag(serie, lag), estadisticas.correlacionLag(lag), 1e-8, "lag " + lag);
+        }
+    }
+
+    @Test
+    void autocorrelacionCoincideConAcfDirecta() {
+        double[] serie = serieDemanda(200, 3L);
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
+
+        for (int lag = 0; lag < serie.length; lag += 9) {
+            assertEquals(autocorrelacionDirecta(serie, lag), estadisticas.autocorrelacion(lag), 1e-8, "lag " + lag);
+        }
+    }
+
+    @Test
+    void momentosDeDiasConDemandaCoincidenConFiltroDirecto() {
+        double[] serie = serieDemanda(120, 9L);
+        for (int i = 0; i < serie.length; i += 3) {
+            serie[i] = 0.0;
+        }
+        EstadisticasSerie estadisticas = EstadisticasSerie.de(serie);
+
+        double[] positivos = java.util.Arrays.stream(serie).filter(v -> v > 0).toArray();
+        double media = java.util.Arrays.stream(positivos).average().orElse(0.0);
+        double varianza = java.util.Arrays.stream(positivos).map(v -> (v - media) * (v - media)).average().orElse(0.0);
+
+        assertEquals(positivos.length, estadisticas.diasConDemanda());
+        assertEquals(media, estadisticas.mediaConDemanda(), TOLERANCIA);
+        assertEquals(varianza, estadisticas.varianzaConDemanda(), 1e-8);
+    }
+
+    @Test
+    void seriesDegeneradasDevuelvenCero() {
+        EstadisticasSerie vacia = EstadisticasSerie.de(new double[0]);
+        assertEquals(0.0, vacia.media());
+        assertEquals(1.0, vacia.coeficienteVariacion(1.0));
+        assertEquals(0.0, vacia.autocorrelacion(1));
+
+        EstadisticasSerie constante = EstadisticasSerie.de(new double[] { 5, 5, 5, 5, 5, 5 });
+        assertEquals(0.0, constante.pendiente());
+        assertEquals(0.0, constante.r2());
+        assertEquals(0.0, constante.correlacionLag(2));
+        assertEquals(0.0, constante.autocorrelacion(1));
+    }
+
+    /** Demanda diaria sintética: nivel, tendencia, ciclo semanal y ruido. */
+    static double[] serieDemanda(int dias, long semilla) {
+        Random aleatorio = new Random(semilla);
+        double[] serie = new double[dias];
+        for (int i = 0; i < dias; i++) {
+            double semanal = (i % 7 >= 5) ? 8.0 : 0.0;
+            serie[i] = Math.max(0.0, 40.0 + 0.05 * i + semanal + aleatorio.nextGaussian() * 6.0);
+        }
+        return serie;
+    }
+
+    // ===== Implementación directa (la que usaban los servicios) =====
+
+    private static double pendienteDirecta(double[] serie) {
+        double n = serie.length;
+        double sumX = 0.0, sumY = 0.0, sumXY = 0.0, sumX2 = 0.0;
+        for (int i = 0; i < serie.length; i++) {
+            sumX += i;
+            sumY += serie[i];
+            sumXY += i * serie[i];
+            sumX2 += (double) i * i;
+        }
+        return (n * sumXY - sumX * sumY) / (n * sumX2 - sumX * sumX);
+    }
+
+    private static double r2Directo(double[] serie) {
+        double pendiente = pendienteDirecta(serie);
+        double mediaT = (serie.length - 1) / 2.0;
+        double media = 0.0;
+        for (double valor : serie) {
+            media += valor;
+        }
+        media /= serie.length;
+        double intercepto = media - pendiente * mediaT;
+        double ssRes = 0.0;
+        double ssTot = 0.0;
+        for (int i = 0; i < serie.length; i++) {
+            double residuo = serie[i] - (intercepto + pendiente * i);
+            ssRes += residuo * residuo;
+            ssTot += (serie[i] - media) * (serie[i] - media);
+        }
+        return ssTot > 0 ? 1.0 - ssRes / ssTot : 0.0;
+    }
+
+    private static double correlacionConLag(double[] serie, int lag) {
+        int n = serie.length - lag;
+        double mediaX = 0.0;
+        double mediaY = 0.0;
+        for (int i = 0; i < n; i++) {
+            mediaX += serie[i];
+            mediaY += serie[i + lag];
+        }
+        mediaX /= n;
+        mediaY /= n;
+
+        double numerador = 0.0;
+        double denomX = 0.0;
+        double denomY = 0.0;
+        for (int i = 0; i < n; i++) {
+            double diffX = serie[i] - mediaX;
+            double diffY = serie[i + lag] - mediaY;
+            numerador += diffX * diffY;
+            denomX += diffX * diffX;
+            denomY += diffY * diffY;
+        }
+        double denominador = Math.sqrt(denomX * denomY);
+        return denominador > 0.0 ? numerador / denominador : 0.0;
+    }
+
+    private static double autocorrelacionDirecta(double[] serie, int lag) {
+        double media = 0.0;
+        for (double valor : serie) {
+            media += valor;
+        }
+        media /= serie.length;
+        double numerador = 0.0;
+        double denominador = 0.0;
+        for (int i = 0; i < serie.length; i++) {
+            double d = serie[i] - media;
+            denominador += d * d;
+            if (i + lag < serie.length) {
+                numerador += d * (serie[i + lag] - media);
+            }
+        }
+        return denominador > 0 ? numerador / denominador : 0.0;
+    }
+}
@@ -0,0 +1,76 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import org.junit.jupiter.api.Test;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.regression.LinearModel;
+import smile.regression.OLS;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * El camino rápido de los modelos lineales (producto punto sobre los
+ * coeficientes) contra model.predict de Smile sobre las mismas filas, con
+ * una feature (tiempo) y con varias (lags).
+ */
+class InferenciaLoteMLTest {
+
+    private static final int LAGS = 3;
+
+    @Test
+    void modeloLinealConTiempoCoincideConPredict() {
+        double[] serie = EstadisticasSerieTest.serieDemanda(100, 3L);
+        double[] tiempo = new double[80];
+        for (int i = 0; i < tiempo.length; i++) {
+            tiempo[i] = i;
+        }
+        LinearModel modelo = OLS.fit(Formula.lhs("demanda"), DataFrame.of(
+                DoubleVector.of("tiempo", tiempo),
+                DoubleVector.of("demanda", Arrays.copyOf(serie, 80))));
+
+        double[] futuro = new double[50];
+        for (int i = 0; i < futuro.length; i++) {
+            futuro[i] = 80 + i;
+        }
+        double[] esperado = modelo.predict(DataFrame.of(DoubleVector.of("tiempo", futuro)));
+
+        assertArrayEquals(esperado, InferenciaLoteML.predecirTiempo(modelo, 80, 50), 1e-8);
+    }
+
+    @Test
+    void modeloLinealConVariasFeaturesCoincideConPredict() {
+        double[] serie = EstadisticasSerieTest.serieDemanda(120, 9L);
+        int filas = serie.length - LAGS;
+        String[] nombres = new String[LAGS];
+        DoubleVector[] columnas = new DoubleVector[LAGS + 1];
+        for (int lag = 0; lag < LAGS; lag++) {
+            double[] columna = new double[filas];
+            for (int i = 0; i < filas; i++) {
+                columna[i] = serie[i + lag];
+            }
+            nombres[lag] = "lag" + (lag + 1);
+            columnas[lag] = DoubleVector.of(nombres[lag], columna);
+        }
+        columnas[LAGS] = DoubleVector.of("demanda", Arrays.copyOfRange(serie, LAGS, serie.length));
+        DataFrame datos = DataFrame.of(columnas);
+        LinearModel modelo = OLS.fit(Formula.lhs("demanda"), datos);
+
+        double[] ajuste = InferenciaLoteML.coeficientesLineales(modelo, nombres);
+        double[] coeficientes = Arrays.copyOfRange(ajuste, 1, ajuste.length);
+        double[] esperado = modelo.predict(datos);
+
+        assertEquals(LAGS + 1, ajuste.length);
+        double[] x = new double[LAGS];
+        for (int i = 0; i < filas; i++) {
+            for (int lag = 0; lag < LAGS; lag++) {
+                x[lag] = serie[i + lag];
+            }
+            assertEquals(esperado[i], InferenciaLoteML.predecirLineal(coeficientes, ajuste[0], x), 1e-8,
+                    "fila " + i);
+        }
+    }
+}
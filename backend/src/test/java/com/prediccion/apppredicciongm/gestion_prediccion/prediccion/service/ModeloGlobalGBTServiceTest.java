@@ -0,0 +1,206 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import com.prediccion.apppredicciongm.auth.repository.IUsuarioRepository;
+import com.prediccion.apppredicciongm.gestion_inventario.producto.repository.IProductoRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.alerta_inventario.service.HorizontePrediccionService;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.repository.IRegistroDemandaRepositorio;
+import com.prediccion.apppredicciongm.gestion_prediccion.normalizacion.service.AlmacenSeriesDemandaService;
+import com.prediccion.apppredicciongm.gestion_prediccion.parametro_algoritmo.service.InstantaneaParametrosService;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.request.SmartPrediccionRequest;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.dto.response.SmartPrediccionResponse;
+import com.prediccion.apppredicciongm.gestion_prediccion.prediccion.repository.IPrediccionRepositorio;
+import com.prediccion.apppredicciongm.models.Inventario.Producto;
+import com.prediccion.apppredicciongm.models.Prediccion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import smile.data.DataFrame;
+import smile.data.formula.Formula;
+import smile.data.vector.DoubleVector;
+import smile.math.MathEx;
+import smile.regression.GradientTreeBoost;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Modelo GBT global: la inferencia recursiva con un único DataFrame
+ * reutilizado da lo mismo que un DataFrame nuevo por paso, y un pronóstico
+ * resuelto con el modelo global no registra métricas a nombre del modelo por
+ * producto de la caché. Repositorios simulados, sin base de datos.
+ */
+class ModeloGlobalGBTServiceTest {
+
+    private static final long PRODUCTO = 7L;
+    private static final int DIAS = 60;
+    private static final double ESCALA = 20.0;
+    private static final double NIVEL_CATEGORIA = Math.log1p(ESCALA);
+
+    private final IProductoRepositorio productoRepository = mock(IProductoRepositorio.class);
+    private final IRegistroDemandaRepositorio registroDemandaRepositorio = mock(IRegistroDemandaRepositorio.class);
+    private final IPrediccionRepositorio prediccionRepositorio = mock(IPrediccionRepositorio.class);
+    private final InstantaneaParametrosService instantaneaParametros = mock(InstantaneaParametrosService.class);
+    private final ModeloEntrenadoCacheService modeloCache = mock(ModeloEntrenadoCacheService.class);
+    private final ModeloGlobalGBTService modeloGlobal = mock(ModeloGlobalGBTService.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private SmartPredictorServiceImpl servicio;
+
+    @BeforeEach
+    void preparar() {
+        servicio = new SmartPredictorServiceImpl(productoRepository,
+                new AlmacenSeriesDemandaService(registroDemandaRepositorio), mock(HorizontePrediccionService.class),
+                prediccionRepositorio, mock(IUsuarioRepository.class), instantaneaParametros, modeloCache,
+                mock(TorneoAlgoritmosService.class), mock(HoltWintersOnlineService.class), modeloGlobal,
+                mock(EscaleraDegradacionService.class), transactionManager);
+
+        Producto producto = new Producto();
+        producto.setProductoId((int) PRODUCTO);
+        producto.setNombre("Arroz");
+
+        LocalDateTime inicio = LocalDate.now().minusDays(DIAS).atStartOfDay();
+        List<Object[]> filas = new ArrayList<>();
+        for (int d = 0; d < DIAS; d++) {
+            filas.add(new Object[] { (int) PRODUCTO, inicio.plusDays(d), 20 + d % 5 });
+        }
+        when(registroDemandaRepositorio.findSerieProyectadaByProductoId((int) PRODUCTO)).thenReturn(filas);
+        when(productoRepository.findContextoPronostico(eq((int) PRODUCTO), any()))
+                .thenReturn(List.<Object[]>of(new Object[] { producto, null, null }));
+
+        when(transactionManager.getTransaction(any())).thenAnswer(invocacion -> new SimpleTransactionStatus());
+        when(instantaneaParametros.obtenerInt(anyString(), anyString(), anyInt()))
+                .thenAnswer(invocacion -> invocacion.getArgument(2));
+        when(instantaneaParametros.obtenerDouble(anyString(), anyString(), anyDouble()))
+                .thenAnswer(invocacion -> invocacion.getArgument(2));
+        when(modeloCache.obtenerOEntrenar(any(), any()))
+                .thenAnswer(invocacion -> ((Supplier<?>) invocacion.getArgument(1)).get());
+        when(prediccionRepositorio.save(any(Prediccion.class))).thenAnswer(invocacion -> {
+            Prediccion prediccion = invocacion.getArgument(0);
+            prediccion.setPrediccionId(1);
+            return prediccion;
+        });
+    }
+
+    @Test
+    void predecirRecursivoReutilizandoElDataFrameCoincideConUnoPorPaso() {
+        MathEx.setSeed(19650218L);
+        GradientTreeBoost gbt = entrenar();
+        double[] serie = EstadisticasSerieTest.serieDemanda(120, 21L);
+        long inicio = LocalDate.of(2025, 1, 1).toEpochDay();
+
+        double[] obtenido = ModeloGlobalGBTService.predecirRecursivo(gbt, serie, 100, 30, i -> inicio + 100 + i,
+                ESCALA, NIVEL_CATEGORIA);
+
+        double[] esperado = predecirConDataFramePorPaso(gbt, serie, 100, 30, inicio + 100);
+        assertArrayEquals(esperado, obtenido, 1e-12);
+        assertTrue(Arrays.stream(obtenido).distinct().count() > 1, "cada paso debe usar sus propias features");
+    }
+
+    @Test
+    void pronosticoDelModeloGlobalNoRegistraMetricasEnLaCache() {
+        when(modeloGlobal.pronosticar(eq(PRODUCTO), any(), anyInt(), anyInt(), anyInt())).thenAnswer(invocacion -> {
+            double[] validacion = new double[(int) invocacion.getArgument(3)];
+            double[] futuro = new double[(int) invocacion.getArgument(4)];
+            Arrays.fill(validacion, 22.0);
+            Arrays.fill(futuro, 22.0);
+            return Optional.of(new ModeloGlobalGBTService.Pronostico(validacion, futuro));
+        });
+
+        SmartPrediccionResponse response = servicio.generarPrediccionInteligente(solicitudGbt());
+
+        assertEquals("GRADIENT_BOOSTING", response.getAlgoritmoUtilizado());
+        verify(modeloCache, never()).registrarMetricas(anyLong(), anyString(), anyLong(), anyDouble(), anyDouble(),
+                anyDouble());
+    }
+
+    @Test
+    void modeloPorProductoSiRegistraSusMetricas() {
+        when(modeloGlobal.pronosticar(eq(PRODUCTO), any(), anyInt(), anyInt(), anyInt()))
+                .thenReturn(Optional.empty());
+
+        servicio.generarPrediccionInteligente(solicitudGbt());
+
+        verify(modeloCache).registrarMetricas(eq(PRODUCTO), eq("GRADIENT_BOOSTING"), anyLong(), anyDouble(),
+                anyDouble(), anyDouble());
+    }
+
+    private SmartPrediccionRequest solicitudGbt() {
+        SmartPrediccionRequest request = new SmartPrediccionRequest();
+        request.setIdProducto(PRODUCTO);
+        request.setHorizonteTiempo(14);
+        request.setAlgoritmoSeleccionado("GRADIENT_BOOSTING");
+        return request;
+    }
+
+    /** GBT pequeño sobre las features de varias series, como el entrenamiento global. */
+    private static GradientTreeBoost entrenar() {
+        int features = ModeloGlobalGBTService.FEATURES.length;
+        int porSerie = 90 - 28;
+        double[][] columnas = new double[features][porSerie * 4];
+        double[] objetivo = new double[porSerie * 4];
+        double[] fila = new double[features];
+        long inicio = LocalDate.of(2024, 6, 1).toEpochDay();
+        int f = 0;
+        for (long semilla = 1; semilla <= 4; semilla++) {
+            double[] serie = EstadisticasSerieTest.serieDemanda(90, semilla);
+            for (int t = 28; t < 90; t++, f++) {
+                ModeloGlobalGBTService.llenarFeatures(serie, t, inicio + t, ESCALA, NIVEL_CATEGORIA, fila);
+                for (int j = 0; j < features; j++) {
+                    columnas[j][f] = fila[j];
+                }
+                objetivo[f] = serie[t] / ESCALA;
+            }
+        }
+        DoubleVector[] vectores = new DoubleVector[features + 1];
+        for (int j = 0; j < features; j++) {
+            vectores[j] = DoubleVector.of(ModeloGlobalGBTService.FEATURES[j], columnas[j]);
+        }
+        vectores[features] = DoubleVector.of("demanda", objetivo);
+
+        Properties props = new Properties();
+        props.setProperty("smile.gbt.trees", "30");
+        props.setProperty("smile.gbt.max.depth", "4");
+        return GradientTreeBoost.fit(Formula.lhs("demanda"), DataFrame.of(vectores), props);
+    }
+
+    /** Versión anterior: vectores y DataFrame nuevos en cada paso. */
+    private static double[] predecirConDataFramePorPaso(GradientTreeBoost gbt, double[] serie, int origen,
+            int pasos, long primerDia) {
+        String[] nombres = ModeloGlobalGBTService.FEATURES;
+        double[] historia = Arrays.copyOf(serie, origen + pasos);
+        double[] predicciones = new double[pasos];
+        double[] fila = new double[nombres.length];
+        for (int i = 0; i < pasos; i++) {
+            int t = origen + i;
+            ModeloGlobalGBTService.llenarFeatures(historia, t, primerDia + i, ESCALA, NIVEL_CATEGORIA, fila);
+            DoubleVector[] vectores = new DoubleVector[nombres.length];
+            for (int j = 0; j < nombres.length; j++) {
+                vectores[j] = DoubleVector.of(nombres[j], new double[] { fila[j] });
+            }
+            predicciones[i] = Math.max(0, gbt.predict(DataFrame.of(vectores))[0] * ESCALA);
+            historia[t] = predicciones[i];
+        }
+        return predicciones;
+    }
+}
@@ -0,0 +1,144 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Compara RegresionLagsIncremental con la versión directa del mismo cálculo:
+ * ecuaciones normales resueltas por eliminación gaussiana, reajuste completo
+ * en lugar de RLS y una ventana de lags que se desplaza en cada paso.
+ */
+class RegresionLagsIncrementalTest {
+
+    private static final int LAGS = 7;
+
+    @Test
+    void ajustarCoincideConEcuacionesNormales() {
+        double[] serie = EstadisticasSerieTest.serieDemanda(120, 11L);
+        RegresionLagsIncremental regresion = new RegresionLagsIncremental(LAGS);
+
+        regresion.ajustar(serie, 100);
+        double[] esperado = ecuacionesNormales(serie, LAGS, 100);
+
+        assertEquals(esperado[0], regresion.intercepto(), 1e-8);
+        assertArrayEquals(Arrays.copyOfRange(esperado, 1, esperado.length), regresion.coeficientes(), 1e-8);
+        assertEquals(100 - LAGS, regresion.observaciones());
+    }
+
+    @Test
+    void actualizarEquivaleAReajustarConLaNuevaObservacion() {
+        double[] serie = EstadisticasSerieTest.serieDemanda(120, 5L);
+        RegresionLagsIncremental incremental = new RegresionLagsIncremental(LAGS);
+        incremental.ajustar(serie, 80);
+        for (int t = 80; t < 110; t++) {
+            incremental.actualizar(serie, t);
+        }
+
+        RegresionLagsIncremental reajustada = new RegresionLagsIncremental(LAGS);
+        reajustada.ajustar(serie, 110);
+
+        assertEquals(reajustada.intercepto(), incremental.intercepto(), 1e-6);
+        assertArrayEquals(reajustada.coeficientes(), incremental.coeficientes(), 1e-6);
+        assertEquals(reajustada.observaciones(), incremental.observaciones());
+    }
+
+    @Test
+    void predecirRecursivoCoincideConVentanaDesplazada() {
+        double[] serie = EstadisticasSerieTest.serieDemanda(90, 17L);
+        RegresionLagsIncremental regresion = new RegresionLagsIncremental(LAGS);
+        regresion.ajustar(serie, 90);
+
+        double[] esperado = predecirDesplazando(serie, 90, 30, regresion.intercepto(), regresion.coeficientes());
+
+        assertArrayEquals(esperado, regresion.predecirRecursivo(serie, 90, 30), 1e-9);
+    }
+
+    @Test
+    void seriePlanaEsDeRangoDeficienteSalvoConInicializar() {
+        double[] plana = new double[40];
+        Arrays.fill(plana, 12.0);
+        RegresionLagsIncremental regresion = new RegresionLagsIncremental(LAGS);
+
+        assertThrows(IllegalStateException.class, () -> regresion.ajustar(plana, 40));
+        assertDoesNotThrow(() -> regresion.inicializar(plana, 40));
+        assertEquals(12.0, regresion.predecirRecursivo(plana, 40, 1)[0], 1e-3);
+    }
+
+    @Test
+    void rechazaFilasInsuficientes() {
+        double[] serie = EstadisticasSerieTest.serieDemanda(10, 1L);
+
+        assertThrows(IllegalStateException.class, () -> new RegresionLagsIncremental(LAGS).ajustar(serie, 10));
+        assertThrows(IllegalArgumentException.class, () -> new RegresionLagsIncremental(0));
+    }
+
+    // ===== Implementación directa =====
+
+    /** (X'X)⁻¹X'y con X = [1, lag1..lagN] resuelto por eliminación gaussiana. */
+    private static double[] ecuacionesNormales(double[] serie, int lags, int hasta) {
+        int dimension = lags + 1;
+        double[][] aumentada = new double[dimension][dimension + 1];
+        for (int t = lags; t < hasta; t++) {
+            double[] fila = new double[dimension];
+            fila[0] = 1.0;
+            for (int j = 0; j < lags; j++) {
+                fila[j + 1] = serie[t - lags + j];
+            }
+            for (int i = 0; i < dimension; i++) {
+                for (int j = 0; j < dimension; j++) {
+                    aumentada[i][j] += fila[i] * fila[j];
+                }
+                aumentada[i][dimension] += fila[i] * serie[t];
+            }
+        }
+
+        for (int col = 0; col < dimension; col++) {
+            int pivote = col;
+            for (int fila = col + 1; fila < dimension; fila++) {
+                if (Math.abs(aumentada[fila][col]) > Math.abs(aumentada[pivote][col])) {
+                    pivote = fila;
+                }
+            }
+            double[] temporal = aumentada[col];
+            aumentada[col] = aumentada[pivote];
+            aumentada[pivote] = temporal;
+            for (int fila = col + 1; fila < dimension; fila++) {
+                double factor = aumentada[fila][col] / aumentada[col][col];
+                for (int j = col; j <= dimension; j++) {
+                    aumentada[fila][j] -= factor * aumentada[col][j];
+                }
+            }
+        }
+        double[] theta = new double[dimension];
+        for (int i = dimension - 1; i >= 0; i--) {
+            double suma = aumentada[i][dimension];
+            for (int j = i + 1; j < dimension; j++) {
+                suma -= aumentada[i][j] * theta[j];
+            }
+            theta[i] = suma / aumentada[i][i];
+        }
+        return theta;
+    }
+
+    private static double[] predecirDesplazando(double[] serie, int origen, int pasos, double intercepto,
+            double[] coeficientes) {
+        double[] ventana = Arrays.copyOfRange(serie, origen - coeficientes.length, origen);
+        double[] predicciones = new double[pasos];
+        for (int i = 0; i < pasos; i++) {
+            double suma = intercepto;
+            for (int j = 0; j < coeficientes.length; j++) {
+                suma += coeficientes[j] * ventana[j];
+            }
+            predicciones[i] = Math.max(0, suma);
+            System.arraycopy(ventana, 1, ventana, 0, ventana.length - 1);
+            ventana[ventana.length - 1] = predicciones[i];
+        }
+        return predicciones;
+    }
+}
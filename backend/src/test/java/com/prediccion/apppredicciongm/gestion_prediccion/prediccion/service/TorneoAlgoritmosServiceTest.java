@@ -0,0 +1,120 @@
+package com.prediccion.apppredicciongm.gestion_prediccion.prediccion.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pool de cómputo con ajustes huérfanos: un ajuste cancelado que ignora la
+ * interrupción (como los de Smile) sigue ocupando su hilo, y las tareas con
+ * plazo se rechazan sin esperar en lugar de quedar en cola detrás de él.
+ */
+class TorneoAlgoritmosServiceTest {
+
+    private static final int HILOS = 2;
+
+    private final TorneoAlgoritmosService torneo = new TorneoAlgoritmosService(HILOS, 64);
+    private final CountDownLatch terminarAjustes = new CountDownLatch(1);
+
+    @AfterEach
+    void cerrar() {
+        terminarAjustes.countDown();
+        torneo.cerrar();
+    }
+
+    @Test
+    void ajusteCanceladoConservaSuHiloHastaTerminar() throws Exception {
+        ocuparHilosConHuerfanos();
+
+        assertFalse(torneo.tieneHolgura(1));
+        assertThrows(RejectedExecutionException.class, () -> torneo.enviarConPlazo(() -> 1));
+        assertEquals(HILOS, torneo.obtenerEstadisticas().get("ajustesHuerfanos"));
+        assertEquals(0, torneo.obtenerEstadisticas().get("hilosLibres"));
+
+        terminarAjustes.countDown();
+        esperarHolgura(HILOS);
+        assertEquals(0, torneo.obtenerEstadisticas().get("ajustesHuerfanos"));
+        assertEquals((long) HILOS, torneo.obtenerEstadisticas().get("ajustesHuerfanosTotales"));
+        assertEquals(1, torneo.enviarConPlazo(() -> 1).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void cancelarUnaTareaTerminadaNoLaCuentaComoHuerfana() throws Exception {
+        ocuparHilosConHuerfanos();
+        terminarAjustes.countDown();
+        esperarHolgura(HILOS);
+
+        Future<Integer> terminada = torneo.enviarConPlazo(() -> 1);
+        assertEquals(1, terminada.get(1, TimeUnit.SECONDS));
+        assertFalse(terminada.cancel(true));
+
+        assertEquals(0, torneo.obtenerEstadisticas().get("ajustesHuerfanos"));
+        assertEquals((long) HILOS, torneo.obtenerEstadisticas().get("ajustesHuerfanosTotales"));
+    }
+
+    @Test
+    void escaleraSinHilosLibresRespondeConUltimoRecursoSinAgotarPlazos() throws Exception {
+        ocuparHilosConHuerfanos();
+        EscaleraDegradacionService escalera = new EscaleraDegradacionService(torneo);
+        ReflectionTestUtils.setField(escalera, "escalonMinimoMs", 500L);
+
+        long inicio = System.currentTimeMillis();
+        EscaleraDegradacionService.ResultadoEscalera<Integer> resultado = escalera.ejecutar(
+                List.of(new EscaleraDegradacionService.Escalon<>("GBT", () -> 1),
+                        new EscaleraDegradacionService.Escalon<>("RF", () -> 2)),
+                () -> 0, 2000);
+        long duracion = System.currentTimeMillis() - inicio;
+
+        assertEquals(EscaleraDegradacionService.ULTIMO_RECURSO, resultado.codigo());
+        assertEquals(List.of("GBT", "RF"), resultado.agotados());
+        assertTrue(duracion < 500, "los escalones sin hilo libre no deben esperar su plazo: " + duracion + "ms");
+    }
+
+    /**
+     * Ocupa todos los hilos con ajustes ya iniciados y los cancela: quedan
+     * corriendo hasta terminarAjustes.
+     */
+    private void ocuparHilosConHuerfanos() throws InterruptedException {
+        CountDownLatch iniciados = new CountDownLatch(HILOS);
+        List<Future<Integer>> ajustes = new ArrayList<>();
+        for (int i = 0; i < HILOS; i++) {
+            ajustes.add(torneo.enviarConPlazo(ajusteQueIgnoraInterrupciones(iniciados)));
+        }
+        assertTrue(iniciados.await(1, TimeUnit.SECONDS));
+        ajustes.forEach(ajuste -> ajuste.cancel(true));
+    }
+
+    private Callable<Integer> ajusteQueIgnoraInterrupciones(CountDownLatch iniciados) {
+        return () -> {
+            iniciados.countDown();
+            while (terminarAjustes.getCount() > 0) {
+                try {
+                    terminarAjustes.await();
+                } catch (InterruptedException e) {
+                    // Como un ajuste de Smile: la interrupción no lo detiene
+                }
+            }
+            return 0;
+        };
+    }
+
+    private void esperarHolgura(int tareas) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 2000;
+        while (!torneo.tieneHolgura(tareas) && System.currentTimeMillis() < limite) {
+            Thread.sleep(5);
+        }
+    }
+}